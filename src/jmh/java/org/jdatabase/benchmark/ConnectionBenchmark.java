@@ -0,0 +1,160 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.benchmark;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.JDBCConnection;
+import org.jdatabase.jdbc.JDBCConnectionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the query methods of {@link JDBCConnection} and of the translation of SQL exceptions.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConnectionBenchmark {
+
+  /**
+   * The number of rows of the benchmark table.
+   */
+  @Param({"10000"})
+  public int rows;
+
+  /**
+   * The connection to the embedded database.
+   */
+  private EmbeddedConnection connection = null;
+
+  /**
+   * The identifier of the next row to access.
+   */
+  private int id                         = 0;
+
+  /**
+   * A syntax error as thrown by the MySQL driver.
+   */
+  private SQLException syntaxError       = null;
+
+  /**
+   * A duplicate key error as thrown by the MySQL driver.
+   */
+  private SQLException duplicateError    = null;
+
+  /**
+   * Connect to the embedded database and create the benchmark table.
+   * @throws JDBCConnectionException if the database cannot be initialized.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws JDBCConnectionException{
+    connection = new EmbeddedConnection();
+    connection.connect();
+    connection.populate(rows);
+
+    syntaxError    = new SQLException("You have an error in your SQL syntax", "42000", 1064);
+    duplicateError = new SQLException("Duplicate entry '1' for key 'PRIMARY'", "23000", 1062);
+  }
+
+  /**
+   * Drop the embedded database.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown(){
+    connection.shutdown();
+  }
+
+  /**
+   * Select a single row by its primary key.
+   * @param blackhole the sink of the read values.
+   * @throws JDBCConnectionException if the query fails.
+   * @throws SQLException if the result cannot be read.
+   */
+  @Benchmark
+  public void executeQuery(Blackhole blackhole) throws JDBCConnectionException, SQLException{
+    ResultSet rset = connection.executeQuery("SELECT * FROM "+EmbeddedConnection.TABLE+" WHERE ID = "+nextId());
+
+    while(rset.next()){
+      blackhole.consume(rset.getString(2));
+      blackhole.consume(rset.getDouble(3));
+    }
+
+    rset.close();
+  }
+
+  /**
+   * Update a single row by its primary key.
+   * @return the number of updated rows.
+   * @throws JDBCConnectionException if the query fails.
+   */
+  @Benchmark
+  public int executeUpdate() throws JDBCConnectionException{
+    return connection.executeUpdate("UPDATE "+EmbeddedConnection.TABLE+" SET VAL = VAL + 1 WHERE ID = "+nextId());
+  }
+
+  /**
+   * Translate a SQL exception handled by the standard SQL states.
+   * @return the translated exception.
+   */
+  @Benchmark
+  public JDBCConnectionException processSyntaxError(){
+    return connection.processSQLException(syntaxError, connection.getDbName(), connection.getDbUser(), connection.getDbPassword(),
+                                          connection.getDbServer(), connection.getDbPort(), connection.getDbType(), "SELECT");
+  }
+
+  /**
+   * Translate a SQL exception handled by the MySQL error codes.
+   * @return the translated exception.
+   */
+  @Benchmark
+  public JDBCConnectionException processDuplicateError(){
+    return connection.processSQLException(duplicateError, connection.getDbName(), connection.getDbUser(), connection.getDbPassword(),
+                                          connection.getDbServer(), connection.getDbPort(), connection.getDbType(), "INSERT");
+  }
+
+  /**
+   * Get the identifier of the next row to access.
+   * @return the identifier of the next row to access.
+   */
+  private int nextId(){
+    id = (id + 1) % rows;
+    return id;
+  }
+}
@@ -0,0 +1,162 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.JDBCConnection;
+import org.jdatabase.jdbc.JDBCConnectionException;
+import org.jdatabase.jdbc.mysql.MySQLDatabase;
+import org.jdatabase.jdbc.mysql.MySQLTable;
+import org.jdatabase.jdbc.sql.Table;
+import org.jorigin.Common;
+
+/**
+ * A {@link JDBCConnection JDBC connection} to an in-memory H2 database running in MySQL compatibility mode. The connection is
+ * used as a {@link JDBCConnection#MYSQL MySQL} connection by the benchmarks so that the MySQL toolkit can be measured
+ * without any database server.<br>
+ * H2 does not provide the MySQL specific columns of <code>information_schema.COLUMNS</code>. They are emulated by a view
+ * of the <code>MYSQL_DICTIONARY</code> schema that is substituted to the original table within the queries.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class EmbeddedConnection extends JDBCConnection {
+
+  /**
+   * The name of the schema holding the benchmark data.
+   */
+  public static final String SCHEMA = "PUBLIC";
+
+  /**
+   * The name of the table holding the benchmark data.
+   */
+  public static final String TABLE  = "BENCH_DATA";
+
+  /**
+   * The counter used for naming the in-memory databases.
+   */
+  private static final AtomicInteger COUNTER = new AtomicInteger();
+
+  /**
+   * The URL of the in-memory database.
+   */
+  private String url = null;
+
+  /**
+   * Create a new connection to a new in-memory database.
+   */
+  public EmbeddedConnection(){
+    super("jdatabase"+COUNTER.incrementAndGet(), "sa", "", "localhost", MYSQL_STANDARD_PORT, MYSQL);
+
+    url = "jdbc:h2:mem:"+getDbName()+";MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    // Les traces des requetes faussent les mesures
+    JDatabase.logger.setLevel(Level.WARNING);
+    Common.logger.setLevel(Level.WARNING);
+  }
+
+  @Override
+  protected Connection openConnection() throws JDBCConnectionException{
+    try {
+      return DriverManager.getConnection(url, getDbUser(), getDbPassword());
+    } catch (SQLException ex) {
+      throw processSQLException(ex, getDbName(), getDbUser(), getDbPassword(), getDbServer(), getDbPort(), getDbType(), url);
+    }
+  }
+
+  @Override
+  public ResultSet executeQuery(String query) throws JDBCConnectionException{
+    return super.executeQuery(query.replace("information_schema.COLUMNS", "MYSQL_DICTIONARY.COLUMNS"));
+  }
+
+  /**
+   * Create the MySQL dictionary emulation and the benchmark table filled with the given number of rows.
+   * The connection has to be {@link #connect() connected}.
+   * @param rows the number of rows of the benchmark table.
+   * @throws JDBCConnectionException if the database cannot be initialized.
+   */
+  public void populate(int rows) throws JDBCConnectionException{
+    Connection connection       = getConnection();
+    Statement statement         = null;
+    PreparedStatement insert    = null;
+
+    try {
+      statement = connection.createStatement();
+
+      statement.executeUpdate("CREATE SCHEMA IF NOT EXISTS MYSQL_DICTIONARY");
+      statement.executeUpdate("CREATE OR REPLACE VIEW MYSQL_DICTIONARY.COLUMNS AS SELECT c.*,"
+                            + " '' AS COLUMN_KEY, '' AS EXTRA, 'select,insert,update' AS PRIVILEGES, c.REMARKS AS COLUMN_COMMENT"
+                            + " FROM INFORMATION_SCHEMA.COLUMNS c");
+
+      statement.executeUpdate("DROP TABLE IF EXISTS "+TABLE);
+      statement.executeUpdate("CREATE TABLE "+TABLE+" (ID INT PRIMARY KEY, NAME VARCHAR(64), VAL DOUBLE, CREATED TIMESTAMP)");
+
+      insert = connection.prepareStatement("INSERT INTO "+TABLE+" VALUES (?, ?, ?, CURRENT_TIMESTAMP)");
+      for(int i = 0; i < rows; i++){
+        insert.setInt(1, i);
+        insert.setString(2, "row "+i);
+        insert.setDouble(3, i * 0.5d);
+        insert.addBatch();
+
+        if ((i % 1000) == 999){
+          insert.executeBatch();
+        }
+      }
+      insert.executeBatch();
+
+      insert.close();
+      statement.close();
+    } catch (SQLException ex) {
+      throw processSQLException(ex, getDbName(), getDbUser(), getDbPassword(), getDbServer(), getDbPort(), getDbType(), TABLE);
+    }
+  }
+
+  /**
+   * Get the benchmark table.
+   * @return the benchmark table.
+   */
+  public Table getTable(){
+    return new MySQLTable(TABLE, new MySQLDatabase(SCHEMA, null));
+  }
+
+  /**
+   * Drop the in-memory database and close the connection.
+   */
+  public void shutdown(){
+    try {
+      executeUpdate("SHUTDOWN");
+    } catch (JDBCConnectionException e) {
+      // La base est fermee avec la connexion
+    }
+
+    try {
+      disconnect();
+    } catch (JDBCConnectionException e) {
+      // Connexion deja fermee par l'arret de la base
+    }
+  }
+}
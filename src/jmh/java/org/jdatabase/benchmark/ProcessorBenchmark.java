@@ -0,0 +1,124 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.JDBCConnectionException;
+import org.jdatabase.jdbc.SQLJDBCProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the processing of SQL script files by {@link SQLJDBCProcessor}. The script updates every row of the
+ * benchmark table so that it can be replayed at each invocation.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ProcessorBenchmark {
+
+  /**
+   * The number of statements of the script.
+   */
+  @Param({"1000", "10000"})
+  public int statements;
+
+  /**
+   * Specify if the script is processed in {@link SQLJDBCProcessor#setReplayMode(boolean) replay mode}.
+   */
+  @Param({"false", "true"})
+  public boolean replay;
+
+  /**
+   * The connection to the embedded database.
+   */
+  private EmbeddedConnection connection = null;
+
+  /**
+   * The processor under benchmark.
+   */
+  private SQLJDBCProcessor processor     = null;
+
+  /**
+   * The script file.
+   */
+  private File script                    = null;
+
+  /**
+   * Connect to the embedded database and write the script file.
+   * @throws JDBCConnectionException if the database cannot be initialized.
+   * @throws IOException if the script cannot be written.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws JDBCConnectionException, IOException{
+    connection = new EmbeddedConnection();
+    connection.connect();
+    connection.populate(statements);
+
+    processor = new SQLJDBCProcessor(connection);
+    processor.setReplayMode(replay);
+
+    script = File.createTempFile("jdatabase-bench-", ".sql");
+    try (PrintWriter writer = new PrintWriter(script, StandardCharsets.UTF_8.name())){
+      for(int i = 0; i < statements; i++){
+        writer.println("UPDATE "+EmbeddedConnection.TABLE+" SET NAME = 'row "+i+"', VAL = VAL + 1 WHERE ID = "+i+";");
+      }
+    }
+  }
+
+  /**
+   * Drop the embedded database and delete the script file.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown(){
+    connection.shutdown();
+    script.delete();
+  }
+
+  /**
+   * Process the script file.
+   * @return <code>true</code> if all the statements are executed.
+   */
+  @Benchmark
+  public boolean processFile(){
+    return processor.process(script);
+  }
+}
@@ -0,0 +1,157 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.ColumnHeader;
+import org.jdatabase.jdbc.JDBCConnectionException;
+import org.jdatabase.jdbc.mysql.MySQLToolKit;
+import org.jdatabase.jdbc.sql.Database;
+import org.jdatabase.jdbc.sql.Schema;
+import org.jdatabase.jdbc.sql.Server;
+import org.jdatabase.jdbc.sql.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the {@link MySQLToolKit MySQL toolkit} data and metadata methods.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ToolkitBenchmark {
+
+  /**
+   * The number of rows of the benchmark table.
+   */
+  @Param({"1000", "100000"})
+  public int rows;
+
+  /**
+   * The connection to the embedded database.
+   */
+  private EmbeddedConnection connection = null;
+
+  /**
+   * The toolkit under benchmark.
+   */
+  private MySQLToolKit toolkit           = null;
+
+  /**
+   * The toolkit that loads the server tree on demand.
+   */
+  private MySQLToolKit lazyToolkit       = null;
+
+  /**
+   * The benchmark table.
+   */
+  private Table table                    = null;
+
+  /**
+   * Connect to the embedded database and create the benchmark table.
+   * @throws JDBCConnectionException if the database cannot be initialized.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws JDBCConnectionException{
+    connection = new EmbeddedConnection();
+    connection.connect();
+    connection.populate(rows);
+
+    toolkit     = new MySQLToolKit(connection);
+    toolkit.setLazyLoading(false);
+    lazyToolkit = new MySQLToolKit(connection);
+    table       = connection.getTable();
+  }
+
+  /**
+   * Drop the embedded database.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown(){
+    connection.shutdown();
+  }
+
+  /**
+   * Read the whole benchmark table.
+   * @return the table content.
+   * @throws JDBCConnectionException if the table cannot be read.
+   */
+  @Benchmark
+  public Object[][] getTableData() throws JDBCConnectionException{
+    return toolkit.getTableData(table);
+  }
+
+  /**
+   * Read the column headers of the benchmark table.
+   * @return the column headers.
+   * @throws JDBCConnectionException if the headers cannot be read.
+   */
+  @Benchmark
+  public ColumnHeader[] getTableHeader() throws JDBCConnectionException{
+    return toolkit.getTableHeader(table);
+  }
+
+  /**
+   * Map the databases and tables of the server at once.
+   * @return the server map.
+   * @throws JDBCConnectionException if the server cannot be mapped.
+   */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public Server mapServer() throws JDBCConnectionException{
+    return toolkit.mapServer();
+  }
+
+  /**
+   * Map the server on demand and load the whole tree by accessing each level.
+   * @return the number of tables of the server.
+   * @throws JDBCConnectionException if the server cannot be mapped.
+   */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public int mapServerLazy() throws JDBCConnectionException{
+    int tables = 0;
+
+    for(Database database : lazyToolkit.mapServer().getDatabases()){
+      for(Schema schema : database.getSchemas()){
+        tables += schema.getTables().size();
+      }
+    }
+
+    return tables;
+  }
+}
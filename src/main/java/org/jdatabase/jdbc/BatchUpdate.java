@@ -0,0 +1,388 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.jfr.QueryEvent;
+
+/**
+ * A parameterized update (<code>INSERT</code>, <code>UPDATE</code>, <code>DELETE</code>) processed by batches.
+ * Each call to {@link #addBatch(Object...)} adds a row of parameters to the batch. The rows are sent to the server
+ * in a single round trip when {@link #executeBatch()} is called or, if the batch reaches its {@link #getBatchSize() size},
+ * automatically (auto flush).<br>
+ * The connections opened by {@link JDBCConnection} enable the rewriting of batches by the drivers
+ * (<code>rewriteBatchedStatements</code> for MySQL, <code>reWriteBatchedInserts</code> for PostgreSQL) so that a batch of
+ * inserts is sent as a multi-rows insert.<br>
+ * A batch update holds a database connection until it is {@link #close() closed}. Closing a batch update
+ * sends the rows that are still pending.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see JDBCConnection#createBatch(String, int)
+ */
+public class BatchUpdate implements AutoCloseable {
+
+  /**
+   * The default number of rows sent to the server at once.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+
+  /**
+   * The JDBC connection that provides the database connection.
+   */
+  private JDBCConnection owner           = null;
+
+  /**
+   * The database connection used by the batch.
+   */
+  private Connection connection          = null;
+
+  /**
+   * The statement that processes the batch.
+   */
+  private PreparedStatement statement    = null;
+
+  /**
+   * The query processed by the batch.
+   */
+  private String query                   = null;
+
+  /**
+   * The number of rows sent to the server at once.
+   */
+  private int batchSize                  = DEFAULT_BATCH_SIZE;
+
+  /**
+   * The number of rows waiting to be sent.
+   */
+  private int pending                    = 0;
+
+  /**
+   * The update counts of the rows sent since the last call to {@link #executeBatch()}.
+   */
+  private int[] updateCounts             = null;
+
+  /**
+   * The number of valid update counts.
+   */
+  private int updateCountSize            = 0;
+
+  /**
+   * Specify if the update counts of the automatic flushes are kept.
+   */
+  private boolean keepUpdateCounts       = true;
+
+  /**
+   * The number of rows sent to the server.
+   */
+  private long rowCount                  = 0;
+
+  /**
+   * The number of batches sent to the server.
+   */
+  private long flushCount                = 0;
+
+  /**
+   * Specify if the batch is closed.
+   */
+  private boolean closed                 = false;
+
+  /**
+   * Create a new batch update.
+   * @param owner the JDBC connection that provides the database connection.
+   * @param connection the database connection used by the batch. It is given back to the owner using
+   *        {@link JDBCConnection#releaseConnection(Connection)} when the batch is closed.
+   * @param query the parameterized query to process.
+   * @param batchSize the number of rows sent to the server at once.
+   * @throws JDBCConnectionException if the query cannot be prepared.
+   */
+  public BatchUpdate(JDBCConnection owner, Connection connection, String query, int batchSize)
+  throws JDBCConnectionException{
+    this.owner        = owner;
+    this.connection   = connection;
+    this.query        = query;
+    this.batchSize    = Math.max(1, batchSize);
+    this.updateCounts = new int[this.batchSize];
+
+    try {
+      this.statement = connection.prepareStatement(query);
+    } catch (SQLException ex) {
+      closed = true;
+      owner.releaseConnection(connection);
+      throw processSQLException(ex);
+    }
+  }
+
+  /**
+   * Add a row of parameters to the batch. The parameters are set in the given order using
+   * <code>PreparedStatement.setObject(int, Object)</code>. If the batch reaches its size, it is sent to the server.
+   * @param parameters the parameters of the row.
+   * @throws JDBCConnectionException if an error occurs.
+   */
+  public void addBatch(Object... parameters) throws JDBCConnectionException{
+    checkOpen();
+
+    try {
+      if (parameters != null){
+        for(int i = 0; i < parameters.length; i++){
+          statement.setObject(i + 1, parameters[i]);
+        }
+      }
+
+      statement.addBatch();
+      pending++;
+    } catch (SQLException ex) {
+      throw processSQLException(ex);
+    }
+
+    // Envoi automatique du lot
+    if (pending >= batchSize){
+      flush(false);
+    }
+  }
+
+  /**
+   * Add the current parameters of the {@link #getStatement() statement} to the batch. This method enables to set
+   * typed parameters directly on the statement. If the batch reaches its size, it is sent to the server.
+   * @throws JDBCConnectionException if an error occurs.
+   */
+  public void addBatch() throws JDBCConnectionException{
+    addBatch((Object[])null);
+  }
+
+  /**
+   * Send the pending rows to the server and return the update counts of all the rows sent since the
+   * previous call to this method (including the rows sent by automatic flushes if
+   * {@link #setKeepUpdateCounts(boolean) kept}).
+   * @return the update counts of the rows, in the order the rows were added. An update count can be
+   * <code>Statement.SUCCESS_NO_INFO</code> if the driver rewrote the batch.
+   * @throws JDBCConnectionException if an error occurs.
+   */
+  public int[] executeBatch() throws JDBCConnectionException{
+    int[] result = null;
+
+    checkOpen();
+
+    flush(true);
+
+    result          = Arrays.copyOf(updateCounts, updateCountSize);
+    updateCountSize = 0;
+
+    return result;
+  }
+
+  /**
+   * Send the pending rows to the server.
+   * @param explicit <code>true</code> if the flush is requested by {@link #executeBatch()}, whose update counts
+   *        are always kept, <code>false</code> for an automatic flush.
+   * @throws JDBCConnectionException if an error occurs.
+   */
+  private void flush(boolean explicit) throws JDBCConnectionException{
+    int[] counts     = null;
+    long start       = 0;
+    QueryEvent event = new QueryEvent(QueryEvent.BATCH);
+
+    if (pending == 0){
+      return;
+    }
+
+    try {
+      event.begin();
+      start  = System.nanoTime();
+      counts = statement.executeBatch();
+      owner.recordQuery(query, start, pending);
+      event.complete(query, pending);
+    } catch (BatchUpdateException ex) {
+      counts = ex.getUpdateCounts();
+      record(counts, explicit);
+
+      // Seules les lignes traitees par le serveur sont comptees
+      if (counts != null){
+        for(int count : counts){
+          if (count != Statement.EXECUTE_FAILED){
+            rowCount++;
+          }
+        }
+      }
+      flushCount++;
+
+      clearPending();
+      throw processSQLException(ex);
+    } catch (SQLException ex) {
+      clearPending();
+      throw processSQLException(ex);
+    }
+
+    record(counts, explicit);
+
+    rowCount   += pending;
+    flushCount++;
+    pending     = 0;
+  }
+
+  /**
+   * Clear the rows that have not been sent.
+   */
+  private void clearPending(){
+    try {
+      statement.clearBatch();
+    } catch (SQLException e) {
+      // Le statement est inutilisable, il sera ferme avec le lot
+    }
+    pending = 0;
+  }
+
+  /**
+   * Record the update counts of a flush.
+   * @param counts the update counts to record.
+   * @param explicit <code>true</code> if the flush is requested by {@link #executeBatch()}.
+   */
+  private void record(int[] counts, boolean explicit){
+    if ((counts == null) || (!keepUpdateCounts && !explicit)){
+      return;
+    }
+
+    if (updateCountSize + counts.length > updateCounts.length){
+      updateCounts = Arrays.copyOf(updateCounts, Math.max(updateCounts.length * 2, updateCountSize + counts.length));
+    }
+
+    System.arraycopy(counts, 0, updateCounts, updateCountSize, counts.length);
+    updateCountSize += counts.length;
+  }
+
+  /**
+   * Send the pending rows to the server, close the statement and give back the database connection.
+   * This method does nothing if the batch is already closed.
+   * @throws JDBCConnectionException if the pending rows cannot be sent.
+   */
+  @Override
+  public void close() throws JDBCConnectionException{
+    if (closed){
+      return;
+    }
+
+    try {
+      flush(false);
+    } finally {
+      closed = true;
+      JDBCConnectionPool.closeQuietly(statement);
+      owner.releaseConnection(connection);
+    }
+  }
+
+  /**
+   * Throw an exception if the batch is closed.
+   * @throws JDBCConnectionException if the batch is closed.
+   */
+  private void checkOpen() throws JDBCConnectionException{
+    if (closed){
+      throw new JDBCConnectionException("Batch "+query+" is closed", JDBCConnectionException.NATIVE_SERVER_EXCEPTION);
+    }
+  }
+
+  /**
+   * Convert a SQL exception raised by the batch.
+   * @param ex the exception to convert.
+   * @return the converted exception.
+   */
+  private JDBCConnectionException processSQLException(SQLException ex){
+    return owner.processSQLException(ex, owner.getDbName(), owner.getDbUser(), owner.getDbPassword(),
+                                     owner.getDbServer(), owner.getDbPort(), owner.getDbType(), query);
+  }
+
+  /**
+   * Get the statement that processes the batch. The statement can be used for setting typed parameters before
+   * calling {@link #addBatch()}. It must not be closed or executed directly.
+   * @return the statement that processes the batch.
+   */
+  public PreparedStatement getStatement(){
+    return statement;
+  }
+
+  /**
+   * Get the number of rows sent to the server at once.
+   * @return the batch size.
+   */
+  public int getBatchSize(){
+    return batchSize;
+  }
+
+  /**
+   * Set if the update counts of the rows sent by automatic flushes have to be kept until the next call to
+   * {@link #executeBatch()}. Disabling it avoids keeping an update count per row for large loads.
+   * @param keepUpdateCounts <code>true</code> if the update counts are kept, <code>false</code> otherwise.
+   */
+  public void setKeepUpdateCounts(boolean keepUpdateCounts){
+    this.keepUpdateCounts = keepUpdateCounts;
+  }
+
+  /**
+   * Get if the update counts of the rows sent by automatic flushes are kept.
+   * @return <code>true</code> if the update counts are kept, <code>false</code> otherwise.
+   */
+  public boolean isKeepUpdateCounts(){
+    return keepUpdateCounts;
+  }
+
+  /**
+   * Get the number of rows waiting to be sent.
+   * @return the number of pending rows.
+   */
+  public int getPendingCount(){
+    return pending;
+  }
+
+  /**
+   * Get the number of rows sent to the server. When a batch fails, only its rows reported as processed by the driver are counted.
+   * @return the number of rows sent.
+   */
+  public long getRowCount(){
+    return rowCount;
+  }
+
+  /**
+   * Get the number of batches sent to the server.
+   * @return the number of batches sent.
+   */
+  public long getFlushCount(){
+    return flushCount;
+  }
+
+  /**
+   * Get the query processed by the batch.
+   * @return the query processed by the batch.
+   */
+  public String getQuery(){
+    return query;
+  }
+
+  /**
+   * Return <code>true</code> if the batch is closed.
+   * @return <code>true</code> if the batch is closed, <code>false</code> otherwise.
+   */
+  public boolean isClosed(){
+    return closed;
+  }
+}
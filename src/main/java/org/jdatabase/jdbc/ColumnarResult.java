@@ -0,0 +1,825 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.sql.SQLToolkit;
+import org.jdatabase.jdbc.sql.Table;
+
+/**
+ * A query result stored by columns. Each column is stored within a vector whose type depends on the SQL type of the
+ * column:
+ * <ul>
+ * <li><code>TINYINT</code>, <code>SMALLINT</code>, <code>INTEGER</code>: <code>int[]</code>,
+ * <li><code>BIGINT</code> (and unsigned MySQL <code>INTEGER</code>): <code>long[]</code>,
+ * <li><code>REAL</code>, <code>FLOAT</code>, <code>DOUBLE</code>: <code>double[]</code>,
+ * <li>character types: dictionary encoded strings (an <code>int[]</code> of codes and the distinct values),
+ * <li>other types: <code>Object[]</code>.
+ * </ul>
+ * The null values of a column are recorded within a bitmap. Numeric values are read from the result set with the typed
+ * accessors, so that no object is created for them.<br>
+ * A columnar result is also a {@link RowSink}. Rows given to the sink are unboxed and stored in the same way.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class ColumnarResult implements RowSink {
+
+  /**
+   * The storage type of a column stored within an <code>int[]</code>.
+   */
+  public static final int STORAGE_INT    = 0;
+
+  /**
+   * The storage type of a column stored within a <code>long[]</code>.
+   */
+  public static final int STORAGE_LONG   = 1;
+
+  /**
+   * The storage type of a column stored within a <code>double[]</code>.
+   */
+  public static final int STORAGE_DOUBLE = 2;
+
+  /**
+   * The storage type of a column stored as dictionary encoded strings.
+   */
+  public static final int STORAGE_STRING = 3;
+
+  /**
+   * The storage type of a column stored within an <code>Object[]</code>.
+   */
+  public static final int STORAGE_OBJECT = 4;
+
+  /**
+   * The initial number of rows of the vectors.
+   */
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /**
+   * The names of the columns.
+   */
+  private String[] names    = null;
+
+  /**
+   * The columns.
+   */
+  private Column[] columns  = null;
+
+  /**
+   * The number of rows.
+   */
+  private int rowCount      = 0;
+
+  /**
+   * The number of rows the vectors can hold.
+   */
+  private int capacity      = INITIAL_CAPACITY;
+
+  /**
+   * Create a new empty columnar result for the columns described by the given headers.
+   * The storage of each column depends on its {@link ColumnHeader#getType() SQL type}.
+   * @param headers the headers of the columns.
+   */
+  public ColumnarResult(ColumnHeader[] headers){
+    String[] names = new String[headers.length];
+    int[] storages = new int[headers.length];
+
+    for(int i = 0; i < headers.length; i++){
+      names[i]    = headers[i].getName();
+      storages[i] = getStorage(headers[i].getType(), headers[i].getTypeName());
+    }
+
+    init(names, storages);
+  }
+
+  /**
+   * Create a new empty columnar result for the columns described by the given result metadata.
+   * @param metaData the metadata of a result.
+   * @throws SQLException if the metadata cannot be read.
+   */
+  public ColumnarResult(ResultSetMetaData metaData) throws SQLException{
+    String[] names = new String[metaData.getColumnCount()];
+    int[] storages = new int[names.length];
+
+    for(int i = 0; i < names.length; i++){
+      names[i]    = metaData.getColumnLabel(i + 1);
+      storages[i] = getStorage(metaData.getColumnType(i + 1), metaData.getColumnTypeName(i + 1));
+    }
+
+    init(names, storages);
+  }
+
+  /**
+   * Read the whole content of the given table as a columnar result. The columns are stored according to the
+   * SQL types given by the metadata of the result, as the {@link SQLToolkit#getTableHeader(Table) headers} of a table
+   * do not carry the JDBC type of its columns.
+   * @param toolkit the toolkit used to read the table.
+   * @param table the table to read.
+   * @return the content of the table or <code>null</code> if the table is <code>null</code>.
+   * @throws JDBCConnectionException if an error occurs.
+   */
+  public static ColumnarResult read(SQLToolkit toolkit, Table table) throws JDBCConnectionException{
+    RowCursor cursor       = toolkit.getTableCursor(table);
+    ColumnarResult result  = null;
+
+    if (cursor == null){
+      return null;
+    }
+
+    try {
+      result = new ColumnarResult(cursor.getResultSet().getMetaData());
+    } catch (SQLException ex) {
+      cursor.close();
+      JDBCConnection owner = toolkit.getConnection();
+      throw owner.processSQLException(ex, owner.getDbName(), owner.getDbUser(), owner.getDbPassword(),
+                                      owner.getDbServer(), owner.getDbPort(), owner.getDbType(), cursor.getQuery());
+    }
+
+    result.append(cursor);
+
+    return result;
+  }
+
+  /**
+   * Initialize the columns.
+   * @param names the names of the columns.
+   * @param storages the storage types of the columns.
+   */
+  private void init(String[] names, int[] storages){
+    this.names   = names;
+    this.columns = new Column[names.length];
+
+    for(int i = 0; i < columns.length; i++){
+      switch(storages[i]){
+        case STORAGE_INT:
+          columns[i] = new IntColumn(capacity);
+          break;
+        case STORAGE_LONG:
+          columns[i] = new LongColumn(capacity);
+          break;
+        case STORAGE_DOUBLE:
+          columns[i] = new DoubleColumn(capacity);
+          break;
+        case STORAGE_STRING:
+          columns[i] = new StringColumn(capacity);
+          break;
+        default:
+          columns[i] = new ObjectColumn(capacity);
+          break;
+      }
+    }
+  }
+
+  /**
+   * Get the storage type of a column from its SQL type.
+   * @param type the SQL type of the column (see {@link java.sql.Types}).
+   * @param typeName the database specific name of the type.
+   * @return the storage type of the column.
+   */
+  private static int getStorage(int type, String typeName){
+    boolean unsigned = (typeName != null) && typeName.toUpperCase().contains("UNSIGNED");
+
+    switch(type){
+      case Types.TINYINT:
+      case Types.SMALLINT:
+        return STORAGE_INT;
+      case Types.INTEGER:
+        return unsigned ? STORAGE_LONG : STORAGE_INT;
+      case Types.BIGINT:
+        return unsigned ? STORAGE_OBJECT : STORAGE_LONG;
+      case Types.REAL:
+      case Types.FLOAT:
+      case Types.DOUBLE:
+        return STORAGE_DOUBLE;
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+        return STORAGE_STRING;
+      default:
+        return STORAGE_OBJECT;
+    }
+  }
+
+  /**
+   * Read all the remaining rows of the given cursor. The values are read with the typed accessors of the result set.
+   * The cursor is closed when this method returns.
+   * @param cursor the cursor to read.
+   * @return the number of rows read.
+   * @throws JDBCConnectionException if an error occurs.
+   */
+  public long append(RowCursor cursor) throws JDBCConnectionException{
+    long count = 0;
+
+    try {
+      while(cursor.moveNext()){
+        append(cursor.getResultSet());
+        count++;
+      }
+    } catch (SQLException ex) {
+      JDBCConnection owner = cursor.getOwner();
+      throw owner.processSQLException(ex, owner.getDbName(), owner.getDbUser(), owner.getDbPassword(),
+                                      owner.getDbServer(), owner.getDbPort(), owner.getDbType(), cursor.getQuery());
+    } finally {
+      cursor.close();
+    }
+
+    return count;
+  }
+
+  /**
+   * Append the current row of the given result set.
+   * @param resultSet the result set positioned on the row to append.
+   * @throws SQLException if the row cannot be read.
+   */
+  public synchronized void append(ResultSet resultSet) throws SQLException{
+    ensureCapacity();
+
+    for(int i = 0; i < columns.length; i++){
+      columns[i].read(resultSet, i + 1, rowCount);
+    }
+
+    rowCount++;
+  }
+
+  /**
+   * Append a row. The values are unboxed according to the storage of the columns.
+   * @param row the row to append.
+   */
+  @Override
+  public synchronized void accept(Object[] row){
+    ensureCapacity();
+
+    for(int i = 0; i < columns.length; i++){
+      columns[i].set(rowCount, row[i]);
+    }
+
+    rowCount++;
+  }
+
+  /**
+   * Ensure that the vectors can hold one more row.
+   */
+  private void ensureCapacity(){
+    if (rowCount == capacity){
+      capacity = capacity * 2;
+      for(Column column : columns){
+        column.grow(capacity);
+      }
+    }
+  }
+
+  /**
+   * Reduce the vectors to the number of rows. This method should be called once the result is complete.
+   */
+  public synchronized void trim(){
+    if (capacity > rowCount){
+      capacity = Math.max(1, rowCount);
+      for(Column column : columns){
+        column.grow(capacity);
+      }
+    }
+  }
+
+  /**
+   * Get an estimation of the memory used by the vectors of this result (in bytes). The strings of a
+   * dictionary are counted once, whatever the number of cells that hold them.
+   * @return the estimated memory used by the result.
+   */
+  public synchronized long getByteCount(){
+    long count = 0;
+
+    for(Column column : columns){
+      count += column.nulls.length * 8L + column.byteCount();
+    }
+
+    return count;
+  }
+
+  /**
+   * Get the number of rows.
+   * @return the number of rows.
+   */
+  public int getRowCount(){
+    return rowCount;
+  }
+
+  /**
+   * Get the number of columns.
+   * @return the number of columns.
+   */
+  public int getColumnCount(){
+    return columns.length;
+  }
+
+  /**
+   * Get the name of a column.
+   * @param column the index of the column (starting at 0).
+   * @return the name of the column.
+   */
+  public String getColumnName(int column){
+    return names[column];
+  }
+
+  /**
+   * Get the storage type of a column.
+   * @param column the index of the column (starting at 0).
+   * @return the storage type of the column ({@link #STORAGE_INT}, {@link #STORAGE_LONG}, {@link #STORAGE_DOUBLE},
+   * {@link #STORAGE_STRING} or {@link #STORAGE_OBJECT}).
+   */
+  public int getStorage(int column){
+    return columns[column].storage();
+  }
+
+  /**
+   * Return <code>true</code> if the given cell is <code>null</code>.
+   * @param row the index of the row (starting at 0).
+   * @param column the index of the column (starting at 0).
+   * @return <code>true</code> if the value is <code>null</code>, <code>false</code> otherwise.
+   */
+  public boolean isNull(int row, int column){
+    return columns[column].isNull(row);
+  }
+
+  /**
+   * Get the value of a cell of a column stored as integers.
+   * @param row the index of the row (starting at 0).
+   * @param column the index of the column (starting at 0).
+   * @return the value of the cell (0 if the value is <code>null</code>).
+   * @throws ClassCastException if the column is not stored as integers.
+   */
+  public int getInt(int row, int column){
+    return ((IntColumn)columns[column]).values[row];
+  }
+
+  /**
+   * Get the value of a cell of a column stored as integers or longs.
+   * @param row the index of the row (starting at 0).
+   * @param column the index of the column (starting at 0).
+   * @return the value of the cell (0 if the value is <code>null</code>).
+   * @throws ClassCastException if the column is not stored as integers or longs.
+   */
+  public long getLong(int row, int column){
+    if (columns[column] instanceof IntColumn){
+      return ((IntColumn)columns[column]).values[row];
+    }
+    return ((LongColumn)columns[column]).values[row];
+  }
+
+  /**
+   * Get the value of a cell of a numeric column as a double.
+   * @param row the index of the row (starting at 0).
+   * @param column the index of the column (starting at 0).
+   * @return the value of the cell (0 if the value is <code>null</code>).
+   * @throws ClassCastException if the column is not stored as numbers.
+   */
+  public double getDouble(int row, int column){
+    if (columns[column] instanceof DoubleColumn){
+      return ((DoubleColumn)columns[column]).values[row];
+    }
+    return getLong(row, column);
+  }
+
+  /**
+   * Get the value of a cell as a string.
+   * @param row the index of the row (starting at 0).
+   * @param column the index of the column (starting at 0).
+   * @return the value of the cell or <code>null</code> if the value is <code>null</code>.
+   */
+  public String getString(int row, int column){
+    if (columns[column] instanceof StringColumn){
+      return (String) ((StringColumn)columns[column]).get(row);
+    }
+
+    Object value = getObject(row, column);
+    return (value != null) ? value.toString() : null;
+  }
+
+  /**
+   * Get the value of a cell as an object. Numeric values are boxed.
+   * @param row the index of the row (starting at 0).
+   * @param column the index of the column (starting at 0).
+   * @return the value of the cell or <code>null</code> if the value is <code>null</code>.
+   */
+  public Object getObject(int row, int column){
+    if (columns[column].isNull(row)){
+      return null;
+    }
+    return columns[column].get(row);
+  }
+
+  /**
+   * Get the values of a column stored as integers. The array is a copy holding one value per row.
+   * @param column the index of the column (starting at 0).
+   * @return the values of the column.
+   * @throws ClassCastException if the column is not stored as integers.
+   */
+  public int[] getIntColumn(int column){
+    return Arrays.copyOf(((IntColumn)columns[column]).values, rowCount);
+  }
+
+  /**
+   * Get the values of a column stored as longs. The array is a copy holding one value per row.
+   * @param column the index of the column (starting at 0).
+   * @return the values of the column.
+   * @throws ClassCastException if the column is not stored as longs.
+   */
+  public long[] getLongColumn(int column){
+    return Arrays.copyOf(((LongColumn)columns[column]).values, rowCount);
+  }
+
+  /**
+   * Get the values of a column stored as doubles. The array is a copy holding one value per row.
+   * @param column the index of the column (starting at 0).
+   * @return the values of the column.
+   * @throws ClassCastException if the column is not stored as doubles.
+   */
+  public double[] getDoubleColumn(int column){
+    return Arrays.copyOf(((DoubleColumn)columns[column]).values, rowCount);
+  }
+
+  /**
+   * Get the distinct values of a column stored as dictionary encoded strings. The code of a cell
+   * is given by {@link #getStringCode(int, int)}.
+   * @param column the index of the column (starting at 0).
+   * @return the distinct values of the column.
+   * @throws ClassCastException if the column is not stored as strings.
+   */
+  public String[] getStringDictionary(int column){
+    StringColumn strings = (StringColumn)columns[column];
+    return strings.dictionary.toArray(new String[strings.dictionary.size()]);
+  }
+
+  /**
+   * Get the dictionary code of a cell of a column stored as strings.
+   * @param row the index of the row (starting at 0).
+   * @param column the index of the column (starting at 0).
+   * @return the index of the value within the {@link #getStringDictionary(int) dictionary} or -1 if the value is <code>null</code>.
+   * @throws ClassCastException if the column is not stored as strings.
+   */
+  public int getStringCode(int row, int column){
+    return ((StringColumn)columns[column]).codes[row];
+  }
+
+  /**
+   * Convert this result into an array of rows, like {@link SQLToolkit#getTableData(Table)}.
+   * @return the rows of the result or <code>null</code> if the result is empty.
+   */
+  public Object[][] toArray(){
+    if (rowCount == 0){
+      return null;
+    }
+
+    Object[][] rows = new Object[rowCount][columns.length];
+    for(int row = 0; row < rowCount; row++){
+      for(int column = 0; column < columns.length; column++){
+        rows[row][column] = getObject(row, column);
+      }
+    }
+
+    return rows;
+  }
+
+  /**
+   * A column vector. The null values are recorded within a bitmap.
+   */
+  private abstract static class Column {
+
+    long[] nulls;
+
+    Column(int capacity){
+      nulls = new long[(capacity + 63) >>> 6];
+    }
+
+    boolean isNull(int row){
+      return (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    void setNull(int row){
+      nulls[row >>> 6] |= (1L << row);
+    }
+
+    void grow(int capacity){
+      nulls = Arrays.copyOf(nulls, (capacity + 63) >>> 6);
+    }
+
+    abstract int storage();
+
+    abstract void read(ResultSet resultSet, int index, int row) throws SQLException;
+
+    abstract void set(int row, Object value);
+
+    abstract Object get(int row);
+
+    abstract long byteCount();
+  }
+
+  /**
+   * A column stored within an <code>int[]</code>.
+   */
+  private static class IntColumn extends Column {
+
+    int[] values;
+
+    IntColumn(int capacity){
+      super(capacity);
+      values = new int[capacity];
+    }
+
+    @Override
+    void grow(int capacity){
+      super.grow(capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    int storage(){
+      return STORAGE_INT;
+    }
+
+    @Override
+    void read(ResultSet resultSet, int index, int row) throws SQLException{
+      values[row] = resultSet.getInt(index);
+      if (resultSet.wasNull()){
+        setNull(row);
+      }
+    }
+
+    @Override
+    void set(int row, Object value){
+      if (value == null){
+        setNull(row);
+      } else if (value instanceof Boolean){
+        values[row] = ((Boolean)value) ? 1 : 0;
+      } else {
+        values[row] = ((Number)value).intValue();
+      }
+    }
+
+    @Override
+    Object get(int row){
+      return values[row];
+    }
+
+    @Override
+    long byteCount(){
+      return values.length * 4L;
+    }
+  }
+
+  /**
+   * A column stored within a <code>long[]</code>.
+   */
+  private static class LongColumn extends Column {
+
+    long[] values;
+
+    LongColumn(int capacity){
+      super(capacity);
+      values = new long[capacity];
+    }
+
+    @Override
+    void grow(int capacity){
+      super.grow(capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    int storage(){
+      return STORAGE_LONG;
+    }
+
+    @Override
+    void read(ResultSet resultSet, int index, int row) throws SQLException{
+      values[row] = resultSet.getLong(index);
+      if (resultSet.wasNull()){
+        setNull(row);
+      }
+    }
+
+    @Override
+    void set(int row, Object value){
+      if (value == null){
+        setNull(row);
+      } else {
+        values[row] = ((Number)value).longValue();
+      }
+    }
+
+    @Override
+    Object get(int row){
+      return values[row];
+    }
+
+    @Override
+    long byteCount(){
+      return values.length * 8L;
+    }
+  }
+
+  /**
+   * A column stored within a <code>double[]</code>.
+   */
+  private static class DoubleColumn extends Column {
+
+    double[] values;
+
+    DoubleColumn(int capacity){
+      super(capacity);
+      values = new double[capacity];
+    }
+
+    @Override
+    void grow(int capacity){
+      super.grow(capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    int storage(){
+      return STORAGE_DOUBLE;
+    }
+
+    @Override
+    void read(ResultSet resultSet, int index, int row) throws SQLException{
+      values[row] = resultSet.getDouble(index);
+      if (resultSet.wasNull()){
+        setNull(row);
+      }
+    }
+
+    @Override
+    void set(int row, Object value){
+      if (value == null){
+        setNull(row);
+      } else {
+        values[row] = ((Number)value).doubleValue();
+      }
+    }
+
+    @Override
+    Object get(int row){
+      return values[row];
+    }
+
+    @Override
+    long byteCount(){
+      return values.length * 8L;
+    }
+  }
+
+  /**
+   * A column of dictionary encoded strings. Each distinct value is stored once, the cells hold its index.
+   */
+  private static class StringColumn extends Column {
+
+    int[] codes;
+
+    ArrayList<String> dictionary       = new ArrayList<String>();
+
+    HashMap<String, Integer> index     = new HashMap<String, Integer>();
+
+    StringColumn(int capacity){
+      super(capacity);
+      codes = new int[capacity];
+    }
+
+    @Override
+    void grow(int capacity){
+      super.grow(capacity);
+      codes = Arrays.copyOf(codes, capacity);
+    }
+
+    @Override
+    int storage(){
+      return STORAGE_STRING;
+    }
+
+    @Override
+    void read(ResultSet resultSet, int index, int row) throws SQLException{
+      set(row, resultSet.getString(index));
+    }
+
+    @Override
+    void set(int row, Object value){
+      if (value == null){
+        setNull(row);
+        codes[row] = -1;
+        return;
+      }
+
+      String string = value.toString();
+      Integer code  = index.get(string);
+
+      if (code == null){
+        code = dictionary.size();
+        dictionary.add(string);
+        index.put(string, code);
+      }
+
+      codes[row] = code;
+    }
+
+    @Override
+    Object get(int row){
+      return (codes[row] >= 0) ? dictionary.get(codes[row]) : null;
+    }
+
+    @Override
+    long byteCount(){
+      long count = codes.length * 4L;
+
+      // Chaine, entree du dictionnaire et entree de l'index
+      for(String string : dictionary){
+        count += 40 + 2L * string.length() + 8 + 48;
+      }
+
+      return count;
+    }
+  }
+
+  /**
+   * A column stored within an <code>Object[]</code>.
+   */
+  private static class ObjectColumn extends Column {
+
+    Object[] values;
+
+    ObjectColumn(int capacity){
+      super(capacity);
+      values = new Object[capacity];
+    }
+
+    @Override
+    void grow(int capacity){
+      super.grow(capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    int storage(){
+      return STORAGE_OBJECT;
+    }
+
+    @Override
+    void read(ResultSet resultSet, int index, int row) throws SQLException{
+      set(row, resultSet.getObject(index));
+    }
+
+    @Override
+    void set(int row, Object value){
+      if (value == null){
+        setNull(row);
+      }
+      values[row] = value;
+    }
+
+    @Override
+    Object get(int row){
+      return values[row];
+    }
+
+    @Override
+    long byteCount(){
+      long count = values.length * 8L;
+
+      for(Object value : values){
+        if (value instanceof String){
+          count += 40 + 2L * ((String)value).length();
+        } else if (value instanceof byte[]){
+          count += 16 + ((byte[])value).length;
+        } else if (value != null){
+          count += 32;
+        }
+      }
+
+      return count;
+    }
+  }
+}
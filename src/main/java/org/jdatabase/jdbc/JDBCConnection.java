@@ -26,10 +26,23 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.event.EventListenerList;
 
 import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.jfr.ConnectEvent;
+import org.jdatabase.jdbc.jfr.ExceptionMappingEvent;
+import org.jdatabase.jdbc.jfr.QueryEvent;
+import org.jdatabase.jdbc.metrics.QueryMetrics;
+import org.jdatabase.jdbc.metrics.SQLFingerprint;
 import org.jdatabase.jdbc.sql.Database;
 
 /**
@@ -150,6 +163,51 @@ public class JDBCConnection {
    */
   protected EventListenerList idListenerList = null;
   
+  /**
+   * The connection pool used in pooled mode (<code>null</code> otherwise).
+   */
+  private JDBCConnectionPool pool = null;
+  
+  /**
+   * <code>true</code> if the pool has been opened by this object and has to be closed on disconnection.
+   */
+  private boolean ownsPool = false;
+  
+  /**
+   * The additional properties given to the JDBC driver when a connection is opened.
+   */
+  private Properties dbProperties = null;
+  
+  /**
+   * The number of prepared statements cached for the connection (0 disable the cache).
+   */
+  private int statementCacheSize = PreparedStatementCache.DEFAULT_CAPACITY;
+  
+  /**
+   * The prepared statements cache attached to the connection.
+   */
+  private PreparedStatementCache statementCache = null;
+  
+  /**
+   * The executor that processes the asynchronous queries (<code>null</code> for the default executor).
+   */
+  private Executor asyncExecutor = null;
+  
+  /**
+   * The default executor of the asynchronous queries, shared by all the connections.
+   */
+  private static Executor defaultAsyncExecutor = null;
+  
+  /**
+   * The metrics receiving the measures of the queries (<code>null</code> if no measure is taken).
+   */
+  private QueryMetrics metrics = null;
+  
+  /**
+   * The log of the slow queries (<code>null</code> if the slow queries are not recorded).
+   */
+  private SlowQueryLog slowQueryLog = null;
+  
   
 //CCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCC
 //CC CONSTRUCTEUR                                                             CC
@@ -181,6 +239,8 @@ public class JDBCConnection {
     
     this.connect = false;
     
+    this.dbProperties = new Properties();
+    
     idListenerList = new EventListenerList();
   }
 
@@ -193,6 +253,20 @@ public class JDBCConnection {
 		 profile.getDbUserPassword(), profile.getDbServer(),
 		 profile.getDbServerPort(), profile.getDbType());
   }
+  
+  /**
+   * Create a new pooled database connection. The connection information are those of the 
+   * {@link JDBCConnectionPool#getProfile() pool profile}. Calling {@link #connect()} start the pool and 
+   * queries are processed on connections borrowed from it, allowing concurrent use of this object.
+   * @param pool the connection pool to use.
+   */
+  public JDBCConnection(JDBCConnectionPool pool){
+    this(pool.getProfile());
+    this.pool               = pool;
+    this.dbProperties       = pool.getConnectionProperties();
+    this.statementCacheSize = pool.getStatementCacheSize();
+    this.metrics            = pool.getMetrics();
+  }
 //CCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCC
 //CC FIN CONSTRUCTEUR                                                         CC
 //CCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCC
@@ -238,12 +312,16 @@ public class JDBCConnection {
 //SGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSG
 //BD GESTION BD                                                               SG
 //SGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSGBDSG
+  /**
+   * Open the connection to the database. If the connection has been created from a 
+   * {@link JDBCConnectionPool connection pool}, the pool is started and a connection is borrowed from it.
+   * @throws JDBCConnectionException if the connection cannot be established.
+   */
   public void connect() 
          throws JDBCConnectionException{
 	 
-
-  String databaseURL = null; 
-	 
+  ConnectEvent event = new ConnectEvent(ConnectEvent.CONNECT);
+    
   //  Deconnexion si une connexion existe deja
   if (connect){
     this.disconnect();
@@ -251,22 +329,102 @@ public class JDBCConnection {
    
   fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_START));
 	   
+    event.begin();
+    
+    try {
+      // Mode pool: la connexion principale est empruntee au pool
+      if (pool != null){
+        if (!pool.isOpen()){
+          pool.open();
+          ownsPool = true;
+        }
+        connection = pool.borrow();
+      } else {
+        connection = openConnection();
+        
+        if (statementCacheSize > 0){
+          statementCache = new PreparedStatementCache(statementCacheSize);
+        }
+      }
+      
+      try {
+        stmt = connection.createStatement();
+        connect = true;
+      } catch (SQLException eSQL) {
+        connect = false;
+        fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_FAIL));
+        throw processSQLException(eSQL, dbName, dbUser, dbPassword, dbServer, dbPort, dbType, null);
+      }
+      
+      event.success = true;
+    } finally {
+      complete(event);
+    }
+
+    fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_SUCCESS));
+  }
+  
+  /**
+   * End a connection event and record it if it is enabled.
+   * @param event the event to record.
+   */
+  private void complete(ConnectEvent event){
+    event.end();
+    if (event.shouldCommit()){
+      event.connection = TYPES[Math.max(0, Math.min(TYPES.length - 1, dbType))].toLowerCase()+"://"+getName();
+      event.commit();
+    }
+  }
+  
+  /**
+   * Open a new physical connection to the database using the connection information of this object. 
+   * The returned connection is not attached to this object and has to be closed by the caller.
+   * @return a new physical connection to the database.
+   * @throws JDBCConnectionException if the connection cannot be established.
+   * @see #openConnection(boolean)
+   */
+  protected Connection openConnection() 
+            throws JDBCConnectionException{
+    return openConnection(false);
+  }
+  
+  /**
+   * Open a new physical connection to the database using the connection information of this object. 
+   * The returned connection is not attached to this object and has to be closed by the caller.
+   * @param cursorFetch <code>true</code> if the connection has to fetch the results by blocks using server side cursors 
+   *        (MySQL <code>useCursorFetch</code> property, which also makes all the statements prepared on the server).
+   * @return a new physical connection to the database.
+   * @throws JDBCConnectionException if the connection cannot be established.
+   * @see #borrowCursorConnection()
+   */
+  protected Connection openConnection(boolean cursorFetch) 
+            throws JDBCConnectionException{
+	 
+  String databaseURL   = null; 
+  String driver        = null;
+  Properties properties = null;
+  ConnectEvent event    = null;
+	   
    // Initialisation du protocoloe dans l'url
    switch(dbType){
      case JDBCConnection.MYSQL:
 	   databaseURL = "jdbc:mysql://";
+	   driver      = "org.gjt.mm.mysql.Driver";
      break;
      
      case JDBCConnection.POSTGRESQL:  
     	 databaseURL = "jdbc:postgresql://";
+    	 driver      = "org.postgresql.Driver";
      break;
      
      case JDBCConnection.ODBC:
        databaseURL = "jdbc:odbc://";
+       driver      = "sun.jdbc.odbc.JdbcOdbcDriver";
      break;
      
      case JDBCConnection.ODBC_ACCESS:
        databaseURL = "jdbc:odbc:Driver={Microsoft Access Driver (*.mdb)};DBQ=";
+       driver      = "sun.jdbc.odbc.JdbcOdbcDriver";
      break;
      
      default:
@@ -304,126 +462,82 @@ public class JDBCConnection {
        throw new JDBCConnectionException("Bad database name: "+dbName, JDBCConnectionException.BAD_DATABASE_NAME);
      }
 
-     // Connexion a� la base en utilisant le driver JDBC approprie
-     switch(dbType){
-     case JDBCConnection.MYSQL:
-       try {
-         Class.forName("org.gjt.mm.mysql.Driver").newInstance();
-         //DriverManager.registerDriver(new org.gjt.mm.mysql.Driver());
-       } catch (Exception ex) {
-         connect = false;
-         fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_FAIL));
-         throw new JDBCConnectionException("Cannot instanciate driver: org.gjt.mm.mysql.Driver", 
-             JDBCConnectionException.NO_SUITABLE_DRIVER, ex);
-       }
-
-       try {
-         connection = DriverManager.getConnection(databaseURL, dbUser, dbPassword);
-         stmt = connection.createStatement();
-         connect = true;
-       } catch (SQLException eSQL) {
-         connect = false;
-         throw processSQLException(eSQL, dbName, dbUser, dbPassword, dbServer, dbPort, dbType, null);
-
-
-       } catch (Exception ex) {
-         connect = false;
-         fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_FAIL));
-         throw new JDBCConnectionException("Unknown exception: "+ex.getMessage(), 0, ex);
-       }
-       break;
-
-       // Connection � une base de donnees POSTGRE
-     case JDBCConnection.POSTGRESQL:
-       try {
-         Class.forName("org.postgresql.Driver");
-       } catch (Exception ex) {
-         connect = false;
-         fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_FAIL));
-         throw new JDBCConnectionException("Cannot instanciate driver: org.gjt.mm.mysql.Driver", 
-             JDBCConnectionException.NO_SUITABLE_DRIVER, ex);
-       }
-
-       try {
-         connection = DriverManager.getConnection(databaseURL, dbUser, dbPassword);
-         stmt = connection.createStatement();
-         connect = true;
-       } catch (SQLException eSQL) {
-         connect = false;
-
-         fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_FAIL));
-         throw processSQLException(eSQL, dbName, dbUser, dbPassword, dbServer, dbPort, dbType, null);
-       }
-
-       break;
-
-       // Connection � une base de donnees ODBC
-     case JDBCConnection.ODBC:
-       try {
-         Class.forName("sun.jdbc.odbc.JdbcOdbcDriver");
-       } catch (Exception ex) {
-         connect = false;
-         fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_FAIL));
-         throw new JDBCConnectionException("Cannot instanciate driver: sun.jdbc.odbc.JdbcOdbcDriver", 
-             JDBCConnectionException.NO_SUITABLE_DRIVER, ex);
-       }
-
-       try {
-         connection = DriverManager.getConnection(databaseURL, dbUser, dbPassword);
-         stmt = connection.createStatement();
-         connect = true;
-       } catch (SQLException eSQL) {
-         connect = false;
-
-         fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_FAIL));
-         throw processSQLException(eSQL, dbName, dbUser, dbPassword, dbServer, dbPort, dbType, null);
-       }
-
-       break;
-
-       // Connection � une base de donnees ODBC
-     case JDBCConnection.ODBC_ACCESS:
-       try {
-         Class.forName("sun.jdbc.odbc.JdbcOdbcDriver");
-       } catch (Exception ex) {
-         connect = false;
-         fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_FAIL));
-         throw new JDBCConnectionException("Cannot instanciate driver: sun.jdbc.odbc.JdbcOdbcDriver", 
-             JDBCConnectionException.NO_SUITABLE_DRIVER, ex);
-       }
-
-       try {
-         connection = DriverManager.getConnection(databaseURL, dbUser, dbPassword);
-         stmt = connection.createStatement();
-         connect = true;
-       } catch (SQLException eSQL) {
-         connect = false;
-
-         fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_FAIL));
-         throw processSQLException(eSQL, dbName, dbUser, dbPassword, dbServer, dbPort, dbType, null);
-       }
+     // Chargement du driver JDBC approprie
+     event = new ConnectEvent(ConnectEvent.DRIVER);
+     event.begin();
+     try {
+       Class.forName(driver);
+       event.success = true;
+     } catch (Exception ex) {
+       fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_FAIL));
+       throw new JDBCConnectionException("Cannot instanciate driver: "+driver, 
+           JDBCConnectionException.NO_SUITABLE_DRIVER, ex);
+     } finally {
+       complete(event);
+     }
 
-       break;
+     // Proprietes de connexion
+     properties = new Properties();
+     properties.putAll(dbProperties);
+     
+     if (dbUser != null){
+       properties.setProperty("user", dbUser);
+     }
+     
+     if (dbPassword != null){
+       properties.setProperty("password", dbPassword);
+     }
+     
+     // Les statements prepares cote client MySQL ne sont pas conserves par le serveur,
+     // le cache de statements necessite des statements prepares cote serveur.
+     if ((dbType == MYSQL) && (statementCacheSize > 0) && !properties.containsKey("useServerPrepStmts")){
+       properties.setProperty("useServerPrepStmts", "true");
+     }
 
-     default:
-       connect = false;
-     fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_FAIL));
-     throw new JDBCConnectionException("Unknown database type", 
-         JDBCConnectionException.UNKNOWN_DATABASE_TYPE, null);
+     // Sans curseur serveur, le pilote MySQL charge tout le resultat en memoire
+     // quelle que soit la taille de fetch demandee (voir RowCursor). Les curseurs serveur
+     // imposent la preparation de tous les statements cote serveur, ils ne sont donc
+     // actives que si le cache de statements est actif ou pour une connexion de curseur.
+     if ((dbType == MYSQL) && (cursorFetch || (statementCacheSize > 0)) && !properties.containsKey("useCursorFetch")){
+       properties.setProperty("useCursorFetch", "true");
      }
 
+     // Reecriture des lots d'insertions en insertions multi-lignes (voir BatchUpdate)
+     if ((dbType == MYSQL) && !properties.containsKey("rewriteBatchedStatements")){
+       properties.setProperty("rewriteBatchedStatements", "true");
+     } else if ((dbType == POSTGRESQL) && !properties.containsKey("reWriteBatchedInserts")){
+       properties.setProperty("reWriteBatchedInserts", "true");
+     }
 
-     fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_SUCCESS));
+     // Connexion a la base
+     event = new ConnectEvent(ConnectEvent.HANDSHAKE);
+     event.begin();
+     try {
+       Connection physical = DriverManager.getConnection(databaseURL, properties);
+       event.success = true;
+       return physical;
+     } catch (SQLException eSQL) {
+       fireEvent(new JDBConnectionEvent(this, JDBConnectionEvent.DATABASE_CONNECTION_FAIL));
+       throw processSQLException(eSQL, dbName, dbUser, dbPassword, dbServer, dbPort, dbType, null);
+     } finally {
+       complete(event);
+     }
   }
  
   /**
-   * Close connection with the database.
+   * Close connection with the database. In pooled mode, the main connection is given back to the pool. The pool 
+   * is closed only if it has been opened by this object, a pool shared with other connections stays open and 
+   * has to be closed by its owner.
    * @throws JDBCConnectionException fired if a database disconnection error occurs.
    */
   public void disconnect()
          throws JDBCConnectionException{
 	  
     try {
+         if (statementCache != null){
+          statementCache.clear();
+          statementCache = null;
+         }
          if (stmt != null){
 	  stmt.close();
          }
@@ -434,11 +548,18 @@ public class JDBCConnection {
 	} catch (SQLException eSQL) {
           connect = false;
 	  throw new JDBCConnectionException("Disconnection exception ", 0, eSQL);     
+	} finally {
+	  if ((pool != null) && ownsPool){
+	    pool.close();
+	    ownsPool = false;
+	  }
 	}
   }
   
   /**
    * Send a query to the database server. After being processed, the result set has to be closed.
+   * In pooled mode, the query is sent on a connection borrowed from the pool. This connection is 
+   * given back to the pool when the result set is closed.
    * @param query the query to send.
    * @return the query result.
    * @throws JDBCConnectionException throwed if an error occurs during the query processing.
@@ -446,10 +567,36 @@ public class JDBCConnection {
   public ResultSet executeQuery(String query)
          throws JDBCConnectionException {
   
-    ResultSet rset = null;  
+    ResultSet rset   = null;  
+    long start       = 0;
+    QueryEvent event = new QueryEvent(QueryEvent.QUERY);
 	  
+    if (pool != null){
+      Connection pooled   = pool.borrow();
+      Statement statement = null;
+      
+      try {
+        statement = pooled.createStatement();
+        event.begin();
+        start     = System.nanoTime();
+        rset      = statement.executeQuery(query);
+        recordQuery(query, start, 0);
+        event.complete(query, 0);
+        
+        return JDBCConnectionPool.closeWith(rset, ResultSet.class, statement, pooled);
+      } catch (SQLException eSQL) {
+        JDBCConnectionPool.closeQuietly(statement);
+        JDBCConnectionPool.closeQuietly(pooled);
+        throw processSQLException(eSQL, dbName, dbUser, dbPassword, dbServer, dbPort, dbType, query);
+      }
+    }
+    
     try {
-      rset = stmt.executeQuery(query);
+      event.begin();
+      start = System.nanoTime();
+      rset  = stmt.executeQuery(query);
+      recordQuery(query, start, 0);
+      event.complete(query, 0);
     } catch (SQLException eSQL) {
       rset = null;
 	  
@@ -469,10 +616,37 @@ public class JDBCConnection {
    */
   public int executeUpdate(String query)
              throws JDBCConnectionException{
-    int ret = 0;
+    int ret          = 0;
+    long start       = 0;
+    QueryEvent event = new QueryEvent(QueryEvent.UPDATE);
+    
+    if (pool != null){
+      Connection pooled   = pool.borrow();
+      Statement statement = null;
+      
+      try {
+        statement = pooled.createStatement();
+        event.begin();
+        start     = System.nanoTime();
+        ret       = statement.executeUpdate(query);
+        recordQuery(query, start, ret);
+        event.complete(query, ret);
+      } catch (SQLException eSQL) {
+        throw processSQLException(eSQL, dbName, dbUser, dbPassword, dbServer, dbPort, dbType, query);
+      } finally {
+        JDBCConnectionPool.closeQuietly(statement);
+        JDBCConnectionPool.closeQuietly(pooled);
+      }
+      
+      return ret;
+    }
     
     try {
-      ret = this.stmt.executeUpdate(query);
+      event.begin();
+      start = System.nanoTime();
+      ret   = this.stmt.executeUpdate(query);
+      recordQuery(query, start, ret);
+      event.complete(query, ret);
     } catch (SQLException eSQL) {
       ret = 0;
           
@@ -484,7 +658,10 @@ public class JDBCConnection {
   
   /**
    * Create a new prepared statement. This method create a compiled and optimized query
-   * to use with parameters. 
+   * to use with parameters. In pooled mode, the statement is prepared on a connection borrowed from the pool. 
+   * This connection is given back to the pool when the statement is closed.<br>
+   * If the {@link #setStatementCacheSize(int) statement cache} is enabled, statements are cached per connection and
+   * keyed by the query. Closing a cached statement makes it available for the next call with the same query.
    * @param query the query to compile.
    * @return the prepared statement
    * @throws JDBCConnectionException if an error occurs
@@ -495,8 +672,26 @@ public class JDBCConnection {
     
     PreparedStatement statement = null;
     
+    if (pool != null){
+      Connection pooled = pool.borrow();
+      
+      try {
+        statement = pooled.prepareStatement(query);
+        
+        return JDBCConnectionPool.closeWith(statement, PreparedStatement.class, pooled);
+      } catch (SQLException eSQL) {
+        JDBCConnectionPool.closeQuietly(pooled);
+        throw processSQLException(eSQL, dbName, dbUser, dbPassword,
+                                  dbServer, dbPort, dbType, query);  
+      }
+    }
+    
     try {
-      statement = this.connection.prepareStatement(query);
+      if (statementCache != null){
+        statement = statementCache.prepareStatement(this.connection, query);
+      } else {
+        statement = this.connection.prepareStatement(query);
+      }
     } catch (SQLException eSQL) {
         throw processSQLException(eSQL, dbName, dbUser, dbPassword,
                                   dbServer, dbPort, dbType, query);  
@@ -508,16 +703,251 @@ public class JDBCConnection {
   }
   
   
+  /**
+   * Send a query to the database server asynchronously. The rows of the result are returned as an array of 
+   * objects (<code>null</code> if the result is empty), like {@link org.jdatabase.jdbc.sql.SQLToolkit#getTableData(org.jdatabase.jdbc.sql.Table)}.
+   * @param query the query to send.
+   * @return a future completed with the rows of the result.
+   * @see #executeQueryAsync(String, ResultSetHandler)
+   */
+  public CompletableFuture<Object[][]> executeQueryAsync(String query){
+    return executeQueryAsync(query, JDBCConnection::toArray);
+  }
+  
+  /**
+   * Send a query to the database server asynchronously. The query is processed by the 
+   * {@link #getAsyncExecutor() asynchronous executor} on its own {@link #borrowConnection() connection}, 
+   * so that several queries are processed in parallel in pooled mode. The result set is given to the handler
+   * and closed once the handler returns. If an error occurs, the future is completed exceptionally with a 
+   * {@link JDBCConnectionException}.
+   * @param <T> the type of the object produced by the handler.
+   * @param query the query to send.
+   * @param handler the handler that converts the result set.
+   * @return a future completed with the object produced by the handler.
+   */
+  public <T> CompletableFuture<T> executeQueryAsync(String query, ResultSetHandler<T> handler){
+    return CompletableFuture.supplyAsync(() -> {
+      Connection connection = null;
+      Statement statement   = null;
+      ResultSet rset        = null;
+      long start            = 0;
+      QueryEvent event      = new QueryEvent(QueryEvent.QUERY);
+      
+      try {
+        connection = borrowConnection();
+        statement  = connection.createStatement();
+        event.begin();
+        start      = System.nanoTime();
+        rset       = statement.executeQuery(query);
+        recordQuery(query, start, 0);
+        event.complete(query, 0);
+        
+        return handler.handle(rset);
+      } catch (SQLException eSQL) {
+        throw new CompletionException(processSQLException(eSQL, dbName, dbUser, dbPassword, dbServer, dbPort, dbType, query));
+      } catch (JDBCConnectionException e) {
+        throw new CompletionException(e);
+      } finally {
+        JDBCConnectionPool.closeQuietly(rset);
+        JDBCConnectionPool.closeQuietly(statement);
+        if (connection != null){
+          releaseConnection(connection);
+        }
+      }
+    }, getAsyncExecutor());
+  }
+  
+  /**
+   * Sent a no return SQL query (INSERT, DELETE, UPDATE) to the server asynchronously. The query is processed by the 
+   * {@link #getAsyncExecutor() asynchronous executor} on its own {@link #borrowConnection() connection}.
+   * If an error occurs, the future is completed exceptionally with a {@link JDBCConnectionException}.
+   * @param query the query to send.
+   * @return a future completed with the row count involved in the statement.
+   * @see #executeUpdate(String)
+   */
+  public CompletableFuture<Integer> executeUpdateAsync(String query){
+    return CompletableFuture.supplyAsync(() -> {
+      Connection connection = null;
+      Statement statement   = null;
+      long start            = 0;
+      int count             = 0;
+      QueryEvent event      = new QueryEvent(QueryEvent.UPDATE);
+      
+      try {
+        connection = borrowConnection();
+        statement  = connection.createStatement();
+        event.begin();
+        start      = System.nanoTime();
+        count      = statement.executeUpdate(query);
+        recordQuery(query, start, count);
+        event.complete(query, count);
+        
+        return count;
+      } catch (SQLException eSQL) {
+        throw new CompletionException(processSQLException(eSQL, dbName, dbUser, dbPassword, dbServer, dbPort, dbType, query));
+      } catch (JDBCConnectionException e) {
+        throw new CompletionException(e);
+      } finally {
+        JDBCConnectionPool.closeQuietly(statement);
+        if (connection != null){
+          releaseConnection(connection);
+        }
+      }
+    }, getAsyncExecutor());
+  }
+  
+  /**
+   * Read all the rows of a result set.
+   * @param rset the result set to read.
+   * @return the rows of the result set or <code>null</code> if the result is empty.
+   * @throws SQLException if the result set cannot be read.
+   */
+  private static Object[][] toArray(ResultSet rset) throws SQLException{
+    int columnCount               = rset.getMetaData().getColumnCount();
+    ArrayList<Object[]> arrayList = new ArrayList<Object[]>();
+    Object[] line                 = null;
+    
+    while(rset.next()){
+      line = new Object[columnCount];
+      for(int i = 1; i <= columnCount; i++){
+        line[i - 1] = rset.getObject(i);
+      }
+      arrayList.add(line);
+    }
+    
+    if (arrayList.size() > 0){
+      return arrayList.toArray(new Object[arrayList.size()][columnCount]);
+    } else {
+      return null;
+    }
+  }
+  
+  /**
+   * Create a new {@link BatchUpdate batch update} for the given parameterized query with the 
+   * {@link BatchUpdate#DEFAULT_BATCH_SIZE default batch size}.
+   * @param query the parameterized query to process.
+   * @return the batch update.
+   * @throws JDBCConnectionException if an error occurs
+   * @see #createBatch(String, int)
+   */
+  public BatchUpdate createBatch(String query)
+         throws JDBCConnectionException{
+    return createBatch(query, BatchUpdate.DEFAULT_BATCH_SIZE);
+  }
+  
+  /**
+   * Create a new {@link BatchUpdate batch update} for the given parameterized query. The rows added to the batch
+   * are sent to the server by groups of <code>batchSize</code> rows. In pooled mode, the batch uses a connection 
+   * borrowed from the pool that is given back when the batch is closed.
+   * @param query the parameterized query to process.
+   * @param batchSize the number of rows sent to the server at once.
+   * @return the batch update.
+   * @throws JDBCConnectionException if an error occurs
+   */
+  public BatchUpdate createBatch(String query, int batchSize)
+         throws JDBCConnectionException{
+    return new BatchUpdate(this, borrowConnection(), query, batchSize);
+  }
+  
+  /**
+   * Get a database connection that can be used concurrently with this object. In pooled mode, 
+   * a connection is borrowed from the {@link JDBCConnectionPool pool}, otherwise the 
+   * {@link #getConnection() connection} of this object is returned. 
+   * The connection has to be given back using {@link #releaseConnection(Connection)}.
+   * @return a database connection.
+   * @throws JDBCConnectionException if no connection is available.
+   * @see #releaseConnection(Connection)
+   */
+  public Connection borrowConnection() 
+         throws JDBCConnectionException{
+    if (pool != null){
+      return pool.borrow();
+    }
+    
+    if (!connect){
+      throw new JDBCConnectionException("Not connected to "+getName(), JDBCConnectionException.NATIVE_SERVER_EXCEPTION);
+    }
+    
+    return connection;
+  }
+  
+  /**
+   * Get a database connection that is not shared with any other user of this object. In pooled mode, a connection 
+   * is borrowed from the pool. Otherwise a new physical connection is opened. This connection is intended for 
+   * the operations that change the state of the connection (transaction, auto commit, ...) or that hold it for 
+   * a long time (cursors, bulk transfers, ...), which cannot be done on the main connection.
+   * The connection has to be given back using {@link #releaseConnection(Connection)}.
+   * @return a database connection that is not shared.
+   * @throws JDBCConnectionException if no connection is available.
+   * @see #borrowConnection()
+   * @see #releaseConnection(Connection)
+   */
+  public Connection borrowDedicatedConnection() 
+         throws JDBCConnectionException{
+    if (pool != null){
+      return pool.borrow();
+    }
+    
+    if (!connect){
+      throw new JDBCConnectionException("Not connected to "+getName(), JDBCConnectionException.NATIVE_SERVER_EXCEPTION);
+    }
+    
+    return openConnection();
+  }
+  
+  /**
+   * Get a database connection that fetches the results by blocks using server side cursors, for the 
+   * {@link RowCursor cursors}. With MySQL, the server side cursors are enabled on all the connections only if the
+   * {@link #setStatementCacheSize(int) statement cache} is enabled, as they make every statement prepared on the server. 
+   * If the cache is disabled, a new physical connection with the server side cursors is opened (and closed when the 
+   * connection is released). Otherwise the connection is obtained from {@link #borrowConnection()}.
+   * The connection has to be given back using {@link #releaseConnection(Connection)}.
+   * @return a database connection that fetches the results by blocks.
+   * @throws JDBCConnectionException if no connection is available.
+   * @see #borrowConnection()
+   * @see #releaseConnection(Connection)
+   */
+  public Connection borrowCursorConnection() 
+         throws JDBCConnectionException{
+    if ((dbType != MYSQL) || (statementCacheSize > 0) || dbProperties.containsKey("useCursorFetch")){
+      return borrowConnection();
+    }
+    
+    if (!connect){
+      throw new JDBCConnectionException("Not connected to "+getName(), JDBCConnectionException.NATIVE_SERVER_EXCEPTION);
+    }
+    
+    return openConnection(true);
+  }
+  
+  /**
+   * Give back a connection obtained from {@link #borrowConnection()}, {@link #borrowDedicatedConnection()} or 
+   * {@link #borrowCursorConnection()}. 
+   * In pooled mode, the connection returns to the pool. A dedicated connection opened in non pooled mode 
+   * is closed. The main connection is left open.
+   * @param connection the connection to release.
+   * @see #borrowConnection()
+   * @see #borrowDedicatedConnection()
+   */
+  public void releaseConnection(Connection connection){
+    if (connection != this.connection){
+      JDBCConnectionPool.closeQuietly(connection);
+    }
+  }
+  
   /**
    * Delegates commit to the connection. This method Makes all changes made since the previous
    * commit/rollback permanent and releases any database locks
    * currently held by this <code>Connection</code> object. 
    * This method should be
-   * used only when auto-commit mode has been disabled.
+   * used only when auto-commit mode has been disabled.<br>
+   * In pooled mode, only the main connection is committed. The work done on the connections borrowed from the 
+   * pool (batches, asynchronous queries, cursors, ...) has to be committed on these connections before they are given back.
    *
    * @exception JDBCConnectionException if a database access error occurs or this
    *            <code>Connection</code> object is in auto-commit mode
    * @see #setAutoCommit 
+   * @see #borrowConnection()
    * @see java.sql.Connection
    */
   public void commit() 
@@ -534,11 +964,14 @@ public class JDBCConnection {
    * Delegates rollback to the connection. This method undoes all changes made in the current transaction
    * and releases any database locks currently held
    * by this <code>Connection</code> object. This method should be 
-   * used only when auto-commit mode has been disabled.
+   * used only when auto-commit mode has been disabled.<br>
+   * In pooled mode, only the main connection is rolled back. The work done on the connections borrowed from the 
+   * pool has to be rolled back on these connections before they are given back.
    *
    * @exception JDBCConnectionException if a database access error occurs or this
    *            <code>Connection</code> object is in auto-commit mode
    * @see #setAutoCommit 
+   * @see #borrowConnection()
    * @see java.sql.Connection
    */
   public void rollback() 
@@ -767,6 +1200,217 @@ public class JDBCConnection {
    return this.connection;
  }
  
+ /**
+  * Return <code>true</code> if this connection relies on a {@link JDBCConnectionPool connection pool}.
+  * @return <code>true</code> if this connection is pooled, <code>false</code> otherwise.
+  */
+ public boolean isPooled(){
+   return this.pool != null;
+ }
+ 
+ /**
+  * Get the connection pool used by this connection.
+  * @return the connection pool used by this connection or <code>null</code> if the connection is not pooled.
+  */
+ public JDBCConnectionPool getPool(){
+   return this.pool;
+ }
+ 
+ /**
+  * Set a property given to the JDBC driver when a connection is opened (for example <code>useSSL</code> for MySQL 
+  * or <code>ssl</code> for PostgreSQL). The property is taken into account at the next {@link #connect() connection}.
+  * @param key the name of the property.
+  * @param value the value of the property.
+  */
+ public void setDbProperty(String key, String value){
+   this.dbProperties.setProperty(key, value);
+ }
+ 
+ /**
+  * Get the properties given to the JDBC driver when a connection is opened.
+  * @return the properties given to the JDBC driver.
+  */
+ public Properties getDbProperties(){
+   return this.dbProperties;
+ }
+ 
+ /**
+  * Set the number of prepared statements cached for each connection. A value of 0 disable the cache.
+  * The size is taken into account at the next {@link #connect() connection}.
+  * @param statementCacheSize the number of prepared statements cached for each connection.
+  * @see #prepareStatement(String)
+  */
+ public void setStatementCacheSize(int statementCacheSize){
+   this.statementCacheSize = Math.max(0, statementCacheSize);
+   
+   if (pool != null){
+     pool.setStatementCacheSize(this.statementCacheSize);
+   }
+ }
+ 
+ /**
+  * Get the number of prepared statements cached for each connection.
+  * @return the number of prepared statements cached for each connection.
+  */
+ public int getStatementCacheSize(){
+   return this.statementCacheSize;
+ }
+ 
+ /**
+  * Get the number of calls to {@link #prepareStatement(String)} served by a cached statement.
+  * @return the number of statement cache hits.
+  */
+ public long getStatementCacheHitCount(){
+   if (pool != null){
+     return pool.getStatementCacheHitCount();
+   } else if (statementCache != null){
+     return statementCache.getHitCount();
+   }
+   return 0;
+ }
+ 
+ /**
+  * Get the number of calls to {@link #prepareStatement(String)} that needed a new statement.
+  * @return the number of statement cache misses.
+  */
+ public long getStatementCacheMissCount(){
+   if (pool != null){
+     return pool.getStatementCacheMissCount();
+   } else if (statementCache != null){
+     return statementCache.getMissCount();
+   }
+   return 0;
+ }
+ 
+ /**
+  * Get the number of prepared statements evicted from the cache.
+  * @return the number of statement cache evictions.
+  */
+ public long getStatementCacheEvictionCount(){
+   if (pool != null){
+     return pool.getStatementCacheEvictionCount();
+   } else if (statementCache != null){
+     return statementCache.getEvictionCount();
+   }
+   return 0;
+ }
+ 
+ /**
+  * Set the executor that processes the asynchronous queries. If <code>null</code>, the 
+  * {@link #getDefaultAsyncExecutor() default executor} is used.
+  * @param executor the executor that processes the asynchronous queries.
+  * @see #executeQueryAsync(String, ResultSetHandler)
+  * @see #executeUpdateAsync(String)
+  */
+ public void setAsyncExecutor(Executor executor){
+   this.asyncExecutor = executor;
+ }
+ 
+ /**
+  * Get the executor that processes the asynchronous queries.
+  * @return the executor that processes the asynchronous queries.
+  * @see #setAsyncExecutor(Executor)
+  */
+ public Executor getAsyncExecutor(){
+   if (asyncExecutor != null){
+     return asyncExecutor;
+   }
+   return getDefaultAsyncExecutor();
+ }
+ 
+ /**
+  * Get the default executor of the asynchronous queries. A virtual thread per task executor is used
+  * when the running JVM provides virtual threads. Otherwise, the executor relies on a cached pool of daemon 
+  * threads. In both cases a blocking query holds a thread, the number of queries processed in parallel 
+  * is bounded by the size of the {@link JDBCConnectionPool connection pool}.
+  * @return the default executor of the asynchronous queries.
+  */
+ public static synchronized Executor getDefaultAsyncExecutor(){
+   if (defaultAsyncExecutor == null){
+     
+     // Les threads virtuels ne sont accessibles que par reflexion (Java 21+)
+     try {
+       defaultAsyncExecutor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+     } catch (ReflectiveOperationException e) {
+       AtomicInteger count  = new AtomicInteger();
+       defaultAsyncExecutor = Executors.newCachedThreadPool(runnable -> {
+         Thread thread = new Thread(runnable, "jdatabase-async-"+count.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+       });
+     }
+   }
+   return defaultAsyncExecutor;
+ }
+ 
+ /**
+  * Set the metrics receiving the measures of the queries processed by this connection, its 
+  * {@link #getPool() pool} and the {@link org.jdatabase.jdbc.sql.SQLToolkit toolkits} using it. 
+  * If <code>null</code>, no measure is taken.
+  * @param metrics the metrics receiving the measures.
+  * @see org.jdatabase.jdbc.metrics.MetricsRegistry
+  */
+ public void setMetrics(QueryMetrics metrics){
+   this.metrics = metrics;
+   
+   if (pool != null){
+     pool.setMetrics(metrics);
+   }
+ }
+ 
+ /**
+  * Get the metrics receiving the measures of the queries processed by this connection.
+  * @return the metrics receiving the measures or <code>null</code> if no measure is taken.
+  * @see #setMetrics(QueryMetrics)
+  */
+ public QueryMetrics getMetrics(){
+   return this.metrics;
+ }
+ 
+ /**
+  * Set the log that records the queries processed by this connection and the 
+  * {@link org.jdatabase.jdbc.sql.SQLToolkit toolkits} using it that exceed its threshold.
+  * If <code>null</code>, the slow queries are not recorded.
+  * @param slowQueryLog the log of the slow queries.
+  */
+ public void setSlowQueryLog(SlowQueryLog slowQueryLog){
+   this.slowQueryLog = slowQueryLog;
+ }
+ 
+ /**
+  * Get the log of the slow queries.
+  * @return the log of the slow queries or <code>null</code> if the slow queries are not recorded.
+  * @see #setSlowQueryLog(SlowQueryLog)
+  */
+ public SlowQueryLog getSlowQueryLog(){
+   return this.slowQueryLog;
+ }
+ 
+ /**
+  * Record the execution of a query within the {@link #getMetrics() metrics} and the 
+  * {@link #getSlowQueryLog() slow query log}, if any.
+  * @param query the query.
+  * @param start the {@link System#nanoTime() time} at which the query was sent.
+  * @param rows the number of rows affected by the query.
+  */
+ public void recordQuery(String query, long start, long rows){
+   long nanos = 0;
+   
+   if ((metrics == null) && (slowQueryLog == null)){
+     return;
+   }
+   
+   nanos = System.nanoTime() - start;
+   
+   if (metrics != null){
+     metrics.recordQuery(query, nanos, rows);
+   }
+   
+   if (slowQueryLog != null){
+     slowQueryLog.record(query, nanos, rows);
+   }
+ }
+ 
  /**
   * Get the name of the connection
   * @return the name of the connection
@@ -817,6 +1461,10 @@ public class JDBCConnection {
    
    Throwable source = null;
    
+   ExceptionMappingEvent event = new ExceptionMappingEvent();
+   
+   event.begin();
+   
    
    // Excepions PostGre --------------------------------------------------
    
@@ -888,6 +1536,18 @@ public class JDBCConnection {
    }
    // ----------------------------------------------------------
    
+   if ((metrics != null) && (exception != null)){
+     metrics.recordError(query, exception.getId());
+   }
+   
+   event.end();
+   if (event.shouldCommit()){
+     event.fingerprint = SQLFingerprint.of(query);
+     event.sqlState    = ex.getSQLState();
+     event.vendorCode  = ex.getErrorCode();
+     event.code        = (exception != null) ? exception.getId() : -1;
+     event.commit();
+   }
  
     return exception;
   }
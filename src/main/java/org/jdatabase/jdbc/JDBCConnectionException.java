@@ -61,6 +61,31 @@ public class JDBCConnectionException extends Exception{
   
   public static final int BAD_SQL_QUERY          = 11;
   
+  /**
+   * The flag of a connection pool that cannot provide a connection before the borrow timeout.
+   */
+  public static final int POOL_EXHAUSTED         = 12;
+  
+  /**
+   * The flag of a connection pool that is closed.
+   */
+  public static final int POOL_CLOSED            = 13;
+  
+  /**
+   * The flag of a result that cannot be written to or read from a result store.
+   */
+  public static final int RESULT_STORE_ERROR     = 14;
+  
+  /**
+   * The flag of a bulk data transfer (load or export) that failed while reading or writing the data stream.
+   */
+  public static final int DATA_TRANSFER_ERROR    = 15;
+  
+  /**
+   * The flag of a metadata snapshot that cannot be written, read or used with a connection.
+   */
+  public static final int SNAPSHOT_ERROR         = 16;
+  
   
   public static final int WARNING_UNDEFINED      = 100;
   
@@ -0,0 +1,939 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc;
+
+import static org.jdatabase.JDatabase.logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.metrics.QueryMetrics;
+
+/**
+ * A pool of physical database connections created from a {@link DatabaseProfile database profile}.
+ * The pool keeps between {@link #getMinSize() min size} and {@link #getMaxSize() max size} connections open.
+ * Idle connections are closed after the {@link #getIdleTimeout() idle timeout} (as long as the pool holds more than
+ * its minimum size) and every connection is renewed once its {@link #getMaxLifetime() max lifetime} is reached.
+ * When all the connections are in use, {@link #borrow()} waits up to the {@link #getBorrowTimeout() borrow timeout}.<br>
+ * Connections returned by {@link #borrow()} are given back to the pool when they are closed. A connection is given back in
+ * auto commit mode, with the read only mode, the transaction isolation and the catalog it had when it was opened.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see JDBCConnection#JDBCConnection(JDBCConnectionPool)
+ */
+public class JDBCConnectionPool {
+
+  /**
+   * The default minimum number of connections.
+   */
+  public static final int DEFAULT_MIN_SIZE        = 1;
+
+  /**
+   * The default maximum number of connections.
+   */
+  public static final int DEFAULT_MAX_SIZE        = 8;
+
+  /**
+   * The default idle timeout (10 minutes).
+   */
+  public static final long DEFAULT_IDLE_TIMEOUT   = 600000L;
+
+  /**
+   * The default max lifetime of a connection (30 minutes).
+   */
+  public static final long DEFAULT_MAX_LIFETIME   = 1800000L;
+
+  /**
+   * The default borrow timeout (30 seconds).
+   */
+  public static final long DEFAULT_BORROW_TIMEOUT = 30000L;
+
+  /**
+   * The period of the eviction of idle and expired connections (30 seconds).
+   */
+  public static final long EVICTION_PERIOD        = 30000L;
+
+  /**
+   * The profile describing the database.
+   */
+  private DatabaseProfile profile = null;
+
+  /**
+   * The connection used to open physical connections.
+   */
+  private JDBCConnection factory  = null;
+
+  /**
+   * The minimum number of connections.
+   */
+  private int minSize             = DEFAULT_MIN_SIZE;
+
+  /**
+   * The maximum number of connections.
+   */
+  private int maxSize             = DEFAULT_MAX_SIZE;
+
+  /**
+   * The time (in milliseconds) after which an idle connection can be closed.
+   */
+  private long idleTimeout        = DEFAULT_IDLE_TIMEOUT;
+
+  /**
+   * The time (in milliseconds) after which a connection is renewed.
+   */
+  private long maxLifetime        = DEFAULT_MAX_LIFETIME;
+
+  /**
+   * The time (in milliseconds) to wait for a connection.
+   */
+  private long borrowTimeout      = DEFAULT_BORROW_TIMEOUT;
+
+  /**
+   * The number of prepared statements cached for each connection (0 disable the cache).
+   */
+  private int statementCacheSize  = PreparedStatementCache.DEFAULT_CAPACITY;
+  
+  /**
+   * The prepared statement cache counters, shared by all the connections of the pool.
+   */
+  private AtomicLong cacheHits      = new AtomicLong();
+  private AtomicLong cacheMisses    = new AtomicLong();
+  private AtomicLong cacheEvictions = new AtomicLong();
+
+  /**
+   * The idle connections, the most recently used first.
+   */
+  private ArrayDeque<PoolEntry> idle = null;
+
+  /**
+   * The number of physical connections (idle, borrowed or being opened).
+   */
+  private int size                = 0;
+
+  /**
+   * Specify if the pool is open.
+   */
+  private boolean open            = false;
+
+  /**
+   * The scheduler that evicts idle and expired connections.
+   */
+  private ScheduledExecutorService evictor = null;
+
+  /**
+   * The metrics receiving the time spent waiting for a connection (<code>null</code> if no measure is taken).
+   */
+  private QueryMetrics metrics    = null;
+
+  /**
+   * Create a new connection pool for the given database profile with default settings.
+   * @param profile the database profile.
+   */
+  public JDBCConnectionPool(DatabaseProfile profile){
+    this(profile, DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_LIFETIME, DEFAULT_BORROW_TIMEOUT);
+  }
+
+  /**
+   * Create a new connection pool for the given database profile.
+   * @param profile the database profile.
+   * @param minSize the minimum number of connections.
+   * @param maxSize the maximum number of connections.
+   */
+  public JDBCConnectionPool(DatabaseProfile profile, int minSize, int maxSize){
+    this(profile, minSize, maxSize, DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_LIFETIME, DEFAULT_BORROW_TIMEOUT);
+  }
+
+  /**
+   * Create a new connection pool for the given database profile.
+   * @param profile the database profile.
+   * @param minSize the minimum number of connections.
+   * @param maxSize the maximum number of connections.
+   * @param idleTimeout the time (in milliseconds) after which an idle connection can be closed.
+   * @param maxLifetime the time (in milliseconds) after which a connection is renewed.
+   * @param borrowTimeout the time (in milliseconds) to wait for a connection.
+   */
+  public JDBCConnectionPool(DatabaseProfile profile, int minSize, int maxSize,
+                            long idleTimeout, long maxLifetime, long borrowTimeout){
+    this.profile       = profile;
+    this.factory       = new JDBCConnection(profile);
+    this.minSize       = Math.max(0, minSize);
+    this.maxSize       = Math.max(1, Math.max(this.minSize, maxSize));
+    this.idleTimeout   = idleTimeout;
+    this.maxLifetime   = maxLifetime;
+    this.borrowTimeout = borrowTimeout;
+
+    idle = new ArrayDeque<PoolEntry>();
+  }
+
+  /**
+   * Open the pool. The minimum number of connections are created and the eviction of idle and
+   * expired connections is started. This method does nothing if the pool is already open.
+   * @throws JDBCConnectionException if the initial connections cannot be created.
+   */
+  public void open() throws JDBCConnectionException{
+    synchronized(this){
+      if (open){
+        return;
+      }
+      open = true;
+    }
+
+    try {
+      fill();
+    } catch (JDBCConnectionException e) {
+      close();
+      throw e;
+    }
+
+    evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "jdatabase-pool-evictor");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    evictor.scheduleWithFixedDelay(() -> evict(), EVICTION_PERIOD, EVICTION_PERIOD, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Close the pool. Idle connections are closed immediately, borrowed connections are closed
+   * when they are given back.
+   */
+  public void close(){
+    ArrayList<PoolEntry> closing = null;
+
+    synchronized(this){
+      open    = false;
+      closing = new ArrayList<PoolEntry>(idle);
+      size   -= idle.size();
+      idle.clear();
+      notifyAll();
+    }
+
+    if (evictor != null){
+      evictor.shutdownNow();
+      evictor = null;
+    }
+
+    for(PoolEntry entry : closing){
+      discard(entry);
+    }
+  }
+
+  /**
+   * Borrow a connection from the pool. If no connection is idle and the pool is full, this method
+   * waits for a connection to be given back during the {@link #getBorrowTimeout() borrow timeout}.
+   * The returned connection is given back to the pool when it is closed.
+   * @return a connection from the pool.
+   * @throws JDBCConnectionException if the pool is closed, if no connection is available before
+   *         the timeout or if a new connection cannot be created.
+   */
+  public Connection borrow() throws JDBCConnectionException{
+    PoolEntry entry              = null;
+    boolean create               = false;
+    ArrayList<PoolEntry> expired = new ArrayList<PoolEntry>();
+    long deadline                = System.currentTimeMillis() + borrowTimeout;
+    long remaining               = 0;
+    long start                   = System.nanoTime();
+
+    synchronized(this){
+      while((entry == null) && !create){
+
+        if (!open){
+          throw new JDBCConnectionException("Connection pool to "+factory.getName()+" is closed", JDBCConnectionException.POOL_CLOSED);
+        }
+
+        entry = idle.pollFirst();
+
+        if (entry != null){
+          if (isExpired(entry, System.currentTimeMillis())){
+            expired.add(entry);
+            size--;
+            entry = null;
+          }
+        } else if (size < maxSize){
+          size++;
+          create = true;
+        } else {
+          remaining = deadline - System.currentTimeMillis();
+
+          if (remaining <= 0){
+            if (metrics != null){
+              metrics.recordError(null, JDBCConnectionException.POOL_EXHAUSTED);
+            }
+            throw new JDBCConnectionException("No connection available to "+factory.getName()+" after "+borrowTimeout+" ms",
+                                              JDBCConnectionException.POOL_EXHAUSTED);
+          }
+
+          try {
+            wait(remaining);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JDBCConnectionException("Interrupted while waiting for a connection to "+factory.getName(),
+                                              JDBCConnectionException.POOL_EXHAUSTED, e);
+          }
+        }
+      }
+    }
+
+    for(PoolEntry e : expired){
+      discard(e);
+    }
+
+    if (create){
+      try {
+        entry = createEntry();
+      } catch (JDBCConnectionException e) {
+        synchronized(this){
+          size--;
+          notifyAll();
+        }
+        throw e;
+      }
+    }
+
+    if (metrics != null){
+      metrics.recordPoolWait(System.nanoTime() - start);
+    }
+
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                               new Class<?>[]{Connection.class},
+                                               new PooledConnectionHandler(entry));
+  }
+
+  /**
+   * Give back the given entry to the pool.
+   * @param entry the entry to give back.
+   * @param abort <code>true</code> if the physical connection has to be closed instead of being reused.
+   */
+  private void release(PoolEntry entry, boolean abort){
+    boolean discard = abort;
+
+    // La connexion est remise en mode autocommit avant d'etre rendue au pool
+    try {
+      if (discard || entry.connection.isClosed()){
+        discard = true;
+      } else {
+        if (!entry.connection.getAutoCommit()){
+          entry.connection.rollback();
+          entry.connection.setAutoCommit(true);
+        }
+
+        // Les parametres de session modifies par l'emprunteur sont restaures
+        if (entry.dirty){
+          if (entry.connection.isReadOnly() != entry.readOnly){
+            entry.connection.setReadOnly(entry.readOnly);
+          }
+          if (entry.connection.getTransactionIsolation() != entry.isolation){
+            entry.connection.setTransactionIsolation(entry.isolation);
+          }
+          if ((entry.catalog != null) && !Objects.equals(entry.connection.getCatalog(), entry.catalog)){
+            entry.connection.setCatalog(entry.catalog);
+          }
+          entry.dirty = false;
+        }
+      }
+    } catch (SQLException e) {
+      discard = true;
+    }
+
+    synchronized(this){
+      entry.lastUsed = System.currentTimeMillis();
+
+      if (discard || !open || isExpired(entry, entry.lastUsed)){
+        size--;
+        discard = true;
+      } else {
+        idle.addFirst(entry);
+      }
+
+      notifyAll();
+    }
+
+    if (discard){
+      discard(entry);
+    }
+  }
+
+  /**
+   * Close the idle connections that exceed the idle timeout or the max lifetime and
+   * create connections until the minimum size is reached.
+   */
+  private void evict(){
+    ArrayList<PoolEntry> closing = new ArrayList<PoolEntry>();
+    Iterator<PoolEntry> iter     = null;
+    PoolEntry entry              = null;
+    long now                     = System.currentTimeMillis();
+
+    synchronized(this){
+
+      // Parcours des connexions de la moins recemment utilisee a la plus recemment utilisee
+      iter = idle.descendingIterator();
+      while(iter.hasNext()){
+        entry = iter.next();
+
+        if (isExpired(entry, now) || ((size > minSize) && (idleTimeout > 0) && (now - entry.lastUsed > idleTimeout))){
+          iter.remove();
+          closing.add(entry);
+          size--;
+        }
+      }
+    }
+
+    for(PoolEntry e : closing){
+      discard(e);
+    }
+
+    try {
+      fill();
+    } catch (JDBCConnectionException e) {
+      logger.log(Level.WARNING, "Cannot restore the minimum size of the pool to "+factory.getName()+": "+e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Create connections until the minimum size of the pool is reached.
+   * @throws JDBCConnectionException if a connection cannot be created.
+   */
+  private void fill() throws JDBCConnectionException{
+    PoolEntry entry = null;
+
+    while(true){
+      synchronized(this){
+        if (!open || (size >= minSize)){
+          return;
+        }
+        size++;
+      }
+
+      try {
+        entry = createEntry();
+      } catch (JDBCConnectionException e) {
+        synchronized(this){
+          size--;
+          notifyAll();
+        }
+        throw e;
+      }
+
+      synchronized(this){
+        if (open){
+          idle.addLast(entry);
+          notifyAll();
+          entry = null;
+        } else {
+          size--;
+        }
+      }
+
+      if (entry != null){
+        discard(entry);
+      }
+    }
+  }
+  
+  /**
+   * Open a new physical connection and its statement cache.
+   * @return the entry holding the new connection.
+   * @throws JDBCConnectionException if the connection cannot be opened.
+   */
+  private PoolEntry createEntry() throws JDBCConnectionException{
+    PoolEntry entry = new PoolEntry(factory.openConnection());
+    
+    try {
+      entry.readOnly  = entry.connection.isReadOnly();
+      entry.isolation = entry.connection.getTransactionIsolation();
+      entry.catalog   = entry.connection.getCatalog();
+    } catch (SQLException e) {
+      closeQuietly(entry.connection);
+      throw new JDBCConnectionException("Cannot read the state of a new connection to "+factory.getName()+": "+e.getMessage(),
+                                        JDBCConnectionException.NATIVE_SERVER_EXCEPTION, e);
+    }
+    
+    if (statementCacheSize > 0){
+      entry.cache = new PreparedStatementCache(statementCacheSize, cacheHits, cacheMisses, cacheEvictions);
+    }
+    
+    return entry;
+  }
+  
+  /**
+   * Close the physical connection held by the given entry.
+   * @param entry the entry to close.
+   */
+  private void discard(PoolEntry entry){
+    if (entry.cache != null){
+      entry.cache.clear();
+    }
+    closeQuietly(entry.connection);
+  }
+
+  /**
+   * Check if the given entry has exceeded the max lifetime.
+   * @param entry the entry to check.
+   * @param now the current time.
+   * @return <code>true</code> if the entry has expired, <code>false</code> otherwise.
+   */
+  private boolean isExpired(PoolEntry entry, long now){
+    return (maxLifetime > 0) && (now - entry.created > maxLifetime);
+  }
+
+  /**
+   * Get the profile describing the database.
+   * @return the profile describing the database.
+   */
+  public DatabaseProfile getProfile(){
+    return profile;
+  }
+
+  /**
+   * Get the properties given to the JDBC driver when a connection of the pool is opened.
+   * @return the properties given to the JDBC driver.
+   * @see JDBCConnection#setDbProperty(String, String)
+   */
+  public Properties getConnectionProperties(){
+    return factory.getDbProperties();
+  }
+  
+  /**
+   * Get the number of prepared statements cached for each connection.
+   * @return the number of prepared statements cached for each connection.
+   */
+  public int getStatementCacheSize(){
+    return statementCacheSize;
+  }
+  
+  /**
+   * Set the number of prepared statements cached for each connection. A value of 0 disable the cache.
+   * The size is taken into account for the connections opened after this call.
+   * @param statementCacheSize the number of prepared statements cached for each connection.
+   */
+  public void setStatementCacheSize(int statementCacheSize){
+    this.statementCacheSize = Math.max(0, statementCacheSize);
+    factory.setStatementCacheSize(this.statementCacheSize);
+  }
+  
+  /**
+   * Get the number of prepared statements served by a cached statement on all the connections of the pool.
+   * @return the number of statement cache hits.
+   */
+  public long getStatementCacheHitCount(){
+    return cacheHits.get();
+  }
+  
+  /**
+   * Get the number of prepared statements that needed a new statement on all the connections of the pool.
+   * @return the number of statement cache misses.
+   */
+  public long getStatementCacheMissCount(){
+    return cacheMisses.get();
+  }
+  
+  /**
+   * Get the number of prepared statements evicted from the caches of the pool connections.
+   * @return the number of statement cache evictions.
+   */
+  public long getStatementCacheEvictionCount(){
+    return cacheEvictions.get();
+  }
+
+  /**
+   * Get the metrics receiving the time spent waiting for a connection.
+   * @return the metrics or <code>null</code> if no measure is taken.
+   */
+  public QueryMetrics getMetrics(){
+    return metrics;
+  }
+
+  /**
+   * Set the metrics receiving the time spent waiting for a connection. The metrics are also given to the 
+   * connection that opens the pooled connections.
+   * @param metrics the metrics or <code>null</code> if no measure has to be taken.
+   * @see JDBCConnection#setMetrics(QueryMetrics)
+   */
+  public void setMetrics(QueryMetrics metrics){
+    this.metrics = metrics;
+    factory.setMetrics(metrics);
+  }
+
+  /**
+   * Get the minimum number of connections.
+   * @return the minimum number of connections.
+   */
+  public int getMinSize(){
+    return minSize;
+  }
+
+  /**
+   * Set the minimum number of connections.
+   * @param minSize the minimum number of connections.
+   */
+  public void setMinSize(int minSize){
+    this.minSize = Math.max(0, minSize);
+  }
+
+  /**
+   * Get the maximum number of connections.
+   * @return the maximum number of connections.
+   */
+  public int getMaxSize(){
+    return maxSize;
+  }
+
+  /**
+   * Set the maximum number of connections.
+   * @param maxSize the maximum number of connections.
+   */
+  public synchronized void setMaxSize(int maxSize){
+    this.maxSize = Math.max(1, maxSize);
+    notifyAll();
+  }
+
+  /**
+   * Get the time (in milliseconds) after which an idle connection can be closed.
+   * @return the idle timeout.
+   */
+  public long getIdleTimeout(){
+    return idleTimeout;
+  }
+
+  /**
+   * Set the time (in milliseconds) after which an idle connection can be closed. A value lesser or equal
+   * to 0 disable the idle eviction.
+   * @param idleTimeout the idle timeout.
+   */
+  public void setIdleTimeout(long idleTimeout){
+    this.idleTimeout = idleTimeout;
+  }
+
+  /**
+   * Get the time (in milliseconds) after which a connection is renewed.
+   * @return the max lifetime of a connection.
+   */
+  public long getMaxLifetime(){
+    return maxLifetime;
+  }
+
+  /**
+   * Set the time (in milliseconds) after which a connection is renewed. A value lesser or equal
+   * to 0 disable the renewal.
+   * @param maxLifetime the max lifetime of a connection.
+   */
+  public void setMaxLifetime(long maxLifetime){
+    this.maxLifetime = maxLifetime;
+  }
+
+  /**
+   * Get the time (in milliseconds) to wait for a connection.
+   * @return the borrow timeout.
+   */
+  public long getBorrowTimeout(){
+    return borrowTimeout;
+  }
+
+  /**
+   * Set the time (in milliseconds) to wait for a connection.
+   * @param borrowTimeout the borrow timeout.
+   */
+  public void setBorrowTimeout(long borrowTimeout){
+    this.borrowTimeout = borrowTimeout;
+  }
+
+  /**
+   * Get the number of physical connections held by the pool (idle or borrowed).
+   * @return the number of physical connections held by the pool.
+   */
+  public synchronized int getSize(){
+    return size;
+  }
+
+  /**
+   * Get the number of idle connections.
+   * @return the number of idle connections.
+   */
+  public synchronized int getIdleCount(){
+    return idle.size();
+  }
+
+  /**
+   * Get the number of borrowed connections.
+   * @return the number of borrowed connections.
+   */
+  public synchronized int getActiveCount(){
+    return size - idle.size();
+  }
+
+  /**
+   * Return <code>true</code> if the pool is open.
+   * @return <code>true</code> if the pool is open, <code>false</code> otherwise.
+   */
+  public synchronized boolean isOpen(){
+    return open;
+  }
+
+  /**
+   * Close the given resource, ignoring errors.
+   * @param resource the resource to close (can be <code>null</code>).
+   */
+  static void closeQuietly(AutoCloseable resource){
+    if (resource != null){
+      try {
+        resource.close();
+      } catch (Exception e) {
+        logger.log(Level.FINE, "Cannot close "+resource+": "+e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Wrap the given JDBC object so that the given resources are closed when it is closed.
+   * This method is used to give back a borrowed connection when the statement or the result set
+   * created from it is closed. The statement of a wrapped result set and the result sets of a wrapped statement are
+   * also wrapped, and the connection of a wrapped statement is the connection given within the resources, so that
+   * closing any of them gives back the connection.
+   * @param <T> the type of the JDBC object.
+   * @param target the JDBC object to wrap.
+   * @param type the interface of the JDBC object.
+   * @param resources the resources to close with the JDBC object.
+   * @return the wrapped JDBC object.
+   */
+  static <T extends AutoCloseable> T closeWith(T target, Class<T> type, AutoCloseable... resources){
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                                            new CloseWithHandler(target, null, resources)));
+  }
+
+  /**
+   * A physical connection held by the pool.
+   */
+  private static class PoolEntry {
+
+    /**
+     * The physical connection.
+     */
+    private final Connection connection;
+
+    /**
+     * The creation date of the connection.
+     */
+    private final long created;
+
+    /**
+     * The last time the connection was given back to the pool.
+     */
+    private long lastUsed;
+    
+    /**
+     * The prepared statement cache of the connection (<code>null</code> if disabled).
+     */
+    private PreparedStatementCache cache = null;
+
+    /**
+     * The read only mode, the transaction isolation and the catalog of the connection when it was opened.
+     */
+    private boolean readOnly             = false;
+    private int isolation                = Connection.TRANSACTION_NONE;
+    private String catalog               = null;
+
+    /**
+     * Specify if the read only mode, the transaction isolation or the catalog has been changed by a borrower.
+     */
+    private boolean dirty                = false;
+
+    PoolEntry(Connection connection){
+      this.connection = connection;
+      this.created    = System.currentTimeMillis();
+      this.lastUsed   = created;
+    }
+  }
+
+  /**
+   * The handler of a borrowed connection. Closing the connection gives it back to the pool. Aborting the connection
+   * closes the physical connection and frees its place within the pool, which is needed when the state of its session
+   * has been changed by a query (<code>SET</code>, <code>USE</code>, ...).
+   */
+  private class PooledConnectionHandler implements InvocationHandler {
+
+    private final PoolEntry entry;
+
+    private boolean closed = false;
+
+    PooledConnectionHandler(PoolEntry entry){
+      this.entry = entry;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+      String name = method.getName();
+
+      if ("close".equals(name) && (args == null)){
+        synchronized(this){
+          if (closed){
+            return null;
+          }
+          closed = true;
+        }
+        release(entry, false);
+        return null;
+      } else if ("abort".equals(name) && (args != null) && (args.length == 1)){
+        synchronized(this){
+          if (closed){
+            return null;
+          }
+          closed = true;
+        }
+        release(entry, true);
+        return null;
+      } else if ("isClosed".equals(name) && (args == null)){
+        return closed || entry.connection.isClosed();
+      } else if ("equals".equals(name) && (args != null) && (args.length == 1)){
+        return proxy == args[0];
+      } else if ("hashCode".equals(name) && (args == null)){
+        return System.identityHashCode(proxy);
+      } else if ("toString".equals(name) && (args == null)){
+        return "Pooled "+entry.connection;
+      }
+
+      if (closed){
+        throw new SQLException("Connection has been given back to the pool", "08003");
+      }
+      
+      if ("setReadOnly".equals(name) || "setTransactionIsolation".equals(name) || "setCatalog".equals(name)){
+        entry.dirty = true;
+      }
+      
+      if ("prepareStatement".equals(name) && (args.length == 1) && (entry.cache != null)){
+        return entry.cache.prepareStatement(entry.connection, (String)args[0]);
+      }
+
+      try {
+        return method.invoke(entry.connection, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+
+  /**
+   * The handler of a JDBC object that has to close other resources when it is closed.
+   */
+  private static class CloseWithHandler implements InvocationHandler {
+
+    private final Object target;
+
+    private final AutoCloseable[] resources;
+
+    /**
+     * The wrapped statement of a result set (created on demand if <code>null</code>).
+     */
+    private Object owner;
+
+    CloseWithHandler(Object target, Object owner, AutoCloseable[] resources){
+      this.target    = target;
+      this.owner     = owner;
+      this.resources = resources;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name   = method.getName();
+      Object result = null;
+
+      // Les objets qui donnent acces a la connexion empruntee sont aussi enveloppes
+      if ("getStatement".equals(name) && (args == null) && (target instanceof ResultSet)){
+        synchronized(this){
+          if (owner == null){
+            owner = wrapStatement();
+          }
+        }
+        if (owner != null){
+          return owner;
+        }
+      } else if ("getConnection".equals(name) && (args == null) && (target instanceof Statement)){
+        for(AutoCloseable resource : resources){
+          if (resource instanceof Connection){
+            return resource;
+          }
+        }
+      }
+
+      try {
+        result = method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        if ("close".equals(name) && (args == null)){
+          for(AutoCloseable resource : resources){
+            closeQuietly(resource);
+          }
+        }
+        throw e.getCause();
+      }
+
+      if ("close".equals(name) && (args == null)){
+        for(AutoCloseable resource : resources){
+          closeQuietly(resource);
+        }
+      } else if ((result instanceof ResultSet) && (target instanceof Statement)){
+        result = Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                                        new CloseWithHandler(result, proxy, new AutoCloseable[0]));
+      }
+
+      return result;
+    }
+
+    /**
+     * Wrap the statement of a result set, closing the statement gives back the connection.
+     * @return the wrapped statement or <code>null</code> if the statement is not within the resources.
+     */
+    private Object wrapStatement(){
+      ArrayList<AutoCloseable> others = new ArrayList<AutoCloseable>();
+      Statement statement             = null;
+
+      for(AutoCloseable resource : resources){
+        if ((statement == null) && (resource instanceof Statement)){
+          statement = (Statement) resource;
+        } else {
+          others.add(resource);
+        }
+      }
+
+      if (statement == null){
+        return null;
+      }
+
+      return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class},
+                                    new CloseWithHandler(statement, null, others.toArray(new AutoCloseable[others.size()])));
+    }
+  }
+}
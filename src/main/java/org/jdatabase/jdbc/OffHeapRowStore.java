@@ -0,0 +1,482 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc;
+
+import static org.jdatabase.JDatabase.logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.logging.Level;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * A store of rows kept outside of the Java heap. The rows are serialized within segments that are either direct
+ * {@link ByteBuffer byte buffers} or regions of a memory mapped temporary file. The position of each row is recorded
+ * within an index that is also kept outside of the heap, so that a row can be read back by its index
+ * ({@link #getRow(long)}) whatever the number of rows stored.<br>
+ * A row store is a {@link RowSink} and can be filled from a {@link RowCursor#drainTo(RowSink) cursor} or a
+ * {@link org.jdatabase.jdbc.sql.ParallelTableScan parallel scan}. Supported values are <code>null</code>, numbers,
+ * booleans, strings, dates and times, byte arrays and, as a last resort, {@link Serializable serializable} objects.<br>
+ * The memory of a store is released when it is {@link #close() closed}. The temporary file of a memory mapped store is
+ * deleted when it is closed; as the JVM does not provide a way to unmap a file, the deletion can be delayed until
+ * the exit of the JVM on some systems.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class OffHeapRowStore implements RowSink, AutoCloseable {
+
+  /**
+   * The default size of a data segment in bytes (64 MB).
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * The number of row positions held by an index segment.
+   */
+  private static final int INDEX_SEGMENT_ROWS  = 1024 * 1024;
+
+  private static final byte TYPE_NULL       = 0;
+  private static final byte TYPE_INTEGER    = 1;
+  private static final byte TYPE_LONG       = 2;
+  private static final byte TYPE_DOUBLE     = 3;
+  private static final byte TYPE_FLOAT      = 4;
+  private static final byte TYPE_STRING     = 5;
+  private static final byte TYPE_BOOLEAN    = 6;
+  private static final byte TYPE_DECIMAL    = 7;
+  private static final byte TYPE_DATE       = 8;
+  private static final byte TYPE_TIMESTAMP  = 9;
+  private static final byte TYPE_TIME       = 10;
+  private static final byte TYPE_BYTES      = 11;
+  private static final byte TYPE_SHORT      = 12;
+  private static final byte TYPE_BYTE       = 13;
+  private static final byte TYPE_BIGINTEGER = 14;
+  private static final byte TYPE_SERIAL     = 15;
+
+  /**
+   * The size of a data segment in bytes.
+   */
+  private int segmentSize                = DEFAULT_SEGMENT_SIZE;
+
+  /**
+   * The data segments.
+   */
+  private ArrayList<ByteBuffer> segments = null;
+
+  /**
+   * The index segments. Each entry holds the position of a row: the segment number in the high 32 bits
+   * and the offset within the segment in the low 32 bits.
+   */
+  private ArrayList<ByteBuffer> index    = null;
+
+  /**
+   * The file holding the segments (<code>null</code> for direct buffers).
+   */
+  private File file                      = null;
+
+  /**
+   * The channel of the file holding the segments.
+   */
+  private FileChannel channel            = null;
+
+  /**
+   * The position of the next segment within the file.
+   */
+  private long filePosition              = 0;
+
+  /**
+   * The buffer used for serializing a row.
+   */
+  private ByteBuffer scratch             = null;
+
+  /**
+   * The number of columns (-1 until the first row is stored).
+   */
+  private int columnCount                = -1;
+
+  /**
+   * The number of rows.
+   */
+  private long rowCount                  = 0;
+
+  /**
+   * The number of bytes used by the rows.
+   */
+  private long byteCount                 = 0;
+
+  /**
+   * Specify if the store is closed.
+   */
+  private boolean closed                 = false;
+
+  /**
+   * Create a new row store that keeps the rows within direct byte buffers.
+   */
+  public OffHeapRowStore(){
+    this.segments = new ArrayList<ByteBuffer>();
+    this.index    = new ArrayList<ByteBuffer>();
+    this.scratch  = ByteBuffer.allocate(4096);
+  }
+
+  /**
+   * Create a new row store that keeps the rows within a memory mapped temporary file created in the given directory.
+   * @param directory the directory of the temporary file (<code>null</code> for the default temporary directory).
+   * @param segmentSize the size of a data segment in bytes.
+   * @throws JDBCConnectionException if the temporary file cannot be created.
+   */
+  public OffHeapRowStore(File directory, int segmentSize) throws JDBCConnectionException{
+    this();
+    this.segmentSize = Math.max(4096, segmentSize);
+
+    try {
+      file    = File.createTempFile("jdatabase-rows-", ".bin", directory);
+      file.deleteOnExit();
+      channel = new RandomAccessFile(file, "rw").getChannel();
+    } catch (IOException e) {
+      throw new JDBCConnectionException("Cannot create row store file: "+e.getMessage(), JDBCConnectionException.RESULT_STORE_ERROR, e);
+    }
+  }
+
+  /**
+   * Store a row.
+   * @param row the row to store.
+   * @throws JDBCConnectionException if the row cannot be stored.
+   */
+  @Override
+  public synchronized void accept(Object[] row) throws JDBCConnectionException{
+    ByteBuffer segment = null;
+    int length         = 0;
+
+    if (closed){
+      throw new JDBCConnectionException("Row store is closed", JDBCConnectionException.RESULT_STORE_ERROR);
+    }
+
+    if (columnCount < 0){
+      columnCount = row.length;
+    }
+
+    // Serialisation de la ligne
+    while(true){
+      scratch.clear();
+      try {
+        scratch.putInt(row.length);
+        for(Object value : row){
+          write(value);
+        }
+        break;
+      } catch (BufferOverflowException e) {
+        scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+      }
+    }
+    scratch.flip();
+    length = scratch.remaining();
+
+    // Une ligne n'est jamais repartie sur deux segments
+    segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    if ((segment == null) || (segment.remaining() < length)){
+      segment = allocate(Math.max(segmentSize, length));
+      segments.add(segment);
+    }
+
+    setPosition(rowCount, ((long)(segments.size() - 1) << 32) | segment.position());
+    segment.put(scratch);
+
+    rowCount++;
+    byteCount += length;
+  }
+
+  /**
+   * Read a row.
+   * @param row the index of the row (starting at 0).
+   * @return the row.
+   * @throws JDBCConnectionException if the row cannot be read.
+   * @throws IndexOutOfBoundsException if the index is not valid.
+   */
+  public Object[] getRow(long row) throws JDBCConnectionException{
+    ByteBuffer buffer = null;
+    long position     = 0;
+    Object[] values   = null;
+
+    synchronized(this){
+      if (closed){
+        throw new JDBCConnectionException("Row store is closed", JDBCConnectionException.RESULT_STORE_ERROR);
+      }
+
+      if ((row < 0) || (row >= rowCount)){
+        throw new IndexOutOfBoundsException("Row "+row+" out of [0, "+rowCount+"[");
+      }
+
+      position = index.get((int)(row / INDEX_SEGMENT_ROWS)).getLong((int)(row % INDEX_SEGMENT_ROWS) * 8);
+      buffer   = segments.get((int)(position >>> 32)).duplicate();
+    }
+
+    // Lecture sur une copie du tampon, independante des ecritures
+    buffer.position((int)position);
+
+    values = new Object[buffer.getInt()];
+    for(int i = 0; i < values.length; i++){
+      values[i] = read(buffer);
+    }
+
+    return values;
+  }
+
+  /**
+   * Record the position of a row.
+   * @param row the index of the row.
+   * @param position the position of the row.
+   * @throws JDBCConnectionException if the index cannot be extended.
+   */
+  private void setPosition(long row, long position) throws JDBCConnectionException{
+    int segment = (int)(row / INDEX_SEGMENT_ROWS);
+
+    if (segment == index.size()){
+      index.add(allocate(INDEX_SEGMENT_ROWS * 8));
+    }
+
+    index.get(segment).putLong((int)(row % INDEX_SEGMENT_ROWS) * 8, position);
+  }
+
+  /**
+   * Allocate a new segment.
+   * @param size the size of the segment in bytes.
+   * @return the new segment.
+   * @throws JDBCConnectionException if the segment cannot be allocated.
+   */
+  private ByteBuffer allocate(int size) throws JDBCConnectionException{
+    ByteBuffer buffer = null;
+
+    if (channel == null){
+      return ByteBuffer.allocateDirect(size);
+    }
+
+    try {
+      buffer        = channel.map(FileChannel.MapMode.READ_WRITE, filePosition, size);
+      filePosition += size;
+    } catch (IOException e) {
+      throw new JDBCConnectionException("Cannot map row store file: "+e.getMessage(), JDBCConnectionException.RESULT_STORE_ERROR, e);
+    }
+
+    return buffer;
+  }
+
+  /**
+   * Serialize a value within the scratch buffer.
+   * @param value the value to serialize.
+   * @throws JDBCConnectionException if the value cannot be serialized.
+   */
+  private void write(Object value) throws JDBCConnectionException{
+    if (value == null){
+      scratch.put(TYPE_NULL);
+    } else if (value instanceof Integer){
+      scratch.put(TYPE_INTEGER).putInt((Integer)value);
+    } else if (value instanceof Long){
+      scratch.put(TYPE_LONG).putLong((Long)value);
+    } else if (value instanceof Double){
+      scratch.put(TYPE_DOUBLE).putDouble((Double)value);
+    } else if (value instanceof Float){
+      scratch.put(TYPE_FLOAT).putFloat((Float)value);
+    } else if (value instanceof String){
+      writeBytes(TYPE_STRING, ((String)value).getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof Boolean){
+      scratch.put(TYPE_BOOLEAN).put((byte)(((Boolean)value) ? 1 : 0));
+    } else if (value instanceof BigDecimal){
+      writeBytes(TYPE_DECIMAL, value.toString().getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof Timestamp){
+      scratch.put(TYPE_TIMESTAMP).putLong(((Timestamp)value).getTime()).putInt(((Timestamp)value).getNanos());
+    } else if (value instanceof java.sql.Date){
+      scratch.put(TYPE_DATE).putLong(((java.sql.Date)value).getTime());
+    } else if (value instanceof Time){
+      scratch.put(TYPE_TIME).putLong(((Time)value).getTime());
+    } else if (value instanceof byte[]){
+      writeBytes(TYPE_BYTES, (byte[])value);
+    } else if (value instanceof Short){
+      scratch.put(TYPE_SHORT).putShort((Short)value);
+    } else if (value instanceof Byte){
+      scratch.put(TYPE_BYTE).put((Byte)value);
+    } else if (value instanceof BigInteger){
+      writeBytes(TYPE_BIGINTEGER, ((BigInteger)value).toByteArray());
+    } else if (value instanceof Serializable){
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream output = new ObjectOutputStream(bytes)){
+        output.writeObject(value);
+      } catch (IOException e) {
+        throw new JDBCConnectionException("Cannot store value of type "+value.getClass().getName(), JDBCConnectionException.RESULT_STORE_ERROR, e);
+      }
+      writeBytes(TYPE_SERIAL, bytes.toByteArray());
+    } else {
+      throw new JDBCConnectionException("Cannot store value of type "+value.getClass().getName(), JDBCConnectionException.RESULT_STORE_ERROR);
+    }
+  }
+
+  /**
+   * Serialize an array of bytes within the scratch buffer.
+   * @param type the type of the value.
+   * @param bytes the bytes of the value.
+   */
+  private void writeBytes(byte type, byte[] bytes){
+    scratch.put(type).putInt(bytes.length).put(bytes);
+  }
+
+  /**
+   * Read a value.
+   * @param buffer the buffer positioned on the value.
+   * @return the value.
+   * @throws JDBCConnectionException if the value cannot be read.
+   */
+  private static Object read(ByteBuffer buffer) throws JDBCConnectionException{
+    byte type = buffer.get();
+
+    switch(type){
+      case TYPE_NULL:
+        return null;
+      case TYPE_INTEGER:
+        return buffer.getInt();
+      case TYPE_LONG:
+        return buffer.getLong();
+      case TYPE_DOUBLE:
+        return buffer.getDouble();
+      case TYPE_FLOAT:
+        return buffer.getFloat();
+      case TYPE_STRING:
+        return new String(readBytes(buffer), StandardCharsets.UTF_8);
+      case TYPE_BOOLEAN:
+        return buffer.get() != 0;
+      case TYPE_DECIMAL:
+        return new BigDecimal(new String(readBytes(buffer), StandardCharsets.UTF_8));
+      case TYPE_TIMESTAMP:
+        Timestamp timestamp = new Timestamp(buffer.getLong());
+        timestamp.setNanos(buffer.getInt());
+        return timestamp;
+      case TYPE_DATE:
+        return new java.sql.Date(buffer.getLong());
+      case TYPE_TIME:
+        return new Time(buffer.getLong());
+      case TYPE_BYTES:
+        return readBytes(buffer);
+      case TYPE_SHORT:
+        return buffer.getShort();
+      case TYPE_BYTE:
+        return buffer.get();
+      case TYPE_BIGINTEGER:
+        return new BigInteger(readBytes(buffer));
+      case TYPE_SERIAL:
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(readBytes(buffer)))){
+          return input.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+          throw new JDBCConnectionException("Cannot read stored value: "+e.getMessage(), JDBCConnectionException.RESULT_STORE_ERROR, e);
+        }
+      default:
+        throw new JDBCConnectionException("Unknown stored value type "+type, JDBCConnectionException.RESULT_STORE_ERROR);
+    }
+  }
+
+  /**
+   * Read an array of bytes.
+   * @param buffer the buffer positioned on the length of the array.
+   * @return the array of bytes.
+   */
+  private static byte[] readBytes(ByteBuffer buffer){
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * Release the memory used by the store and delete its file if any. This method does nothing if the store is already closed.
+   */
+  @Override
+  public synchronized void close(){
+    if (closed){
+      return;
+    }
+
+    closed = true;
+
+    segments.clear();
+    index.clear();
+
+    if (channel != null){
+      try {
+        channel.close();
+      } catch (IOException e) {
+        logger.log(Level.FINE, "Cannot close row store file "+file+": "+e.getMessage(), e);
+      }
+
+      if (!file.delete()){
+        logger.log(Level.FINE, "Row store file "+file+" will be deleted on exit");
+      }
+    }
+  }
+
+  /**
+   * Get the number of rows stored.
+   * @return the number of rows.
+   */
+  public synchronized long getRowCount(){
+    return rowCount;
+  }
+
+  /**
+   * Get the number of columns of the rows (-1 if no row is stored).
+   * @return the number of columns.
+   */
+  public synchronized int getColumnCount(){
+    return columnCount;
+  }
+
+  /**
+   * Get the number of bytes used by the rows.
+   * @return the number of bytes used by the rows.
+   */
+  public synchronized long getByteCount(){
+    return byteCount;
+  }
+
+  /**
+   * Get the file holding the rows.
+   * @return the file holding the rows or <code>null</code> if the rows are kept within direct buffers.
+   */
+  public File getFile(){
+    return file;
+  }
+
+  /**
+   * Return <code>true</code> if the store is closed.
+   * @return <code>true</code> if the store is closed, <code>false</code> otherwise.
+   */
+  public synchronized boolean isClosed(){
+    return closed;
+  }
+}
@@ -0,0 +1,393 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc;
+
+import static org.jdatabase.JDatabase.logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * A bounded LRU cache of {@link PreparedStatement prepared statements} attached to a single database connection
+ * and keyed by the SQL text. A statement obtained from the cache is reserved until it is closed. Closing it clears its
+ * parameters and its pending batch, closes its current result set, restores the maximum number of rows, the fetch size
+ * and the query timeout it had when it was prepared, and makes it available again instead of closing it on the server side. When the cache is full, the least
+ * recently used statement is evicted and closed (immediately if it is not in use, when it is given back otherwise).
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class PreparedStatementCache {
+
+  /**
+   * The default number of statements kept by a cache.
+   */
+  public static final int DEFAULT_CAPACITY = 64;
+
+  /**
+   * The maximum number of statements kept by the cache.
+   */
+  private int capacity = DEFAULT_CAPACITY;
+
+  /**
+   * The cached statements, the least recently used first.
+   */
+  private LinkedHashMap<String, CachedStatement> statements = null;
+
+  /**
+   * The number of requests served by a cached statement.
+   */
+  private AtomicLong hits      = null;
+
+  /**
+   * The number of requests that needed a new statement.
+   */
+  private AtomicLong misses    = null;
+
+  /**
+   * The number of statements evicted from the cache.
+   */
+  private AtomicLong evictions = null;
+
+  /**
+   * Create a new prepared statement cache.
+   * @param capacity the maximum number of statements kept by the cache.
+   */
+  public PreparedStatementCache(int capacity){
+    this(capacity, new AtomicLong(), new AtomicLong(), new AtomicLong());
+  }
+
+  /**
+   * Create a new prepared statement cache that reports to the given counters. This constructor enables to
+   * aggregate the statistics of the caches attached to several connections.
+   * @param capacity the maximum number of statements kept by the cache.
+   * @param hits the hit counter.
+   * @param misses the miss counter.
+   * @param evictions the eviction counter.
+   */
+  PreparedStatementCache(int capacity, AtomicLong hits, AtomicLong misses, AtomicLong evictions){
+    this.capacity   = Math.max(1, capacity);
+    this.hits       = hits;
+    this.misses     = misses;
+    this.evictions  = evictions;
+    this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true);
+  }
+
+  /**
+   * Get a prepared statement for the given SQL text. If an idle statement is cached for this text, it is reused.
+   * Otherwise a new statement is prepared on the given connection and cached. If the cached statement is already
+   * in use, a new statement that is not cached is returned.<br>
+   * The returned statement has to be closed in order to be reused.
+   * @param connection the connection on which the statement is prepared.
+   * @param sql the SQL text of the statement.
+   * @return a prepared statement.
+   * @throws SQLException if the statement cannot be prepared.
+   */
+  public PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException{
+
+    CachedStatement cached                 = null;
+    PreparedStatement statement            = null;
+    ArrayList<CachedStatement> evicted     = null;
+
+    synchronized(this){
+      cached = statements.get(sql);
+
+      if ((cached != null) && !cached.inUse && !cached.statement.isClosed()){
+        cached.inUse = true;
+        hits.incrementAndGet();
+        return handle(cached);
+      }
+
+      misses.incrementAndGet();
+
+      // Statement deja utilise: une instance non partagee est preparee
+      if ((cached != null) && cached.inUse){
+        return connection.prepareStatement(sql);
+      }
+
+      statement = connection.prepareStatement(sql);
+      try {
+        cached = new CachedStatement(sql, statement);
+      } catch (SQLException e) {
+        statement.close();
+        throw e;
+      }
+      cached.inUse = true;
+      statements.put(sql, cached);
+
+      evicted = evict();
+    }
+
+    closeEvicted(evicted);
+
+    return handle(cached);
+  }
+
+  /**
+   * Close all the statements and empty the cache. Statements in use are closed when they are given back.
+   */
+  public void clear(){
+    ArrayList<CachedStatement> evicted = new ArrayList<CachedStatement>();
+
+    synchronized(this){
+      for(CachedStatement cached : statements.values()){
+        cached.evicted = true;
+        if (!cached.inUse){
+          evicted.add(cached);
+        }
+      }
+      statements.clear();
+    }
+
+    closeEvicted(evicted);
+  }
+
+  /**
+   * Remove the least recently used statements until the capacity is respected. This method
+   * has to be called while holding the cache lock.
+   * @return the idle statements that have to be closed.
+   */
+  private ArrayList<CachedStatement> evict(){
+    ArrayList<CachedStatement> evicted = new ArrayList<CachedStatement>();
+    Iterator<Map.Entry<String, CachedStatement>> iter = statements.entrySet().iterator();
+    CachedStatement cached = null;
+
+    while((statements.size() > capacity) && iter.hasNext()){
+      cached = iter.next().getValue();
+      iter.remove();
+
+      cached.evicted = true;
+      evictions.incrementAndGet();
+
+      if (!cached.inUse){
+        evicted.add(cached);
+      }
+    }
+
+    return evicted;
+  }
+
+  /**
+   * Close the given evicted statements.
+   * @param evicted the statements to close.
+   */
+  private void closeEvicted(ArrayList<CachedStatement> evicted){
+    if (evicted != null){
+      for(CachedStatement cached : evicted){
+        try {
+          cached.statement.close();
+        } catch (SQLException e) {
+          logger.log(Level.FINE, "Cannot close evicted statement "+cached.sql+": "+e.getMessage(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Give back a statement obtained from the cache. The state left by the previous user (parameters, pending batch,
+   * open result set and settings) is reset so that it does not leak to the next one.
+   * @param cached the statement to give back.
+   */
+  private void release(CachedStatement cached){
+    boolean close       = false;
+    ResultSet resultSet = null;
+
+    try {
+      if (!cached.statement.isClosed()){
+        cached.statement.clearParameters();
+        cached.statement.clearBatch();
+
+        resultSet = cached.statement.getResultSet();
+        if (resultSet != null){
+          resultSet.close();
+        }
+
+        // Restauration des reglages enregistres a la preparation
+        if (cached.statement.getMaxRows() != cached.maxRows){
+          cached.statement.setMaxRows(cached.maxRows);
+        }
+        if (cached.statement.getFetchSize() != cached.fetchSize){
+          cached.statement.setFetchSize(cached.fetchSize);
+        }
+        if (cached.statement.getQueryTimeout() != cached.queryTimeout){
+          cached.statement.setQueryTimeout(cached.queryTimeout);
+        }
+      }
+    } catch (SQLException e) {
+      close = true;
+    }
+
+    synchronized(this){
+      cached.inUse = false;
+
+      if (close && !cached.evicted){
+        statements.remove(cached.sql);
+        cached.evicted = true;
+      }
+
+      close = cached.evicted;
+    }
+
+    if (close){
+      try {
+        cached.statement.close();
+      } catch (SQLException e) {
+        logger.log(Level.FINE, "Cannot close evicted statement "+cached.sql+": "+e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Create the handle given to the user of a cached statement.
+   * @param cached the cached statement.
+   * @return the handle of the statement.
+   */
+  private PreparedStatement handle(CachedStatement cached){
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                                      new Class<?>[]{PreparedStatement.class},
+                                                      new CachedStatementHandler(cached));
+  }
+
+  /**
+   * Get the maximum number of statements kept by the cache.
+   * @return the maximum number of statements kept by the cache.
+   */
+  public int getCapacity(){
+    return capacity;
+  }
+
+  /**
+   * Get the number of statements currently cached.
+   * @return the number of statements currently cached.
+   */
+  public synchronized int size(){
+    return statements.size();
+  }
+
+  /**
+   * Get the number of requests served by a cached statement.
+   * @return the number of cache hits.
+   */
+  public long getHitCount(){
+    return hits.get();
+  }
+
+  /**
+   * Get the number of requests that needed a new statement to be prepared.
+   * @return the number of cache misses.
+   */
+  public long getMissCount(){
+    return misses.get();
+  }
+
+  /**
+   * Get the number of statements evicted from the cache.
+   * @return the number of evictions.
+   */
+  public long getEvictionCount(){
+    return evictions.get();
+  }
+
+  /**
+   * A statement held by the cache.
+   */
+  private static class CachedStatement {
+
+    private final String sql;
+
+    private final PreparedStatement statement;
+
+    private boolean inUse   = false;
+
+    private boolean evicted = false;
+
+    private final int maxRows;
+
+    private final int fetchSize;
+
+    private final int queryTimeout;
+
+    CachedStatement(String sql, PreparedStatement statement) throws SQLException{
+      this.sql          = sql;
+      this.statement    = statement;
+      this.maxRows      = statement.getMaxRows();
+      this.fetchSize    = statement.getFetchSize();
+      this.queryTimeout = statement.getQueryTimeout();
+    }
+  }
+
+  /**
+   * The handler of a statement obtained from the cache. Closing the statement gives it back to the cache.
+   */
+  private class CachedStatementHandler implements InvocationHandler {
+
+    private final CachedStatement cached;
+
+    private boolean closed = false;
+
+    CachedStatementHandler(CachedStatement cached){
+      this.cached = cached;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+
+      if ("close".equals(name) && (args == null)){
+        synchronized(this){
+          if (closed){
+            return null;
+          }
+          closed = true;
+        }
+        release(cached);
+        return null;
+      } else if ("isClosed".equals(name) && (args == null)){
+        return closed || cached.statement.isClosed();
+      } else if ("equals".equals(name) && (args != null) && (args.length == 1)){
+        return proxy == args[0];
+      } else if ("hashCode".equals(name) && (args == null)){
+        return System.identityHashCode(proxy);
+      }
+
+      if (closed){
+        throw new SQLException("Statement has been given back to the cache", "HY010");
+      }
+
+      try {
+        return method.invoke(cached.statement, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * A handler that converts the result of a query into an object. The handler is called while the result set is open,
+ * the result set is closed once the handler returns.
+ * @param <T> the type of the object produced by the handler.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see JDBCConnection#executeQueryAsync(String, ResultSetHandler)
+ */
+public interface ResultSetHandler<T> {
+
+  /**
+   * Convert the given result set.
+   * @param resultSet the result set to convert.
+   * @return the object built from the result set.
+   * @throws SQLException if the result set cannot be read.
+   */
+  public T handle(ResultSet resultSet) throws SQLException;
+}
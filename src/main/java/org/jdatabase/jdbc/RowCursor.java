@@ -0,0 +1,416 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc;
+
+import static org.jdatabase.JDatabase.logger;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.jfr.FetchEvent;
+import org.jdatabase.jdbc.metrics.QueryMetrics;
+
+/**
+ * A forward only cursor on the rows of a query result. Rows are fetched from the server by blocks of
+ * {@link #getFetchSize() fetch size} rows, so the memory used does not depend on the size of the result.
+ * The cursor holds a database connection until it is {@link #close() closed}. The cursor is closed automatically
+ * when its last row has been read.<br>
+ * Rows can be read using {@link #nextRow()}, as an {@link Iterator iterator} or as a {@link #stream() stream}.
+ * As {@link Iterator} methods cannot throw checked exceptions, database errors raised during an iteration
+ * are wrapped within an {@link IllegalStateException} whose cause is a {@link JDBCConnectionException}.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see org.jdatabase.jdbc.sql.SQLToolkit#getTableCursor(org.jdatabase.jdbc.sql.Table, int)
+ */
+public class RowCursor implements Iterator<Object[]>, AutoCloseable {
+
+  /**
+   * The default number of rows fetched from the server at once.
+   */
+  public static final int DEFAULT_FETCH_SIZE = 1000;
+
+  /**
+   * The JDBC connection that provides the database connection.
+   */
+  private JDBCConnection owner       = null;
+
+  /**
+   * The database connection used by the cursor.
+   */
+  private Connection connection      = null;
+
+  /**
+   * The statement that produced the result.
+   */
+  private Statement statement        = null;
+
+  /**
+   * The result of the query.
+   */
+  private ResultSet resultSet        = null;
+
+  /**
+   * The query processed by the cursor.
+   */
+  private String query               = null;
+
+  /**
+   * Specify if the connection auto commit has to be restored when the cursor is closed.
+   */
+  private boolean restoreAutoCommit  = false;
+
+  /**
+   * The number of columns of a row.
+   */
+  private int columnCount            = 0;
+
+  /**
+   * The number of rows read.
+   */
+  private long rowCount              = 0;
+
+  /**
+   * The next row (read ahead by {@link #hasNext()}).
+   */
+  private Object[] next              = null;
+
+  /**
+   * The estimated number of bytes read by {@link #nextRow()}.
+   */
+  private long byteCount             = 0;
+
+  /**
+   * The metrics receiving the number of rows and bytes read (<code>null</code> if no measure is taken).
+   */
+  private QueryMetrics metrics       = null;
+
+  /**
+   * The Flight Recorder event covering the reading of the rows.
+   */
+  private FetchEvent event           = null;
+
+  /**
+   * Specify if the cursor is closed.
+   */
+  private boolean closed             = false;
+
+  /**
+   * Create a new cursor on the given result.
+   * @param owner the JDBC connection that provides the database connection.
+   * @param connection the database connection used by the cursor. It is given back to the owner using
+   *        {@link JDBCConnection#releaseConnection(Connection)} when the cursor is closed.
+   * @param statement the statement that produced the result.
+   * @param resultSet the result of the query.
+   * @param query the query processed by the cursor.
+   * @param restoreAutoCommit <code>true</code> if the transaction opened for the cursor has to be ended and the
+   *        auto commit restored when the cursor is closed.
+   * @throws JDBCConnectionException if the result cannot be read.
+   */
+  public RowCursor(JDBCConnection owner, Connection connection, Statement statement, ResultSet resultSet,
+                   String query, boolean restoreAutoCommit)
+  throws JDBCConnectionException{
+    this.owner             = owner;
+    this.connection        = connection;
+    this.statement         = statement;
+    this.resultSet         = resultSet;
+    this.query             = query;
+    this.restoreAutoCommit = restoreAutoCommit;
+    this.metrics           = owner.getMetrics();
+    this.event             = new FetchEvent();
+    this.event.begin();
+
+    try {
+      this.columnCount = resultSet.getMetaData().getColumnCount();
+    } catch (SQLException ex) {
+      close();
+      throw owner.processSQLException(ex, owner.getDbName(), owner.getDbUser(), owner.getDbPassword(),
+                                      owner.getDbServer(), owner.getDbPort(), owner.getDbType(), query);
+    }
+  }
+
+  /**
+   * Read the next row.
+   * @return the next row or <code>null</code> if there is no more row.
+   * @throws JDBCConnectionException if the row cannot be read.
+   */
+  public Object[] nextRow() throws JDBCConnectionException{
+    Object[] row = null;
+
+    if (next != null){
+      row  = next;
+      next = null;
+      return row;
+    }
+
+    if (!moveNext()){
+      return null;
+    }
+
+    try {
+      row = new Object[columnCount];
+      for(int i = 1; i <= columnCount; i++){
+        row[i - 1] = resultSet.getObject(i);
+      }
+      
+      if (metrics != null){
+        byteCount += sizeOf(row);
+      }
+    } catch (SQLException ex) {
+      close();
+      throw owner.processSQLException(ex, owner.getDbName(), owner.getDbUser(), owner.getDbPassword(),
+                                      owner.getDbServer(), owner.getDbPort(), owner.getDbType(), query);
+    }
+
+    return row;
+  }
+
+  /**
+   * Move the cursor to the next row without reading it. The values of the row can then be read with
+   * the typed accessors of the {@link #getResultSet() result set}, avoiding the boxing done by {@link #nextRow()}.
+   * This method cannot be mixed with {@link #hasNext()}, that reads a row ahead.
+   * @return <code>true</code> if the cursor is on a new row, <code>false</code> if there is no more row.
+   * @throws JDBCConnectionException if the cursor cannot be moved.
+   */
+  public boolean moveNext() throws JDBCConnectionException{
+    if (closed){
+      return false;
+    }
+
+    try {
+      if (resultSet.next()){
+        rowCount++;
+        return true;
+      }
+    } catch (SQLException ex) {
+      close();
+      throw owner.processSQLException(ex, owner.getDbName(), owner.getDbUser(), owner.getDbPassword(),
+                                      owner.getDbServer(), owner.getDbPort(), owner.getDbType(), query);
+    }
+
+    close();
+    return false;
+  }
+
+  @Override
+  public boolean hasNext(){
+    if (next == null){
+      try {
+        next = nextRow();
+      } catch (JDBCConnectionException e) {
+        throw new IllegalStateException(e.getMessage(), e);
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public Object[] next(){
+    if (!hasNext()){
+      throw new NoSuchElementException();
+    }
+
+    Object[] row = next;
+    next = null;
+    return row;
+  }
+
+  /**
+   * Read all the remaining rows and give them to the given sink. The cursor is closed when this method returns.
+   * @param sink the sink that processes the rows.
+   * @return the number of rows given to the sink.
+   * @throws JDBCConnectionException if a row cannot be read or processed.
+   */
+  public long drainTo(RowSink sink) throws JDBCConnectionException{
+    Object[] row = null;
+    long count   = 0;
+
+    try {
+      while((row = nextRow()) != null){
+        sink.accept(row);
+        count++;
+      }
+    } finally {
+      close();
+    }
+
+    return count;
+  }
+
+  /**
+   * Get the rows of this cursor as a sequential {@link Stream stream}. Closing the stream closes the cursor.
+   * @return the rows of this cursor as a stream.
+   */
+  public Stream<Object[]> stream(){
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                        .onClose(() -> close());
+  }
+
+  /**
+   * Close the cursor and give back its database connection. This method does nothing if the cursor is already closed.
+   */
+  @Override
+  public void close(){
+    if (closed){
+      return;
+    }
+
+    closed = true;
+
+    JDBCConnectionPool.closeQuietly(resultSet);
+    JDBCConnectionPool.closeQuietly(statement);
+
+    // Fin de la transaction ouverte pour le curseur
+    if (restoreAutoCommit){
+      try {
+        connection.commit();
+        connection.setAutoCommit(true);
+      } catch (SQLException ex) {
+        logger.log(Level.WARNING, "Cannot restore auto commit after cursor on "+query+": "+ex.getMessage(), ex);
+      }
+    }
+
+    owner.releaseConnection(connection);
+
+    if (metrics != null){
+      metrics.recordFetch(query, rowCount, byteCount);
+    }
+
+    event.complete(query, rowCount, columnCount);
+  }
+
+  /**
+   * Estimate the number of bytes of the values of a row, as transferred by the driver.
+   * @param row the row.
+   * @return the estimated number of bytes of the row.
+   */
+  private static long sizeOf(Object[] row){
+    long size = 0;
+
+    for(Object value : row){
+      if (value == null){
+        size += 1;
+      } else if (value instanceof String){
+        size += ((String)value).length();
+      } else if (value instanceof byte[]){
+        size += ((byte[])value).length;
+      } else if ((value instanceof Integer) || (value instanceof Float)){
+        size += 4;
+      } else if ((value instanceof Short) || (value instanceof Byte) || (value instanceof Boolean)){
+        size += 2;
+      } else {
+        size += 8;
+      }
+    }
+
+    return size;
+  }
+
+  /**
+   * Get the number of columns of a row.
+   * @return the number of columns of a row.
+   */
+  public int getColumnCount(){
+    return columnCount;
+  }
+
+  /**
+   * Get the names of the columns.
+   * @return the names of the columns.
+   * @throws JDBCConnectionException if the result metadata cannot be read.
+   */
+  public String[] getColumnNames() throws JDBCConnectionException{
+    String[] names = new String[columnCount];
+
+    try {
+      ResultSetMetaData metaData = resultSet.getMetaData();
+      for(int i = 1; i <= columnCount; i++){
+        names[i - 1] = metaData.getColumnLabel(i);
+      }
+    } catch (SQLException ex) {
+      throw owner.processSQLException(ex, owner.getDbName(), owner.getDbUser(), owner.getDbPassword(),
+                                      owner.getDbServer(), owner.getDbPort(), owner.getDbType(), query);
+    }
+
+    return names;
+  }
+
+  /**
+   * Get the number of rows read so far.
+   * @return the number of rows read.
+   */
+  public long getRowCount(){
+    return rowCount;
+  }
+
+  /**
+   * Get the number of rows fetched from the server at once.
+   * @return the fetch size.
+   */
+  public int getFetchSize(){
+    try {
+      return statement.getFetchSize();
+    } catch (SQLException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Get the underlying result set. It enables to read typed values from the current row
+   * without the boxing done by {@link #nextRow()}.
+   * @return the underlying result set.
+   */
+  public ResultSet getResultSet(){
+    return resultSet;
+  }
+
+  /**
+   * Get the JDBC connection that provides the database connection of the cursor.
+   * @return the JDBC connection of the cursor.
+   */
+  public JDBCConnection getOwner(){
+    return owner;
+  }
+
+  /**
+   * Get the query processed by the cursor.
+   * @return the query processed by the cursor.
+   */
+  public String getQuery(){
+    return query;
+  }
+
+  /**
+   * Return <code>true</code> if the cursor is closed.
+   * @return <code>true</code> if the cursor is closed, <code>false</code> otherwise.
+   */
+  public boolean isClosed(){
+    return closed;
+  }
+}
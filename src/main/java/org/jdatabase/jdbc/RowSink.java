@@ -0,0 +1,38 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * A destination for the rows read from a query result. A sink enables to process or store the rows of a large result
+ * while they are read, without building an array holding the whole result.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see RowCursor#drainTo(RowSink)
+ */
+public interface RowSink {
+
+  /**
+   * Process a row. The array given in parameter is not reused by the caller and can be kept by the sink.
+   * @param row the row to process.
+   * @throws JDBCConnectionException if the row cannot be processed.
+   */
+  public void accept(Object[] row) throws JDBCConnectionException;
+}
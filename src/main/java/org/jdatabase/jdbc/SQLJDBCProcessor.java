@@ -20,28 +20,190 @@ package org.jdatabase.jdbc;
 import static org.jdatabase.JDatabase.logger;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.jdatabase.JDatabase;
-import org.jdatabase.jdbc.sql.Database;
 
 /**
  * An <a href="https://www.iso.org/standard/63555.html">SQL</a> query processor based on underlying {@link JDBCConnection JDBC database connection}.
+ * <br>
+ * By default, each query is executed on its own, in the transaction mode of the connection. In {@link #setReplayMode(boolean) replay mode},
+ * the consecutive DML queries (<code>INSERT</code>, <code>UPDATE</code>, <code>DELETE</code>, ...) are sent to the server by
+ * {@link #getBatchSize() batches} and the queries are committed every {@link #getCommitInterval() commit interval} queries.
+ * In this mode, the processing stops at the first error and the queries that are not committed yet are rolled back.<br>
+ * In {@link #setParallelism(int) parallel mode}, the queries are executed concurrently on several connections. The queries that
+ * modify the same table are executed in order, the other queries act as barriers: they are executed once all the previous
+ * queries are done and before any following query starts. The queries on tables linked by foreign keys are barriers, and
+ * explicit transactions are executed on a single connection. A barrier can also be placed explicitly within a script with a
+ * {@link SQLScriptReader#BARRIER <code>-- @barrier</code>} comment.<br>
+ * In all modes, the progress is logged every {@link #getProgressInterval() progress interval} queries, the queries themselves are
+ * logged with the {@link Level#FINE FINE} level and the result of each query can be obtained with a
+ * {@link #setStatementListener(StatementListener) statement listener}.
  * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
  * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
  * @since 1.0.0
  */
 public class SQLJDBCProcessor {
 
+  /**
+   * The default number of DML queries sent at once in replay mode.
+   */
+  public static final int DEFAULT_BATCH_SIZE         = 500;
+
+  /**
+   * The default number of queries between two commits in replay mode.
+   */
+  public static final int DEFAULT_COMMIT_INTERVAL    = 10000;
+
+  /**
+   * The default number of queries between two progress logs.
+   */
+  public static final long DEFAULT_PROGRESS_INTERVAL = 10000;
+
+  /**
+   * The number of queries waiting for execution by connection in parallel mode.
+   */
+  private static final int PARALLEL_QUEUE_SIZE       = 16;
+
+  /**
+   * The pattern that extracts the table modified by a query that can be executed in parallel.
+   */
+  private static final Pattern PARALLEL_TABLE        = Pattern.compile(
+      "(?:INSERT\\s+(?:(?:LOW_PRIORITY|DELAYED|HIGH_PRIORITY|IGNORE)\\s+)*(?:INTO\\s+)?"
+    + "|REPLACE\\s+(?:(?:LOW_PRIORITY|DELAYED)\\s+)*(?:INTO\\s+)?"
+    + "|UPDATE\\s+(?:(?:LOW_PRIORITY|IGNORE|ONLY)\\s+)*"
+    + "|DELETE\\s+(?:(?:LOW_PRIORITY|QUICK|IGNORE)\\s+)*FROM\\s+(?:ONLY\\s+)?"
+    + "|CREATE\\s+(?:(?:UNIQUE|FULLTEXT|SPATIAL)\\s+)?INDEX\\s+(?:\\S+\\s+)*?ON\\s+(?:ONLY\\s+)?"
+    + "|ALTER\\s+TABLE\\s+(?:IF\\s+EXISTS\\s+)?(?:ONLY\\s+)?)"
+    + "((?:[\\w$]+|\"[^\"]+\"|`[^`]+`)(?:\\s*\\.\\s*(?:[\\w$]+|\"[^\"]+\"|`[^`]+`))*)",
+      Pattern.CASE_INSENSITIVE);
+
+  /**
+   * The pattern that detects the queries that read or reference other tables.
+   */
+  private static final Pattern PARALLEL_OTHER_TABLE  = Pattern.compile("\\b(?:SELECT|JOIN|REFERENCES|RENAME)\\b",
+                                                                       Pattern.CASE_INSENSITIVE);
+
+  /**
+   * The pattern that detects the deletions that reference other tables.
+   */
+  private static final Pattern PARALLEL_DELETE_USING = Pattern.compile("\\bUSING\\b", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * The pattern that detects the updates that reference other tables (<code>UPDATE ... SET ... FROM</code>).
+   */
+  private static final Pattern PARALLEL_UPDATE_FROM  = Pattern.compile("\\bFROM\\b", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * The pattern that detects the disabling of the auto commit mode.
+   */
+  private static final Pattern AUTOCOMMIT_OFF        = Pattern.compile("SET\\s+(?:SESSION\\s+)?AUTOCOMMIT\\s*(?:=|TO)\\s*'?(?:0|OFF|FALSE)\\b",
+                                                                       Pattern.CASE_INSENSITIVE);
+
+  /**
+   * The pattern that detects the enabling of the auto commit mode.
+   */
+  private static final Pattern AUTOCOMMIT_ON         = Pattern.compile("SET\\s+(?:SESSION\\s+)?AUTOCOMMIT\\s*(?:=|TO)\\s*'?(?:1|ON|TRUE)\\b",
+                                                                       Pattern.CASE_INSENSITIVE);
+
+  /**
+   * The pattern that extracts the last part of a qualified table name.
+   */
+  private static final Pattern PARALLEL_NAME         = Pattern.compile("(?:[\\w$]+|\"[^\"]+\"|`[^`]+`)$");
+
   /**
    * The database connection used to interpret the queries.
    */
   private JDBCConnection database;
   
+  /**
+   * Specify if the processor is in replay mode.
+   */
+  private boolean replayMode      = false;
+  
+  /**
+   * The number of DML queries sent at once in replay mode.
+   */
+  private int batchSize           = DEFAULT_BATCH_SIZE;
+  
+  /**
+   * The number of queries between two commits in replay mode.
+   */
+  private int commitInterval      = DEFAULT_COMMIT_INTERVAL;
+  
+  /**
+   * The number of queries between two progress logs.
+   */
+  private long progressInterval   = DEFAULT_PROGRESS_INTERVAL;
+  
+  /**
+   * The number of connections used in parallel mode.
+   */
+  private int parallelism         = 1;
+  
+  /**
+   * The listener notified of the result of each query.
+   */
+  private StatementListener statementListener = null;
+  
+  /**
+   * The number of queries submitted by the last processing.
+   */
+  private long submitCount        = 0;
+  
+  /**
+   * The number of queries executed by the last processing.
+   */
+  private long statementCount     = 0;
+  
+  /**
+   * The number of rows affected by the last processing.
+   */
+  private long rowCount           = 0;
+  
+  /**
+   * The number of commits done by the last processing.
+   */
+  private long commitCount        = 0;
+  
+  /**
+   * The number of queries that failed during the last processing.
+   */
+  private long errorCount         = 0;
+  
+  /**
+   * The start time of the last processing (in nanoseconds).
+   */
+  private long startTime          = 0;
+  
+  /**
+   * The number of executed queries at which the next progress is logged.
+   */
+  private long nextProgress       = 0;
+  
   /**
    * Create a new SQL processor using a {@link JDBCConnection JDBC database connection}.
    * @param database the database connection to use.
@@ -56,130 +218,1184 @@ public class SQLJDBCProcessor {
    * @return <code>true</code> if all queries are executed, <code>false</code> otherwise.
    */
   public boolean process(String[] queries){
-    boolean result = true;
+    boolean result    = true;
+    Replay replay     = null;
+    Parallel parallel = null;
     
-	if (queries == null){
-	  return false;
+    if (queries == null){
+      return false;
     }
-	  
-    for(int i = 0; i < queries.length; i++){
-	  try {
-
-        if (queries[i].toUpperCase().startsWith("SELECT")){
-          database.executeQuery(queries[i]);  
-        } else {
-          database.executeUpdate(queries[i]);
-        }
-        
-        logger.log(Level.INFO, ""+queries[i]+" [OK]");
-		result = result & true;
-	  } catch (JDBCConnectionException e) {
-	    if (e.isWarning()){
-	      logger.log(Level.WARNING, ""+queries[i]+"", e);
-	      result = true;
-	    } else {
-	      logger.log(Level.SEVERE, ""+queries[i]+"", e);
-		  result = false;
-	    }
-	  }
-	}
-	      
-	return result;
+    
+    try {
+      parallel = (parallelism > 1) ? new Parallel() : null;
+      replay   = begin(parallel);
       
+      for(int i = 0; (i < queries.length) && (result || (replay == null)); i++){
+        result = execute(queries[i], null, replay, parallel) & result;
+      }
+      
+      return end(replay, parallel, result);
+    } catch (JDBCConnectionException e) {
+      logger.log(Level.SEVERE, "Cannot replay queries: "+e.getMessage(), e);
+      if (parallel != null){
+        parallel.close();
+      }
+      return false;
+    }
   }
   
   /**
-   * Process a set of SQL queries. Queries MUST end with a semicolon ";".
+   * Process a set of SQL queries. Queries are separated by a semicolon ";", the last one can omit it. The delimiters that
+   * appear within string literals, quoted identifiers and comments are ignored.
    * @param sqlQueries a {@link String string} composed by semicolon separated SQL queries.
    * @return <code>true</code> if all the queries has been successfully executed and <code>false</code> otherwise.
+   * @see SQLScriptReader
    */
   public boolean process(String sqlQueries){
-	String[] queries = null;   
-	  
-	boolean result = true;
-	
-    queries = sqlQueries.split(";");
+    if (sqlQueries == null){
+      return false;
+    }
     
-    if (queries == null){
+    return process(new StringReader(sqlQueries));
+  }
+  
+  /**
+   * Process a set of SQL queries stored in a file using the default charset.
+   * @param file the file containing queries to process
+   * @return <code>true</code> if all the queries has been successfully executed and <code>false</code> otherwise.
+   * @see #process(File, Charset)
+   */
+  public boolean process(File file){
+    return process(file, Charset.defaultCharset());
+  }
+  
+  /**
+   * Process a set of SQL queries stored in a file. The queries are separated by a semicolon ";" (or by the delimiter set
+   * with the MySQL <code>DELIMITER</code> command) and can span several lines. The file is read as a stream and each query
+   * is executed as soon as it is parsed, so that scripts of any size can be replayed.
+   * @param file the file containing queries to process
+   * @param charset the charset of the file.
+   * @return <code>true</code> if all the queries has been successfully executed and <code>false</code> otherwise.
+   * @see SQLScriptReader
+   */
+  public boolean process(File file, Charset charset){
+    boolean result = true;
+    
+    if (!file.exists()){
+      logger.log(Level.SEVERE, "File "+file.getPath()+ " does not exists");
       return false;
     }
+    
+    try (Reader reader = new InputStreamReader(Files.newInputStream(file.toPath()), charset)){
+      result = process(reader);
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Cannot read "+file.getPath()+": "+e.getMessage(), e);
+      result = false;
+    }
+    
+    return result;
+  }
+  
+  /**
+   * Process a set of SQL queries read from the given reader. The queries are parsed by a {@link SQLScriptReader script reader}
+   * that handles the syntax of the underlying database and each query is executed as soon as it is parsed. The reader is
+   * not closed by this method.
+   * @param reader the reader that provides the queries.
+   * @return <code>true</code> if all the queries has been successfully executed and <code>false</code> otherwise.
+   */
+  public boolean process(Reader reader){
+    boolean result         = true;
+    String query           = null;
+    Replay replay          = null;
+    Parallel parallel      = null;
+    SQLScriptReader script = new SQLScriptReader(reader, database.getDbType());
+    
+    try {
+      parallel = (parallelism > 1) ? new Parallel() : null;
+      replay   = begin(parallel);
+      
+      script.setBarriers(parallel != null);
+      
+      while((result || (replay == null)) && ((query = script.nextStatement()) != null)){
+        result = execute(query, script, replay, parallel) & result;
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Cannot read script at line "+script.getLine()+": "+e.getMessage(), e);
+      result = false;
+    } catch (JDBCConnectionException e) {
+      logger.log(Level.SEVERE, "Cannot replay script: "+e.getMessage(), e);
+      if (parallel != null){
+        parallel.close();
+      }
+      return false;
+    }
+    
+    return end(replay, parallel, result);
+  }
+  
+  /**
+   * Return <code>true</code> if the processor is in replay mode.
+   * @return <code>true</code> if the processor is in replay mode, <code>false</code> otherwise.
+   * @see #setReplayMode(boolean)
+   */
+  public boolean isReplayMode(){
+    return replayMode;
+  }
+  
+  /**
+   * Set if the processor is in replay mode. In replay mode, the consecutive DML queries are sent by batches and the queries
+   * are committed every {@link #getCommitInterval() commit interval} queries on a
+   * {@link JDBCConnection#borrowDedicatedConnection() dedicated connection} (a new physical connection if the database is not
+   * pooled), so that the transaction of the replay is not shared with the other users of the database. The processing stops at the first error and the
+   * queries that are not committed yet are rolled back. The replay mode is not used in {@link #setParallelism(int) parallel mode}.
+   * @param replayMode <code>true</code> if the processor is in replay mode, <code>false</code> otherwise.
+   */
+  public void setReplayMode(boolean replayMode){
+    this.replayMode = replayMode;
+  }
+  
+  /**
+   * Get the number of connections used to execute the queries.
+   * @return the number of connections used to execute the queries.
+   * @see #setParallelism(int)
+   */
+  public int getParallelism(){
+    return parallelism;
+  }
+  
+  /**
+   * Set the number of connections used to execute the queries. With more than one connection, the processor is in parallel
+   * mode: the <code>INSERT</code>, <code>UPDATE</code>, <code>DELETE</code>, <code>REPLACE</code>, <code>CREATE INDEX</code>
+   * and <code>ALTER TABLE</code> queries that do not read or reference another table (<code>SELECT</code>, <code>JOIN</code>,
+   * <code>UPDATE ... FROM</code>, <code>DELETE ... USING</code>, ...) and whose table neither has nor is the target of a
+   * foreign key are executed concurrently, the queries on the same table being executed in order. Any other query, as well
+   * as a {@link SQLScriptReader#BARRIER <code>-- @barrier</code>} comment, is a barrier that waits for all the previous queries.
+   * The <code>SET</code> and <code>USE</code> queries are executed on all the connections. In pooled mode, the connections
+   * whose session has been changed by such a query are closed instead of being given back to the pool.<br>
+   * The transaction control queries (<code>BEGIN</code>, <code>START TRANSACTION</code>, <code>LOCK</code>,
+   * <code>SET autocommit = 0</code>, ...) are barriers: the queries that follow them, up to the end of the transaction
+   * (<code>COMMIT</code>, <code>ROLLBACK</code>, <code>UNLOCK</code>, <code>SET autocommit = 1</code>, ...), are executed in order
+   * on a single connection, so that they are committed or rolled back together. Outside of such a transaction, each query is
+   * committed on its own.<br>
+   * In pooled mode, the connections are borrowed from the pool (except the one held by the main connection), otherwise dedicated
+   * connections are opened for each processing.
+   * @param parallelism the number of connections used to execute the queries.
+   */
+  public void setParallelism(int parallelism){
+    this.parallelism = Math.max(1, parallelism);
+  }
+  
+  /**
+   * Get the listener notified of the result of each query.
+   * @return the listener or <code>null</code> if no listener is set.
+   */
+  public StatementListener getStatementListener(){
+    return statementListener;
+  }
+  
+  /**
+   * Set the listener notified of the result of each query. In parallel mode, the listener is notified from the threads that
+   * execute the queries.
+   * @param statementListener the listener or <code>null</code> to remove the listener.
+   */
+  public void setStatementListener(StatementListener statementListener){
+    this.statementListener = statementListener;
+  }
+  
+  /**
+   * Get the number of DML queries sent at once in replay mode.
+   * @return the number of DML queries sent at once.
+   */
+  public int getBatchSize(){
+    return batchSize;
+  }
+  
+  /**
+   * Set the number of DML queries sent at once in replay mode.
+   * @param batchSize the number of DML queries sent at once.
+   */
+  public void setBatchSize(int batchSize){
+    this.batchSize = Math.max(1, batchSize);
+  }
+  
+  /**
+   * Get the number of queries between two commits in replay mode.
+   * @return the number of queries between two commits.
+   */
+  public int getCommitInterval(){
+    return commitInterval;
+  }
+  
+  /**
+   * Set the number of queries between two commits in replay mode.
+   * @param commitInterval the number of queries between two commits.
+   */
+  public void setCommitInterval(int commitInterval){
+    this.commitInterval = Math.max(1, commitInterval);
+  }
+  
+  /**
+   * Get the number of queries between two progress logs.
+   * @return the number of queries between two progress logs.
+   */
+  public long getProgressInterval(){
+    return progressInterval;
+  }
+  
+  /**
+   * Set the number of queries between two progress logs. A value lower or equal to 0 disables the progress logs.
+   * @param progressInterval the number of queries between two progress logs.
+   */
+  public void setProgressInterval(long progressInterval){
+    this.progressInterval = progressInterval;
+  }
+  
+  /**
+   * Get the number of queries executed by the last (or current) processing.
+   * @return the number of queries executed.
+   */
+  public long getStatementCount(){
+    return statementCount;
+  }
+  
+  /**
+   * Get the number of rows affected by the last (or current) processing.
+   * @return the number of rows affected.
+   */
+  public long getRowCount(){
+    return rowCount;
+  }
+  
+  /**
+   * Get the number of commits done by the last (or current) processing in replay mode.
+   * @return the number of commits.
+   */
+  public long getCommitCount(){
+    return commitCount;
+  }
+  
+  /**
+   * Get the number of queries that failed during the last (or current) processing.
+   * @return the number of queries that failed.
+   */
+  public long getErrorCount(){
+    return errorCount;
+  }
+  
+  /**
+   * Reset the counters and start the replay if the processor is in replay mode.
+   * @param parallel the parallel execution or <code>null</code> if the processor is not in parallel mode.
+   * @return the replay or <code>null</code> if the processor is not in replay mode or is in parallel mode.
+   * @throws JDBCConnectionException if the replay cannot be started.
+   */
+  private Replay begin(Parallel parallel) throws JDBCConnectionException{
+    submitCount    = 0;
+    statementCount = 0;
+    rowCount       = 0;
+    commitCount    = 0;
+    errorCount     = 0;
+    startTime      = System.nanoTime();
+    nextProgress   = progressInterval;
+    
+    return (replayMode && (parallel == null)) ? new Replay() : null;
+  }
+  
+  /**
+   * End the processing: the replay is committed if all the queries succeeded or rolled back otherwise.
+   * @param replay the replay or <code>null</code> if the processor is not in replay mode.
+   * @param parallel the parallel execution or <code>null</code> if the processor is not in parallel mode.
+   * @param result <code>true</code> if all the queries succeeded.
+   * @return <code>true</code> if all the queries are executed (and committed), <code>false</code> otherwise.
+   */
+  private boolean end(Replay replay, Parallel parallel, boolean result){
+    if (replay != null){
+      result = replay.close(result) && result;
+    }
+    
+    if (parallel != null){
+      result = parallel.close() && result;
+    }
+    
+    logger.log(result ? Level.INFO : Level.SEVERE, statementCount+" queries executed ("+rowCount+" rows, "+commitCount+" commits, "
+               +errorCount+" errors) in "+((System.nanoTime() - startTime) / 1000000)+" ms");
+    
+    return result;
+  }
+  
+  /**
+   * Execute the given query. The result of a query that returns rows is read and closed.
+   * @param query the query to execute.
+   * @param script the script that provides the query or <code>null</code> if the query does not come from a script.
+   * @param replay the replay or <code>null</code> if the processor is not in replay mode.
+   * @param parallel the parallel execution or <code>null</code> if the processor is not in parallel mode.
+   * @return <code>true</code> if the query is executed (or submitted in parallel mode) or if it only raised a warning,
+   *         <code>false</code> otherwise.
+   */
+  private boolean execute(String query, SQLScriptReader script, Replay replay, Parallel parallel){
+    long line  = (script != null) ? script.getStatementLine() : 0;
+    long index = 0;
+    long start = 0;
+    long rows  = 0;
+    
+    if (parallel != null){
+      return parallel.submit(query, line);
+    }
+    
+    if (SQLScriptReader.BARRIER.equals(query)){
+      return true;
+    }
+    
+    index = ++submitCount;
+    
+    if (replay != null){
+      return replay.add(query, line, index);
+    }
+    
+    try {
+      start = System.nanoTime();
+      
+      if (isQuery(query)){
+        database.executeQuery(query).close();
+      } else {
+        rows = Math.max(0, database.executeUpdate(query));
+      }
+      
+      executed(1, rows);
+      report(index, line, query, rows, System.nanoTime() - start, null);
+      
+      if (logger.isLoggable(Level.FINE)){
+        logger.log(Level.FINE, location(line)+query+" [OK]");
+      }
+      return true;
+    } catch (SQLException e) {
+      logger.log(Level.WARNING, location(line)+query, e);
+      return true;
+    } catch (JDBCConnectionException e) {
+      failed();
+      report(index, line, query, 0, System.nanoTime() - start, e);
+      if (e.isWarning()){
+        logger.log(Level.WARNING, location(line)+query, e);
+        return true;
+      } else {
+        logger.log(Level.SEVERE, location(line)+query, e);
+        return false;
+      }
+    }
+  }
+  
+  /**
+   * Count executed queries and log the progress if needed.
+   * @param statements the number of executed queries.
+   * @param rows the number of affected rows.
+   */
+  private synchronized void executed(long statements, long rows){
+    long elapsed = 0;
+    
+    statementCount += statements;
+    rowCount       += rows;
+    
+    if ((progressInterval > 0) && (statementCount >= nextProgress)){
+      elapsed      = Math.max(1, (System.nanoTime() - startTime) / 1000000);
+      nextProgress = (statementCount / progressInterval + 1) * progressInterval;
+      
+      logger.log(Level.INFO, statementCount+" queries executed ("+rowCount+" rows, "+commitCount+" commits, "
+                 +(statementCount * 1000 / elapsed)+" queries/s)");
+    }
+  }
+  
+  /**
+   * Count a query that failed.
+   */
+  private synchronized void failed(){
+    errorCount++;
+  }
+  
+  /**
+   * Notify the result of a query to the {@link #getStatementListener() statement listener}.
+   * @param index the index of the query.
+   * @param line the line of the query within the script or 0 if the query does not come from a script.
+   * @param query the query.
+   * @param rows the number of rows affected by the query.
+   * @param duration the duration of the query in nanoseconds.
+   * @param exception the exception raised by the query or <code>null</code> if the query succeeded.
+   */
+  private void report(long index, long line, String query, long rows, long duration, JDBCConnectionException exception){
+    StatementListener listener = statementListener;
+    
+    if (listener != null){
+      listener.statementProcessed(new StatementResult(index, line, query, rows, duration, exception));
+    }
+  }
+  
+  /**
+   * Convert a SQL exception raised by a query.
+   * @param ex the exception to convert.
+   * @param query the query that raised the exception.
+   * @return the converted exception.
+   */
+  private JDBCConnectionException processSQLException(SQLException ex, String query){
+    return database.processSQLException(ex, database.getDbName(), database.getDbUser(), database.getDbPassword(),
+                                        database.getDbServer(), database.getDbPort(), database.getDbType(), query);
+  }
+  
+  /**
+   * Get the location of a query within a script for the logs.
+   * @param line the line of the query within the script or 0 if the query does not come from a script.
+   * @return the location of the query.
+   */
+  private static String location(long line){
+    return (line > 0) ? "[line "+line+"] " : "";
+  }
+  
+  /**
+   * Check if the given query returns rows.
+   * @param query the query to check.
+   * @return <code>true</code> if the query returns rows, <code>false</code> otherwise.
+   */
+  private static boolean isQuery(String query){
+    switch(keyword(query)){
+      case "SELECT":
+      case "SHOW":
+      case "EXPLAIN":
+      case "DESCRIBE":
+      case "VALUES":
+        return true;
+      default:
+        return false;
+    }
+  }
+  
+  /**
+   * Check if the given query is a DML query that can be sent within a batch.
+   * @param query the query to check.
+   * @return <code>true</code> if the query can be batched, <code>false</code> otherwise.
+   */
+  private static boolean isBatchable(String query){
+    switch(keyword(query)){
+      case "INSERT":
+      case "UPDATE":
+      case "DELETE":
+      case "REPLACE":
+      case "MERGE":
+        return true;
+      default:
+        return false;
+    }
+  }
+  
+  /**
+   * Get the table modified by the given query if the query can be executed in parallel with the queries on other tables.
+   * @param query the query.
+   * @return the name of the table, qualified as written within the query, or <code>null</code> if the query has to be
+   * executed alone.
+   */
+  private static String parallelTable(String query){
+    Matcher matcher = PARALLEL_TABLE.matcher(query);
+    String keyword  = keyword(query);
+    int end         = 0;
+    
+    if (!matcher.lookingAt() || PARALLEL_OTHER_TABLE.matcher(query).find(matcher.end())
+        || (keyword.equals("DELETE") && PARALLEL_DELETE_USING.matcher(query).find(matcher.end()))
+        || (keyword.equals("UPDATE") && PARALLEL_UPDATE_FROM.matcher(query).find(matcher.end()))){
+      return null;
+    }
+    
+    // Mise a jour multi-tables MySQL: UPDATE t1, t2 SET ...
+    end = matcher.end();
+    while((end < query.length()) && Character.isWhitespace(query.charAt(end))){
+      end++;
+    }
+    if ((end < query.length()) && (query.charAt(end) == ',')){
+      return null;
+    }
+    
+    return matcher.group(1);
+  }
+  
+  /**
+   * Get the key that identifies a table among the parallel queries.
+   * @param table the name of the table, qualified as written within the query.
+   * @return the name of the table in lower case.
+   */
+  private static String tableKey(String table){
+    Matcher name = PARALLEL_NAME.matcher(table);
+    
+    // Le schema est ignore, les requetes sur des tables de meme nom sont ordonnees
+    if (!name.find()){
+      return table.toLowerCase();
+    }
+    
+    return name.group().replace("\"", "").replace("`", "").toLowerCase();
+  }
+  
+  /**
+   * Convert an identifier written within a query into the name stored by the database.
+   * @param metadata the metadata of the database.
+   * @param identifier the identifier, possibly quoted.
+   * @return the name stored by the database.
+   * @throws SQLException if the metadata cannot be read.
+   */
+  private static String identifier(DatabaseMetaData metadata, String identifier) throws SQLException{
+    if ((identifier.length() > 1) && ((identifier.charAt(0) == '"') || (identifier.charAt(0) == '`'))){
+      return identifier.substring(1, identifier.length() - 1);
+    } else if (metadata.storesLowerCaseIdentifiers()){
+      return identifier.toLowerCase();
+    } else if (metadata.storesUpperCaseIdentifiers()){
+      return identifier.toUpperCase();
+    }
+    return identifier;
+  }
+  
+  /**
+   * Check if the given result has at least one row and close it.
+   * @param resultSet the result.
+   * @return <code>true</code> if the result has at least one row, <code>false</code> otherwise.
+   * @throws SQLException if the result cannot be read.
+   */
+  private static boolean hasRows(ResultSet resultSet) throws SQLException{
+    try {
+      return resultSet.next();
+    } finally {
+      resultSet.close();
+    }
+  }
+  
+  /**
+   * Get the first keyword of the given query.
+   * @param query the query.
+   * @return the first keyword of the query in upper case.
+   */
+  private static String keyword(String query){
+    int start = 0;
+    int end   = 0;
+    
+    // Commentaire executable MySQL: /*!40101 SET ... */
+    if (query.startsWith("/*!")){
+      start = 3;
+      while((start < query.length()) && (Character.isDigit(query.charAt(start)) || Character.isWhitespace(query.charAt(start)))){
+        start++;
+      }
+    }
+    
+    end = start;
+    while((end < query.length()) && Character.isLetter(query.charAt(end))){
+      end++;
+    }
+    
+    return query.substring(start, end).toUpperCase();
+  }
+  
+  /**
+   * A replay of queries within transactions. The consecutive DML queries are gathered within a batch that is sent when it
+   * is full or when a query that cannot be batched has to be executed.
+   */
+  private class Replay {
+    
+    /**
+     * The connection used by the replay.
+     */
+    private Connection connection = null;
+    
+    /**
+     * The statement used by the replay.
+     */
+    private Statement statement   = null;
+    
+    /**
+     * The auto commit mode of the connection before the replay.
+     */
+    private boolean autoCommit    = true;
+    
+    /**
+     * The queries of the pending batch.
+     */
+    private String[] queries      = null;
+    
+    /**
+     * The lines of the queries of the pending batch.
+     */
+    private long[] lines          = null;
+    
+    /**
+     * The indexes of the queries of the pending batch.
+     */
+    private long[] indexes        = null;
+    
+    /**
+     * The number of queries within the pending batch.
+     */
+    private int pending           = 0;
+    
+    /**
+     * The number of queries executed since the last commit.
+     */
+    private int uncommitted       = 0;
+    
+    /**
+     * Start a new replay.
+     * @throws JDBCConnectionException if the replay cannot be started.
+     */
+    private Replay() throws JDBCConnectionException{
+      queries    = new String[batchSize];
+      lines      = new long[batchSize];
+      indexes    = new long[batchSize];
+      connection = database.borrowDedicatedConnection();
       
-    for(int i = 0; i < queries.length; i++){
-     
       try {
-		database.executeQuery(queries[i]);
-        logger.log(Level.INFO, ""+queries[i]+" [OK]");
-		result = result & true;
-      } catch (JDBCConnectionException e) {
-        if (e.isWarning()){ 
-          logger.log(Level.WARNING, ""+queries[i]);
-          result = true;
+        autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        statement  = connection.createStatement();
+      } catch (SQLException ex) {
+        restore();
+        throw processSQLException(ex, null);
+      }
+    }
+    
+    /**
+     * Add a query to the replay.
+     * @param query the query to add.
+     * @param line the line of the query within the script or 0 if the query does not come from a script.
+     * @param index the index of the query.
+     * @return <code>true</code> if the query is added, <code>false</code> if the replay failed.
+     */
+    private boolean add(String query, long line, long index){
+      long start = 0;
+      long rows  = 0;
+      
+      try {
+        if (isBatchable(query)){
+          statement.addBatch(query);
+          queries[pending] = query;
+          lines[pending]   = line;
+          indexes[pending] = index;
+          pending++;
+          
+          if (pending >= queries.length){
+            flush();
+          }
         } else {
-          logger.log(Level.SEVERE, ""+queries[i]);
-          result = false;
+          flush();
+          
+          start = System.nanoTime();
+          statement.execute(query);
+          rows  = Math.max(0, statement.getUpdateCount());
+          database.recordQuery(query, start, rows);
+          
+          if (logger.isLoggable(Level.FINE)){
+            logger.log(Level.FINE, location(line)+query+" [OK]");
+          }
+          
+          uncommitted++;
+          executed(1, rows);
+          report(index, line, query, rows, System.nanoTime() - start, null);
+        }
+        
+        if (uncommitted >= commitInterval){
+          commit();
         }
+        
+        return true;
+      } catch (BatchUpdateException ex) {
+        return false;
+      } catch (SQLException ex) {
+        JDBCConnectionException e = processSQLException(ex, query);
+        
+        failed();
+        report(index, line, query, 0, System.nanoTime() - start, e);
+        logger.log(Level.SEVERE, location(line)+query, e);
+        return false;
+      }
+    }
+    
+    /**
+     * Send the pending batch to the server.
+     * @throws BatchUpdateException if a query of the batch failed. The failure is already logged.
+     * @throws SQLException if the batch cannot be sent.
+     */
+    private void flush() throws SQLException{
+      int[] counts = null;
+      int failed   = 0;
+      long rows    = 0;
+      long start   = System.nanoTime();
+      JDBCConnectionException e = null;
+      
+      if (pending == 0){
+        return;
+      }
+      
+      try {
+        counts = statement.executeBatch();
+      } catch (BatchUpdateException ex) {
+        
+        // Les pilotes s'arretent a la premiere erreur ou marquent les requetes en echec
+        counts = (ex.getUpdateCounts() != null) ? ex.getUpdateCounts() : new int[0];
+        failed = counts.length;
+        for(int i = 0; i < counts.length; i++){
+          if (counts[i] == Statement.EXECUTE_FAILED){
+            failed = i;
+            break;
+          }
+        }
+        failed = Math.min(failed, pending - 1);
+        
+        e = processSQLException(ex, queries[failed]);
+        
+        failed();
+        report(indexes[failed], lines[failed], queries[failed], 0, System.nanoTime() - start, e);
+        logger.log(Level.SEVERE, location(lines[failed])+queries[failed], e);
+        
+        clear();
+        throw ex;
       }
       
+      start = System.nanoTime() - start;
+      
+      for(int i = 0; i < counts.length; i++){
+        rows += Math.max(0, counts[i]);
+      }
+      
+      if (statementListener != null){
+        for(int i = 0; i < pending; i++){
+          report(indexes[i], lines[i], queries[i], (i < counts.length) ? Math.max(0, counts[i]) : 0, start, null);
+        }
+      }
+      
+      if (logger.isLoggable(Level.FINE)){
+        for(int i = 0; i < pending; i++){
+          logger.log(Level.FINE, location(lines[i])+queries[i]+" [OK]");
+        }
+      }
+      
+      uncommitted += pending;
+      executed(pending, rows);
+      clear();
     }
     
-    return result;
-
+    /**
+     * Commit the queries executed since the last commit.
+     * @throws SQLException if the commit failed.
+     */
+    private void commit() throws SQLException{
+      connection.commit();
+      commitCount++;
+      uncommitted = 0;
+    }
+    
+    /**
+     * End the replay. The pending queries are sent and committed if the replay succeeded, otherwise the queries that are not
+     * committed yet are rolled back. The connection is then restored and given back.
+     * @param success <code>true</code> if the replay succeeded.
+     * @return <code>true</code> if the replay ended successfully, <code>false</code> otherwise.
+     */
+    private boolean close(boolean success){
+      try {
+        if (success){
+          flush();
+          commit();
+        } else {
+          connection.rollback();
+          if (uncommitted > 0){
+            logger.log(Level.SEVERE, uncommitted+" queries rolled back");
+          }
+        }
+      } catch (BatchUpdateException ex) {
+        success = false;
+        rollback();
+      } catch (SQLException ex) {
+        failed();
+        logger.log(Level.SEVERE, "Cannot end replay: "+ex.getMessage(), processSQLException(ex, null));
+        success = false;
+        rollback();
+      } finally {
+        restore();
+      }
+      
+      return success;
+    }
+    
+    /**
+     * Roll back the queries that are not committed yet, ignoring errors.
+     */
+    private void rollback(){
+      try {
+        connection.rollback();
+      } catch (SQLException e) {
+        // La connexion est rendue dans tous les cas
+      }
+    }
+    
+    /**
+     * Restore the auto commit mode of the connection, close the statement and give back the connection.
+     */
+    private void restore(){
+      JDBCConnectionPool.closeQuietly(statement);
+      
+      try {
+        connection.setAutoCommit(autoCommit);
+      } catch (SQLException e) {
+        // La connexion est rendue dans tous les cas
+      }
+      
+      database.releaseConnection(connection);
+    }
+    
+    /**
+     * Clear the pending batch.
+     */
+    private void clear(){
+      for(int i = 0; i < pending; i++){
+        queries[i] = null;
+      }
+      pending = 0;
+      
+      try {
+        statement.clearBatch();
+      } catch (SQLException e) {
+        // Le statement est ferme a la fin du rejeu
+      }
+    }
   }
   
   /**
-   * Process a set of SQL queries stored in a file. The file has to store one request per line.
-   * @param file the file containing queries to process
-   * @return <code>true</code> if all the queries has been successfully executed and <code>false</code> otherwise.
+   * A parallel execution of queries. Each connection is used by one thread of an executor. The queries on a same table are
+   * chained so that they are executed in order, the queries on different tables are executed concurrently. The number of
+   * queries waiting for execution is bounded so that a large script is not read faster than it is executed.
    */
-  public boolean process(File file){
-    boolean result = true;
+  private class Parallel {
     
-    ArrayList<String> queries = null;
+    /**
+     * The connections used by the parallel execution.
+     */
+    private ArrayList<Connection> connections         = null;
     
-    StringBuffer query = null;
+    /**
+     * The connections that are not used by a query.
+     */
+    private LinkedBlockingQueue<Connection> available = null;
     
+    /**
+     * Specify if the connections are opened by the parallel execution (and not borrowed from a pool).
+     */
+    private boolean owned                             = false;
     
-    if (!file.exists()){
-      logger.log(Level.SEVERE, "File "+file.getPath()+ "does not exists");
-      return false;
+    /**
+     * The executor that runs the queries.
+     */
+    private ExecutorService executor                  = null;
+    
+    /**
+     * The number of queries that can still be submitted before waiting.
+     */
+    private Semaphore permits                         = null;
+    
+    /**
+     * The last query submitted for each table since the last barrier.
+     */
+    private HashMap<String, CompletableFuture<?>> tails = null;
+    
+    /**
+     * Specify if all the queries succeeded.
+     */
+    private AtomicBoolean success                     = null;
+    
+    /**
+     * Specify if the tables linked by foreign keys, indexed by their name in lower case.
+     */
+    private HashMap<String, Boolean> linked           = null;
+    
+    /**
+     * Specify if an explicit transaction is in progress on the first connection.
+     */
+    private boolean transaction                       = false;
+    
+    /**
+     * Specify if the session of the connections has been changed by a <code>SET</code> or a <code>USE</code> query.
+     */
+    private boolean session                           = false;
+    
+    /**
+     * Start a new parallel execution.
+     * @throws JDBCConnectionException if the connections cannot be obtained.
+     */
+    private Parallel() throws JDBCConnectionException{
+      int size              = parallelism;
+      AtomicInteger threads = new AtomicInteger();
+      
+      // La connexion principale occupe deja une connexion du pool
+      if (database.isPooled()){
+        size = Math.min(size, Math.max(1, database.getPool().getMaxSize() - 1));
+      }
+      
+      owned       = !database.isPooled();
+      connections = new ArrayList<Connection>(size);
+      
+      try {
+        for(int i = 0; i < size; i++){
+          connections.add(owned ? database.openConnection() : database.borrowConnection());
+        }
+      } catch (JDBCConnectionException e) {
+        release();
+        throw e;
+      }
+      
+      available = new LinkedBlockingQueue<Connection>(connections);
+      permits   = new Semaphore(size * PARALLEL_QUEUE_SIZE);
+      tails     = new HashMap<String, CompletableFuture<?>>();
+      linked    = new HashMap<String, Boolean>();
+      success   = new AtomicBoolean(true);
+      executor  = Executors.newFixedThreadPool(size, runnable -> {
+        Thread thread = new Thread(runnable, "jdatabase-sql-processor-"+threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
     }
     
-    try {
-        FileReader reader = new FileReader(file);
-        int lu;
+    /**
+     * Submit a query.
+     * @param query the query to submit.
+     * @param line the line of the query within the script or 0 if the query does not come from a script.
+     * @return <code>true</code> if the query is submitted or executed, <code>false</code> if the query failed.
+     */
+    private boolean submit(String query, long line){
+      String keyword = keyword(query);
+      String table   = null;
+      long index     = 0;
+      
+      if (SQLScriptReader.BARRIER.equals(query)){
+        barrier();
+        return true;
+      }
+      
+      index = ++submitCount;
+      
+      // Les verrous et transactions n'ont de sens que sur une seule connexion: la transaction
+      // est executee dans l'ordre sur la premiere connexion jusqu'a sa fin
+      switch(keyword){
+        case "LOCK":
+        case "BEGIN":
+        case "START":
+          transaction = true;
+          break;
+        case "UNLOCK":
+        case "COMMIT":
+        case "END":
+        case "ROLLBACK":
+          transaction = false;
+          barrier();
+          return execute(connections.get(0), query, line, index);
+        case "SET":
+          if (AUTOCOMMIT_OFF.matcher(query).lookingAt()){
+            transaction = true;
+          } else if (AUTOCOMMIT_ON.matcher(query).lookingAt()){
+            transaction = false;
+          }
+          break;
+        default:
+          break;
+      }
+      
+      table = transaction ? null : parallelTable(query);
+      
+      if ((table != null) && isLinked(table)){
+        table = null;
+      }
+      
+      if (table == null){
+        barrier();
         
-        queries = new ArrayList<String>();
-        query = new StringBuffer();
+        // Les parametres de session sont appliques a toutes les connexions
+        if (keyword.equals("SET") || keyword.equals("USE")){
+          session = true;
+          for(int i = 1; i < connections.size(); i++){
+            execute(connections.get(i), query, line, 0);
+          }
+        }
         
-        do {
-          lu = reader.read(); 
-
-          if (lu != -1) {   
-
-        	if (((char) lu) != '\n'){  
-
-              query.append((char) lu);
-            
-              if (((char)lu) == ';'){
-                queries.add(query.toString());
-                query = new StringBuffer();
-              }
-        	}
+        return execute(connections.get(0), query, line, index);
+      }
+      
+      table = tableKey(table);
+      
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        success.set(false);
+        return false;
+      }
+      
+      final long taskIndex = index;
+      tails.put(table, tails.getOrDefault(table, CompletableFuture.completedFuture(null)).handleAsync((result, error) -> {
+        Connection connection = null;
+        
+        try {
+          connection = available.take();
+          execute(connection, query, line, taskIndex);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          success.set(false);
+        } finally {
+          if (connection != null){
+            available.add(connection);
           }
-        } while (lu != -1); 
-
-        reader.close();
+          permits.release();
+        }
         
-        this.process(queries.toArray(new String[queries.size()]));
-           
-    } catch (FileNotFoundException e) {
-    	logger.log(Level.SEVERE, "Cannot access"+file.getPath()+": "+e.getMessage(), e);
-    } catch (IOException e) {
-    	logger.log(Level.SEVERE, "Cannot read"+file.getPath()+": "+e.getMessage(), e);
+        return null;
+      }, executor));
+      
+      return true;
     }
     
-    query = null;
+    /**
+     * Check if the given table has a foreign key or is referenced by a foreign key. The queries on such a table can
+     * depend on the queries on another table and cannot be executed concurrently. The result is computed once for each
+     * table, on the first connection once the submitted queries are done (the connections of the pool are all held by the
+     * execution). If the metadata cannot be read, the table is considered as linked.
+     * @param table the name of the table, as written within the query.
+     * @return <code>true</code> if the table is linked to another table by a foreign key, <code>false</code> otherwise.
+     */
+    private boolean isLinked(String table){
+      String[] parts            = table.split("\\s*\\.\\s*");
+      String key                = table.replace("\"", "").replace("`", "").replaceAll("\\s", "").toLowerCase();
+      String name               = null;
+      String container          = null;
+      DatabaseMetaData metadata = null;
+      Boolean result            = linked.get(key);
+      
+      if (result != null){
+        return result;
+      }
+      
+      result = Boolean.TRUE;
+      
+      barrier();
+      
+      try {
+        metadata  = connections.get(0).getMetaData();
+        
+        name      = identifier(metadata, parts[parts.length - 1]);
+        container = (parts.length > 1) ? identifier(metadata, parts[parts.length - 2]) : null;
+        
+        // Avec MySQL, les bases de donnees sont des catalogues JDBC
+        if (database.getDbType() == JDBCConnection.MYSQL){
+          result = hasRows(metadata.getImportedKeys(container, null, name))
+                || hasRows(metadata.getExportedKeys(container, null, name));
+        } else {
+          result = hasRows(metadata.getImportedKeys(null, container, name))
+                || hasRows(metadata.getExportedKeys(null, container, name));
+        }
+      } catch (SQLException e) {
+        logger.log(Level.FINE, "Cannot read the foreign keys of "+table+", its queries are barriers: "+e.getMessage(), e);
+      }
+      
+      linked.put(key, result);
+      
+      return result;
+    }
     
-    return result;
+    /**
+     * Execute a query on the given connection.
+     * @param connection the connection to use.
+     * @param query the query to execute.
+     * @param line the line of the query within the script or 0 if the query does not come from a script.
+     * @param index the index of the query or 0 if the query is executed again on another connection and must not be counted.
+     * @return <code>true</code> if the query is executed or if it only raised a warning, <code>false</code> otherwise.
+     */
+    private boolean execute(Connection connection, String query, long line, long index){
+      Statement statement = null;
+      long start          = System.nanoTime();
+      long rows           = 0;
+      
+      try {
+        statement = connection.createStatement();
+        
+        if (!statement.execute(query)){
+          rows = Math.max(0, statement.getUpdateCount());
+        }
+        
+        if (index > 0){
+          database.recordQuery(query, start, rows);
+          executed(1, rows);
+          report(index, line, query, rows, System.nanoTime() - start, null);
+          
+          if (logger.isLoggable(Level.FINE)){
+            logger.log(Level.FINE, location(line)+query+" [OK]");
+          }
+        }
+        
+        return true;
+      } catch (SQLException ex) {
+        JDBCConnectionException e = processSQLException(ex, query);
+        
+        if (index > 0){
+          failed();
+          report(index, line, query, 0, System.nanoTime() - start, e);
+        }
+        
+        if (e.isWarning()){
+          logger.log(Level.WARNING, location(line)+query, e);
+          return true;
+        }
+        
+        logger.log(Level.SEVERE, location(line)+query, e);
+        success.set(false);
+        return false;
+      } catch (RuntimeException ex) {
+        logger.log(Level.SEVERE, location(line)+query, ex);
+        success.set(false);
+        return false;
+      } finally {
+        JDBCConnectionPool.closeQuietly(statement);
+      }
+    }
+    
+    /**
+     * Wait for all the submitted queries.
+     */
+    private void barrier(){
+      if (tails.isEmpty()){
+        return;
+      }
+      
+      CompletableFuture.allOf(tails.values().toArray(new CompletableFuture<?>[tails.size()])).join();
+      tails.clear();
+    }
+    
+    /**
+     * Wait for all the submitted queries, stop the executor and release the connections.
+     * @return <code>true</code> if all the queries succeeded, <code>false</code> otherwise.
+     */
+    private boolean close(){
+      try {
+        barrier();
+      } finally {
+        executor.shutdown();
+        release();
+      }
+      
+      return success.get();
+    }
+    
+    /**
+     * Close or give back the connections. The connections of the pool whose session has been changed are aborted so that
+     * the pool does not give them to another user.
+     */
+    private void release(){
+      for(Connection connection : connections){
+        if (owned){
+          JDBCConnectionPool.closeQuietly(connection);
+        } else if (session){
+          try {
+            connection.abort(Runnable::run);
+          } catch (SQLException e) {
+            JDBCConnectionPool.closeQuietly(connection);
+          }
+        } else {
+          database.releaseConnection(connection);
+        }
+      }
+      connections.clear();
+    }
   }
 }
@@ -0,0 +1,636 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * A streaming reader that splits an SQL script into statements. The script is read through an internal buffer and the
+ * statements are returned one at a time by {@link #nextStatement()}, so that the memory used does not depend on the size of
+ * the script but only on the size of the largest statement.<br>
+ * The reader recognizes the string literals (<code>'...'</code>), the quoted identifiers (<code>"..."</code> and
+ * <code>`...`</code>), the line comments (<code>-- ...</code>) and the block comments (<code>/* ... *&#47;</code>),
+ * so that a delimiter that appears within them does not end the statement. Depending on the database type, the reader also
+ * handles:
+ * <ul>
+ * <li>{@link JDBCConnection#MYSQL MySQL}: the backslash escapes within string literals, the <code>#</code> line comments,
+ * the executable comments (<code>/*! ... *&#47;</code>) and the <code>DELIMITER</code> command of the MySQL client used
+ * by the dumps that contain stored procedures and triggers.
+ * <li>{@link JDBCConnection#POSTGRESQL PostgreSQL}: the dollar quoted strings (<code>$body$ ... $body$</code>) used by the
+ * function bodies, the escape strings (<code>E'...'</code>) and the nested block comments.
+ * </ul>
+ * The comments that precede a statement are dropped, the line comments within a statement are replaced by a line break
+ * and the block comments within a statement are kept. If the {@link #setBarriers(boolean) barriers} are enabled, a line
+ * comment <code>-- @barrier</code> between two statements is returned as the {@link #BARRIER} statement.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class SQLScriptReader implements Closeable {
+
+  /**
+   * The default statement delimiter.
+   */
+  public static final String DEFAULT_DELIMITER = ";";
+
+  /**
+   * The default size of the read buffer (in characters).
+   */
+  public static final int DEFAULT_BUFFER_SIZE  = 65536;
+
+  /**
+   * The statement returned for a barrier marker.
+   * @see #setBarriers(boolean)
+   */
+  public static final String BARRIER           = "-- @barrier";
+
+  /**
+   * The text of a barrier marker comment.
+   */
+  private static final String BARRIER_MARKER   = "@barrier";
+
+  /**
+   * The underlying reader.
+   */
+  private Reader reader              = null;
+
+  /**
+   * The read buffer.
+   */
+  private char[] buffer              = null;
+
+  /**
+   * The position of the next character within the buffer.
+   */
+  private int position               = 0;
+
+  /**
+   * The number of characters available within the buffer.
+   */
+  private int limit                  = 0;
+
+  /**
+   * The character given back to the reader or <code>-1</code> if there is no such character.
+   */
+  private int pushback               = -1;
+
+  /**
+   * The statement delimiter.
+   */
+  private String delimiter           = DEFAULT_DELIMITER;
+
+  /**
+   * The statement under construction.
+   */
+  private StringBuilder statement    = null;
+
+  /**
+   * Specify if the statement under construction contains something else than blanks and comments.
+   */
+  private boolean significant        = false;
+
+  /**
+   * Specify if the backslash is an escape character within string literals.
+   */
+  private boolean backslashEscapes   = false;
+
+  /**
+   * Specify if <code>#</code> starts a line comment.
+   */
+  private boolean hashComments       = false;
+
+  /**
+   * Specify if the <code>DELIMITER</code> command is recognized.
+   */
+  private boolean delimiterCommand   = false;
+
+  /**
+   * Specify if the dollar quoted strings are recognized.
+   */
+  private boolean dollarQuotes       = false;
+
+  /**
+   * Specify if the block comments can be nested.
+   */
+  private boolean nestedComments     = false;
+
+  /**
+   * Specify if the barrier markers are recognized.
+   */
+  private boolean barriers           = false;
+
+  /**
+   * The text of the line comment under reading.
+   */
+  private StringBuilder comment      = null;
+
+  /**
+   * The current line number.
+   */
+  private long line                  = 1;
+
+  /**
+   * The line number of the first significant character of the last statement.
+   */
+  private long statementLine         = 0;
+
+  /**
+   * The number of statements read.
+   */
+  private long statementCount        = 0;
+
+  /**
+   * Create a new script reader that handles standard SQL only.
+   * @param reader the reader that provides the script.
+   */
+  public SQLScriptReader(Reader reader){
+    this(reader, -1, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a new script reader that handles the syntax of the given database type.
+   * @param reader the reader that provides the script.
+   * @param dbType the type of the database ({@link JDBCConnection#MYSQL} or {@link JDBCConnection#POSTGRESQL}). For any
+   *        other value, only standard SQL is handled.
+   */
+  public SQLScriptReader(Reader reader, int dbType){
+    this(reader, dbType, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a new script reader that handles the syntax of the given database type.
+   * @param reader the reader that provides the script.
+   * @param dbType the type of the database ({@link JDBCConnection#MYSQL} or {@link JDBCConnection#POSTGRESQL}). For any
+   *        other value, only standard SQL is handled.
+   * @param bufferSize the size of the read buffer (in characters).
+   */
+  public SQLScriptReader(Reader reader, int dbType, int bufferSize){
+    this.reader    = reader;
+    this.buffer    = new char[Math.max(bufferSize, 16)];
+    this.statement = new StringBuilder();
+    this.comment   = new StringBuilder();
+
+    if (dbType == JDBCConnection.MYSQL){
+      backslashEscapes = true;
+      hashComments     = true;
+      delimiterCommand = true;
+    } else if (dbType == JDBCConnection.POSTGRESQL){
+      dollarQuotes     = true;
+      nestedComments   = true;
+    }
+  }
+
+  /**
+   * Read the next statement of the script. The returned statement does not contain its delimiter and is trimmed.
+   * @return the next statement or <code>null</code> if the end of the script is reached.
+   * @throws IOException if the script cannot be read.
+   */
+  public String nextStatement() throws IOException{
+    int c = 0;
+
+    statement.setLength(0);
+    significant = false;
+
+    while((c = read()) != -1){
+
+      // Les blancs qui precedent l'instruction sont ignores
+      if (!significant && Character.isWhitespace(c)){
+        continue;
+      }
+
+      if (((c == '-') && (peek() == '-')) || ((c == '#') && hashComments)){
+        if (skipLine()){
+          return BARRIER;
+        }
+        continue;
+      }
+
+      if ((c == '/') && (peek() == '*')){
+        readBlockComment();
+        continue;
+      }
+
+      if (!significant){
+        significant   = true;
+        statementLine = line;
+      }
+
+      statement.append((char) c);
+
+      if ((c == delimiter.charAt(delimiter.length() - 1)) && endsWith(delimiter, 0)){
+        statement.setLength(statement.length() - delimiter.length());
+
+        // Une instruction vide ou un DELIMITER qui ne change rien
+        if (isBlank() || (delimiterCommand && trim().equalsIgnoreCase("DELIMITER"))){
+          statement.setLength(0);
+          significant = false;
+          continue;
+        }
+
+        statementCount++;
+        return trim();
+      }
+
+      if (c == '\n'){
+        processDelimiterCommand();
+      } else if (c == '\''){
+        readString('\'', backslashEscapes || isEscapeString());
+      } else if ((c == '"') || (c == '`')){
+        readString((char) c, false);
+      } else if ((c == '$') && dollarQuotes){
+        readDollarQuote();
+      }
+    }
+
+    if (significant && !processDelimiterCommand() && !isBlank()){
+      statementCount++;
+      return trim();
+    }
+
+    return null;
+  }
+
+  /**
+   * Get the statement delimiter.
+   * @return the statement delimiter.
+   */
+  public String getDelimiter(){
+    return delimiter;
+  }
+
+  /**
+   * Set the statement delimiter. The delimiter can also be changed within a MySQL script using the
+   * <code>DELIMITER</code> command.
+   * @param delimiter the statement delimiter.
+   */
+  public void setDelimiter(String delimiter){
+    if ((delimiter == null) || delimiter.isEmpty()){
+      throw new IllegalArgumentException("Empty delimiter");
+    }
+    this.delimiter = delimiter;
+  }
+
+  /**
+   * Return <code>true</code> if the barrier markers are recognized.
+   * @return <code>true</code> if the barrier markers are recognized, <code>false</code> otherwise.
+   * @see #setBarriers(boolean)
+   */
+  public boolean isBarriers(){
+    return barriers;
+  }
+
+  /**
+   * Set if the barrier markers are recognized. A barrier marker is a line comment <code>-- @barrier</code> (or
+   * <code># @barrier</code> for MySQL) placed between two statements. When the barriers are recognized, such a comment is
+   * returned by {@link #nextStatement()} as the {@link #BARRIER} statement, otherwise it is ignored like any comment.
+   * @param barriers <code>true</code> if the barrier markers are recognized, <code>false</code> otherwise.
+   */
+  public void setBarriers(boolean barriers){
+    this.barriers = barriers;
+  }
+
+  /**
+   * Get the current line number within the script.
+   * @return the current line number (starting at 1).
+   */
+  public long getLine(){
+    return line;
+  }
+
+  /**
+   * Get the line number where the last statement returned by {@link #nextStatement()} starts.
+   * @return the line number where the last statement starts (starting at 1) or 0 if no statement has been read.
+   */
+  public long getStatementLine(){
+    return statementLine;
+  }
+
+  /**
+   * Get the number of statements returned by {@link #nextStatement()}.
+   * @return the number of statements read.
+   */
+  public long getStatementCount(){
+    return statementCount;
+  }
+
+  @Override
+  public void close() throws IOException{
+    reader.close();
+  }
+
+  /**
+   * Read the next character of the script.
+   * @return the next character or <code>-1</code> if the end of the script is reached.
+   * @throws IOException if the script cannot be read.
+   */
+  private int read() throws IOException{
+    int c = 0;
+
+    if (pushback != -1){
+      c        = pushback;
+      pushback = -1;
+      return c;
+    }
+
+    if (position >= limit){
+      do {
+        limit = reader.read(buffer, 0, buffer.length);
+      } while(limit == 0);
+
+      position = 0;
+
+      if (limit < 0){
+        limit = 0;
+        return -1;
+      }
+    }
+
+    c = buffer[position++];
+
+    if (c == '\n'){
+      line++;
+    }
+
+    return c;
+  }
+
+  /**
+   * Get the next character of the script without consuming it.
+   * @return the next character or <code>-1</code> if the end of the script is reached.
+   * @throws IOException if the script cannot be read.
+   */
+  private int peek() throws IOException{
+    if (pushback == -1){
+      pushback = read();
+    }
+    return pushback;
+  }
+
+  /**
+   * Skip the characters until the end of the line. The line break is appended if the comment is within a statement.
+   * @return <code>true</code> if the comment is a barrier marker, <code>false</code> otherwise.
+   * @throws IOException if the script cannot be read.
+   */
+  private boolean skipLine() throws IOException{
+    int c          = 0;
+    boolean marker = barriers && !significant;
+
+    comment.setLength(0);
+
+    while(((c = read()) != -1) && (c != '\n')){
+
+      // Un commentaire plus long ne peut pas etre une barriere
+      if (marker){
+        comment.append((char) c);
+        marker = comment.length() <= 64;
+      }
+    }
+
+    if (significant){
+      statement.append('\n');
+
+      processDelimiterCommand();
+    }
+
+    if (marker){
+      while((comment.length() > 0) && (comment.charAt(0) == '-')){
+        comment.deleteCharAt(0);
+      }
+      return comment.toString().trim().equalsIgnoreCase(BARRIER_MARKER);
+    }
+
+    return false;
+  }
+
+  /**
+   * Read a block comment. The opening <code>/</code> is already consumed. The comment is appended if it is within a
+   * statement or if it is a MySQL executable comment.
+   * @throws IOException if the script cannot be read.
+   */
+  private void readBlockComment() throws IOException{
+    int c        = 0;
+    int previous = 0;
+    int depth    = 1;
+    boolean keep = significant;
+
+    // Le '*' ouvrant
+    read();
+
+    if (!keep && hashComments && ((peek() == '!') || (peek() == '+'))){
+      keep          = true;
+      significant   = true;
+      statementLine = line;
+    }
+
+    if (keep){
+      statement.append("/*");
+    }
+
+    while((depth > 0) && ((c = read()) != -1)){
+      if (keep){
+        statement.append((char) c);
+      }
+
+      if ((previous == '*') && (c == '/')){
+        depth--;
+        c = 0;
+      } else if (nestedComments && (previous == '/') && (c == '*')){
+        depth++;
+        c = 0;
+      }
+
+      previous = c;
+    }
+  }
+
+  /**
+   * Read a string literal or a quoted identifier. The opening quote is already appended.
+   * @param quote the quote character.
+   * @param escapes <code>true</code> if the backslash is an escape character.
+   * @throws IOException if the script cannot be read.
+   */
+  private void readString(char quote, boolean escapes) throws IOException{
+    int c = 0;
+
+    while((c = read()) != -1){
+      statement.append((char) c);
+
+      if (escapes && (c == '\\')){
+        c = read();
+        if (c != -1){
+          statement.append((char) c);
+        }
+      } else if (c == quote){
+
+        // Une quote doublee ne termine pas la chaine
+        if (peek() == quote){
+          statement.append((char) read());
+        } else {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Read a dollar quoted string if the <code>$</code> already appended starts one. A <code>$</code> that follows an
+   * identifier or that introduces a positional parameter (<code>$1</code>) does not start a dollar quoted string.
+   * @throws IOException if the script cannot be read.
+   */
+  private void readDollarQuote() throws IOException{
+    int start = statement.length() - 1;
+    int c     = 0;
+    String tag = null;
+
+    if ((start > 0) && isIdentifierPart(statement.charAt(start - 1))){
+      return;
+    }
+
+    c = peek();
+
+    if ((c != '$') && !(Character.isLetter(c) || (c == '_'))){
+      return;
+    }
+
+    while(((c = read()) != -1) && (c != '$') && isIdentifierPart((char) c)){
+      statement.append((char) c);
+    }
+
+    if (c != '$'){
+      if (c != -1){
+        pushback = c;
+      }
+      return;
+    }
+
+    statement.append('$');
+    tag = statement.substring(start);
+
+    while((c = read()) != -1){
+      statement.append((char) c);
+
+      if ((c == '$') && endsWith(tag, start + tag.length())){
+        return;
+      }
+    }
+  }
+
+  /**
+   * Check if the statement under construction ends with the given text.
+   * @param text the text to check.
+   * @param from the index within the statement before which the text cannot start.
+   * @return <code>true</code> if the statement ends with the text, <code>false</code> otherwise.
+   */
+  private boolean endsWith(String text, int from){
+    int offset = statement.length() - text.length();
+
+    if (offset < from){
+      return false;
+    }
+
+    for(int i = 0; i < text.length(); i++){
+      if (statement.charAt(offset + i) != text.charAt(i)){
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Check if the quote just appended opens a PostgreSQL escape string (<code>E'...'</code>).
+   * @return <code>true</code> if the quote opens an escape string, <code>false</code> otherwise.
+   */
+  private boolean isEscapeString(){
+    int length = statement.length();
+
+    if (!dollarQuotes || (length < 2)){
+      return false;
+    }
+
+    char prefix = statement.charAt(length - 2);
+
+    return ((prefix == 'E') || (prefix == 'e')) && ((length < 3) || !isIdentifierPart(statement.charAt(length - 3)));
+  }
+
+  /**
+   * Process the statement under construction if it is a MySQL client <code>DELIMITER</code> command.
+   * @return <code>true</code> if the statement is a <code>DELIMITER</code> command, <code>false</code> otherwise.
+   */
+  private boolean processDelimiterCommand(){
+    String command = null;
+
+    if (!delimiterCommand || (statement.length() < 10) || !statement.substring(0, 9).equalsIgnoreCase("DELIMITER")
+        || !Character.isWhitespace(statement.charAt(9))){
+      return false;
+    }
+
+    command = statement.substring(10).trim();
+
+    if (command.isEmpty() || (command.indexOf('\n') >= 0)){
+      return false;
+    }
+
+    delimiter = command;
+
+    statement.setLength(0);
+    significant = false;
+
+    return true;
+  }
+
+  /**
+   * Check if the statement under construction contains only blanks.
+   * @return <code>true</code> if the statement contains only blanks, <code>false</code> otherwise.
+   */
+  private boolean isBlank(){
+    for(int i = 0; i < statement.length(); i++){
+      if (!Character.isWhitespace(statement.charAt(i))){
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the statement under construction without its trailing blanks.
+   * @return the statement.
+   */
+  private String trim(){
+    int end = statement.length();
+
+    while((end > 0) && Character.isWhitespace(statement.charAt(end - 1))){
+      end--;
+    }
+
+    return statement.substring(0, end);
+  }
+
+  /**
+   * Check if the given character can be part of an identifier.
+   * @param c the character to check.
+   * @return <code>true</code> if the character can be part of an identifier, <code>false</code> otherwise.
+   */
+  private static boolean isIdentifierPart(char c){
+    return Character.isLetterOrDigit(c) || (c == '_') || (c == '$');
+  }
+}
@@ -0,0 +1,176 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * A query recorded by a {@link SlowQueryLog slow query log}. The execution plan of the query is captured asynchronously and
+ * may not be available yet when the entry is read.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class SlowQuery {
+
+  /**
+   * The query.
+   */
+  private String query            = null;
+
+  /**
+   * The time at which the query was recorded (in milliseconds since the epoch).
+   */
+  private long time               = 0;
+
+  /**
+   * The duration of the query in nanoseconds.
+   */
+  private long duration           = 0;
+
+  /**
+   * The number of rows affected by the query.
+   */
+  private long rows               = 0;
+
+  /**
+   * The execution plan of the query.
+   */
+  private volatile String plan    = null;
+
+  /**
+   * Specify if the plan comes from an analyzed execution of the query.
+   */
+  private volatile boolean analyzed = false;
+
+  /**
+   * The reason why the plan is not available.
+   */
+  private volatile String planError = null;
+
+  /**
+   * Create a new slow query.
+   * @param query the query.
+   * @param time the time at which the query was recorded (in milliseconds since the epoch).
+   * @param duration the duration of the query in nanoseconds.
+   * @param rows the number of rows affected by the query.
+   */
+  public SlowQuery(String query, long time, long duration, long rows){
+    this.query    = query;
+    this.time     = time;
+    this.duration = duration;
+    this.rows     = rows;
+  }
+
+  /**
+   * Get the query.
+   * @return the query.
+   */
+  public String getQuery(){
+    return query;
+  }
+
+  /**
+   * Get the time at which the query was recorded.
+   * @return the time at which the query was recorded (in milliseconds since the epoch).
+   */
+  public long getTime(){
+    return time;
+  }
+
+  /**
+   * Get the duration of the query.
+   * @return the duration of the query in nanoseconds.
+   */
+  public long getDuration(){
+    return duration;
+  }
+
+  /**
+   * Get the number of rows affected by the query.
+   * @return the number of rows affected by the query.
+   */
+  public long getRows(){
+    return rows;
+  }
+
+  /**
+   * Get the execution plan of the query.
+   * @return the execution plan or <code>null</code> if the plan is not (yet) available.
+   * @see #getPlanError()
+   */
+  public String getPlan(){
+    return plan;
+  }
+
+  /**
+   * Return <code>true</code> if the plan comes from an analyzed execution of the query (<code>EXPLAIN ANALYZE</code>).
+   * @return <code>true</code> if the plan is analyzed, <code>false</code> otherwise.
+   */
+  public boolean isAnalyzed(){
+    return analyzed;
+  }
+
+  /**
+   * Get the reason why the plan is not available.
+   * @return the reason why the plan is not available or <code>null</code> if there is no error.
+   */
+  public String getPlanError(){
+    return planError;
+  }
+
+  /**
+   * Set the execution plan of the query.
+   * @param plan the execution plan.
+   * @param analyzed <code>true</code> if the plan comes from an analyzed execution of the query.
+   */
+  void setPlan(String plan, boolean analyzed){
+    this.plan     = plan;
+    this.analyzed = analyzed;
+  }
+
+  /**
+   * Set the reason why the plan is not available.
+   * @param planError the reason why the plan is not available.
+   */
+  void setPlanError(String planError){
+    this.planError = planError;
+  }
+
+  @Override
+  public String toString(){
+    StringBuilder builder = new StringBuilder();
+
+    builder.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(time)));
+    builder.append(" ").append(duration / 1000000.0d).append(" ms");
+    builder.append(" rows=").append(rows);
+    builder.append(System.lineSeparator()).append(query);
+
+    if (plan != null){
+      builder.append(System.lineSeparator()).append(analyzed ? "EXPLAIN ANALYZE:" : "EXPLAIN:");
+      builder.append(System.lineSeparator()).append(plan);
+    } else if (planError != null){
+      builder.append(System.lineSeparator()).append("No plan: ").append(planError);
+    }
+
+    return builder.toString();
+  }
+}
@@ -0,0 +1,453 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc;
+
+import static org.jdatabase.JDatabase.logger;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * A log of the queries that exceed a duration threshold. The log is attached to a {@link JDBCConnection JDBC connection}
+ * with {@link JDBCConnection#setSlowQueryLog(SlowQueryLog)} and records the queries processed by the connection and by the
+ * {@link org.jdatabase.jdbc.sql.SQLToolkit toolkits} using it.<br>
+ * When a query is recorded, its execution plan is captured asynchronously on a side connection opened for the log, so
+ * that the connection processing the queries is never delayed. The plan is obtained with <code>EXPLAIN</code> on MySQL
+ * and PostgreSQL. On PostgreSQL, a {@link #getAnalyzeSampleRate() sample} of the <code>SELECT</code> queries is explained
+ * with <code>EXPLAIN (ANALYZE, BUFFERS)</code>, that executes the query again within a transaction that is rolled back.<br>
+ * The log keeps the last {@link #getCapacity() capacity} queries within a ring buffer that can be read with
+ * {@link #getEntries()} or written with {@link #dump(PrintWriter)}.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class SlowQueryLog implements AutoCloseable {
+
+  /**
+   * The default number of queries kept by the log.
+   */
+  public static final int DEFAULT_CAPACITY           = 100;
+
+  /**
+   * The default threshold (in milliseconds) above which a query is recorded.
+   */
+  public static final long DEFAULT_THRESHOLD         = 1000L;
+
+  /**
+   * The default fraction of the PostgreSQL <code>SELECT</code> queries explained with <code>EXPLAIN (ANALYZE, BUFFERS)</code>.
+   */
+  public static final double DEFAULT_ANALYZE_SAMPLE_RATE = 0.1d;
+
+  /**
+   * The maximum number of plans waiting to be captured. Plans requested while the queue is full are not captured.
+   */
+  private static final int PLAN_QUEUE_SIZE           = 64;
+
+  /**
+   * The connection whose information are used for opening the side connection.
+   */
+  private JDBCConnection owner           = null;
+
+  /**
+   * The threshold (in nanoseconds) above which a query is recorded.
+   */
+  private long threshold                 = TimeUnit.MILLISECONDS.toNanos(DEFAULT_THRESHOLD);
+
+  /**
+   * The recorded queries.
+   */
+  private SlowQuery[] entries            = null;
+
+  /**
+   * The number of queries recorded since the creation of the log.
+   */
+  private long count                     = 0;
+
+  /**
+   * Specify if the plans of the queries are captured.
+   */
+  private boolean explain                = true;
+
+  /**
+   * The fraction of the PostgreSQL queries explained with <code>EXPLAIN (ANALYZE, BUFFERS)</code>.
+   */
+  private double analyzeSampleRate       = DEFAULT_ANALYZE_SAMPLE_RATE;
+
+  /**
+   * The executor that captures the plans.
+   */
+  private ThreadPoolExecutor executor    = null;
+
+  /**
+   * The side connection used for capturing the plans.
+   */
+  private Connection side                = null;
+
+  /**
+   * Specify if the log is closed.
+   */
+  private boolean closed                 = false;
+
+  /**
+   * Create a new slow query log with the {@link #DEFAULT_THRESHOLD default threshold} and
+   * the {@link #DEFAULT_CAPACITY default capacity}.
+   * @param owner the connection whose information are used for opening the side connection.
+   */
+  public SlowQueryLog(JDBCConnection owner){
+    this(owner, DEFAULT_THRESHOLD, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create a new slow query log.
+   * @param owner the connection whose information are used for opening the side connection.
+   * @param threshold the threshold (in milliseconds) above which a query is recorded.
+   * @param capacity the number of queries kept by the log.
+   */
+  public SlowQueryLog(JDBCConnection owner, long threshold, int capacity){
+    this.owner     = owner;
+    this.threshold = TimeUnit.MILLISECONDS.toNanos(Math.max(0, threshold));
+    this.entries   = new SlowQuery[Math.max(1, capacity)];
+  }
+
+  /**
+   * Record a query if its duration exceeds the threshold.
+   * @param query the query.
+   * @param nanos the duration of the query in nanoseconds.
+   * @param rows the number of rows affected by the query.
+   */
+  public void record(String query, long nanos, long rows){
+    SlowQuery entry = null;
+
+    if ((nanos < threshold) || (query == null)){
+      return;
+    }
+
+    entry = new SlowQuery(query, System.currentTimeMillis(), nanos, rows);
+
+    synchronized(this){
+      if (closed){
+        return;
+      }
+
+      entries[(int)(count % entries.length)] = entry;
+      count++;
+    }
+
+    logger.log(Level.FINE, "Slow query ("+(nanos / 1000000L)+" ms): "+query);
+
+    if (explain && isExplainable(query)){
+      capturePlan(entry);
+    }
+  }
+
+  /**
+   * Get the recorded queries, the oldest first.
+   * @return the recorded queries.
+   */
+  public synchronized List<SlowQuery> getEntries(){
+    ArrayList<SlowQuery> list = new ArrayList<SlowQuery>(entries.length);
+    long first                = Math.max(0, count - entries.length);
+
+    for(long i = first; i < count; i++){
+      list.add(entries[(int)(i % entries.length)]);
+    }
+
+    return list;
+  }
+
+  /**
+   * Write the recorded queries, the oldest first.
+   * @param writer the writer to use.
+   */
+  public void dump(PrintWriter writer){
+    for(SlowQuery entry : getEntries()){
+      writer.println(entry);
+      writer.println();
+    }
+    writer.flush();
+  }
+
+  /**
+   * Remove all the recorded queries.
+   */
+  public synchronized void clear(){
+    for(int i = 0; i < entries.length; i++){
+      entries[i] = null;
+    }
+    count = 0;
+  }
+
+  /**
+   * Stop the capture of the plans and close the side connection. The recorded queries remain available.
+   */
+  @Override
+  public void close(){
+    ThreadPoolExecutor stopped = null;
+
+    synchronized(this){
+      if (closed){
+        return;
+      }
+      closed   = true;
+      stopped  = executor;
+      executor = null;
+    }
+
+    if (stopped != null){
+      stopped.shutdownNow();
+      try {
+        stopped.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    JDBCConnectionPool.closeQuietly(side);
+    side = null;
+  }
+
+  /**
+   * Return <code>true</code> if a plan can be captured for the given query. Only the queries reading or modifying
+   * rows can be explained.
+   * @param query the query.
+   * @return <code>true</code> if the query can be explained, <code>false</code> otherwise.
+   */
+  private boolean isExplainable(String query){
+    String start = firstKeyword(query);
+
+    if ((owner.getDbType() != JDBCConnection.MYSQL) && (owner.getDbType() != JDBCConnection.POSTGRESQL)){
+      return false;
+    }
+
+    return start.equals("SELECT") || start.equals("WITH") || start.equals("INSERT") || start.equals("UPDATE")
+           || start.equals("DELETE") || (start.equals("REPLACE") && (owner.getDbType() == JDBCConnection.MYSQL));
+  }
+
+  /**
+   * Get the first keyword of a query.
+   * @param query the query.
+   * @return the first keyword of the query, in upper case.
+   */
+  private static String firstKeyword(String query){
+    int start = 0;
+    int end   = 0;
+
+    while((start < query.length()) && !Character.isLetter(query.charAt(start))){
+      start++;
+    }
+
+    end = start;
+    while((end < query.length()) && Character.isLetter(query.charAt(end))){
+      end++;
+    }
+
+    return query.substring(start, end).toUpperCase();
+  }
+
+  /**
+   * Submit the capture of the plan of a query.
+   * @param entry the recorded query.
+   */
+  private void capturePlan(SlowQuery entry){
+    ThreadPoolExecutor planExecutor = null;
+
+    synchronized(this){
+      if (closed){
+        return;
+      }
+
+      // Un seul thread: la connexion annexe n'est jamais utilisee en parallele
+      if (executor == null){
+        executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(PLAN_QUEUE_SIZE), runnable -> {
+          Thread thread = new Thread(runnable, "jdatabase-slow-query-log");
+          thread.setDaemon(true);
+          return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+      }
+
+      planExecutor = executor;
+    }
+
+    try {
+      planExecutor.execute(() -> explain(entry));
+    } catch (RejectedExecutionException e) {
+      entry.setPlanError("Too many plans waiting to be captured");
+    }
+  }
+
+  /**
+   * Capture the plan of a query on the side connection.
+   * @param entry the recorded query.
+   */
+  private void explain(SlowQuery entry){
+    boolean analyze     = false;
+    Statement statement = null;
+    String prefix       = "EXPLAIN ";
+
+    if (owner.getDbType() == JDBCConnection.POSTGRESQL){
+      analyze = firstKeyword(entry.getQuery()).equals("SELECT") && (ThreadLocalRandom.current().nextDouble() < analyzeSampleRate);
+      if (analyze){
+        prefix = "EXPLAIN (ANALYZE, BUFFERS) ";
+      }
+    }
+
+    try {
+      if ((side == null) || side.isClosed()){
+        side = owner.openConnection();
+      }
+
+      // EXPLAIN ANALYZE execute la requete: ses effets eventuels sont annules
+      if (analyze){
+        side.setAutoCommit(false);
+      }
+
+      statement = side.createStatement();
+      entry.setPlan(format(statement.executeQuery(prefix+entry.getQuery())), analyze);
+
+    } catch (SQLException | JDBCConnectionException e) {
+      entry.setPlanError(e.getMessage());
+      logger.log(Level.FINE, "Cannot explain "+entry.getQuery()+": "+e.getMessage(), e);
+    } finally {
+      JDBCConnectionPool.closeQuietly(statement);
+
+      if (analyze && (side != null)){
+        try {
+          side.rollback();
+          side.setAutoCommit(true);
+        } catch (SQLException e) {
+          JDBCConnectionPool.closeQuietly(side);
+          side = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Format the result of an <code>EXPLAIN</code> query. A single column result (PostgreSQL) is written line by line,
+   * a multiple column result (MySQL) is written as tab separated values preceded by the column names.
+   * @param rset the result of the <code>EXPLAIN</code> query.
+   * @return the formatted plan.
+   * @throws SQLException if the result cannot be read.
+   */
+  private static String format(ResultSet rset) throws SQLException{
+    StringBuilder builder      = new StringBuilder();
+    ResultSetMetaData metaData = rset.getMetaData();
+    int columnCount            = metaData.getColumnCount();
+
+    try {
+      if (columnCount > 1){
+        for(int i = 1; i <= columnCount; i++){
+          builder.append((i > 1) ? "\t" : "").append(metaData.getColumnLabel(i));
+        }
+        builder.append(System.lineSeparator());
+      }
+
+      while(rset.next()){
+        for(int i = 1; i <= columnCount; i++){
+          builder.append((i > 1) ? "\t" : "").append(rset.getString(i));
+        }
+        builder.append(System.lineSeparator());
+      }
+    } finally {
+      rset.close();
+    }
+
+    return builder.toString().trim();
+  }
+
+  /**
+   * Get the threshold above which a query is recorded.
+   * @return the threshold in milliseconds.
+   */
+  public long getThreshold(){
+    return TimeUnit.NANOSECONDS.toMillis(threshold);
+  }
+
+  /**
+   * Set the threshold above which a query is recorded.
+   * @param threshold the threshold in milliseconds.
+   */
+  public void setThreshold(long threshold){
+    this.threshold = TimeUnit.MILLISECONDS.toNanos(Math.max(0, threshold));
+  }
+
+  /**
+   * Get the number of queries kept by the log.
+   * @return the number of queries kept by the log.
+   */
+  public int getCapacity(){
+    return entries.length;
+  }
+
+  /**
+   * Get the number of queries recorded since the creation of the log, including the queries no longer kept.
+   * @return the number of queries recorded.
+   */
+  public synchronized long getCount(){
+    return count;
+  }
+
+  /**
+   * Return <code>true</code> if the plans of the recorded queries are captured.
+   * @return <code>true</code> if the plans are captured, <code>false</code> otherwise.
+   */
+  public boolean isExplain(){
+    return explain;
+  }
+
+  /**
+   * Set if the plans of the recorded queries are captured.
+   * @param explain <code>true</code> if the plans have to be captured, <code>false</code> otherwise.
+   */
+  public void setExplain(boolean explain){
+    this.explain = explain;
+  }
+
+  /**
+   * Get the fraction of the PostgreSQL <code>SELECT</code> queries explained with <code>EXPLAIN (ANALYZE, BUFFERS)</code>.
+   * @return the fraction of the queries analyzed (between 0 and 1).
+   */
+  public double getAnalyzeSampleRate(){
+    return analyzeSampleRate;
+  }
+
+  /**
+   * Set the fraction of the PostgreSQL <code>SELECT</code> queries explained with <code>EXPLAIN (ANALYZE, BUFFERS)</code>.
+   * The other queries are explained without being executed. As an analyzed query is executed again, a high rate doubles
+   * the load of the slow queries on the server.
+   * @param analyzeSampleRate the fraction of the queries analyzed (between 0 and 1).
+   */
+  public void setAnalyzeSampleRate(double analyzeSampleRate){
+    this.analyzeSampleRate = Math.min(1.0d, Math.max(0.0d, analyzeSampleRate));
+  }
+}
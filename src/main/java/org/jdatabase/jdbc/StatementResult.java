@@ -0,0 +1,141 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * The result of a query processed by a {@link SQLJDBCProcessor SQL processor}.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see StatementListener
+ */
+public class StatementResult {
+
+  /**
+   * The index of the query within the processed queries.
+   */
+  private long index                        = 0;
+
+  /**
+   * The line of the query within the script.
+   */
+  private long line                         = 0;
+
+  /**
+   * The query.
+   */
+  private String query                      = null;
+
+  /**
+   * The number of rows affected by the query.
+   */
+  private long rowCount                     = 0;
+
+  /**
+   * The duration of the query in nanoseconds.
+   */
+  private long duration                     = 0;
+
+  /**
+   * The exception raised by the query.
+   */
+  private JDBCConnectionException exception = null;
+
+  /**
+   * Create a new query result.
+   * @param index the index of the query within the processed queries (starting at 1).
+   * @param line the line of the query within the script or 0 if the query does not come from a script.
+   * @param query the query.
+   * @param rowCount the number of rows affected by the query.
+   * @param duration the duration of the query in nanoseconds.
+   * @param exception the exception raised by the query or <code>null</code> if the query succeeded.
+   */
+  public StatementResult(long index, long line, String query, long rowCount, long duration, JDBCConnectionException exception){
+    this.index     = index;
+    this.line      = line;
+    this.query     = query;
+    this.rowCount  = rowCount;
+    this.duration  = duration;
+    this.exception = exception;
+  }
+
+  /**
+   * Get the index of the query within the processed queries. In parallel mode, the results are not notified in the order
+   * of the indexes.
+   * @return the index of the query (starting at 1).
+   */
+  public long getIndex(){
+    return index;
+  }
+
+  /**
+   * Get the line of the query within the script.
+   * @return the line of the query or 0 if the query does not come from a script.
+   */
+  public long getLine(){
+    return line;
+  }
+
+  /**
+   * Get the query.
+   * @return the query.
+   */
+  public String getQuery(){
+    return query;
+  }
+
+  /**
+   * Get the number of rows affected by the query.
+   * @return the number of rows affected by the query.
+   */
+  public long getRowCount(){
+    return rowCount;
+  }
+
+  /**
+   * Get the duration of the query. For the queries sent within a batch, the duration is the one of the whole batch.
+   * @return the duration of the query in nanoseconds.
+   */
+  public long getDuration(){
+    return duration;
+  }
+
+  /**
+   * Get the exception raised by the query.
+   * @return the exception raised by the query or <code>null</code> if the query succeeded.
+   */
+  public JDBCConnectionException getException(){
+    return exception;
+  }
+
+  /**
+   * Return <code>true</code> if the query succeeded or if it only raised a warning.
+   * @return <code>true</code> if the query succeeded, <code>false</code> otherwise.
+   */
+  public boolean isSuccess(){
+    return (exception == null) || exception.isWarning();
+  }
+
+  @Override
+  public String toString(){
+    return "#"+index+((line > 0) ? " [line "+line+"]" : "")+" "+(isSuccess() ? "OK" : "FAILED")+" rows="+rowCount
+           +" "+(duration / 1000000.0d)+" ms"+((exception != null) ? " "+exception.getMessage() : "");
+  }
+}
@@ -0,0 +1,83 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * A Flight Recorder event covering a phase of the connection to a database server. The whole
+ * {@link org.jdatabase.jdbc.JDBCConnection#connect() connection} is recorded as the {@link #CONNECT} phase, within which
+ * the loading of the JDBC driver ({@link #DRIVER}) and the opening of the physical connection ({@link #HANDSHAKE}) are
+ * recorded as nested events.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+@Name("org.jdatabase.Connect")
+@Label("Database Connection")
+@Category({"JDatabase", "Connection"})
+@Description("A phase of the connection to a database server")
+public final class ConnectEvent extends Event {
+
+  /**
+   * The phase covering the whole connection.
+   */
+  public static final String CONNECT   = "connect";
+
+  /**
+   * The phase covering the loading of the JDBC driver.
+   */
+  public static final String DRIVER    = "driver";
+
+  /**
+   * The phase covering the opening of the physical connection.
+   */
+  public static final String HANDSHAKE = "handshake";
+
+  /**
+   * The connection phase.
+   */
+  @Label("Phase")
+  public String phase;
+
+  /**
+   * The name of the connection (<i>type://user@server:port/database</i>).
+   */
+  @Label("Connection")
+  public String connection;
+
+  /**
+   * Specify if the phase succeeded.
+   */
+  @Label("Success")
+  public boolean success;
+
+  /**
+   * Create a new connection event.
+   * @param phase the connection phase.
+   */
+  public ConnectEvent(String phase){
+    this.phase = phase;
+  }
+}
@@ -0,0 +1,65 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * A Flight Recorder event covering the translation of a SQL exception into a
+ * {@link org.jdatabase.jdbc.JDBCConnectionException JDBC connection exception} by
+ * {@link org.jdatabase.jdbc.JDBCConnection#processSQLException(java.sql.SQLException, String, String, String, String, int, int, String)}.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+@Name("org.jdatabase.ExceptionMapping")
+@Label("SQL Exception Mapping")
+@Category({"JDatabase", "Query"})
+@Description("The translation of a SQL exception into a JDBC connection exception")
+public final class ExceptionMappingEvent extends Event {
+
+  /**
+   * The fingerprint of the query in error.
+   */
+  @Label("Fingerprint")
+  public String fingerprint;
+
+  /**
+   * The SQL state of the exception.
+   */
+  @Label("SQL State")
+  public String sqlState;
+
+  /**
+   * The vendor error code of the exception.
+   */
+  @Label("Vendor Code")
+  public int vendorCode;
+
+  /**
+   * The code of the JDBC connection exception (-1 if the exception is not translated).
+   */
+  @Label("Code")
+  public int code;
+}
@@ -0,0 +1,78 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.metrics.SQLFingerprint;
+
+/**
+ * A Flight Recorder event covering the reading of the rows of a query result by a {@link org.jdatabase.jdbc.RowCursor cursor},
+ * from the opening of the cursor to its closing. The rows of {@link org.jdatabase.jdbc.sql.SQLToolkit#getTableData(org.jdatabase.jdbc.sql.Table)}
+ * are materialized through such a cursor.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+@Name("org.jdatabase.Fetch")
+@Label("SQL Fetch")
+@Category({"JDatabase", "Query"})
+@Description("The reading of the rows of a query result")
+@StackTrace(false)
+public final class FetchEvent extends Event {
+
+  /**
+   * The fingerprint of the query.
+   */
+  @Label("Fingerprint")
+  public String fingerprint;
+
+  /**
+   * The number of rows read.
+   */
+  @Label("Rows")
+  public long rows;
+
+  /**
+   * The number of columns of a row.
+   */
+  @Label("Columns")
+  public int columns;
+
+  /**
+   * End the event and record it if it is enabled and its duration exceeds the threshold.
+   * @param query the query.
+   * @param rows the number of rows read.
+   * @param columns the number of columns of a row.
+   */
+  public void complete(String query, long rows, int columns){
+    end();
+    if (shouldCommit()){
+      this.fingerprint = SQLFingerprint.of(query);
+      this.rows        = rows;
+      this.columns     = columns;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.metrics.SQLFingerprint;
+
+/**
+ * A Flight Recorder event covering the processing of a query by the database server. The event carries the
+ * {@link SQLFingerprint fingerprint} of the query rather than the query itself, so that no value is recorded.
+ * The fingerprint is only computed if the event is recorded.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+@Name("org.jdatabase.Query")
+@Label("SQL Query")
+@Category({"JDatabase", "Query"})
+@Description("The processing of a SQL query by the database server")
+public final class QueryEvent extends Event {
+
+  /**
+   * The type of a query producing a result set.
+   */
+  public static final String QUERY  = "query";
+
+  /**
+   * The type of a query updating the database.
+   */
+  public static final String UPDATE = "update";
+
+  /**
+   * The type of a batch of updates.
+   */
+  public static final String BATCH  = "batch";
+
+  /**
+   * The type of a metadata request (table headers, ...).
+   */
+  public static final String METADATA = "metadata";
+
+  /**
+   * The type of the query.
+   */
+  @Label("Type")
+  public String type;
+
+  /**
+   * The fingerprint of the query.
+   */
+  @Label("Fingerprint")
+  public String fingerprint;
+
+  /**
+   * The number of rows affected by the query.
+   */
+  @Label("Rows")
+  public long rows;
+
+  /**
+   * Create a new query event.
+   * @param type the type of the query.
+   */
+  public QueryEvent(String type){
+    this.type = type;
+  }
+
+  /**
+   * End the event and record it if it is enabled and its duration exceeds the threshold.
+   * @param query the query.
+   * @param rows the number of rows affected by the query.
+   */
+  public void complete(String query, long rows){
+    end();
+    if (shouldCommit()){
+      this.fingerprint = SQLFingerprint.of(query);
+      this.rows        = rows;
+      commit();
+    }
+  }
+}
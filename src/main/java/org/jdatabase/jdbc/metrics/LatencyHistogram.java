@@ -0,0 +1,235 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * A histogram of durations expressed in nanoseconds. The durations are counted within logarithmic buckets: each power of
+ * two is divided into {@value #SUB_BUCKETS} buckets, so that the percentiles computed from the histogram have a relative
+ * error lower than 13%. The memory used by a histogram is constant (about 4 KB) whatever the number of durations recorded.<br>
+ * A histogram can be updated by several threads without synchronization.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class LatencyHistogram {
+
+  /**
+   * The number of bits of the sub bucket index.
+   */
+  private static final int SUB_BITS = 3;
+
+  /**
+   * The number of buckets for each power of two.
+   */
+  public static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+  /**
+   * The counts of the buckets.
+   */
+  private AtomicLongArray buckets = null;
+
+  /**
+   * The number of durations recorded.
+   */
+  private LongAdder count         = null;
+
+  /**
+   * The sum of the durations recorded.
+   */
+  private LongAdder sum           = null;
+
+  /**
+   * The minimum duration recorded.
+   */
+  private AtomicLong min          = null;
+
+  /**
+   * The maximum duration recorded.
+   */
+  private AtomicLong max          = null;
+
+  /**
+   * Create a new empty histogram.
+   */
+  public LatencyHistogram(){
+    buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+    count   = new LongAdder();
+    sum     = new LongAdder();
+    min     = new AtomicLong(Long.MAX_VALUE);
+    max     = new AtomicLong(0);
+  }
+
+  /**
+   * Record a duration.
+   * @param nanos the duration in nanoseconds (negative durations are recorded as 0).
+   */
+  public void record(long nanos){
+    long value = Math.max(0, nanos);
+
+    buckets.incrementAndGet(index(value));
+    count.increment();
+    sum.add(value);
+    min.accumulateAndGet(value, Math::min);
+    max.accumulateAndGet(value, Math::max);
+  }
+
+  /**
+   * Reset the histogram.
+   */
+  public void reset(){
+    for(int i = 0; i < buckets.length(); i++){
+      buckets.set(i, 0);
+    }
+
+    count.reset();
+    sum.reset();
+    min.set(Long.MAX_VALUE);
+    max.set(0);
+  }
+
+  /**
+   * Get the number of durations recorded.
+   * @return the number of durations recorded.
+   */
+  public long getCount(){
+    return count.sum();
+  }
+
+  /**
+   * Get the sum of the durations recorded in nanoseconds.
+   * @return the sum of the durations recorded.
+   */
+  public long getSum(){
+    return sum.sum();
+  }
+
+  /**
+   * Get the duration under which the given fraction of the durations recorded are.
+   * @param quantile the fraction of the durations (between 0 and 1).
+   * @return the duration in nanoseconds or 0 if no duration is recorded.
+   */
+  public long getQuantile(double quantile){
+    return quantile(quantile, copyBuckets());
+  }
+
+  /**
+   * Get a snapshot of the histogram.
+   * @return a snapshot of the histogram.
+   */
+  public LatencySnapshot snapshot(){
+    long[] counts = copyBuckets();
+    long total    = 0;
+
+    for(long c : counts){
+      total += c;
+    }
+
+    if (total == 0){
+      return new LatencySnapshot(0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    return new LatencySnapshot(total, sum.sum(), Math.min(min.get(), max.get()), max.get(),
+                               quantile(0.5d, counts), quantile(0.9d, counts), quantile(0.99d, counts), quantile(0.999d, counts));
+  }
+
+  /**
+   * Copy the counts of the buckets.
+   * @return the counts of the buckets.
+   */
+  private long[] copyBuckets(){
+    long[] counts = new long[buckets.length()];
+
+    for(int i = 0; i < counts.length; i++){
+      counts[i] = buckets.get(i);
+    }
+
+    return counts;
+  }
+
+  /**
+   * Compute a quantile from the counts of the buckets. The result is the upper bound of the bucket holding the quantile,
+   * bounded by the maximum duration recorded.
+   * @param quantile the fraction of the durations.
+   * @param counts the counts of the buckets.
+   * @return the quantile.
+   */
+  private long quantile(double quantile, long[] counts){
+    long total = 0;
+    long rank  = 0;
+    long seen  = 0;
+
+    for(long c : counts){
+      total += c;
+    }
+
+    if (total == 0){
+      return 0;
+    }
+
+    rank = Math.max(1, (long)Math.ceil(Math.min(1.0d, Math.max(0.0d, quantile)) * total));
+
+    for(int i = 0; i < counts.length; i++){
+      seen += counts[i];
+      if (seen >= rank){
+        return Math.min(upperBound(i), max.get());
+      }
+    }
+
+    return max.get();
+  }
+
+  /**
+   * Get the index of the bucket of a duration.
+   * @param value the duration.
+   * @return the index of the bucket.
+   */
+  static int index(long value){
+    int shift = 0;
+
+    if (value < SUB_BUCKETS){
+      return (int)value;
+    }
+
+    shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+
+    return ((shift + 1) << SUB_BITS) + (int)((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /**
+   * Get the greatest duration of a bucket.
+   * @param index the index of the bucket.
+   * @return the greatest duration of the bucket.
+   */
+  static long upperBound(int index){
+    int shift = 0;
+
+    if (index < SUB_BUCKETS){
+      return index;
+    }
+
+    shift = (index >> SUB_BITS) - 1;
+
+    return (((long)(SUB_BUCKETS + (index & (SUB_BUCKETS - 1)))) << shift) + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,144 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.metrics;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * An immutable summary of a {@link LatencyHistogram latency histogram}. All the durations are expressed in nanoseconds.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class LatencySnapshot {
+
+  private long count  = 0;
+
+  private long total  = 0;
+
+  private long min    = 0;
+
+  private long max    = 0;
+
+  private long p50    = 0;
+
+  private long p90    = 0;
+
+  private long p99    = 0;
+
+  private long p999   = 0;
+
+  /**
+   * Create a new latency snapshot.
+   * @param count the number of durations.
+   * @param total the sum of the durations.
+   * @param min the minimum duration.
+   * @param max the maximum duration.
+   * @param p50 the median duration.
+   * @param p90 the 90th percentile.
+   * @param p99 the 99th percentile.
+   * @param p999 the 99.9th percentile.
+   */
+  public LatencySnapshot(long count, long total, long min, long max, long p50, long p90, long p99, long p999){
+    this.count = count;
+    this.total = total;
+    this.min   = min;
+    this.max   = max;
+    this.p50   = p50;
+    this.p90   = p90;
+    this.p99   = p99;
+    this.p999  = p999;
+  }
+
+  /**
+   * Get the number of durations.
+   * @return the number of durations.
+   */
+  public long getCount(){
+    return count;
+  }
+
+  /**
+   * Get the sum of the durations.
+   * @return the sum of the durations.
+   */
+  public long getTotal(){
+    return total;
+  }
+
+  /**
+   * Get the mean duration.
+   * @return the mean duration or 0 if there is no duration.
+   */
+  public long getMean(){
+    return (count > 0) ? total / count : 0;
+  }
+
+  /**
+   * Get the minimum duration.
+   * @return the minimum duration.
+   */
+  public long getMin(){
+    return min;
+  }
+
+  /**
+   * Get the maximum duration.
+   * @return the maximum duration.
+   */
+  public long getMax(){
+    return max;
+  }
+
+  /**
+   * Get the median duration.
+   * @return the median duration.
+   */
+  public long getP50(){
+    return p50;
+  }
+
+  /**
+   * Get the 90th percentile of the durations.
+   * @return the 90th percentile.
+   */
+  public long getP90(){
+    return p90;
+  }
+
+  /**
+   * Get the 99th percentile of the durations.
+   * @return the 99th percentile.
+   */
+  public long getP99(){
+    return p99;
+  }
+
+  /**
+   * Get the 99.9th percentile of the durations.
+   * @return the 99.9th percentile.
+   */
+  public long getP999(){
+    return p999;
+  }
+
+  @Override
+  public String toString(){
+    return "count="+count+" mean="+getMean()+"ns p50="+p50+"ns p90="+p90+"ns p99="+p99+"ns p999="+p999+"ns max="+max+"ns";
+  }
+}
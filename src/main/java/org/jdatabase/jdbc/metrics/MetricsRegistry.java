@@ -0,0 +1,331 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * The default {@link QueryMetrics query metrics}. The registry keeps, for each {@link SQLFingerprint query fingerprint}, a
+ * {@link LatencyHistogram latency histogram} and the number of rows, bytes and errors. It also counts the errors by
+ * {@link org.jdatabase.jdbc.JDBCConnectionException#getId() error code} and measures the time spent waiting for pooled
+ * connections.<br>
+ * The measures can be read with {@link #snapshot()} or exported through JMX with {@link #register(String)}.
+ * The number of fingerprints is bounded by the {@link #getMaximumFingerprints() maximum fingerprints}; once the bound is
+ * reached, the measures of the new queries are gathered under the {@link #OTHER} fingerprint.
+ * <pre>
+ * MetricsRegistry metrics = new MetricsRegistry();
+ * connection.setMetrics(metrics);
+ * ...
+ * for(QueryStatistics query : metrics.snapshot().getQueries()){
+ *   System.out.println(query);
+ * }
+ * </pre>
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class MetricsRegistry implements QueryMetrics, MetricsRegistryMXBean {
+
+  /**
+   * The default maximum number of fingerprints.
+   */
+  public static final int DEFAULT_MAXIMUM_FINGERPRINTS = 1000;
+
+  /**
+   * The fingerprint gathering the queries once the maximum number of fingerprints is reached.
+   */
+  public static final String OTHER = "<other>";
+
+  /**
+   * The maximum number of queries whose fingerprint is kept.
+   */
+  private static final int FINGERPRINT_CACHE_SIZE = 4096;
+
+  /**
+   * The measures by fingerprint.
+   */
+  private ConcurrentHashMap<String, Entry> entries       = null;
+
+  /**
+   * The fingerprints of the last queries.
+   */
+  private ConcurrentHashMap<String, String> fingerprints = null;
+
+  /**
+   * The number of errors by error code.
+   */
+  private ConcurrentHashMap<Integer, LongAdder> errors   = null;
+
+  /**
+   * The time spent waiting for pooled connections.
+   */
+  private LatencyHistogram poolWait                      = null;
+
+  /**
+   * The maximum number of fingerprints.
+   */
+  private int maximumFingerprints                        = DEFAULT_MAXIMUM_FINGERPRINTS;
+
+  /**
+   * The name under which the registry is registered within JMX.
+   */
+  private ObjectName objectName                          = null;
+
+  /**
+   * Create a new empty metrics registry.
+   */
+  public MetricsRegistry(){
+    entries      = new ConcurrentHashMap<String, Entry>();
+    fingerprints = new ConcurrentHashMap<String, String>();
+    errors       = new ConcurrentHashMap<Integer, LongAdder>();
+    poolWait     = new LatencyHistogram();
+  }
+
+  @Override
+  public void recordQuery(String query, long nanos, long rows){
+    Entry entry = entry(query);
+
+    entry.latency.record(nanos);
+    if (rows > 0){
+      entry.rows.add(rows);
+    }
+  }
+
+  @Override
+  public void recordFetch(String query, long rows, long bytes){
+    Entry entry = entry(query);
+
+    entry.rows.add(rows);
+    entry.bytes.add(bytes);
+  }
+
+  @Override
+  public void recordError(String query, int code){
+    entry(query).errors.increment();
+    errors.computeIfAbsent(code, c -> new LongAdder()).increment();
+  }
+
+  @Override
+  public void recordPoolWait(long nanos){
+    poolWait.record(nanos);
+  }
+
+  /**
+   * Get a copy of the measures.
+   * @return a copy of the measures.
+   */
+  public MetricsSnapshot snapshot(){
+    return new MetricsSnapshot(System.currentTimeMillis(), getQueries(), getErrorCounts(), poolWait.snapshot());
+  }
+
+  /**
+   * Get the latency histogram of the queries with the given fingerprint.
+   * @param fingerprint the {@link SQLFingerprint fingerprint} of the queries.
+   * @return the latency histogram or <code>null</code> if no such query was processed.
+   */
+  public LatencyHistogram getLatency(String fingerprint){
+    Entry entry = entries.get(fingerprint);
+    return (entry != null) ? entry.latency : null;
+  }
+
+  @Override
+  public List<QueryStatistics> getQueries(){
+    ArrayList<QueryStatistics> queries = new ArrayList<QueryStatistics>(entries.size());
+
+    for(Map.Entry<String, Entry> entry : entries.entrySet()){
+      queries.add(new QueryStatistics(entry.getKey(), entry.getValue().latency.snapshot(), entry.getValue().rows.sum(),
+                                      entry.getValue().bytes.sum(), entry.getValue().errors.sum()));
+    }
+
+    // Les requetes les plus couteuses en premier
+    queries.sort((q1, q2) -> Long.compare(q2.getLatency().getTotal(), q1.getLatency().getTotal()));
+
+    return queries;
+  }
+
+  @Override
+  public Map<Integer, Long> getErrorCounts(){
+    HashMap<Integer, Long> counts = new HashMap<Integer, Long>();
+
+    for(Map.Entry<Integer, LongAdder> entry : errors.entrySet()){
+      counts.put(entry.getKey(), entry.getValue().sum());
+    }
+
+    return counts;
+  }
+
+  @Override
+  public LatencySnapshot getPoolWait(){
+    return poolWait.snapshot();
+  }
+
+  @Override
+  public long getQueryCount(){
+    long count = 0;
+    for(Entry entry : entries.values()){
+      count += entry.latency.getCount();
+    }
+    return count;
+  }
+
+  @Override
+  public long getRowCount(){
+    long count = 0;
+    for(Entry entry : entries.values()){
+      count += entry.rows.sum();
+    }
+    return count;
+  }
+
+  @Override
+  public long getByteCount(){
+    long count = 0;
+    for(Entry entry : entries.values()){
+      count += entry.bytes.sum();
+    }
+    return count;
+  }
+
+  @Override
+  public long getErrorCount(){
+    long count = 0;
+    for(LongAdder adder : errors.values()){
+      count += adder.sum();
+    }
+    return count;
+  }
+
+  @Override
+  public void reset(){
+    entries.clear();
+    fingerprints.clear();
+    errors.clear();
+    poolWait.reset();
+  }
+
+  /**
+   * Register this registry within the platform MBean server under the name
+   * <code>org.jdatabase:type=Metrics,name=</code><i>name</i>.
+   * @param name the name of the registry.
+   * @return the name under which the registry is registered.
+   * @throws JMException if the registry cannot be registered.
+   * @see #unregister()
+   */
+  public synchronized ObjectName register(String name) throws JMException{
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    unregister();
+
+    objectName = new ObjectName("org.jdatabase:type=Metrics,name="+ObjectName.quote(name));
+    server.registerMBean(this, objectName);
+
+    return objectName;
+  }
+
+  /**
+   * Unregister this registry from the platform MBean server. This method does nothing if the registry is not registered.
+   * @throws JMException if the registry cannot be unregistered.
+   */
+  public synchronized void unregister() throws JMException{
+    if (objectName != null){
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+      objectName = null;
+    }
+  }
+
+  /**
+   * Get the maximum number of fingerprints.
+   * @return the maximum number of fingerprints.
+   */
+  public int getMaximumFingerprints(){
+    return maximumFingerprints;
+  }
+
+  /**
+   * Set the maximum number of fingerprints. Once the maximum is reached, the measures of the queries with a new fingerprint
+   * are gathered under the {@link #OTHER} fingerprint.
+   * @param maximumFingerprints the maximum number of fingerprints.
+   */
+  public void setMaximumFingerprints(int maximumFingerprints){
+    this.maximumFingerprints = Math.max(1, maximumFingerprints);
+  }
+
+  /**
+   * Get the measures of the given query.
+   * @param query the query.
+   * @return the measures of the query fingerprint.
+   */
+  private Entry entry(String query){
+    String fingerprint = null;
+    Entry entry        = null;
+
+    if (query == null){
+      fingerprint = SQLFingerprint.UNKNOWN;
+    } else {
+      fingerprint = fingerprints.get(query);
+
+      if (fingerprint == null){
+        fingerprint = SQLFingerprint.of(query);
+
+        // Les requetes generees avec leurs valeurs sont toutes differentes
+        if (fingerprints.size() >= FINGERPRINT_CACHE_SIZE){
+          fingerprints.clear();
+        }
+        fingerprints.put(query, fingerprint);
+      }
+    }
+
+    entry = entries.get(fingerprint);
+
+    if (entry == null){
+      if (entries.size() >= maximumFingerprints){
+        fingerprint = OTHER;
+      }
+
+      entry = entries.computeIfAbsent(fingerprint, f -> new Entry());
+    }
+
+    return entry;
+  }
+
+  /**
+   * The measures of a fingerprint.
+   */
+  private static class Entry {
+
+    private LatencyHistogram latency = new LatencyHistogram();
+
+    private LongAdder rows           = new LongAdder();
+
+    private LongAdder bytes          = new LongAdder();
+
+    private LongAdder errors         = new LongAdder();
+  }
+}
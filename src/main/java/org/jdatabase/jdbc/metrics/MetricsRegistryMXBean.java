@@ -0,0 +1,80 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * The JMX management interface of a {@link MetricsRegistry metrics registry}.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see MetricsRegistry#register(String)
+ */
+public interface MetricsRegistryMXBean {
+
+  /**
+   * Get the number of queries processed.
+   * @return the number of queries processed.
+   */
+  public long getQueryCount();
+
+  /**
+   * Get the number of rows fetched or affected.
+   * @return the number of rows.
+   */
+  public long getRowCount();
+
+  /**
+   * Get the estimated number of bytes read.
+   * @return the number of bytes.
+   */
+  public long getByteCount();
+
+  /**
+   * Get the number of errors.
+   * @return the number of errors.
+   */
+  public long getErrorCount();
+
+  /**
+   * Get the number of errors by error code.
+   * @return the number of errors by error code.
+   */
+  public Map<Integer, Long> getErrorCounts();
+
+  /**
+   * Get the statistics of the queries by fingerprint, sorted by decreasing total latency.
+   * @return the statistics of the queries.
+   */
+  public List<QueryStatistics> getQueries();
+
+  /**
+   * Get the time spent waiting for pooled connections.
+   * @return the time spent waiting for pooled connections.
+   */
+  public LatencySnapshot getPoolWait();
+
+  /**
+   * Reset all the measures.
+   */
+  public void reset();
+}
@@ -0,0 +1,151 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.metrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * An immutable copy of the measures of a {@link MetricsRegistry metrics registry} at a given time.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see MetricsRegistry#snapshot()
+ */
+public class MetricsSnapshot {
+
+  private long time                       = 0;
+
+  private List<QueryStatistics> queries   = null;
+
+  private Map<Integer, Long> errors       = null;
+
+  private LatencySnapshot poolWait        = null;
+
+  /**
+   * Create a new metrics snapshot.
+   * @param time the time of the snapshot (in milliseconds since the epoch).
+   * @param queries the statistics of the queries, by decreasing total latency.
+   * @param errors the number of errors by {@link org.jdatabase.jdbc.JDBCConnectionException#getId() error code}.
+   * @param poolWait the time spent waiting for pooled connections.
+   */
+  public MetricsSnapshot(long time, List<QueryStatistics> queries, Map<Integer, Long> errors, LatencySnapshot poolWait){
+    this.time     = time;
+    this.queries  = Collections.unmodifiableList(queries);
+    this.errors   = Collections.unmodifiableMap(errors);
+    this.poolWait = poolWait;
+  }
+
+  /**
+   * Get the time of the snapshot.
+   * @return the time of the snapshot in milliseconds since the epoch.
+   */
+  public long getTime(){
+    return time;
+  }
+
+  /**
+   * Get the statistics of the queries by fingerprint, sorted by decreasing total latency.
+   * @return the statistics of the queries.
+   */
+  public List<QueryStatistics> getQueries(){
+    return queries;
+  }
+
+  /**
+   * Get the statistics of the queries with the given fingerprint.
+   * @param fingerprint the {@link SQLFingerprint fingerprint} of the queries.
+   * @return the statistics of the queries or <code>null</code> if no such query was processed.
+   */
+  public QueryStatistics getQuery(String fingerprint){
+    for(QueryStatistics statistics : queries){
+      if (statistics.getFingerprint().equals(fingerprint)){
+        return statistics;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Get the number of errors by {@link org.jdatabase.jdbc.JDBCConnectionException#getId() error code}.
+   * @return the number of errors by error code.
+   */
+  public Map<Integer, Long> getErrorCounts(){
+    return errors;
+  }
+
+  /**
+   * Get the time spent waiting for pooled connections.
+   * @return the time spent waiting for pooled connections.
+   */
+  public LatencySnapshot getPoolWait(){
+    return poolWait;
+  }
+
+  /**
+   * Get the number of queries processed.
+   * @return the number of queries processed.
+   */
+  public long getQueryCount(){
+    long count = 0;
+    for(QueryStatistics statistics : queries){
+      count += statistics.getLatency().getCount();
+    }
+    return count;
+  }
+
+  /**
+   * Get the number of rows fetched or affected.
+   * @return the number of rows.
+   */
+  public long getRowCount(){
+    long count = 0;
+    for(QueryStatistics statistics : queries){
+      count += statistics.getRows();
+    }
+    return count;
+  }
+
+  /**
+   * Get the estimated number of bytes read.
+   * @return the number of bytes.
+   */
+  public long getByteCount(){
+    long count = 0;
+    for(QueryStatistics statistics : queries){
+      count += statistics.getBytes();
+    }
+    return count;
+  }
+
+  /**
+   * Get the number of errors.
+   * @return the number of errors.
+   */
+  public long getErrorCount(){
+    long count = 0;
+    for(Long c : errors.values()){
+      count += c;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,63 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.metrics;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * A receiver of the measures taken by a {@link org.jdatabase.jdbc.JDBCConnection JDBC connection}, its
+ * {@link org.jdatabase.jdbc.JDBCConnectionPool pool} and the {@link org.jdatabase.jdbc.sql.SQLToolkit toolkits} using it.
+ * The measures are sent to the metrics set with {@link org.jdatabase.jdbc.JDBCConnection#setMetrics(QueryMetrics)}; no
+ * measure is taken if no metrics are set.<br>
+ * The methods of this interface are called by the threads processing the queries and have to be thread safe and fast.
+ * {@link MetricsRegistry} is the default implementation.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public interface QueryMetrics {
+
+  /**
+   * Record the execution of a query.
+   * @param query the query.
+   * @param nanos the time spent by the server processing the query, in nanoseconds.
+   * @param rows the number of rows affected by the query (0 for a query producing a result set).
+   */
+  public void recordQuery(String query, long nanos, long rows);
+
+  /**
+   * Record the reading of the result of a query.
+   * @param query the query.
+   * @param rows the number of rows fetched.
+   * @param bytes the estimated number of bytes read.
+   */
+  public void recordFetch(String query, long rows, long bytes);
+
+  /**
+   * Record a query error.
+   * @param query the query in error (may be <code>null</code>).
+   * @param code the {@link org.jdatabase.jdbc.JDBCConnectionException#getId() error code}.
+   */
+  public void recordError(String query, int code);
+
+  /**
+   * Record the time spent waiting for a pooled connection.
+   * @param nanos the waiting time, in nanoseconds.
+   */
+  public void recordPoolWait(long nanos);
+}
@@ -0,0 +1,100 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.metrics;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * An immutable summary of the measures taken for the queries sharing a {@link SQLFingerprint fingerprint}.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class QueryStatistics {
+
+  private String fingerprint      = null;
+
+  private LatencySnapshot latency = null;
+
+  private long rows               = 0;
+
+  private long bytes              = 0;
+
+  private long errors             = 0;
+
+  /**
+   * Create new query statistics.
+   * @param fingerprint the fingerprint of the queries.
+   * @param latency the latency of the queries.
+   * @param rows the number of rows fetched or affected by the queries.
+   * @param bytes the estimated number of bytes read.
+   * @param errors the number of errors.
+   */
+  public QueryStatistics(String fingerprint, LatencySnapshot latency, long rows, long bytes, long errors){
+    this.fingerprint = fingerprint;
+    this.latency     = latency;
+    this.rows        = rows;
+    this.bytes       = bytes;
+    this.errors      = errors;
+  }
+
+  /**
+   * Get the fingerprint of the queries.
+   * @return the fingerprint of the queries.
+   */
+  public String getFingerprint(){
+    return fingerprint;
+  }
+
+  /**
+   * Get the latency of the queries.
+   * @return the latency of the queries.
+   */
+  public LatencySnapshot getLatency(){
+    return latency;
+  }
+
+  /**
+   * Get the number of rows fetched or affected by the queries.
+   * @return the number of rows.
+   */
+  public long getRows(){
+    return rows;
+  }
+
+  /**
+   * Get the estimated number of bytes read from the results of the queries.
+   * @return the number of bytes.
+   */
+  public long getBytes(){
+    return bytes;
+  }
+
+  /**
+   * Get the number of queries in error.
+   * @return the number of errors.
+   */
+  public long getErrors(){
+    return errors;
+  }
+
+  @Override
+  public String toString(){
+    return fingerprint+" ["+latency+" rows="+rows+" bytes="+bytes+" errors="+errors+"]";
+  }
+}
@@ -0,0 +1,193 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.metrics;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * The normalization of SQL queries into fingerprints. Two queries that only differ by their literal values, their
+ * whitespaces, their comments or the case of their keywords have the same fingerprint. For example, the queries
+ * <code>SELECT * FROM t WHERE id = 12</code> and <code>select *  from t where id=13</code> have both the fingerprint
+ * <code>select * from t where id = ?</code>. Lists of values such as <code>IN (1, 2, 3)</code> are collapsed into
+ * <code>in (?+)</code>.<br>
+ * Quoted identifiers keep their case, unquoted identifiers and keywords are lower cased.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public final class SQLFingerprint {
+
+  /**
+   * The fingerprint of a <code>null</code> query.
+   */
+  public static final String UNKNOWN = "?";
+
+  private SQLFingerprint(){
+  }
+
+  /**
+   * Compute the fingerprint of the given query.
+   * @param query the query.
+   * @return the fingerprint of the query or {@link #UNKNOWN} if the query is <code>null</code>.
+   */
+  public static String of(String query){
+    StringBuilder builder = null;
+    int length            = 0;
+    int i                 = 0;
+    int end               = 0;
+    char c                = 0;
+
+    if (query == null){
+      return UNKNOWN;
+    }
+
+    length  = query.length();
+    builder = new StringBuilder(Math.min(length, 256));
+
+    while(i < length){
+      c = query.charAt(i);
+
+      // Chaine de caracteres: remplacee par un parametre
+      if ((c == '\'') || ((c == 'E' || c == 'e' || c == 'N' || c == 'n') && (i + 1 < length) && (query.charAt(i + 1) == '\''))){
+        if (c != '\''){
+          i++;
+        }
+
+        end = i + 1;
+        while(end < length){
+          if (query.charAt(end) == '\\'){
+            end++;
+          } else if (query.charAt(end) == '\''){
+            if ((end + 1 < length) && (query.charAt(end + 1) == '\'')){
+              end++;
+            } else {
+              break;
+            }
+          }
+          end++;
+        }
+
+        appendToken(builder, "?");
+        i = end + 1;
+
+      // Identifiant entre guillemets: conserve tel quel
+      } else if ((c == '"') || (c == '`')){
+        end = query.indexOf(c, i + 1);
+        if (end < 0){
+          end = length - 1;
+        }
+
+        appendToken(builder, query.substring(i, end + 1));
+        i = end + 1;
+
+      // Commentaire de fin de ligne
+      } else if ((c == '-') && (i + 1 < length) && (query.charAt(i + 1) == '-')){
+        end = query.indexOf('\n', i);
+        i   = (end < 0) ? length : end + 1;
+
+      // Commentaire bloc
+      } else if ((c == '/') && (i + 1 < length) && (query.charAt(i + 1) == '*')){
+        end = query.indexOf("*/", i + 2);
+        i   = (end < 0) ? length : end + 2;
+
+      // Nombre: remplace par un parametre
+      } else if (Character.isDigit(c) || ((c == '.') && (i + 1 < length) && Character.isDigit(query.charAt(i + 1)))){
+        end = i;
+        while((end < length) && (Character.isLetterOrDigit(query.charAt(end)) || (query.charAt(end) == '.'))){
+          end++;
+        }
+
+        // Un signe moins precedant le nombre fait partie de la valeur
+        if ((builder.length() > 1) && (builder.charAt(builder.length() - 1) == '-')){
+          if (builder.charAt(builder.length() - 2) == '('){
+            builder.setLength(builder.length() - 1);
+          } else if ((builder.length() > 2) && isOperator(builder.charAt(builder.length() - 3))){
+            builder.setLength(builder.length() - 2);
+          }
+        }
+
+        appendToken(builder, "?");
+        i = end;
+
+      // Identifiant ou mot cle
+      } else if (Character.isLetter(c) || (c == '_') || (c == '$')){
+        end = i;
+        while((end < length) && (Character.isLetterOrDigit(query.charAt(end)) || (query.charAt(end) == '_') || (query.charAt(end) == '$') || (query.charAt(end) == '.'))){
+          end++;
+        }
+
+        appendToken(builder, query.substring(i, end).toLowerCase());
+        i = end;
+
+      } else if (Character.isWhitespace(c)){
+        i++;
+
+      // Fin de requete
+      } else if (c == ';'){
+        i++;
+
+      } else {
+        appendToken(builder, String.valueOf(c));
+        i++;
+      }
+    }
+
+    return collapseLists(builder.toString());
+  }
+
+  /**
+   * Append a token to the fingerprint. Tokens are separated by a single space, except around parenthesis and commas.
+   * @param builder the fingerprint.
+   * @param token the token to append.
+   */
+  private static void appendToken(StringBuilder builder, String token){
+    char last = 0;
+
+    if (builder.length() > 0){
+      last = builder.charAt(builder.length() - 1);
+
+      if ((last != '(') && !token.equals(")") && !token.equals(",") && !(last == '.' || token.startsWith("."))){
+        builder.append(' ');
+      }
+    }
+
+    builder.append(token);
+  }
+
+  /**
+   * Return <code>true</code> if the given character of a fingerprint ends an operator or opens a list.
+   * @param c the character.
+   * @return <code>true</code> if the given character is an operator.
+   */
+  private static boolean isOperator(char c){
+    return (c == '=') || (c == '<') || (c == '>') || (c == '(') || (c == ',') || (c == '+') || (c == '-') || (c == '*') || (c == '/');
+  }
+
+  /**
+   * Collapse the lists of parameters <code>(?, ?, ?)</code> into <code>(?+)</code>.
+   * @param fingerprint the fingerprint.
+   * @return the fingerprint with collapsed lists.
+   */
+  private static String collapseLists(String fingerprint){
+    if (fingerprint.indexOf("?, ?") < 0){
+      return fingerprint;
+    }
+
+    return fingerprint.replaceAll("\\(\\?(, \\?)+\\)", "(?+)");
+  }
+}
@@ -0,0 +1,82 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.mysql;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * The result of a MySQL bulk load processed with <code>LOAD DATA LOCAL INFILE</code>.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see MySQLToolKit#bulkLoad(String, java.io.InputStream)
+ */
+public class MySQLBulkLoadResult {
+
+  /**
+   * The number of rows loaded.
+   */
+  private long rowCount        = 0;
+
+  /**
+   * The warnings raised by the load.
+   */
+  private List<String> warnings = null;
+
+  /**
+   * Create a new bulk load result.
+   * @param rowCount the number of rows loaded.
+   * @param warnings the warnings raised by the load.
+   */
+  public MySQLBulkLoadResult(long rowCount, List<String> warnings){
+    this.rowCount = rowCount;
+    this.warnings = Collections.unmodifiableList(warnings);
+  }
+
+  /**
+   * Get the number of rows loaded.
+   * @return the number of rows loaded.
+   */
+  public long getRowCount(){
+    return rowCount;
+  }
+
+  /**
+   * Get the number of warnings raised by the load. The server keeps at most <code>max_error_count</code> warnings.
+   * @return the number of warnings.
+   */
+  public int getWarningCount(){
+    return warnings.size();
+  }
+
+  /**
+   * Get the warnings raised by the load (truncated values, rows skipped because of duplicated keys, ...).
+   * @return the warnings, formatted as <code>code: message</code>.
+   */
+  public List<String> getWarnings(){
+    return warnings;
+  }
+
+  @Override
+  public String toString(){
+    return rowCount+" rows loaded, "+warnings.size()+" warnings";
+  }
+}
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import org.jdatabase.JDatabase;
 import org.jdatabase.jdbc.sql.Catalog;
 import org.jdatabase.jdbc.sql.Database;
+import org.jdatabase.jdbc.sql.MetadataLoader;
 import org.jdatabase.jdbc.sql.Schema;
 import org.jdatabase.jdbc.sql.Server;
 import org.jdatabase.jdbc.sql.Table;
@@ -33,6 +34,11 @@ public class MySQLDatabase implements Database, Catalog, Schema{
    */
   private ArrayList<Table> tables = null;
   
+  /**
+   * The loader of the tables, <code>null</code> if the tables are not loaded on demand.
+   */
+  MetadataLoader<Table> loader    = null;
+  
   /**
    * Create a new database stored on a specified server and containing given tables
    * @param name the name of the database
@@ -116,13 +122,33 @@ public class MySQLDatabase implements Database, Catalog, Schema{
     return this;
   }
   
+  /**
+   * {@inheritDoc}<br>
+   * If the tables are loaded on demand, they are loaded on the first call.
+   * @throws IllegalStateException if the tables cannot be loaded.
+   */
   @Override
   public ArrayList<Table> getTables(){
+    if (loader != null){
+      return loader.get();
+    }
     return this.tables;
   }
   
+  /**
+   * Load the tables on demand using the given loader. The tables are loaded on the first call to {@link #getTables()}.
+   * @param loader the loader of the tables.
+   */
+  void setTableLoader(MetadataLoader<Table> loader){
+    this.loader = loader;
+  }
+  
   @Override
   public boolean addTable(Table table){
+    if (loader != null){
+      tables = loader.get();
+    }
+    
     if (table != null){
       if (tables != null){
         if (!tables.contains(table)){
@@ -142,6 +168,10 @@ public class MySQLDatabase implements Database, Catalog, Schema{
   
   @Override
   public boolean removeTable(Table table){
+    if (loader != null){
+      tables = loader.get();
+    }
+    
     if (tables != null){
       return tables.remove(table);
     }else{
@@ -0,0 +1,251 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.mysql;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * A stream that encodes rows in the default format of <code>LOAD DATA</code>: the values are separated by tabulations,
+ * the rows end with a line feed, the null values are written <code>\N</code> and the special characters are escaped
+ * with a backslash. The rows are read from the iterator and encoded as the stream is read.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+class MySQLRowInputStream extends InputStream {
+
+  /**
+   * The rows to encode.
+   */
+  private Iterator<Object[]> rows = null;
+
+  /**
+   * The encoding of the current row.
+   */
+  private StringBuilder line      = null;
+
+  /**
+   * The bytes of the current row.
+   */
+  private byte[] buffer           = null;
+
+  /**
+   * The number of bytes of the current row.
+   */
+  private int length              = 0;
+
+  /**
+   * The position of the next byte within the current row.
+   */
+  private int position            = 0;
+
+  /**
+   * The number of rows encoded.
+   */
+  private long rowCount           = 0;
+
+  /**
+   * Create a new stream on the given rows.
+   * @param rows the rows to encode.
+   */
+  MySQLRowInputStream(Iterator<Object[]> rows){
+    this.rows   = rows;
+    this.line   = new StringBuilder();
+    this.buffer = new byte[1024];
+  }
+
+  @Override
+  public int read() throws IOException{
+    if ((position >= length) && !nextRow()){
+      return -1;
+    }
+    return buffer[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException{
+    int count = 0;
+    int size  = 0;
+
+    if (len == 0){
+      return 0;
+    }
+
+    while(count < len){
+      if ((position >= length) && !nextRow()){
+        break;
+      }
+
+      size = Math.min(len - count, length - position);
+      System.arraycopy(buffer, position, b, off + count, size);
+      position += size;
+      count    += size;
+    }
+
+    return (count == 0) ? -1 : count;
+  }
+
+  /**
+   * Get the number of rows encoded.
+   * @return the number of rows encoded.
+   */
+  long getRowCount(){
+    return rowCount;
+  }
+
+  /**
+   * Encode the next row.
+   * @return <code>true</code> if a row is encoded, <code>false</code> if there is no more row.
+   * @throws IOException if the row cannot be read.
+   */
+  private boolean nextRow() throws IOException{
+    Object[] row = null;
+
+    try {
+      if (!rows.hasNext()){
+        return false;
+      }
+      row = rows.next();
+    } catch (RuntimeException e) {
+      throw new IOException("Cannot read row "+(rowCount + 1)+": "+e.getMessage(), e);
+    }
+
+    line.setLength(0);
+    length   = 0;
+    position = 0;
+
+    for(int i = 0; i < row.length; i++){
+      if (i > 0){
+        line.append('\t');
+      }
+
+      if (row[i] instanceof byte[]){
+        flushLine();
+        encode((byte[]) row[i]);
+      } else {
+        encode(row[i]);
+      }
+    }
+    line.append('\n');
+    flushLine();
+
+    rowCount++;
+
+    return true;
+  }
+
+  /**
+   * Encode a value as text.
+   * @param value the value to encode.
+   */
+  private void encode(Object value){
+    String text = null;
+    char c      = 0;
+
+    if (value == null){
+      line.append("\\N");
+      return;
+    }
+
+    // Les booleens sont stockes en TINYINT(1) par MySQL
+    if (value instanceof Boolean){
+      line.append(((Boolean) value) ? '1' : '0');
+      return;
+    }
+
+    text = value.toString();
+    for(int i = 0; i < text.length(); i++){
+      c = text.charAt(i);
+      switch(c){
+        case '\\':
+          line.append("\\\\");
+          break;
+        case '\t':
+          line.append("\\t");
+          break;
+        case '\n':
+          line.append("\\n");
+          break;
+        case '\r':
+          line.append("\\r");
+          break;
+        case '\0':
+          line.append("\\0");
+          break;
+        default:
+          line.append(c);
+      }
+    }
+  }
+
+  /**
+   * Encode a binary value. The bytes are written as is, except the special bytes that are escaped.
+   * @param value the value to encode.
+   */
+  private void encode(byte[] value){
+    ensureCapacity(length + 2 * value.length);
+
+    for(byte b : value){
+      switch(b){
+        case '\\':
+        case '\t':
+        case '\n':
+          buffer[length++] = '\\';
+          buffer[length++] = b;
+          break;
+        case 0:
+          buffer[length++] = '\\';
+          buffer[length++] = '0';
+          break;
+        default:
+          buffer[length++] = b;
+      }
+    }
+  }
+
+  /**
+   * Append the text under encoding to the bytes of the current row.
+   */
+  private void flushLine(){
+    byte[] bytes = null;
+
+    if (line.length() > 0){
+      bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+      ensureCapacity(length + bytes.length);
+      System.arraycopy(bytes, 0, buffer, length, bytes.length);
+      length += bytes.length;
+      line.setLength(0);
+    }
+  }
+
+  /**
+   * Ensure that the row buffer can hold the given number of bytes.
+   * @param capacity the number of bytes.
+   */
+  private void ensureCapacity(int capacity){
+    if (capacity > buffer.length){
+      buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+    }
+  }
+}
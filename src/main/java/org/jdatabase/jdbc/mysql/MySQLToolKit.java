@@ -16,25 +16,39 @@
 */
 package org.jdatabase.jdbc.mysql;
 
+import java.io.InputStream;
+import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.logging.Level;
 
 import org.jdatabase.JDatabase;
 import org.jdatabase.jdbc.ColumnHeader;
 import org.jdatabase.jdbc.JDBCConnection;
 import org.jdatabase.jdbc.JDBCConnectionException;
+import org.jdatabase.jdbc.RowCursor;
+import org.jdatabase.jdbc.jfr.QueryEvent;
 import org.jdatabase.jdbc.sql.Catalog;
 import org.jdatabase.jdbc.sql.Database;
+import org.jdatabase.jdbc.sql.MetadataCrawler;
+import org.jdatabase.jdbc.sql.MetadataLoader;
 import org.jdatabase.jdbc.sql.SQLToolkit;
 import org.jdatabase.jdbc.sql.Schema;
 import org.jdatabase.jdbc.sql.Server;
 import org.jdatabase.jdbc.sql.Table;
+import org.jdatabase.jdbc.sql.TablePage;
+import org.jdatabase.jdbc.sql.TablePager;
 import org.jorigin.Common;
 
+import com.mysql.cj.jdbc.JdbcStatement;
+
 
 /**
  * This class contains MySQL specific wrapper used with JDBC 
@@ -49,6 +63,16 @@ public class MySQLToolKit implements SQLToolkit{
    */
   private JDBCConnection connection = null;
   
+  /**
+   * Specify if the server tree is loaded on demand.
+   */
+  private boolean lazyLoading       = true;
+  
+  /**
+   * Specify if the next level of the server tree is loaded in background.
+   */
+  private boolean prefetch          = false;
+  
   
   /**
    * Create a new MySQL toolkit for JDBC using the given JDBC connection.
@@ -99,98 +123,183 @@ public class MySQLToolKit implements SQLToolkit{
   
   /**
    * Map the entire server. This method create a tree representing the server and
-   * the databases hosted. Each database is also mapped and the table contained in
-   * each databases are listed.
+   * the databases hosted. If the {@link #setLazyLoading(boolean) lazy loading} is enabled (default), 
+   * the databases and their tables are loaded on their first access, so that the server is mapped without 
+   * any query. Otherwise, each database is also mapped and the table contained in each databases are listed.
    * @return the server map
    * @throws JDBCConnectionException if an error occurs.
    */
   public Server mapServer()
   throws JDBCConnectionException{
-    Server server                 = null;
-    ArrayList<Database> databases = null;
-    
+    MySQLServer server = null;
     
     try {
       server = new MySQLServer(connection.getName(), connection.getConnection().getMetaData());
+    } catch (SQLException ex) {
+      server = new MySQLServer(connection.getName());
+    }
     
-    
-      try {
-        ResultSet rset = connection.getConnection().getMetaData().getCatalogs();
-
-        Common.logger.log(Level.INFO, "Catalogs: ");
-        while (rset.next()) {
-          Common.logger.log(Level.INFO, "  "+rset.getString("TABLE_CAT"));
-        }
-        rset.close();
-      } catch (SQLException e) {
-        // TODO Auto-generated catch block
-        e.printStackTrace();
-      }
+    if (lazyLoading){
+      final MySQLServer mapped        = server;
+      MetadataLoader<Database> loader = new MetadataLoader<Database>(() -> listDatabases(mapped));
       
-      try {
-        ResultSet rset = connection.getConnection().getMetaData().getSchemas();
-
-        Common.logger.log(Level.INFO, "Schemas: ");
-        while (rset.next()) {
-          Common.logger.log(Level.INFO, "  "+rset.getString("TABLE_SCHEM")+" ("+rset.getString("TABLE_CATALOG")+")");
-        }
-      } catch (SQLException e) {
-        // TODO Auto-generated catch block
-        e.printStackTrace();
-      }
-    
-      try {
-        ResultSet rset = connection.getConnection().getMetaData().getTables(null, null, null, null);
-
-        Common.logger.log(Level.INFO, "Tables: ");
-        while (rset.next()) {
-          Common.logger.log(Level.INFO, "  "+rset.getString("TABLE_NAME")+" schema: "+rset.getString("TABLE_SCHEM")+" catalog: "+rset.getString("TABLE_CAT"));
-        }
-      } catch (SQLException e) {
-        // TODO Auto-generated catch block
-        e.printStackTrace();
+      // Chargement des tables de chaque base en arriere plan, sur les connexions du pool
+      if (prefetch && connection.isPooled()){
+        loader.setPrefetch(connection.getAsyncExecutor(), database -> ((MySQLDatabase)database).loader);
       }
       
-    } catch (SQLException ex) {
-      server = new MySQLServer(connection.getName());
+      server.setDatabaseLoader(loader);
+    } else {
+      server.setDatabases(listDatabases(server));
     }
     
-    databases = listDatabases();
+    return server; 
+  }
+  
+  /**
+   * Map the entire server by loading all the levels of the tree in parallel. The databases are listed first, then
+   * the tables of each database are loaded by at most <code>parallelism</code> queries at once, each query running 
+   * on its own connection borrowed from the {@link JDBCConnection#isPooled() pool}. The number of connections used 
+   * is also bounded by the size of the pool. Without pool, all the listings would share the main connection, the 
+   * parallelism is then limited to 1. If the {@link #setLazyLoading(boolean) lazy loading} is disabled, the tree 
+   * is already fully loaded by {@link #mapServer()} and this method is equivalent to it.
+   * @param parallelism the number of queries processed at once.
+   * @return the server map.
+   * @throws JDBCConnectionException if an error occurs.
+   * @throws IllegalArgumentException if the parallelism is lower than 1.
+   * @see MetadataCrawler
+   */
+  public Server crawlServer(int parallelism)
+  throws JDBCConnectionException{
+    // Sans pool, toutes les listes sont faites sur la connexion principale
+    MetadataCrawler crawler = new MetadataCrawler(connection.getAsyncExecutor(), 
+                                                  connection.isPooled() ? parallelism : Math.min(parallelism, 1));
     
-    server.setDatabases(databases);
+    if (!lazyLoading){
+      return mapServer();
+    }
     
-    return server; 
+    return crawler.crawl(mapServer());
+  }
+  
+  /**
+   * Set if the server tree is loaded on demand. When the lazy loading is enabled, {@link #mapServer()} does not send 
+   * any query, the databases are listed on the first call to {@link Server#getDatabases()} and the tables of a 
+   * database are listed on the first call to {@link Schema#getTables()}. When the lazy loading is disabled, 
+   * the whole tree is loaded at once. The lazy loading is enabled by default.
+   * @param lazyLoading <code>true</code> if the server tree is loaded on demand, <code>false</code> otherwise.
+   * @see #setPrefetch(boolean)
+   */
+  public void setLazyLoading(boolean lazyLoading){
+    this.lazyLoading = lazyLoading;
+  }
+  
+  /**
+   * Return <code>true</code> if the server tree is loaded on demand.
+   * @return <code>true</code> if the server tree is loaded on demand, <code>false</code> otherwise.
+   * @see #setLazyLoading(boolean)
+   */
+  public boolean isLazyLoading(){
+    return lazyLoading;
+  }
+  
+  /**
+   * Set if the next level of the server tree is loaded in background when the tree is {@link #setLazyLoading(boolean) loaded on demand}.
+   * When the prefetch is enabled, the first access to the databases of the server triggers the loading of the tables of 
+   * each database by the {@link JDBCConnection#getAsyncExecutor() asynchronous executor} of the connection. 
+   * The prefetch is only applied if the connection is {@link JDBCConnection#isPooled() pooled}, each background listing 
+   * then borrowing a connection of the pool. Without pool, the listings would share the main connection with the caller 
+   * and the tree is only loaded on demand. The prefetch is disabled by default.
+   * @param prefetch <code>true</code> if the next level of the tree is loaded in background, <code>false</code> otherwise.
+   */
+  public void setPrefetch(boolean prefetch){
+    this.prefetch = prefetch;
+  }
+  
+  /**
+   * Return <code>true</code> if the next level of the server tree is loaded in background.
+   * @return <code>true</code> if the next level of the server tree is loaded in background, <code>false</code> otherwise.
+   * @see #setPrefetch(boolean)
+   */
+  public boolean isPrefetch(){
+    return prefetch;
   }
   
   /**
    * List all database accessible by a the user used to log on the database server.
    * @return the list of database accessible by the user.
    * @throws JDBCConnectionException if an error occurs.
+   * @see #listDatabases(Server)
    */
   public ArrayList<Database> listDatabases() 
   throws JDBCConnectionException{
-    ArrayList<Database> resultat = new ArrayList<Database>();
+    return listDatabases(new MySQLServer(connection.getName()));
+  }
+  
+  /**
+   * List all database accessible by a the user used to log on the database server given in parameter. 
+   * If the {@link #setLazyLoading(boolean) lazy loading} is enabled, only the names of the databases are listed
+   * and the tables of each database are loaded on their first access. Otherwise, the databases and their tables 
+   * are loaded by a single query on <code>information_schema</code>, whatever the number of databases hosted by the server.
+   * @param server the server hosting the databases to list.
+   * @return the list of database accessible by the user.
+   * @throws JDBCConnectionException if an error occurs.
+   */
+  @Override
+  public ArrayList<Database> listDatabases(Server server)
+  throws JDBCConnectionException{
+    
+    if (lazyLoading){
+      return listDatabaseNames(server);
+    }
+    
+    ArrayList<Database> resultat               = new ArrayList<Database>();
+    HashMap<String, MySQLDatabase> index       = new HashMap<String, MySQLDatabase>();
+    HashMap<String, ArrayList<Table>> tables   = new HashMap<String, ArrayList<Table>>();
     
     Statement statement  = null;
     ResultSet resultSet  = null;
-    String req           = null;
+    QueryEvent event     = new QueryEvent(QueryEvent.QUERY);
     
-    Server server     = null;
+    String dbName          = null;
+    String tableName       = null;
     MySQLDatabase database = null;
     
-    // Listage des bases de données
+    // Listage des bases de données et de leurs tables en une seule requete.
+    // La jointure externe conserve les bases ne contenant aucune table.
+    String req = "SELECT s.SCHEMA_NAME, t.TABLE_NAME"
+               + " FROM information_schema.SCHEMATA s"
+               + " LEFT JOIN information_schema.TABLES t ON t.TABLE_SCHEMA = s.SCHEMA_NAME"
+               + " ORDER BY s.SCHEMA_NAME, t.TABLE_NAME";
+    
     try {
       statement = connection.getConnection().createStatement();
-      resultSet = statement.executeQuery("SHOW DATABASES");
-      
-      server = new MySQLServer(connection.getName());
+      event.begin();
+      resultSet = statement.executeQuery(req);
+      event.complete(req, 0);
       
       while (resultSet.next()) {
+        dbName    = resultSet.getString(1);
+        tableName = resultSet.getString(2);
+        
         // On ignore le repertoire lost+found present dans les systeme linux
-        if(!resultSet.getString(1).equals("lost+found")){
-          database = new MySQLDatabase(resultSet.getString(1), server);
+        if ((dbName == null) || dbName.equals("lost+found")){
+          continue;
+        }
+        
+        // Les tables sont ajoutees directement a la liste de la base afin d'eviter
+        // le test d'unicite de addTable(Table), inutile ici.
+        database = index.get(dbName);
+        if (database == null){
+          tables.put(dbName, new ArrayList<Table>());
+          database = new MySQLDatabase(dbName, server, tables.get(dbName));
+          index.put(dbName, database);
           resultat.add(database);
         }
+        
+        if ((tableName != null) && !tableName.equals("lost+found")){
+          tables.get(dbName).add(new MySQLTable(tableName, database));
+        }
       }
       
       resultSet.close();
@@ -200,48 +309,86 @@ public class MySQLToolKit implements SQLToolkit{
       throw connection.processSQLException(
              ex, connection.getDbName(), connection.getDbUser(), 
              connection.getDbPassword(), connection.getDbServer(), 
-             connection.getDbPort(), connection.getDbType(), "SHOW DATABASES;");    
+             connection.getDbPort(), connection.getDbType(), req);    
     }
     
-    // Création de la liste des tables par base de données
-    for(int i = 0; i < resultat.size(); i++){
-      database = (MySQLDatabase)resultat.get(i);
+    index.clear();
+    tables.clear();
+    
+    resultSet = null;
+    statement = null;
+    database  = null;
+    
+    return resultat;  
+  }
+  
+  /**
+   * List the names of the databases accessible by the user. The tables of each database are loaded on their first access.
+   * @param server the server hosting the databases to list.
+   * @return the list of database accessible by the user.
+   * @throws JDBCConnectionException if an error occurs.
+   */
+  private ArrayList<Database> listDatabaseNames(Server server)
+  throws JDBCConnectionException{
+    ArrayList<Database> resultat = new ArrayList<Database>();
+    
+    Connection dbConnection = null;
+    Statement statement     = null;
+    ResultSet resultSet     = null;
+    QueryEvent event        = new QueryEvent(QueryEvent.QUERY);
+    
+    String dbName           = null;
+    
+    String req = "SELECT SCHEMA_NAME FROM information_schema.SCHEMATA ORDER BY SCHEMA_NAME";
+    
+    // La connexion est empruntee au pool car la liste peut etre chargee en arriere plan
+    dbConnection = connection.borrowConnection();
+    
+    try {
+      statement = dbConnection.createStatement();
+      event.begin();
+      resultSet = statement.executeQuery(req);
+      event.complete(req, 0);
       
-      try {
-        statement = connection.getConnection().createStatement();
-        if (database.getName() != null){
-          req       = "SHOW TABLES FROM `"+database.getName()+"`;";
-          resultSet = statement.executeQuery(req);
-        } else {
-          req       = "SHOW TABLES;";
-          resultSet = statement.executeQuery(req);
-        }
+      while (resultSet.next()) {
+        dbName = resultSet.getString(1);
         
-        while (resultSet.next()) {
-          // On ignore le repertoire lost+found present dans les systeme linux
-          if(!resultSet.getString(1).equals("lost+found")){
-            database.addTable(new MySQLTable(resultSet.getString(1), database));
-          }
+        // On ignore le repertoire lost+found present dans les systeme linux
+        if ((dbName != null) && !dbName.equals("lost+found")){
+          resultat.add(createLazyDatabase(dbName, server));
         }
-          
-        resultSet.close();
-        statement.close();
-        
-      } catch (SQLException ex)  {
-        throw connection.processSQLException(
-               ex, connection.getDbName(), connection.getDbUser(), 
-               connection.getDbPassword(), connection.getDbServer(), 
-               connection.getDbPort(), connection.getDbType(), req);    
       }
       
+      resultSet.close();
+      statement.close();
+      
+    } catch (SQLException ex)  {
+      throw connection.processSQLException(
+             ex, connection.getDbName(), connection.getDbUser(), 
+             connection.getDbPassword(), connection.getDbServer(), 
+             connection.getDbPort(), connection.getDbType(), req);    
+    } finally {
+      connection.releaseConnection(dbConnection);
     }
     
-    
     resultSet = null;
     statement = null;
-    server    = null;
     
-    return resultat;  
+    return resultat;
+  }
+  
+  /**
+   * Create a database whose tables are loaded on their first access.
+   * @param name the name of the database.
+   * @param server the server hosting the database.
+   * @return the database.
+   */
+  private MySQLDatabase createLazyDatabase(String name, Server server){
+    final MySQLDatabase database = new MySQLDatabase(name, server);
+    
+    database.setTableLoader(new MetadataLoader<Table>(() -> listTables((Schema)database)));
+    
+    return database;
   }
   
   
@@ -276,13 +423,16 @@ public class MySQLToolKit implements SQLToolkit{
     
     MySQLDatabase database    = null;
     
+    String req                = (dbName != null) ? "SHOW TABLES FROM "+dbName : "SHOW TABLES";
+    QueryEvent event          = new QueryEvent(QueryEvent.QUERY);
+    
     try {
       statement = connection.getConnection().createStatement();
+      event.begin();
+      resultSet = statement.executeQuery(req);
+      event.complete(req, 0);
       if (dbName != null){
-        resultSet = statement.executeQuery("SHOW TABLES FROM "+dbName);
         database = new MySQLDatabase(dbName, null);
-      } else {
-        resultSet = statement.executeQuery("SHOW TABLES");
       }
       
       while (resultSet.next()) {
@@ -319,12 +469,67 @@ public class MySQLToolKit implements SQLToolkit{
   public Object[][] getTableData(Table table)
   throws JDBCConnectionException{
     Object[][] result             = null;
-    String query                  = "SELECT * FROM ";
     Object[] line                 = null;
-    int columnCount               = 0;
-    ResultSet resultSet           = null;
+    RowCursor cursor              = null;
     ArrayList<Object[]> arrayList = null;
     
+    cursor = getTableCursor(table);
+    
+    // Si la table est nulle, pas de reqête
+    if (cursor == null){
+      return null;
+    }
+    
+    // Chaque ligne est stockée dans un tableau. Chaque tableau
+    // est stocké dans une liste de lignes
+    arrayList = new ArrayList<Object[]>();
+    try {
+      while((line = cursor.nextRow()) != null){
+        arrayList.add(line);
+      }
+    } finally {
+      cursor.close();
+    }
+    
+    // Si le resultat n'est pas nul, le tableau des resultats est cree
+    if (arrayList.size() > 0){
+      result = arrayList.toArray(new Object[arrayList.size()][cursor.getColumnCount()]);
+    } else {
+      result = null;
+    }
+    
+    arrayList.clear();
+    arrayList = null;
+    line      = null;
+    
+    return result;
+  }
+  
+  /**
+   * Open a cursor on the content of the given table. The rows are fetched by blocks of
+   * {@link RowCursor#DEFAULT_FETCH_SIZE} rows.
+   * @param table the table containing the data
+   * @return a cursor on the table rows or <code>null</code> if the table is <code>null</code>
+   * @throws JDBCConnectionException if an error occurs
+   * @see #getTableCursor(Table, int)
+   */
+  public RowCursor getTableCursor(Table table)
+  throws JDBCConnectionException{
+    return getTableCursor(table, RowCursor.DEFAULT_FETCH_SIZE);
+  }
+  
+  /**
+   * Open a cursor on the content of the given table. The rows are fetched by blocks of <code>fetchSize</code> rows.
+   * @param table the table containing the data
+   * @param fetchSize the number of rows fetched from the server at once
+   * @return a cursor on the table rows or <code>null</code> if the table is <code>null</code>
+   * @throws JDBCConnectionException if an error occurs
+   * @see #openCursor(String, int)
+   */
+  public RowCursor getTableCursor(Table table, int fetchSize)
+  throws JDBCConnectionException{
+    String query = "SELECT * FROM ";
+    
     // Si la table est nulle, pas de reqête
     if (table == null){
       return null;
@@ -340,35 +545,53 @@ public class MySQLToolKit implements SQLToolkit{
       query += table.getName();
     }
     
-    // Requete sur la table pour avoir toutes les données
-    // Chaque ligne est stockée dans un tableau. Chaque tableau
-    // est stocké dans une liste de lignes
+    return openCursor(query, fetchSize);
+  }
+  
+  /**
+   * Execute a query and open a cursor on its result. The MySQL driver fetches the rows by blocks only if
+   * the connection property <code>useCursorFetch</code> is enabled, the cursor therefore runs on a
+   * {@link JDBCConnection#borrowCursorConnection() cursor connection} if a fetch size is given.
+   * @param query the query to process
+   * @param fetchSize the number of rows fetched from the server at once
+   * @return a cursor on the query result
+   * @throws JDBCConnectionException if an error occurs during the query processing.
+   */
+  public RowCursor openCursor(String query, int fetchSize)
+  throws JDBCConnectionException{
+    Connection jdbcConnection = null;
+    Statement statement       = null;
+    ResultSet resultSet       = null;
+    boolean restoreAutoCommit = false;
+    long start                = 0;
+    QueryEvent event          = new QueryEvent(QueryEvent.QUERY);
+    
+    // Sans taille de fetch, le resultat est lu en une fois et ne necessite pas de curseur serveur
+    jdbcConnection = (fetchSize > 0) ? connection.borrowCursorConnection() : connection.borrowConnection();
+    
     try {
-      resultSet   = connection.executeQuery(query);
-      columnCount = resultSet.getMetaData().getColumnCount();
-      line        = new Object[columnCount];
-      arrayList   = new ArrayList<Object[]>();
+      statement = jdbcConnection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      statement.setFetchSize(fetchSize);
       
-      while(resultSet.next()){
-        for(int i = 1; i <= columnCount; i++){
-          line[i - 1] = resultSet.getObject(i);
-        }
-        arrayList.add(line);
-        line = new Object[columnCount];
-      }
+      event.begin();
+      start     = System.nanoTime();
+      resultSet = statement.executeQuery(query);
+      connection.recordQuery(query, start, 0);
+      event.complete(query, 0);
       
-      resultSet.close();
-      resultSet = null;
+      return new RowCursor(connection, jdbcConnection, statement, resultSet, query, restoreAutoCommit);
       
     } catch (SQLException ex) {
-      try {
-        resultSet.close();
-        resultSet = null;
-       
-      } catch (SQLException ex1) {
-        resultSet = null;
+      if (statement != null){
+        try {
+          statement.close();
+        } catch (SQLException ex1) {
+          statement = null;
+        }
       }
       
+      connection.releaseConnection(jdbcConnection);
+      
       throw connection.processSQLException(ex, 
           connection.getDbName(), 
           connection.getDbUser(), 
@@ -376,22 +599,141 @@ public class MySQLToolKit implements SQLToolkit{
           connection.getDbServer(), 
           connection.getDbPort(), 
           connection.getDbType(), 
-          "metadata.getColumns()");
+          query);
     }
+  }
+  
+  /**
+   * Read a page of the content of the given table. The rows are ordered by the primary key of the table
+   * and a page is read by seeking after the key of the last row of the previous page. If the table has no primary key,
+   * the page is read using <code>LIMIT / OFFSET</code>.
+   * @param table the table containing the data
+   * @param pageSize the maximum number of rows of the page
+   * @param token the token given by the previous page or <code>null</code> for the first page
+   * @return the page
+   * @throws JDBCConnectionException if an error occurs
+   * @see TablePager
+   */
+  @Override
+  public TablePage getTablePage(Table table, int pageSize, String token)
+  throws JDBCConnectionException{
+    return new TablePager(this, table).getPage(pageSize, token);
+  }
+  
+  /**
+   * Load the data read from the given stream into the given columns of a table using <code>LOAD DATA LOCAL INFILE</code>.
+   * The data has to be in the default format of <code>LOAD DATA</code> (values separated by tabulations, rows ended by a
+   * line feed, <code>\N</code> for null values, special characters escaped by a backslash) and encoded in UTF-8.
+   * @param table the table to load.
+   * @param columns the columns to load in the order of the data or <code>null</code> for all the columns of the table.
+   * @param input the stream that provides the data.
+   * @return the result of the load.
+   * @throws JDBCConnectionException if the data cannot be loaded.
+   * @see #bulkLoad(String, InputStream)
+   */
+  public MySQLBulkLoadResult bulkLoad(Table table, String[] columns, InputStream input)
+  throws JDBCConnectionException{
+    String query = "LOAD DATA LOCAL INFILE 'stream' INTO TABLE ";
     
-    // Si le resultat n'est pas nul, le tableau des resultats est cree
-    if ((arrayList != null) && (arrayList.size() > 0)){
-      result = arrayList.toArray(new Object[arrayList.size()][columnCount]);
+    // Si la base de données est connut, on lui faut précéder le nom de la table
+    if (table.getSchema() != null){
+      query += table.getSchema().getName()+"."+table.getName();
     } else {
-      result = null;
+      query += table.getName();
     }
     
-    arrayList.clear();
-    arrayList = null;
-    query     = null;
-    line      = null;
+    query += " CHARACTER SET utf8mb4";
     
-    return result;
+    if ((columns != null) && (columns.length > 0)){
+      query += " ("+String.join(", ", columns)+")";
+    }
+    
+    return bulkLoad(query, input);
+  }
+  
+  /**
+   * Load the given rows into the given columns of a table using <code>LOAD DATA LOCAL INFILE</code>. The rows are encoded
+   * while they are sent to the server, so that they are neither written to disk nor held in memory. A
+   * {@link RowCursor cursor} can be given to copy the content of a table or the result of a query, including a cursor of
+   * this toolkit: the load runs on its own connection (see {@link #bulkLoad(String, InputStream)}).
+   * The values are converted with their {@link Object#toString() string representation}, except the <code>null</code>
+   * values, the booleans (written <code>1</code> or <code>0</code>) and the byte arrays (written as is).
+   * @param table the table to load.
+   * @param columns the columns to load in the order of the row values or <code>null</code> for all the columns of the table.
+   * @param rows the rows to load.
+   * @return the result of the load.
+   * @throws JDBCConnectionException if the rows cannot be loaded.
+   */
+  public MySQLBulkLoadResult bulkLoad(Table table, String[] columns, Iterator<Object[]> rows)
+  throws JDBCConnectionException{
+    return bulkLoad(table, columns, new MySQLRowInputStream(rows));
+  }
+  
+  /**
+   * Process a <code>LOAD DATA LOCAL INFILE</code> command with the data read from the given stream. The stream is given
+   * to the driver in place of the file named by the command, so the data is sent to the server as it is read.<br>
+   * The driver property <code>allowLoadLocalInfile</code> (enabled by default by the driver used) and the server
+   * variable <code>local_infile</code> have to be enabled.<br>
+   * The load runs on a {@link JDBCConnection#borrowDedicatedConnection() dedicated connection} (a new physical connection
+   * if the JDBC connection is not pooled), so that the stream can be fed by a query running on the main connection.
+   * @param command the <code>LOAD DATA LOCAL INFILE</code> command.
+   * @param input the stream that provides the data.
+   * @return the result of the load, with the warnings raised by the server.
+   * @throws JDBCConnectionException if the data cannot be loaded.
+   */
+  public MySQLBulkLoadResult bulkLoad(String command, InputStream input)
+  throws JDBCConnectionException{
+    Connection jdbcConnection  = null;
+    Statement statement        = null;
+    SQLWarning warning         = null;
+    ArrayList<String> warnings = new ArrayList<String>();
+    long start                 = 0;
+    QueryEvent event           = new QueryEvent(QueryEvent.UPDATE);
+    long rows                  = 0;
+    
+    jdbcConnection = connection.borrowDedicatedConnection();
+    
+    try {
+      statement = jdbcConnection.createStatement();
+      statement.unwrap(JdbcStatement.class).setLocalInfileInputStream(input);
+      
+      event.begin();
+      start = System.nanoTime();
+      rows  = statement.executeLargeUpdate(command);
+      connection.recordQuery(command, start, rows);
+      event.complete(command, rows);
+      
+      warning = statement.getWarnings();
+      while(warning != null){
+        warnings.add(warning.getErrorCode()+": "+warning.getMessage());
+        warning = warning.getNextWarning();
+      }
+      
+      if (warnings.size() > 0){
+        Common.logger.log(Level.WARNING, command+": "+rows+" rows loaded with "+warnings.size()+" warnings");
+      }
+      
+      return new MySQLBulkLoadResult(rows, warnings);
+    } catch (SQLException ex) {
+      throw connection.processSQLException(ex, 
+          connection.getDbName(), 
+          connection.getDbUser(), 
+          connection.getDbPassword(), 
+          connection.getDbServer(), 
+          connection.getDbPort(), 
+          connection.getDbType(), 
+          command);
+    } finally {
+      if (statement != null){
+        try {
+          statement.close();
+        } catch (SQLException ex) {
+          statement = null;
+        }
+      }
+      
+      connection.releaseConnection(jdbcConnection);
+    }
   }
   
   /**
@@ -410,6 +752,10 @@ public class MySQLToolKit implements SQLToolkit{
     
     ArrayList<ColumnHeader> headers = null;
     
+    QueryEvent event = new QueryEvent(QueryEvent.METADATA);
+    
+    event.begin();
+    
     //  Si la table est inexistante, on ne peut rien retourner
     if (table == null){
       System.out.println("[MySQLJDBCToolkit] getTableHeader(Table) no table available ");
@@ -486,6 +832,8 @@ public class MySQLToolKit implements SQLToolkit{
     
     System.out.println("[MySQLJDBCToolkit] getTableHeader(Table) headers: "+headers);
     
+    event.complete("metadata.getColumns()", (headers != null) ? headers.size() : 0);
+    
     // Transformation de la liste en tableau
     if (headers != null){
       result =  headers.toArray(new ColumnHeader[headers.size()]);
@@ -1024,18 +1372,16 @@ public class MySQLToolKit implements SQLToolkit{
     Statement statement  = null;
     ResultSet resultSet  = null;
    
-    long t0 = System.currentTimeMillis();
-    long tn = 0;
+    long start           = 0;
+    QueryEvent event     = new QueryEvent(QueryEvent.QUERY);
     
     try {
       statement = connection.getConnection().createStatement();
+      event.begin();
+      start     = System.nanoTime();
       resultSet = statement.executeQuery(query);
-
-//      statement.close();
-    
-      tn = System.currentTimeMillis();
-      
-      System.out.println("[MySQLToolkit] [executeQuery] request processed by server in "+(tn-t0)+" ms");
+      connection.recordQuery(query, start, 0);
+      event.complete(query, 0);
     } catch (SQLException ex) {
       
       
@@ -1064,11 +1410,17 @@ public class MySQLToolKit implements SQLToolkit{
     
     boolean resultat    = false;
     Statement statement  = null;
-   
+    long start           = 0;
+    QueryEvent event     = new QueryEvent(QueryEvent.UPDATE);
+    int count            = 0;
     
     try {
       statement = connection.getConnection().createStatement();
-      statement.executeUpdate(query);
+      event.begin();
+      start     = System.nanoTime();
+      count     = statement.executeUpdate(query);
+      connection.recordQuery(query, start, count);
+      event.complete(query, count);
         
       resultat = true;
         
@@ -1243,13 +1595,6 @@ public class MySQLToolKit implements SQLToolkit{
     return null;
   }
 
-  @Override
-  public ArrayList<Database> listDatabases(Server server)
-      throws JDBCConnectionException {
-    // TODO Auto-generated method stub
-    return null;
-  }
-
   @Override
   public ArrayList<Schema> listSchemas(Database database)
       throws JDBCConnectionException {
@@ -1257,11 +1602,62 @@ public class MySQLToolKit implements SQLToolkit{
     return null;
   }
 
+  /**
+   * List the tables of the given schema. As a MySQL database is also a schema, the tables of the database are listed.
+   * The tables are attached to the given schema.
+   * @param schema the schema (database) containing the tables to list.
+   * @return the list of the tables of the schema accessible by the user.
+   * @throws JDBCConnectionException if an error occurs.
+   */
   @Override
   public ArrayList<Table> listTables(Schema schema)
       throws JDBCConnectionException {
-    // TODO Auto-generated method stub
-    return null;
+    ArrayList<Table> resultat = new ArrayList<Table>();
+    
+    Connection dbConnection     = null;
+    PreparedStatement statement = null;
+    ResultSet resultSet         = null;
+    QueryEvent event            = new QueryEvent(QueryEvent.QUERY);
+    
+    String tableName            = null;
+    
+    String req = "SELECT TABLE_NAME FROM information_schema.TABLES WHERE TABLE_SCHEMA = ? ORDER BY TABLE_NAME";
+    
+    // La connexion est empruntee au pool car la liste peut etre chargee en arriere plan
+    dbConnection = connection.borrowConnection();
+    
+    try {
+      statement = dbConnection.prepareStatement(req);
+      statement.setString(1, schema.getName());
+      event.begin();
+      resultSet = statement.executeQuery();
+      event.complete(req, 0);
+      
+      while (resultSet.next()) {
+        tableName = resultSet.getString(1);
+        
+        // On ignore le repertoire lost+found present dans les systeme linux
+        if ((tableName != null) && !tableName.equals("lost+found")){
+          resultat.add(new MySQLTable(tableName, schema));
+        }
+      }
+      
+      resultSet.close();
+      statement.close();
+      
+    } catch (SQLException ex)  {
+      throw connection.processSQLException(
+             ex, connection.getDbName(), connection.getDbUser(), 
+             connection.getDbPassword(), connection.getDbServer(), 
+             connection.getDbPort(), connection.getDbType(), req);    
+    } finally {
+      connection.releaseConnection(dbConnection);
+    }
+    
+    resultSet = null;
+    statement = null;
+    
+    return resultat;
   }
   
 }
@@ -17,6 +17,7 @@
 */
 package org.jdatabase.jdbc.odbc;
 
+import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -27,6 +28,8 @@ import org.jdatabase.JDatabase;
 import org.jdatabase.jdbc.ColumnHeader;
 import org.jdatabase.jdbc.JDBCConnection;
 import org.jdatabase.jdbc.JDBCConnectionException;
+import org.jdatabase.jdbc.RowCursor;
+import org.jdatabase.jdbc.jfr.QueryEvent;
 import org.jdatabase.jdbc.mysql.MySQLColumnHeader;
 import org.jdatabase.jdbc.sql.Catalog;
 import org.jdatabase.jdbc.sql.Database;
@@ -34,6 +37,8 @@ import org.jdatabase.jdbc.sql.SQLToolkit;
 import org.jdatabase.jdbc.sql.Schema;
 import org.jdatabase.jdbc.sql.Server;
 import org.jdatabase.jdbc.sql.Table;
+import org.jdatabase.jdbc.sql.TablePage;
+import org.jdatabase.jdbc.sql.TablePager;
 
 /**
  * 
@@ -118,15 +123,16 @@ public class ODBCToolkit implements SQLToolkit {
     Statement statement  = null;
     ResultSet resultSet  = null;
    
+    long start           = 0;
+    QueryEvent event     = new QueryEvent(QueryEvent.QUERY);
+   
     try {
       statement = connection.getConnection().createStatement();
+      event.begin();
+      start     = System.nanoTime();
       resultSet = statement.executeQuery(query);
-
-//      statement.close();
-    
-//      tn = System.currentTimeMillis();
-      
-//      System.out.println("[ODBCToolkit] [executeQuery] request processed by server in "+(tn-t0)+" ms");
+      connection.recordQuery(query, start, 0);
+      event.complete(query, 0);
     } catch (SQLException ex) {
       
       
@@ -142,11 +148,17 @@ public class ODBCToolkit implements SQLToolkit {
   public boolean executeUpdate(String query) throws JDBCConnectionException {
     boolean resultat    = false;
     Statement statement  = null;
-   
+    long start           = 0;
+    QueryEvent event     = new QueryEvent(QueryEvent.UPDATE);
+    int count            = 0;
     
     try {
       statement = connection.getConnection().createStatement();
-      statement.executeUpdate(query);
+      event.begin();
+      start     = System.nanoTime();
+      count     = statement.executeUpdate(query);
+      connection.recordQuery(query, start, count);
+      event.complete(query, count);
         
       resultat = true;
         
@@ -172,12 +184,49 @@ public class ODBCToolkit implements SQLToolkit {
 
   public Object[][] getTableData(Table table) throws JDBCConnectionException {
     Object[][] result             = null;
-    String query                  = "SELECT * FROM ";
     Object[] line                 = null;
-    int columnCount               = 0;
-    ResultSet resultSet           = null;
+    RowCursor cursor              = null;
     ArrayList<Object[]> arrayList = null;
     
+    cursor = getTableCursor(table);
+    
+    // Si la table est nulle, pas de reqête
+    if (cursor == null){
+      return null;
+    }
+    
+    // Chaque ligne est stockée dans un tableau. Chaque tableau
+    // est stocké dans une liste de lignes
+    arrayList = new ArrayList<Object[]>();
+    try {
+      while((line = cursor.nextRow()) != null){
+        arrayList.add(line);
+      }
+    } finally {
+      cursor.close();
+    }
+    
+    // Si le resultat n'est pas nul, le tableau des resultats est cree
+    if (arrayList.size() > 0){
+      result = arrayList.toArray(new Object[arrayList.size()][cursor.getColumnCount()]);
+    } else {
+      result = null;
+    }
+    
+    arrayList.clear();
+    arrayList = null;
+    line      = null;
+    
+    return result;
+  }
+  
+  public RowCursor getTableCursor(Table table) throws JDBCConnectionException {
+    return getTableCursor(table, RowCursor.DEFAULT_FETCH_SIZE);
+  }
+  
+  public RowCursor getTableCursor(Table table, int fetchSize) throws JDBCConnectionException {
+    String query = "SELECT * FROM ";
+    
     // Si la table est nulle, pas de reqête
     if (table == null){
       return null;
@@ -185,45 +234,52 @@ public class ODBCToolkit implements SQLToolkit {
     
     // Si la base de données est connut, on lui faut précéder le nom de la table
     if (table.getSchema() != null){
-      query +=table.getName();
+      query += table.getName();
       
     // Dans le cas contraire, on fait confiance à la connection d'être
     // initialisée avec la bonne base.
     } else {
       query += table.getName();
     }
-    
+
     query += ";";
     
-    // Requete sur la table pour avoir toutes les données
-    // Chaque ligne est stockée dans un tableau. Chaque tableau
-    // est stocké dans une liste de lignes
+    return openCursor(query, fetchSize);
+  }
+  
+  public RowCursor openCursor(String query, int fetchSize) throws JDBCConnectionException {
+    Connection jdbcConnection = null;
+    Statement statement       = null;
+    ResultSet resultSet       = null;
+    boolean restoreAutoCommit = false;
+    long start                = 0;
+    QueryEvent event          = new QueryEvent(QueryEvent.QUERY);
+    
+    jdbcConnection = connection.borrowConnection();
+    
     try {
-      resultSet   = connection.executeQuery(query);
-      columnCount = resultSet.getMetaData().getColumnCount();
-      line        = new Object[columnCount];
-      arrayList   = new ArrayList<Object[]>();
+      statement = jdbcConnection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      statement.setFetchSize(fetchSize);
       
-      while(resultSet.next()){
-        for(int i = 1; i <= columnCount; i++){
-          line[i - 1] = resultSet.getObject(i);
-        }
-        arrayList.add(line);
-        line = new Object[columnCount];
-      }
+      event.begin();
+      start     = System.nanoTime();
+      resultSet = statement.executeQuery(query);
+      connection.recordQuery(query, start, 0);
+      event.complete(query, 0);
       
-      resultSet.close();
-      resultSet = null;
+      return new RowCursor(connection, jdbcConnection, statement, resultSet, query, restoreAutoCommit);
       
     } catch (SQLException ex) {
-      try {
-        resultSet.close();
-        resultSet = null;
-       
-      } catch (SQLException ex1) {
-        resultSet = null;
+      if (statement != null){
+        try {
+          statement.close();
+        } catch (SQLException ex1) {
+          statement = null;
+        }
       }
       
+      connection.releaseConnection(jdbcConnection);
+      
       throw connection.processSQLException(ex, 
           connection.getDbName(), 
           connection.getDbUser(), 
@@ -231,22 +287,12 @@ public class ODBCToolkit implements SQLToolkit {
           connection.getDbServer(), 
           connection.getDbPort(), 
           connection.getDbType(), 
-          "metadata.getColumns()");
+          query);
     }
-    
-    // Si le resultat n'est pas nul, le tableau des resultats est cree
-    if ((arrayList != null) && (arrayList.size() > 0)){
-      result = arrayList.toArray(new Object[arrayList.size()][columnCount]);
-    } else {
-      result = null;
-    }
-    
-    arrayList.clear();
-    arrayList = null;
-    query     = null;
-    line      = null;
-    
-    return result;
+  }
+
+  public TablePage getTablePage(Table table, int pageSize, String token) throws JDBCConnectionException {
+    return new TablePager(this, table).getPage(pageSize, token);
   }
 
   public ColumnHeader[] getTableHeader(Table table)
@@ -257,6 +303,10 @@ public class ODBCToolkit implements SQLToolkit {
     
     ArrayList<ColumnHeader> headers = null;
     
+    QueryEvent event = new QueryEvent(QueryEvent.METADATA);
+    
+    event.begin();
+    
     //  Si la table est inexistante, on ne peut rien retourner
     if (table == null){
 //      System.out.println("[ODBCToolkit] getTableHeader(Table) no table available ");
@@ -333,6 +383,8 @@ public class ODBCToolkit implements SQLToolkit {
     
 //    System.out.println("[MySQLJDBCToolkit] getTableHeader(Table) headers: "+headers);
     
+    event.complete("metadata.getColumns()", (headers != null) ? headers.size() : 0);
+    
     // Transformation de la liste en tableau
     if (headers != null){
       result =  headers.toArray(new ColumnHeader[headers.size()]);
@@ -0,0 +1,323 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.pgsql;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.logging.Level;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.JDBCConnection;
+import org.jdatabase.jdbc.JDBCConnectionException;
+import org.jdatabase.jdbc.RowSink;
+import org.jdatabase.jdbc.jfr.QueryEvent;
+import org.jorigin.Common;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * A bulk load of rows into a PostgreSQL table using <code>COPY ... FROM STDIN</code>. The rows given to
+ * {@link #accept(Object[])} are encoded in the COPY text format and streamed to the server by blocks, without any
+ * <code>INSERT</code> query. The rows are committed by the server when the load is {@link #close() closed}.<br>
+ * The load holds a {@link JDBCConnection#borrowDedicatedConnection() dedicated connection}, which is given back (or closed if
+ * the JDBC connection is not pooled) when the load is closed, so that the rows can be read from a cursor of the same toolkit:
+ * <pre>
+ * try (PGSQLBulkLoad load = toolkit.openBulkLoad(target, null);
+ *      RowCursor cursor = toolkit.getTableCursor(source)){
+ *   cursor.drainTo(load);
+ * }
+ * </pre>
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see PGSQLToolKit#openBulkLoad(org.jdatabase.jdbc.sql.Table, String[])
+ */
+public class PGSQLBulkLoad implements RowSink, AutoCloseable {
+
+  /**
+   * The default size of the block sent to the server (in bytes).
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 65536;
+
+  /**
+   * The hexadecimal digits used to encode binary values.
+   */
+  private static final char[] HEX            = "0123456789abcdef".toCharArray();
+
+  /**
+   * The JDBC connection that provides the database connection.
+   */
+  private JDBCConnection owner               = null;
+
+  /**
+   * The database connection used by the load.
+   */
+  private Connection connection              = null;
+
+  /**
+   * The COPY operation.
+   */
+  private CopyIn copy                        = null;
+
+  /**
+   * The COPY command.
+   */
+  private String command                     = null;
+
+  /**
+   * The block under construction.
+   */
+  private byte[] block                       = null;
+
+  /**
+   * The number of bytes within the block.
+   */
+  private int blockSize                      = 0;
+
+  /**
+   * The row under encoding.
+   */
+  private StringBuilder line                 = null;
+
+  /**
+   * The number of rows given to the load.
+   */
+  private long rowCount                      = 0;
+
+  /**
+   * The start time of the load (in nanoseconds).
+   */
+  private long start                         = 0;
+
+  /**
+   * The Flight Recorder event covering the load.
+   */
+  private QueryEvent event                   = null;
+
+  /**
+   * Specify if the load is closed.
+   */
+  private boolean closed                     = false;
+
+  /**
+   * Create a new bulk load.
+   * @param owner the JDBC connection that provides the database connection.
+   * @param connection the database connection used by the load. It is given back to the owner using
+   *        {@link JDBCConnection#releaseConnection(Connection)} when the load is closed.
+   * @param copy the COPY operation, started in text format.
+   * @param command the COPY command.
+   * @param blockSize the size of the block sent to the server (in bytes).
+   */
+  PGSQLBulkLoad(JDBCConnection owner, Connection connection, CopyIn copy, String command, int blockSize){
+    this.owner      = owner;
+    this.connection = connection;
+    this.copy       = copy;
+    this.command    = command;
+    this.block      = new byte[Math.max(blockSize, 1024)];
+    this.line       = new StringBuilder();
+    this.event      = new QueryEvent(QueryEvent.UPDATE);
+    this.event.begin();
+    this.start      = System.nanoTime();
+  }
+
+  /**
+   * Add a row to the load. The values are converted with their {@link Object#toString() string representation}, except
+   * the <code>null</code> values and the byte arrays that are encoded as <code>bytea</code>.
+   * @param row the row to add.
+   * @throws JDBCConnectionException if the load is closed or if the row cannot be sent.
+   */
+  @Override
+  public void accept(Object[] row) throws JDBCConnectionException{
+    byte[] bytes = null;
+
+    if (closed){
+      throw new JDBCConnectionException("Bulk load "+command+" is closed", JDBCConnectionException.NATIVE_SERVER_EXCEPTION);
+    }
+
+    line.setLength(0);
+    for(int i = 0; i < row.length; i++){
+      if (i > 0){
+        line.append('\t');
+      }
+      encode(row[i]);
+    }
+    line.append('\n');
+
+    bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+
+    if (blockSize + bytes.length > block.length){
+      flush();
+    }
+
+    // Une ligne plus grande qu'un bloc est envoyee directement
+    if (bytes.length > block.length){
+      write(bytes, bytes.length);
+    } else {
+      System.arraycopy(bytes, 0, block, blockSize, bytes.length);
+      blockSize += bytes.length;
+    }
+
+    rowCount++;
+  }
+
+  /**
+   * Send the remaining rows, end the COPY operation and give back the database connection. This method does nothing if
+   * the load is already closed.
+   * @throws JDBCConnectionException if the rows cannot be sent or if the server rejects them. In this case, no row is loaded.
+   */
+  @Override
+  public void close() throws JDBCConnectionException{
+    if (closed){
+      return;
+    }
+
+    try {
+      flush();
+      rowCount = copy.endCopy();
+      owner.recordQuery(command, start, rowCount);
+      event.complete(command, rowCount);
+    } catch (SQLException ex) {
+      cancel();
+      throw owner.processSQLException(ex, owner.getDbName(), owner.getDbUser(), owner.getDbPassword(),
+                                      owner.getDbServer(), owner.getDbPort(), owner.getDbType(), command);
+    } finally {
+      release();
+    }
+  }
+
+  /**
+   * Cancel the load. The rows already sent are discarded by the server and the database connection is given back.
+   */
+  public void cancel(){
+    try {
+      if (copy.isActive()){
+        copy.cancelCopy();
+      }
+    } catch (SQLException ex) {
+      Common.logger.log(Level.WARNING, "Cannot cancel "+command+": "+ex.getMessage(), ex);
+    } finally {
+      release();
+    }
+  }
+
+  /**
+   * Get the number of rows given to the load (or loaded by the server once the load is closed).
+   * @return the number of rows.
+   */
+  public long getRowCount(){
+    return rowCount;
+  }
+
+  /**
+   * Get the COPY command processed by the load.
+   * @return the COPY command.
+   */
+  public String getCommand(){
+    return command;
+  }
+
+  /**
+   * Return <code>true</code> if the load is closed.
+   * @return <code>true</code> if the load is closed, <code>false</code> otherwise.
+   */
+  public boolean isClosed(){
+    return closed;
+  }
+
+  /**
+   * Encode a value in the COPY text format.
+   * @param value the value to encode.
+   */
+  private void encode(Object value){
+    String text = null;
+    char c      = 0;
+
+    if (value == null){
+      line.append("\\N");
+      return;
+    }
+
+    // bytea en hexadecimal, la barre oblique est doublee par le format texte
+    if (value instanceof byte[]){
+      line.append("\\\\x");
+      for(byte b : (byte[]) value){
+        line.append(HEX[(b >> 4) & 0x0F]).append(HEX[b & 0x0F]);
+      }
+      return;
+    }
+
+    text = value.toString();
+
+    for(int i = 0; i < text.length(); i++){
+      c = text.charAt(i);
+      switch(c){
+        case '\\':
+          line.append("\\\\");
+          break;
+        case '\t':
+          line.append("\\t");
+          break;
+        case '\n':
+          line.append("\\n");
+          break;
+        case '\r':
+          line.append("\\r");
+          break;
+        default:
+          line.append(c);
+      }
+    }
+  }
+
+  /**
+   * Send the block to the server.
+   * @throws JDBCConnectionException if the block cannot be sent.
+   */
+  private void flush() throws JDBCConnectionException{
+    if (blockSize > 0){
+      write(block, blockSize);
+      blockSize = 0;
+    }
+  }
+
+  /**
+   * Send bytes to the server.
+   * @param bytes the bytes to send.
+   * @param length the number of bytes to send.
+   * @throws JDBCConnectionException if the bytes cannot be sent.
+   */
+  private void write(byte[] bytes, int length) throws JDBCConnectionException{
+    try {
+      copy.writeToCopy(bytes, 0, length);
+    } catch (SQLException ex) {
+      cancel();
+      throw owner.processSQLException(ex, owner.getDbName(), owner.getDbUser(), owner.getDbPassword(),
+                                      owner.getDbServer(), owner.getDbPort(), owner.getDbType(), command);
+    }
+  }
+
+  /**
+   * Give back the database connection.
+   */
+  private void release(){
+    if (!closed){
+      closed = true;
+      owner.releaseConnection(connection);
+    }
+  }
+}
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import org.jdatabase.JDatabase;
 import org.jdatabase.jdbc.sql.Catalog;
 import org.jdatabase.jdbc.sql.Database;
+import org.jdatabase.jdbc.sql.MetadataLoader;
 import org.jdatabase.jdbc.sql.Schema;
 import org.jdatabase.jdbc.sql.Server;
 
@@ -25,6 +26,11 @@ public class PGSQLDatabase implements Database{
   
   private Server server       = null;
   
+  /**
+   * The loader of the schemas, <code>null</code> if the schemas are not loaded on demand.
+   */
+  MetadataLoader<Schema> loader = null;
+  
   /**
    * Create a new PostgreSQL {@link org.jdatabase.jdbc.sql.Database database} hosted by the given
    * {@link org.jdatabase.jdbc.sql.Server server}.
@@ -86,20 +92,36 @@ public class PGSQLDatabase implements Database{
 
   @Override
   public boolean addSchema(Schema schema) {
-    if (!schemas.contains(schema)){
-      return schemas.add(schema);  
+    if (!getSchemas().contains(schema)){
+      return getSchemas().add(schema);  
     } else {
       return false;
     }
   }
 
+  /**
+   * {@inheritDoc}<br>
+   * If the schemas are loaded on demand, they are loaded on the first call.
+   * @throws IllegalStateException if the schemas cannot be loaded.
+   */
   @Override
   public ArrayList<Schema> getSchemas() {
+    if (loader != null){
+      return loader.get();
+    }
     return schemas;
   }
 
   @Override
   public boolean removeSchema(Schema schema) {
-    return schemas.remove(schema);
+    return getSchemas().remove(schema);
+  }
+  
+  /**
+   * Load the schemas on demand using the given loader. The schemas are loaded on the first call to {@link #getSchemas()}.
+   * @param loader the loader of the schemas.
+   */
+  void setSchemaLoader(MetadataLoader<Schema> loader){
+    this.loader = loader;
   }
 }
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 
 import org.jdatabase.jdbc.sql.Catalog;
 import org.jdatabase.jdbc.sql.Database;
+import org.jdatabase.jdbc.sql.MetadataLoader;
 import org.jdatabase.jdbc.sql.Schema;
 import org.jdatabase.jdbc.sql.Server;
 import org.jdatabase.jdbc.sql.Table;
@@ -22,6 +23,11 @@ public class PGSQLSchema implements Schema{
   
   private ArrayList<Table> tables = null;
   
+  /**
+   * The loader of the tables, <code>null</code> if the tables are not loaded on demand.
+   */
+  MetadataLoader<Table> loader    = null;
+  
   /**
    * Create a new schema with the given <code>name</code> within 
    * the given {@link org.jdatabase.jdbc.sql.Catalog catalog} 
@@ -50,8 +56,8 @@ public class PGSQLSchema implements Schema{
   
   @Override
   public boolean addTable(Table table) {
-    if (!tables.contains(table)){
-      return tables.add(table);
+    if (!getTables().contains(table)){
+      return getTables().add(table);
     } else {
       return false;
     }
@@ -59,7 +65,7 @@ public class PGSQLSchema implements Schema{
 
   @Override
   public boolean removeTable(Table table) {
-    return tables.remove(table);
+    return getTables().remove(table);
   }
   
   @Override
@@ -90,8 +96,24 @@ public class PGSQLSchema implements Schema{
     return name;
   }
 
+  /**
+   * {@inheritDoc}<br>
+   * If the tables are loaded on demand, they are loaded on the first call.
+   * @throws IllegalStateException if the tables cannot be loaded.
+   */
   @Override
   public ArrayList<Table> getTables() {
+    if (loader != null){
+      return loader.get();
+    }
     return tables;
   }
+  
+  /**
+   * Load the tables on demand using the given loader. The tables are loaded on the first call to {@link #getTables()}.
+   * @param loader the loader of the tables.
+   */
+  void setTableLoader(MetadataLoader<Table> loader){
+    this.loader = loader;
+  }
 }
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 
 import org.jdatabase.JDatabase;
 import org.jdatabase.jdbc.sql.Database;
+import org.jdatabase.jdbc.sql.MetadataLoader;
 import org.jdatabase.jdbc.sql.Server;
 
 /**
@@ -19,6 +20,11 @@ public class PGSQLServer implements Server{
   ArrayList<Database> databases = null;
   DatabaseMetaData metaData     = null;
   
+  /**
+   * The loader of the databases, <code>null</code> if the databases are not loaded on demand.
+   */
+  MetadataLoader<Database> loader = null;
+  
   /**
    * Create a new  server containing a list of databases and metadatas
    * @param name the name of the server
@@ -70,17 +76,33 @@ public class PGSQLServer implements Server{
    * @param databases the databases hosted by the server
    */
   public void setDatabases(ArrayList<Database> databases){
-    this.databases = databases;
+    if (loader != null){
+      loader.set(databases);
+    } else {
+      this.databases = databases;
+    }
   }
   
   /**
-   * Get the databases hosted by the server.
+   * Get the databases hosted by the server. If the databases are loaded on demand, they are loaded on the first call.
    * @return the databases hosted by the server.
+   * @throws IllegalStateException if the databases cannot be loaded.
    */
   public ArrayList<Database> getDatabases(){
+    if (loader != null){
+      return loader.get();
+    }
     return this.databases;
   }
   
+  /**
+   * Load the databases on demand using the given loader. The databases are loaded on the first call to {@link #getDatabases()}.
+   * @param loader the loader of the databases.
+   */
+  void setDatabaseLoader(MetadataLoader<Database> loader){
+    this.loader = loader;
+  }
+  
   /**
    * Get the metadata associated with the server
    * @return the metadata of the server.
@@ -95,8 +117,8 @@ public class PGSQLServer implements Server{
    * @return true if the database is added, false otherwise
    */
   public boolean addDatabase(Database database){
-    if ((!databases.contains(database)) && (database != null)){
-      return databases.add(database);
+    if ((!getDatabases().contains(database)) && (database != null)){
+      return getDatabases().add(database);
     } else {
       return false;
     }
@@ -109,6 +131,6 @@ public class PGSQLServer implements Server{
    * otherwise
    */
   public boolean removeDatabase(Database database){
-    return databases.remove(database);
+    return getDatabases().remove(database);
   }
 }
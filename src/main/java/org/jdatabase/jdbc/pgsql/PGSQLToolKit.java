@@ -1,25 +1,38 @@
 package org.jdatabase.jdbc.pgsql;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.logging.Level;
 
 import org.jdatabase.JDatabase;
 import org.jdatabase.jdbc.ColumnHeader;
 import org.jdatabase.jdbc.JDBCConnection;
 import org.jdatabase.jdbc.JDBCConnectionException;
+import org.jdatabase.jdbc.RowCursor;
+import org.jdatabase.jdbc.jfr.QueryEvent;
 import org.jdatabase.jdbc.mysql.MySQLColumnHeader;
 import org.jdatabase.jdbc.sql.Catalog;
 import org.jdatabase.jdbc.sql.Database;
+import org.jdatabase.jdbc.sql.MetadataCrawler;
+import org.jdatabase.jdbc.sql.MetadataLoader;
 import org.jdatabase.jdbc.sql.SQLToolkit;
 import org.jdatabase.jdbc.sql.Schema;
 import org.jdatabase.jdbc.sql.Server;
 import org.jdatabase.jdbc.sql.Table;
+import org.jdatabase.jdbc.sql.TablePage;
+import org.jdatabase.jdbc.sql.TablePager;
 import org.jorigin.Common;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
 
 /**
  * 
@@ -30,11 +43,36 @@ import org.jorigin.Common;
  */
 public class PGSQLToolKit implements SQLToolkit{
 
+  /**
+   * The COPY text format (tab separated values, <code>\N</code> for null values).
+   */
+  public static final int COPY_TEXT   = 0;
+  
+  /**
+   * The COPY CSV format.
+   */
+  public static final int COPY_CSV    = 1;
+  
+  /**
+   * The COPY binary format.
+   */
+  public static final int COPY_BINARY = 2;
+
   /**
    * The JDBC connection used by this toolkit
    */
   private JDBCConnection connection = null;
   
+  /**
+   * Specify if the server tree is loaded on demand.
+   */
+  private boolean lazyLoading       = true;
+  
+  /**
+   * Specify if the next level of the server tree is loaded in background.
+   */
+  private boolean prefetch          = false;
+  
   /**
    * Create a new PostgreSQL toolkit.
    * @param connection the connection to the database.
@@ -43,10 +81,16 @@ public class PGSQLToolKit implements SQLToolkit{
     this.connection = connection;
   }
 
+  /**
+   * Map the entire server. If the {@link #setLazyLoading(boolean) lazy loading} is enabled (default), the databases, 
+   * the schemas and the tables are loaded on their first access, so that the server is mapped without any query.
+   * Otherwise, the databases are listed with the schemas and the tables of the current database.
+   * @return the server map.
+   * @throws JDBCConnectionException if an error occurs.
+   */
   @Override
   public Server mapServer() throws JDBCConnectionException {
-    Server server                 = null;
-    ArrayList<Database> databases = null;
+    PGSQLServer server = null;
     
     try {
       server = new PGSQLServer(connection.getName(), connection.getConnection().getMetaData());
@@ -55,13 +99,93 @@ public class PGSQLToolKit implements SQLToolkit{
       server = new PGSQLServer(connection.getName());
     }
     
-    databases = listDatabases(server);
-    
-    server.setDatabases(databases);
+    if (lazyLoading){
+      final PGSQLServer mapped        = server;
+      MetadataLoader<Database> loader = new MetadataLoader<Database>(() -> listDatabases(mapped));
+      
+      // Chargement des schemas de la base courante en arriere plan, sur les connexions du pool
+      if (prefetch && connection.isPooled()){
+        loader.setPrefetch(connection.getAsyncExecutor(), database -> ((PGSQLDatabase)database).loader);
+      }
+      
+      server.setDatabaseLoader(loader);
+    } else {
+      server.setDatabases(listDatabases(server));
+    }
     
     return server; 
   }
   
+  /**
+   * Map the entire server by loading all the levels of the tree in parallel. The databases are listed first, then
+   * the schemas of the current database and the tables of each schema are loaded by at most <code>parallelism</code> queries at once, each query running 
+   * on its own connection borrowed from the {@link JDBCConnection#isPooled() pool}. The number of connections used 
+   * is also bounded by the size of the pool. Without pool, all the listings would share the main connection, the 
+   * parallelism is then limited to 1. If the {@link #setLazyLoading(boolean) lazy loading} is disabled, the tree 
+   * is already fully loaded by {@link #mapServer()} and this method is equivalent to it.
+   * @param parallelism the number of queries processed at once.
+   * @return the server map.
+   * @throws JDBCConnectionException if an error occurs.
+   * @throws IllegalArgumentException if the parallelism is lower than 1.
+   * @see MetadataCrawler
+   */
+  public Server crawlServer(int parallelism)
+  throws JDBCConnectionException{
+    // Sans pool, toutes les listes sont faites sur la connexion principale
+    MetadataCrawler crawler = new MetadataCrawler(connection.getAsyncExecutor(), 
+                                                  connection.isPooled() ? parallelism : Math.min(parallelism, 1));
+    
+    if (!lazyLoading){
+      return mapServer();
+    }
+    
+    return crawler.crawl(mapServer());
+  }
+  
+  /**
+   * Set if the server tree is loaded on demand. When the lazy loading is enabled, {@link #mapServer()} does not send 
+   * any query, the databases are listed on the first call to {@link Server#getDatabases()}, the schemas of the current 
+   * database on the first call to {@link Database#getSchemas()} and the tables of a schema on the first call to 
+   * {@link Schema#getTables()}. When the lazy loading is disabled, the whole tree is loaded at once. 
+   * The lazy loading is enabled by default.
+   * @param lazyLoading <code>true</code> if the server tree is loaded on demand, <code>false</code> otherwise.
+   * @see #setPrefetch(boolean)
+   */
+  public void setLazyLoading(boolean lazyLoading){
+    this.lazyLoading = lazyLoading;
+  }
+  
+  /**
+   * Return <code>true</code> if the server tree is loaded on demand.
+   * @return <code>true</code> if the server tree is loaded on demand, <code>false</code> otherwise.
+   * @see #setLazyLoading(boolean)
+   */
+  public boolean isLazyLoading(){
+    return lazyLoading;
+  }
+  
+  /**
+   * Set if the next level of the server tree is loaded in background when the tree is {@link #setLazyLoading(boolean) loaded on demand}.
+   * When the prefetch is enabled, the first access to the children of a node (databases of the server, schemas of the 
+   * current database) triggers the loading of the children of each child by the {@link JDBCConnection#getAsyncExecutor() asynchronous executor} 
+   * of the connection. The prefetch is only applied if the connection is {@link JDBCConnection#isPooled() pooled}, each 
+   * background listing then borrowing a connection of the pool. Without pool, the listings would share the main connection 
+   * with the caller and the tree is only loaded on demand. The prefetch is disabled by default.
+   * @param prefetch <code>true</code> if the next level of the tree is loaded in background, <code>false</code> otherwise.
+   */
+  public void setPrefetch(boolean prefetch){
+    this.prefetch = prefetch;
+  }
+  
+  /**
+   * Return <code>true</code> if the next level of the server tree is loaded in background.
+   * @return <code>true</code> if the next level of the server tree is loaded in background, <code>false</code> otherwise.
+   * @see #setPrefetch(boolean)
+   */
+  public boolean isPrefetch(){
+    return prefetch;
+  }
+  
   @Override
   public Database createDatabase(String dbName, Server server) throws JDBCConnectionException {
     
@@ -101,16 +225,16 @@ public class PGSQLToolKit implements SQLToolkit{
     Statement statement  = null;
     ResultSet resultSet  = null;
    
-    long t0 = System.currentTimeMillis();
-    long tn = 0;
+    long start           = 0;
+    QueryEvent event     = new QueryEvent(QueryEvent.QUERY);
     
     try {
       statement = connection.getConnection().createStatement();
+      event.begin();
+      start     = System.nanoTime();
       resultSet = statement.executeQuery(query);
-    
-      tn = System.currentTimeMillis();
-      
-      Common.logger.log(Level.FINE, "Request "+query+" processed by server in "+(tn-t0)+" ms");
+      connection.recordQuery(query, start, 0);
+      event.complete(query, 0);
     } catch (SQLException ex) {
       
       
@@ -128,20 +252,21 @@ public class PGSQLToolKit implements SQLToolkit{
     boolean resultat    = false;
     Statement statement  = null;
    
-    long t0 = System.currentTimeMillis();
-    long tn = 0;
+    long start           = 0;
+    QueryEvent event     = new QueryEvent(QueryEvent.UPDATE);
+    int count            = 0;
     
     try {
       statement = connection.getConnection().createStatement();
-      statement.executeUpdate(query);
+      event.begin();
+      start     = System.nanoTime();
+      count     = statement.executeUpdate(query);
+      connection.recordQuery(query, start, count);
+      event.complete(query, count);
         
-      tn = System.currentTimeMillis();
-      
       resultat = true;
         
       statement.close();
-    
-      Common.logger.log(Level.FINE, "Update "+query+" processed by server in "+(tn-t0)+" ms");
     } catch (SQLException ex) {
       resultat = false;
       
@@ -164,12 +289,51 @@ public class PGSQLToolKit implements SQLToolkit{
   @Override
   public Object[][] getTableData(Table table) throws JDBCConnectionException {
     Object[][] result             = null;
-    String query                  = "SELECT * FROM ";
     Object[] line                 = null;
-    int columnCount               = 0;
-    ResultSet resultSet           = null;
+    RowCursor cursor              = null;
     ArrayList<Object[]> arrayList = null;
     
+    cursor = getTableCursor(table);
+    
+    // Si la table est nulle, pas de reqête
+    if (cursor == null){
+      return null;
+    }
+    
+    // Chaque ligne est stockée dans un tableau. Chaque tableau
+    // est stocké dans une liste de lignes
+    arrayList = new ArrayList<Object[]>();
+    try {
+      while((line = cursor.nextRow()) != null){
+        arrayList.add(line);
+      }
+    } finally {
+      cursor.close();
+    }
+    
+    // Si le resultat n'est pas nul, le tableau des resultats est cree
+    if (arrayList.size() > 0){
+      result = arrayList.toArray(new Object[arrayList.size()][cursor.getColumnCount()]);
+    } else {
+      result = null;
+    }
+    
+    arrayList.clear();
+    arrayList = null;
+    line      = null;
+    
+    return result;
+  }
+  
+  @Override
+  public RowCursor getTableCursor(Table table) throws JDBCConnectionException {
+    return getTableCursor(table, RowCursor.DEFAULT_FETCH_SIZE);
+  }
+  
+  @Override
+  public RowCursor getTableCursor(Table table, int fetchSize) throws JDBCConnectionException {
+    String query = "SELECT * FROM ";
+    
     // Si la table est nulle, pas de reqête
     if (table == null){
       return null;
@@ -185,35 +349,69 @@ public class PGSQLToolKit implements SQLToolkit{
       query += table.getName();
     }
     
-    // Requete sur la table pour avoir toutes les données
-    // Chaque ligne est stockée dans un tableau. Chaque tableau
-    // est stocké dans une liste de lignes
+    return openCursor(query, fetchSize);
+  }
+  
+  /**
+   * Execute a query and open a cursor on its result. The PostgreSQL driver fetches the rows by blocks only within
+   * a transaction, so the auto commit of the connection is disabled until the cursor is closed. The cursor runs on a
+   * {@link JDBCConnection#borrowDedicatedConnection() dedicated connection} (a new physical connection if the connection
+   * is not pooled), so that its transaction is not shared with the other queries.
+   * @param query the query to process
+   * @param fetchSize the number of rows fetched from the server at once
+   * @return a cursor on the query result
+   * @throws JDBCConnectionException if an error occurs during the query processing.
+   */
+  @Override
+  public RowCursor openCursor(String query, int fetchSize) throws JDBCConnectionException {
+    Connection jdbcConnection = null;
+    Statement statement       = null;
+    ResultSet resultSet       = null;
+    boolean restoreAutoCommit = false;
+    long start                = 0;
+    QueryEvent event          = new QueryEvent(QueryEvent.QUERY);
+    
+    // La transaction du curseur ne doit pas etre partagee avec la connexion principale
+    jdbcConnection = connection.borrowDedicatedConnection();
+    
     try {
-      resultSet   = connection.executeQuery(query);
-      columnCount = resultSet.getMetaData().getColumnCount();
-      line        = new Object[columnCount];
-      arrayList   = new ArrayList<Object[]>();
-      
-      while(resultSet.next()){
-        for(int i = 1; i <= columnCount; i++){
-          line[i - 1] = resultSet.getObject(i);
-        }
-        arrayList.add(line);
-        line = new Object[columnCount];
+      // Le pilote PostgreSQL n'utilise un curseur serveur qu'au sein d'une transaction
+      if (jdbcConnection.getAutoCommit()){
+        jdbcConnection.setAutoCommit(false);
+        restoreAutoCommit = true;
       }
       
-      resultSet.close();
-      resultSet = null;
+      statement = jdbcConnection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      statement.setFetchSize(fetchSize);
+      
+      event.begin();
+      start     = System.nanoTime();
+      resultSet = statement.executeQuery(query);
+      connection.recordQuery(query, start, 0);
+      event.complete(query, 0);
+      
+      return new RowCursor(connection, jdbcConnection, statement, resultSet, query, restoreAutoCommit);
       
     } catch (SQLException ex) {
-      try {
-        resultSet.close();
-        resultSet = null;
-       
-      } catch (SQLException ex1) {
-        resultSet = null;
+      if (statement != null){
+        try {
+          statement.close();
+        } catch (SQLException ex1) {
+          statement = null;
+        }
+      }
+      
+      if (restoreAutoCommit){
+        try {
+          jdbcConnection.rollback();
+          jdbcConnection.setAutoCommit(true);
+        } catch (SQLException ex1) {
+          Common.logger.log(Level.WARNING, "Cannot restore auto commit: "+ex1.getMessage(), ex1);
+        }
       }
       
+      connection.releaseConnection(jdbcConnection);
+      
       throw connection.processSQLException(ex, 
           connection.getDbName(), 
           connection.getDbUser(), 
@@ -221,22 +419,203 @@ public class PGSQLToolKit implements SQLToolkit{
           connection.getDbServer(), 
           connection.getDbPort(), 
           connection.getDbType(), 
-          "metadata.getColumns()");
+          query);
     }
+  }
+
+  @Override
+  public TablePage getTablePage(Table table, int pageSize, String token) throws JDBCConnectionException {
+    return new TablePager(this, table).getPage(pageSize, token);
+  }
+
+  /**
+   * Load the data read from the given stream into a table using <code>COPY ... FROM STDIN</code>. The stream is sent to
+   * the server as it is read, without any <code>INSERT</code> query.
+   * @param table the table to load.
+   * @param input the stream that provides the data.
+   * @param format the format of the data ({@link #COPY_TEXT}, {@link #COPY_CSV} or {@link #COPY_BINARY}).
+   * @return the number of rows loaded.
+   * @throws JDBCConnectionException if the data cannot be read or loaded.
+   * @see #bulkLoad(Table, String[], InputStream, int)
+   */
+  public long bulkLoad(Table table, InputStream input, int format) throws JDBCConnectionException {
+    return bulkLoad(table, null, input, format);
+  }
+  
+  /**
+   * Load the data read from the given stream into the given columns of a table using <code>COPY ... FROM STDIN</code>.
+   * The stream is sent to the server as it is read, without any <code>INSERT</code> query.
+   * @param table the table to load.
+   * @param columns the columns to load in the order of the data or <code>null</code> for all the columns of the table.
+   * @param input the stream that provides the data.
+   * @param format the format of the data ({@link #COPY_TEXT}, {@link #COPY_CSV} or {@link #COPY_BINARY}).
+   * @return the number of rows loaded.
+   * @throws JDBCConnectionException if the data cannot be read or loaded.
+   */
+  public long bulkLoad(Table table, String[] columns, InputStream input, int format) throws JDBCConnectionException {
+    return bulkLoad("COPY "+copyTarget(table, columns)+" FROM STDIN"+copyOptions(format), input);
+  }
+  
+  /**
+   * Process a <code>COPY ... FROM STDIN</code> command with the data read from the given stream.
+   * @param command the COPY command.
+   * @param input the stream that provides the data.
+   * @return the number of rows loaded.
+   * @throws JDBCConnectionException if the data cannot be read or loaded.
+   */
+  public long bulkLoad(String command, InputStream input) throws JDBCConnectionException {
+    Connection jdbcConnection = connection.borrowDedicatedConnection();
+    QueryEvent event          = new QueryEvent(QueryEvent.UPDATE);
+    long start                = 0;
+    long rows                 = 0;
     
-    // Si le resultat n'est pas nul, le tableau des resultats est cree
-    if ((arrayList != null) && (arrayList.size() > 0)){
-      result = arrayList.toArray(new Object[arrayList.size()][columnCount]);
-    } else {
-      result = null;
+    try {
+      event.begin();
+      start = System.nanoTime();
+      rows  = copyManager(jdbcConnection).copyIn(command, input);
+      connection.recordQuery(command, start, rows);
+      event.complete(command, rows);
+      return rows;
+    } catch (SQLException ex) {
+      throw connection.processSQLException(ex, connection.getDbName(), connection.getDbUser(), connection.getDbPassword(),
+                                           connection.getDbServer(), connection.getDbPort(), connection.getDbType(), command);
+    } catch (IOException ex) {
+      throw new JDBCConnectionException("Cannot read data for "+command+": "+ex.getMessage(),
+                                        JDBCConnectionException.DATA_TRANSFER_ERROR, ex);
+    } finally {
+      connection.releaseConnection(jdbcConnection);
     }
+  }
+  
+  /**
+   * Open a bulk load of rows into the given columns of a table. The rows given to the load are streamed to the server using
+   * <code>COPY ... FROM STDIN</code> and are committed when the load is closed. The load holds a
+   * {@link JDBCConnection#borrowDedicatedConnection() dedicated connection} until it is closed (a new physical connection
+   * if the JDBC connection is not pooled), so that other queries, such as a cursor feeding the load, can run meanwhile.
+   * @param table the table to load.
+   * @param columns the columns to load in the order of the row values or <code>null</code> for all the columns of the table.
+   * @return the bulk load.
+   * @throws JDBCConnectionException if the load cannot be started.
+   */
+  public PGSQLBulkLoad openBulkLoad(Table table, String[] columns) throws JDBCConnectionException {
+    String command            = "COPY "+copyTarget(table, columns)+" FROM STDIN";
+    Connection jdbcConnection = connection.borrowDedicatedConnection();
+    CopyIn copy               = null;
     
-    arrayList.clear();
-    arrayList = null;
-    query     = null;
-    line      = null;
+    try {
+      copy = copyManager(jdbcConnection).copyIn(command);
+      return new PGSQLBulkLoad(connection, jdbcConnection, copy, command, PGSQLBulkLoad.DEFAULT_BLOCK_SIZE);
+    } catch (SQLException ex) {
+      connection.releaseConnection(jdbcConnection);
+      throw connection.processSQLException(ex, connection.getDbName(), connection.getDbUser(), connection.getDbPassword(),
+                                           connection.getDbServer(), connection.getDbPort(), connection.getDbType(), command);
+    }
+  }
+  
+  /**
+   * Export the content of a table to the given stream using <code>COPY ... TO STDOUT</code>. The data is written to the
+   * stream as it is received from the server.
+   * @param table the table to export.
+   * @param output the stream where the data is written.
+   * @param format the format of the data ({@link #COPY_TEXT}, {@link #COPY_CSV} or {@link #COPY_BINARY}).
+   * @return the number of rows exported.
+   * @throws JDBCConnectionException if the data cannot be exported or written.
+   */
+  public long bulkExport(Table table, OutputStream output, int format) throws JDBCConnectionException {
+    return bulkExport("COPY "+copyTarget(table, null)+" TO STDOUT"+copyOptions(format), output);
+  }
+  
+  /**
+   * Export the result of a query to the given stream using <code>COPY (query) TO STDOUT</code>. The data is written to the
+   * stream as it is received from the server.
+   * @param query the query whose result is exported.
+   * @param output the stream where the data is written.
+   * @param format the format of the data ({@link #COPY_TEXT}, {@link #COPY_CSV} or {@link #COPY_BINARY}).
+   * @return the number of rows exported.
+   * @throws JDBCConnectionException if the data cannot be exported or written.
+   */
+  public long bulkExport(String query, OutputStream output, int format) throws JDBCConnectionException {
+    return bulkExport("COPY ("+query+") TO STDOUT"+copyOptions(format), output);
+  }
+  
+  /**
+   * Process a <code>COPY ... TO STDOUT</code> command and write the data to the given stream.
+   * @param command the COPY command.
+   * @param output the stream where the data is written.
+   * @return the number of rows exported.
+   * @throws JDBCConnectionException if the data cannot be exported or written.
+   */
+  public long bulkExport(String command, OutputStream output) throws JDBCConnectionException {
+    Connection jdbcConnection = connection.borrowDedicatedConnection();
+    QueryEvent event          = new QueryEvent(QueryEvent.QUERY);
+    long start                = 0;
+    long rows                 = 0;
     
-    return result;
+    try {
+      event.begin();
+      start = System.nanoTime();
+      rows  = copyManager(jdbcConnection).copyOut(command, output);
+      connection.recordQuery(command, start, rows);
+      event.complete(command, rows);
+      return rows;
+    } catch (SQLException ex) {
+      throw connection.processSQLException(ex, connection.getDbName(), connection.getDbUser(), connection.getDbPassword(),
+                                           connection.getDbServer(), connection.getDbPort(), connection.getDbType(), command);
+    } catch (IOException ex) {
+      throw new JDBCConnectionException("Cannot write data of "+command+": "+ex.getMessage(),
+                                        JDBCConnectionException.DATA_TRANSFER_ERROR, ex);
+    } finally {
+      connection.releaseConnection(jdbcConnection);
+    }
+  }
+  
+  /**
+   * Get the COPY API of the given connection.
+   * @param jdbcConnection the connection.
+   * @return the COPY API of the connection.
+   * @throws SQLException if the connection is not a PostgreSQL connection.
+   */
+  private CopyManager copyManager(Connection jdbcConnection) throws SQLException {
+    return jdbcConnection.unwrap(PGConnection.class).getCopyAPI();
+  }
+  
+  /**
+   * Get the target of a COPY command.
+   * @param table the table.
+   * @param columns the columns or <code>null</code> for all the columns of the table.
+   * @return the target of the COPY command.
+   */
+  private String copyTarget(Table table, String[] columns){
+    StringBuilder target = new StringBuilder();
+    
+    if (table.getSchema() != null){
+      target.append(table.getSchema().getName()).append(".");
+    }
+    target.append(table.getName());
+    
+    if ((columns != null) && (columns.length > 0)){
+      target.append(" (").append(String.join(", ", columns)).append(")");
+    }
+    
+    return target.toString();
+  }
+  
+  /**
+   * Get the options of a COPY command for the given format.
+   * @param format the format ({@link #COPY_TEXT}, {@link #COPY_CSV} or {@link #COPY_BINARY}).
+   * @return the options of the COPY command.
+   */
+  private String copyOptions(int format){
+    switch(format){
+      case COPY_TEXT:
+        return "";
+      case COPY_CSV:
+        return " (FORMAT csv)";
+      case COPY_BINARY:
+        return " (FORMAT binary)";
+      default:
+        throw new IllegalArgumentException("Unknown COPY format "+format);
+    }
   }
 
   @Override
@@ -248,6 +627,10 @@ public class PGSQLToolKit implements SQLToolkit{
     
     ArrayList<ColumnHeader> headers = null;
     
+    QueryEvent event = new QueryEvent(QueryEvent.METADATA);
+    
+    event.begin();
+    
     //  Si la table est inexistante, on ne peut rien retourner
     if (table == null){
       Common.logger.log(Level.WARNING, "getTableHeader(Table) no table available");
@@ -323,6 +706,8 @@ public class PGSQLToolKit implements SQLToolkit{
     }
 
     
+    event.complete("metadata.getColumns()", (headers != null) ? headers.size() : 0);
+    
     // Transformation de la liste en tableau
     if (headers != null){
       result =  headers.toArray(new ColumnHeader[headers.size()]);
@@ -331,32 +716,53 @@ public class PGSQLToolKit implements SQLToolkit{
     return result;
   }
 
+  /**
+   * List the databases hosted by the given server. A PostgreSQL connection can only read the catalog of the database
+   * it is connected to, so the schemas and tables are loaded (by a single query) for the current database only. 
+   * The other databases are listed without schemas. If the {@link #setLazyLoading(boolean) lazy loading} is enabled,
+   * the schemas of the current database are loaded on their first access.
+   * @param server the server hosting the databases to list.
+   * @return the list of database accessible by the user.
+   * @throws JDBCConnectionException if an error occurs.
+   */
   @Override
   public ArrayList<Database> listDatabases(Server server) throws JDBCConnectionException {
     
     ArrayList<Database> databases = new ArrayList<Database>();
     
+    Connection dbConnection   = null;
     Statement statement       = null;
     ResultSet resultSet       = null;
+    QueryEvent event          = new QueryEvent(QueryEvent.QUERY);
 
-    Iterator<Database> iter   = null;
     Database database         = null;
+    Database current          = null;
     
     ArrayList<Schema> schemas = null;
     
+    String req = "SELECT datname, datname = current_database() FROM pg_database;";
+    
     if (server == null){
       return null;
     }
     
-    // Listage des bases de données
+    // Listage des bases de données. La connexion est empruntee au pool car la liste peut etre chargee en arriere plan
+    dbConnection = connection.borrowConnection();
+    
     try {
-      statement = connection.getConnection().createStatement();
-      resultSet = statement.executeQuery("SELECT datname FROM pg_database;");
+      statement = dbConnection.createStatement();
+      event.begin();
+      resultSet = statement.executeQuery(req);
+      event.complete(req, 0);
       
       Common.logger.log(Level.FINE, "Databases from server '"+server.getName()+"': ");
       while (resultSet.next()) {
         database = new PGSQLDatabase(resultSet.getString(1), server);
         databases.add(database);
+        
+        if (resultSet.getBoolean(2)){
+          current = database;
+        }
       }
       
       resultSet.close();
@@ -366,31 +772,31 @@ public class PGSQLToolKit implements SQLToolkit{
       throw connection.processSQLException(
              ex, connection.getDbName(), connection.getDbUser(), 
              connection.getDbPassword(), connection.getDbServer(), 
-             connection.getDbPort(), connection.getDbType(), "SHOW DATABASES;");    
+             connection.getDbPort(), connection.getDbType(), req);    
     } finally{
+      connection.releaseConnection(dbConnection);
       resultSet = null;
       statement = null;
     }
 
-    // Listage des schemas pour chaque base de donnee.
-    iter = databases.iterator();
-    while(iter.hasNext()){
-      database = iter.next();
-      
+    // Listage des schemas de la base courante, seule base dont le catalogue est accessible.
+    if ((current != null) && lazyLoading){
+      setLazySchemas((PGSQLDatabase)current);
+    } else if (current != null){
       try {
-        schemas = listSchemas(database);
+        schemas = listSchemas(current);
         if (schemas != null){
           for(Schema schema : schemas){
-            database.addSchema(schema);
+            current.addSchema(schema);
           }
         }
       } catch (Exception e) {
-        Common.logger.log(Level.SEVERE, "Cannot list schema for database '"+database.getName()+"', ignoring", e);
+        Common.logger.log(Level.SEVERE, "Cannot list schema for database '"+current.getName()+"', ignoring", e);
       }
-      
-      schemas  = null;
-      database = null;
     }
+    
+    schemas  = null;
+    database = null;
 
     return databases;  
   }
@@ -399,19 +805,24 @@ public class PGSQLToolKit implements SQLToolkit{
   public ArrayList<Table> listTables(Schema schema)
   throws JDBCConnectionException {
   
-    ArrayList<Table> tables = new ArrayList<Table>();
+    ArrayList<Table> tables     = new ArrayList<Table>();
     
-    Statement statement     = null;
-    ResultSet resultSet     = null;
+    Connection dbConnection     = null;
+    PreparedStatement statement = null;
+    ResultSet resultSet         = null;
+    QueryEvent event            = new QueryEvent(QueryEvent.QUERY);
+    
+    String req = "SELECT table_name FROM information_schema.tables WHERE table_schema = coalesce(?, current_schema());";
     
+    // La connexion est empruntee au pool car la liste peut etre chargee en arriere plan
+    dbConnection = connection.borrowConnection();
     
     try {
-      statement = connection.getConnection().createStatement();
-      if (schema.getName() != null){
-        resultSet = statement.executeQuery("SELECT table_name FROM information_schema.tables WHERE table_schema = '"+schema.getName()+"';");
-      } else {
-        resultSet = statement.executeQuery("SHOW TABLES");
-      }
+      statement = dbConnection.prepareStatement(req);
+      statement.setString(1, schema.getName());
+      event.begin();
+      resultSet = statement.executeQuery();
+      event.complete(req, 0);
       
       Common.logger.log(Level.FINE, "Tables from "+schema.getName()+": ");
       while (resultSet.next()) {
@@ -427,7 +838,9 @@ public class PGSQLToolKit implements SQLToolkit{
       throw connection.processSQLException(
              ex, connection.getDbName(), connection.getDbUser(), 
              connection.getDbPassword(), connection.getDbServer(), 
-             connection.getDbPort(), connection.getDbType(), "SHOW TABLES");    
+             connection.getDbPort(), connection.getDbType(), req);    
+    } finally {
+      connection.releaseConnection(dbConnection);
     }
     
     resultSet = null;
@@ -556,6 +969,14 @@ public class PGSQLToolKit implements SQLToolkit{
   }
 
 
+  /**
+   * List the schemas of the given database with their tables. The schemas and the tables are loaded by a single query.
+   * If the {@link #setLazyLoading(boolean) lazy loading} is enabled, only the names of the schemas are listed and the 
+   * tables of each schema are loaded on their first access.
+   * @param database the database containing the schemas.
+   * @return the list of the schemas of the database.
+   * @throws JDBCConnectionException if an error occurs.
+   */
   @Override
   public ArrayList<Schema> listSchemas(Database database)
       throws JDBCConnectionException {
@@ -563,66 +984,144 @@ public class PGSQLToolKit implements SQLToolkit{
     
     Statement statement   = null;
     ResultSet resultSet   = null;
+    QueryEvent event      = new QueryEvent(QueryEvent.QUERY);
     
+    String schemaName     = null;
+    String tableName      = null;
     Schema schema         = null;
     
-    Iterator<Schema> iter   = null;
-    
-    ArrayList<Table> tables   = null;
-    Iterator<Table> tableIter = null;
-    Table table               = null;
+    // Les schemas et leurs tables sont obtenus en une seule requete, tries par schema.
+    // La jointure externe conserve les schemas ne contenant aucune table.
+    String req = "SELECT n.nspname, t.table_name"
+               + " FROM pg_namespace n"
+               + " LEFT JOIN information_schema.tables t ON t.table_schema = n.nspname"
+               + " ORDER BY n.nspname, t.table_name;";
     
     if (database == null){
       return null;
     }
     
+    if (lazyLoading){
+      return listSchemaNames(database);
+    }
+    
     // Listage des schemas
     try {
       statement = connection.getConnection().createStatement();
       
-      resultSet = statement.executeQuery("SELECT nspname FROM pg_namespace;");
+      event.begin();
+      resultSet = statement.executeQuery(req);
+      event.complete(req, 0);
       
       Common.logger.log(Level.FINE, "Schemas from database '"+database.getName()+"': ");
       while (resultSet.next()) {
-        schema = new PGSQLSchema(resultSet.getString(1), database);
-        resultat.add(schema);
+        schemaName = resultSet.getString(1);
+        tableName  = resultSet.getString(2);
+        
+        if ((schema == null) || !schema.getName().equals(schemaName)){
+          schema = new PGSQLSchema(schemaName, database);
+          resultat.add(schema);
+        }
+        
+        if (tableName != null){
+          schema.addTable(new PGSQLTable(tableName, schema));
+        }
       }
       
       resultSet.close();
       statement.close();
-
-      iter = resultat.iterator();
-      while(iter.hasNext()){
-        schema = iter.next();
-        
-        tables = listTables(schema);
-
-        if (tables != null){
-          tableIter = tables.iterator();
-          while(tableIter.hasNext()){
-            table = tableIter.next();
-            schema.addTable(table);
-            table = null;
-          }
-          tableIter = null;
-        }
-        schema = null;
-        tables = null;
-      }
       
     } catch (SQLException ex)  {
       throw connection.processSQLException(
              ex, connection.getDbName(), connection.getDbUser(), 
              connection.getDbPassword(), connection.getDbServer(), 
-             connection.getDbPort(), connection.getDbType(), "SELECT * FROM pg_namespace;");    
+             connection.getDbPort(), connection.getDbType(), req);    
     }
 
     resultSet = null;
     statement = null;
+    schema    = null;
     
     return resultat;  
   }
+  
+  /**
+   * List the names of the schemas of the given database. The tables of each schema are loaded on their first access.
+   * @param database the database containing the schemas.
+   * @return the list of the schemas of the database.
+   * @throws JDBCConnectionException if an error occurs.
+   */
+  private ArrayList<Schema> listSchemaNames(Database database)
+      throws JDBCConnectionException {
+    ArrayList<Schema> resultat = new ArrayList<Schema>();
+    
+    Connection dbConnection = null;
+    Statement statement     = null;
+    ResultSet resultSet     = null;
+    QueryEvent event        = new QueryEvent(QueryEvent.QUERY);
+    
+    String req = "SELECT nspname FROM pg_namespace ORDER BY nspname;";
+    
+    // La connexion est empruntee au pool car la liste peut etre chargee en arriere plan
+    dbConnection = connection.borrowConnection();
+    
+    try {
+      statement = dbConnection.createStatement();
+      event.begin();
+      resultSet = statement.executeQuery(req);
+      event.complete(req, 0);
+      
+      while (resultSet.next()) {
+        resultat.add(createLazySchema(resultSet.getString(1), database));
+      }
+      
+      resultSet.close();
+      statement.close();
+      
+    } catch (SQLException ex)  {
+      throw connection.processSQLException(
+             ex, connection.getDbName(), connection.getDbUser(), 
+             connection.getDbPassword(), connection.getDbServer(), 
+             connection.getDbPort(), connection.getDbType(), req);    
+    } finally {
+      connection.releaseConnection(dbConnection);
+    }
 
+    resultSet = null;
+    statement = null;
+    
+    return resultat;
+  }
+  
+  /**
+   * Attach to the given database a loader of its schemas. The schemas are loaded on their first access.
+   * @param database the database.
+   */
+  private void setLazySchemas(PGSQLDatabase database){
+    MetadataLoader<Schema> loader = new MetadataLoader<Schema>(() -> listSchemas(database));
+    
+    // Chargement des tables de chaque schema en arriere plan, sur les connexions du pool
+    if (prefetch && connection.isPooled()){
+      loader.setPrefetch(connection.getAsyncExecutor(), schema -> ((PGSQLSchema)schema).loader);
+    }
+    
+    database.setSchemaLoader(loader);
+  }
+  
+  /**
+   * Create a schema whose tables are loaded on their first access.
+   * @param name the name of the schema.
+   * @param database the database containing the schema.
+   * @return the schema.
+   */
+  private PGSQLSchema createLazySchema(String name, Database database){
+    final PGSQLSchema schema = new PGSQLSchema(name, database);
+    
+    schema.setTableLoader(new MetadataLoader<Table>(() -> listTables(schema)));
+    
+    return schema;
+  }
+  
   
   public static void main(String[] args){
     
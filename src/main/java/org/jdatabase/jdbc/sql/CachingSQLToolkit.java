@@ -0,0 +1,1117 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.sql;
+
+import static org.jdatabase.JDatabase.logger;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import javax.swing.event.EventListenerList;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.ColumnHeader;
+import org.jdatabase.jdbc.JDBCConnection;
+import org.jdatabase.jdbc.JDBCConnectionException;
+import org.jdatabase.jdbc.RowCursor;
+import org.jdatabase.jdbc.jfr.QueryEvent;
+
+/**
+ * A {@link SQLToolkit SQL toolkit} that keeps the metadata obtained from another toolkit. The server map, the lists of
+ * databases, catalogs, schemas and tables and the table headers are kept for a {@link #setTimeToLive(int, long) time to live}
+ * within bounded LRU caches (one per {@link #LEVEL_SERVER level}). <br>
+ * The structure modifications processed through this toolkit (<code>createDatabase</code>, <code>deleteTable</code>, ...)
+ * invalidate the affected entries. An update processed with {@link #executeUpdate(String)} that looks like a DDL
+ * statement (<code>CREATE</code>, <code>DROP</code>, <code>ALTER</code>, <code>RENAME</code>) invalidates the whole cache.
+ * Modifications made outside of this toolkit are seen when the entries expire or after an explicit
+ * {@link #invalidate() invalidation}.<br>
+ * The results of the read only queries can also be cached by setting a {@link #setQueryCache(QueryResultCache) query cache}.
+ * The updates processed with {@link #executeUpdate(String)} then invalidate the results of the tables they modify.<br>
+ * The metadata can be {@link #saveSnapshot(File) saved} to a local snapshot and {@link #loadSnapshot(File) loaded} back
+ * at the next start, the snapshot being then revalidated in background. The changes of the metadata can be
+ * {@link #pollChanges() polled} and are sent to the {@link #addMetadataChangeListener(MetadataChangeListener) listeners}.<br>
+ * The lists returned are copies, but the {@link Server}, {@link Database}, {@link Schema} and {@link Table} objects
+ * they contain are shared between the callers and should not be modified.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class CachingSQLToolkit implements SQLToolkit {
+
+  /**
+   * The cache level of the server map ({@link #mapServer()}).
+   */
+  public static final int LEVEL_SERVER   = 0;
+
+  /**
+   * The cache level of the database lists ({@link #listDatabases(Server)}).
+   */
+  public static final int LEVEL_DATABASE = 1;
+
+  /**
+   * The cache level of the catalog lists ({@link #listCatalogs(Database)}).
+   */
+  public static final int LEVEL_CATALOG  = 2;
+
+  /**
+   * The cache level of the schema lists ({@link #listSchemas(Database)}).
+   */
+  public static final int LEVEL_SCHEMA   = 3;
+
+  /**
+   * The cache level of the table lists ({@link #listTables(Schema)}).
+   */
+  public static final int LEVEL_TABLE    = 4;
+
+  /**
+   * The cache level of the table headers ({@link #getTableHeader(Table)}).
+   */
+  public static final int LEVEL_HEADER   = 5;
+
+  /**
+   * The default time to live of a cache entry in milliseconds (5 minutes).
+   */
+  public static final long DEFAULT_TIME_TO_LIVE = 300000L;
+
+  /**
+   * The default maximum number of entries of a cache level.
+   */
+  public static final int DEFAULT_MAXIMUM_SIZE  = 1024;
+
+  /**
+   * The separator used within cache keys.
+   */
+  private static final char KEY_SEPARATOR = '/';
+
+  /**
+   * The toolkit that provides the metadata.
+   */
+  private SQLToolkit toolkit = null;
+
+  /**
+   * The caches, one for each level.
+   */
+  private MetadataCache[] caches = null;
+
+  /**
+   * The pagers of the tables, that keep the key columns read from the metadata of the driver.
+   */
+  private MetadataCache pagers = null;
+
+  /**
+   * The cache of the query results (<code>null</code> if the results are not cached).
+   */
+  private QueryResultCache queryCache = null;
+
+  /**
+   * The revalidation of the last snapshot loaded (<code>null</code> if no snapshot has been loaded).
+   */
+  private volatile CompletableFuture<MetadataSnapshot> revalidation = null;
+
+  /**
+   * The snapshot that is the reference of the detection of the changes (<code>null</code> if no snapshot is known).
+   */
+  private volatile MetadataSnapshot snapshot = null;
+
+  /**
+   * The listeners of the changes of the metadata.
+   */
+  private EventListenerList changeListenerList = null;
+
+  /**
+   * Create a new caching toolkit on top of the given toolkit with the default time to live and size for all levels.
+   * @param toolkit the toolkit that provides the metadata.
+   */
+  public CachingSQLToolkit(SQLToolkit toolkit){
+    this(toolkit, DEFAULT_TIME_TO_LIVE, DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * Create a new caching toolkit on top of the given toolkit with the given time to live and size for all levels.
+   * @param toolkit the toolkit that provides the metadata.
+   * @param timeToLive the time to live of a cache entry in milliseconds. A value lower or equal to 0 disables the cache.
+   * @param maximumSize the maximum number of entries of a cache level.
+   */
+  public CachingSQLToolkit(SQLToolkit toolkit, long timeToLive, int maximumSize){
+    this.toolkit = toolkit;
+
+    changeListenerList = new EventListenerList();
+
+    caches = new MetadataCache[LEVEL_HEADER + 1];
+    for(int i = 0; i < caches.length; i++){
+      caches[i] = new MetadataCache(timeToLive, maximumSize);
+    }
+
+    pagers = new MetadataCache(timeToLive, maximumSize);
+  }
+
+  //  CACHE
+  //  ----------------------------------------------------------------------
+
+  /**
+   * Invalidate all the cache entries.
+   */
+  public void invalidate(){
+    for(MetadataCache cache : caches){
+      cache.clear();
+    }
+
+    pagers.clear();
+  }
+
+  /**
+   * Invalidate the cache entries related to the given database: its catalogs, schemas, tables and table headers.
+   * The server map and the database lists are also invalidated.
+   * @param database the database to invalidate.
+   */
+  public void invalidate(Database database){
+    invalidateStructure();
+
+    if (database != null){
+      String prefix = key(database)+KEY_SEPARATOR;
+
+      caches[LEVEL_CATALOG].remove(key(database));
+      caches[LEVEL_SCHEMA].remove(key(database));
+      caches[LEVEL_TABLE].removePrefix(prefix);
+      caches[LEVEL_HEADER].removePrefix(prefix);
+      pagers.removePrefix(prefix);
+
+      // Entrees dont la base n'est pas connue (schema sans lien vers sa base)
+      caches[LEVEL_TABLE].removePrefix(String.valueOf(KEY_SEPARATOR));
+      caches[LEVEL_HEADER].removePrefix(String.valueOf(KEY_SEPARATOR));
+      pagers.removePrefix(String.valueOf(KEY_SEPARATOR));
+    }
+  }
+
+  /**
+   * Invalidate the cache entries related to the given schema: its tables and table headers.
+   * The server map and the database and schema lists are also invalidated.
+   * @param schema the schema to invalidate.
+   */
+  public void invalidate(Schema schema){
+    invalidateStructure();
+
+    caches[LEVEL_SCHEMA].clear();
+
+    if (schema != null){
+      caches[LEVEL_TABLE].remove(key(schema));
+      caches[LEVEL_HEADER].removePrefix(key(schema)+KEY_SEPARATOR);
+      pagers.removePrefix(key(schema)+KEY_SEPARATOR);
+    }
+  }
+
+  /**
+   * Invalidate the cache entries related to the given table: its header and the lists that contain it.
+   * @param table the table to invalidate.
+   */
+  public void invalidate(Table table){
+    invalidateStructure();
+
+    // Les listes de schemas PostgreSQL embarquent les tables
+    caches[LEVEL_SCHEMA].clear();
+
+    if (table != null){
+      if (table.getSchema() != null){
+        caches[LEVEL_TABLE].remove(key(table.getSchema()));
+      } else {
+        caches[LEVEL_TABLE].clear();
+      }
+      caches[LEVEL_HEADER].remove(key(table));
+      pagers.remove(key(table));
+    }
+  }
+
+  /**
+   * Invalidate the server map and the database lists. These entries are trees that
+   * can contain any object of the structure.
+   */
+  private void invalidateStructure(){
+    caches[LEVEL_SERVER].clear();
+    caches[LEVEL_DATABASE].clear();
+  }
+
+  /**
+   * Set the time to live of the entries of the given cache level. The entries already cached keep their expiration date.
+   * @param level the cache level ({@link #LEVEL_SERVER}, {@link #LEVEL_DATABASE}, {@link #LEVEL_CATALOG},
+   *        {@link #LEVEL_SCHEMA}, {@link #LEVEL_TABLE} or {@link #LEVEL_HEADER}).
+   * @param timeToLive the time to live in milliseconds. A value lower or equal to 0 disables the cache for the level.
+   * @see #getTimeToLive(int)
+   */
+  public void setTimeToLive(int level, long timeToLive){
+    caches[level].setTimeToLive(timeToLive);
+
+    // Les pagers suivent les en-tetes de table
+    if (level == LEVEL_HEADER){
+      pagers.setTimeToLive(timeToLive);
+    }
+  }
+
+  /**
+   * Get the time to live of the entries of the given cache level.
+   * @param level the cache level.
+   * @return the time to live in milliseconds.
+   * @see #setTimeToLive(int, long)
+   */
+  public long getTimeToLive(int level){
+    return caches[level].getTimeToLive();
+  }
+
+  /**
+   * Set the maximum number of entries of the given cache level. When a level is full, the least recently used
+   * entry is discarded.
+   * @param level the cache level.
+   * @param maximumSize the maximum number of entries.
+   * @see #getMaximumSize(int)
+   */
+  public void setMaximumSize(int level, int maximumSize){
+    caches[level].setMaximumSize(maximumSize);
+
+    if (level == LEVEL_HEADER){
+      pagers.setMaximumSize(maximumSize);
+    }
+  }
+
+  /**
+   * Get the maximum number of entries of the given cache level.
+   * @param level the cache level.
+   * @return the maximum number of entries.
+   * @see #setMaximumSize(int, int)
+   */
+  public int getMaximumSize(int level){
+    return caches[level].getMaximumSize();
+  }
+
+  /**
+   * Get the number of entries currently held by the given cache level.
+   * @param level the cache level.
+   * @return the number of entries.
+   */
+  public int getSize(int level){
+    return caches[level].size();
+  }
+
+  /**
+   * Get the number of requests on the given cache level that have been served from the cache.
+   * @param level the cache level.
+   * @return the number of cache hits.
+   */
+  public long getHitCount(int level){
+    return caches[level].hits.get();
+  }
+
+  /**
+   * Get the number of requests on the given cache level that have been forwarded to the underlying toolkit.
+   * @param level the cache level.
+   * @return the number of cache misses.
+   */
+  public long getMissCount(int level){
+    return caches[level].misses.get();
+  }
+
+  /**
+   * Set the cache of the query results. The results of the <code>SELECT</code> queries processed with
+   * {@link #executeQuery(String)} and {@link #executeQuery(String, Object[])} are then kept within the cache.
+   * The cache can be shared between several toolkits connected to the same database.
+   * @param queryCache the cache of the query results or <code>null</code> to disable the caching of the results.
+   * @see #getQueryCache()
+   */
+  public void setQueryCache(QueryResultCache queryCache){
+    this.queryCache = queryCache;
+  }
+
+  /**
+   * Get the cache of the query results.
+   * @return the cache of the query results or <code>null</code> if the results are not cached.
+   * @see #setQueryCache(QueryResultCache)
+   */
+  public QueryResultCache getQueryCache(){
+    return queryCache;
+  }
+
+  /**
+   * Get the toolkit that provides the metadata.
+   * @return the underlying toolkit.
+   */
+  public SQLToolkit getToolkit(){
+    return toolkit;
+  }
+
+  //  SNAPSHOT
+  //  ----------------------------------------------------------------------
+
+  /**
+   * Save a {@link MetadataSnapshot snapshot} of the metadata to the given file. The structure of the server is
+   * {@link MetadataSnapshot#scan(JDBCConnection) scanned} and the table headers currently held by the cache are stored
+   * within the snapshot. The snapshot can then be given to {@link #loadSnapshot(File)} at the next start. The snapshot
+   * becomes the reference of the {@link #pollChanges() detection of the changes}.
+   * @param file the file of the snapshot.
+   * @return the snapshot saved.
+   * @throws JDBCConnectionException if the structure cannot be scanned or if the snapshot cannot be written.
+   */
+  public MetadataSnapshot saveSnapshot(File file) throws JDBCConnectionException{
+    MetadataSnapshot snapshot = scan();
+
+    snapshot.save(file);
+
+    this.snapshot = snapshot;
+
+    return snapshot;
+  }
+
+  /**
+   * {@link MetadataSnapshot#scan(JDBCConnection) Scan} the structure of the server and store the table headers
+   * currently held by the cache within the snapshot.
+   * @return the snapshot.
+   * @throws JDBCConnectionException if the structure cannot be scanned.
+   */
+  private MetadataSnapshot scan() throws JDBCConnectionException{
+    MetadataSnapshot snapshot = MetadataSnapshot.scan(getConnection());
+    Server server             = snapshot.toServer();
+
+    for(Database database : server.getDatabases()){
+      for(Schema schema : database.getSchemas()){
+        for(Table table : schema.getTables()){
+          snapshot.setTableHeader(database.getName(), schema.getName(), table.getName(),
+                                  (ColumnHeader[]) caches[LEVEL_HEADER].peek(key(table)));
+        }
+      }
+    }
+
+    return snapshot;
+  }
+
+  /**
+   * Load the metadata from a {@link MetadataSnapshot snapshot} saved by {@link #saveSnapshot(File)}. The server map and
+   * the table headers of the snapshot are put within the cache, so that they are available without any query. 
+   * The snapshot is then revalidated in background by the {@link JDBCConnection#getAsyncExecutor() asynchronous executor}
+   * of the connection: the structure of the server is scanned and the headers of the tables whose change token differs
+   * are discarded. If tables, schemas or databases have been created or deleted, the server map is replaced.
+   * The changes are sent to the {@link #addMetadataChangeListener(MetadataChangeListener) listeners} from the thread of the
+   * revalidation, which can be followed using {@link #getSnapshotRevalidation()}.
+   * @param file the file of the snapshot.
+   * @return the server map of the snapshot.
+   * @throws JDBCConnectionException if the snapshot cannot be read or if it has been saved from another server.
+   */
+  public Server loadSnapshot(File file) throws JDBCConnectionException{
+    MetadataSnapshot snapshot = MetadataSnapshot.load(file);
+    Server server             = null;
+
+    if ((snapshot.getType() != getConnection().getDbType()) || !String.valueOf(snapshot.getServerName()).equals(getConnection().getName())){
+      throw new JDBCConnectionException("Metadata snapshot "+file+" of "+snapshot.getServerName()+" cannot be used with "+getConnection().getName(),
+                                        JDBCConnectionException.SNAPSHOT_ERROR);
+    }
+
+    server = install(snapshot);
+
+    this.snapshot = snapshot;
+
+    revalidation = CompletableFuture.supplyAsync(() -> {
+      try {
+        pollChanges();
+        return this.snapshot;
+      } catch (JDBCConnectionException e) {
+        logger.log(Level.WARNING, "Cannot revalidate metadata snapshot "+file+": "+e.getMessage(), e);
+        throw new CompletionException(e);
+      }
+    }, getConnection().getAsyncExecutor());
+
+    return server;
+  }
+
+  /**
+   * Get the revalidation of the last snapshot {@link #loadSnapshot(File) loaded}. The future is completed with the 
+   * up to date snapshot, that can be saved for the next start, or completed exceptionally with a {@link JDBCConnectionException}
+   * if the structure of the server cannot be scanned.
+   * @return the revalidation of the last snapshot loaded or <code>null</code> if no snapshot has been loaded.
+   */
+  public CompletableFuture<MetadataSnapshot> getSnapshotRevalidation(){
+    return revalidation;
+  }
+
+  /**
+   * Put the server map and the table headers of a snapshot within the cache.
+   * @param snapshot the snapshot.
+   * @return the server map of the snapshot.
+   */
+  private Server install(MetadataSnapshot snapshot){
+    Server server         = snapshot.toServer();
+    ColumnHeader[] header = null;
+
+    caches[LEVEL_SERVER].put("", server);
+
+    for(Database database : server.getDatabases()){
+      for(Schema schema : database.getSchemas()){
+        for(Table table : schema.getTables()){
+          header = snapshot.getTableHeader(database.getName(), schema.getName(), table.getName());
+          if (header != null){
+            caches[LEVEL_HEADER].put(key(table), header);
+          }
+        }
+      }
+    }
+
+    return server;
+  }
+
+  /**
+   * Revalidate a snapshot against the current structure of the server. The headers of the tables whose change token
+   * differs are removed from the cache and the server map is replaced if the structure has changed. If the header of an 
+   * altered table was known, the new header is loaded so that the changes of its columns can be reported. The changes
+   * are sent to the {@link #addMetadataChangeListener(MetadataChangeListener) listeners} and the up to date snapshot
+   * becomes the reference of the next revalidation.
+   * @param previous the snapshot to revalidate.
+   * @return the changes between the snapshot and the current structure of the server.
+   * @throws JDBCConnectionException if the structure of the server or the header of an altered table cannot be read.
+   */
+  private synchronized ArrayList<MetadataChangeEvent> revalidate(MetadataSnapshot previous) throws JDBCConnectionException{
+    MetadataSnapshot current              = MetadataSnapshot.scan(getConnection());
+    Server server                         = previous.toServer();
+    ArrayList<MetadataChangeEvent> events = null;
+    ColumnHeader[] header                 = null;
+    String token                          = null;
+
+    int changed                           = current.copyHeaders(previous);
+
+    // Suppression des entetes des tables modifiees ou supprimees. L'entete d'une table modifiee
+    // est recharge s'il etait connu afin de pouvoir signaler les modifications de ses colonnes.
+    for(Database database : server.getDatabases()){
+      for(Schema schema : database.getSchemas()){
+        for(Table table : schema.getTables()){
+          token = current.getChangeToken(database.getName(), schema.getName(), table.getName());
+          if ((token == null) || !token.equals(previous.getChangeToken(database.getName(), schema.getName(), table.getName()))){
+            caches[LEVEL_HEADER].remove(key(table));
+
+            if ((token != null) && (previous.getTableHeader(database.getName(), schema.getName(), table.getName()) != null)){
+              header = toolkit.getTableHeader(table);
+              current.setTableHeader(database.getName(), schema.getName(), table.getName(), header);
+              caches[LEVEL_HEADER].put(key(table), header);
+            }
+          }
+        }
+      }
+    }
+
+    if (!current.hasSameStructure(previous)){
+      invalidateStructure();
+      caches[LEVEL_SCHEMA].clear();
+      caches[LEVEL_TABLE].clear();
+      install(current);
+    }
+
+    events   = current.diff(previous, this);
+    snapshot = current;
+
+    logger.log(Level.FINE, "Metadata snapshot of "+current.getServerName()+" revalidated, "+changed+" tables changed, "+events.size()+" changes");
+
+    for(MetadataChangeEvent event : events){
+      fireMetadataChange(event);
+    }
+
+    return events;
+  }
+
+  /**
+   * Detect the changes of the metadata since the last call to this method, or since the last snapshot {@link #saveSnapshot(File) saved}
+   * or {@link #loadSnapshot(File) loaded}. The structure of the server and the change tokens of the tables are read by a single query
+   * and only the headers of the altered tables whose columns were known are loaded again. The changes are sent to the 
+   * {@link #addMetadataChangeListener(MetadataChangeListener) listeners} from the calling thread and the cache entries concerned by 
+   * the changes are invalidated.<br>
+   * The first call, when no snapshot is known, only reads the structure of the server that becomes the reference of the next calls,
+   * with the table headers held by the cache, so that the changes of the columns of these tables can be reported.
+   * @return the changes, an empty list if nothing changed.
+   * @throws JDBCConnectionException if the structure of the server or the header of an altered table cannot be read.
+   * @see MetadataSnapshot#diff(MetadataSnapshot, Object)
+   */
+  public synchronized ArrayList<MetadataChangeEvent> pollChanges() throws JDBCConnectionException{
+    if (snapshot == null){
+      snapshot = scan();
+      return new ArrayList<MetadataChangeEvent>();
+    }
+
+    return revalidate(snapshot);
+  }
+
+  /**
+   * Get the snapshot that is the reference of the detection of the changes.
+   * @return the reference snapshot or <code>null</code> if no snapshot is known yet.
+   * @see #pollChanges()
+   */
+  public MetadataSnapshot getSnapshot(){
+    return snapshot;
+  }
+
+  /**
+   * Add a listener notified of the changes of the metadata detected by {@link #pollChanges()} or by the revalidation of a
+   * {@link #loadSnapshot(File) loaded} snapshot.
+   * @param l the listener to add.
+   */
+  public void addMetadataChangeListener(MetadataChangeListener l){
+    changeListenerList.add(MetadataChangeListener.class, l);
+  }
+
+  /**
+   * Remove a listener of the changes of the metadata.
+   * @param l the listener to remove.
+   */
+  public void removeMetadataChangeListener(MetadataChangeListener l){
+    changeListenerList.remove(MetadataChangeListener.class, l);
+  }
+
+  /**
+   * Send a change of the metadata to the listeners.
+   * @param e the change.
+   */
+  protected void fireMetadataChange(MetadataChangeEvent e){
+    Object[] listeners = changeListenerList.getListenerList();
+    for (int i = listeners.length - 2; i >= 0; i -= 2) {
+      if (listeners[i] == MetadataChangeListener.class) {
+        ( (MetadataChangeListener) listeners[i + 1]).metadataChanged(e);
+      }
+    }
+  }
+
+  //  SQLToolkit
+  //  ----------------------------------------------------------------------
+
+  @Override
+  public JDBCConnection getConnection() {
+    return toolkit.getConnection();
+  }
+
+  @Override
+  public Server mapServer() throws JDBCConnectionException {
+    Server server = (Server) caches[LEVEL_SERVER].get("");
+
+    if (server == null){
+      server = toolkit.mapServer();
+      caches[LEVEL_SERVER].put("", server);
+    }
+
+    return server;
+  }
+
+  @Override
+  public ArrayList<Database> listDatabases(Server server) throws JDBCConnectionException {
+    String key = (server != null) ? server.getName() : "";
+
+    @SuppressWarnings("unchecked")
+    ArrayList<Database> databases = (ArrayList<Database>) caches[LEVEL_DATABASE].get(key);
+
+    if (databases == null){
+      databases = toolkit.listDatabases(server);
+      caches[LEVEL_DATABASE].put(key, databases);
+    }
+
+    return copy(databases);
+  }
+
+  @Override
+  public Database createDatabase(String dbName, Server server) throws JDBCConnectionException {
+    try {
+      return toolkit.createDatabase(dbName, server);
+    } finally {
+      invalidateStructure();
+    }
+  }
+
+  @Override
+  public boolean deleteDatabase(Database database) throws JDBCConnectionException {
+    try {
+      return toolkit.deleteDatabase(database);
+    } finally {
+      invalidate(database);
+    }
+  }
+
+  @Override
+  public ArrayList<Catalog> listCatalogs(Database database) throws JDBCConnectionException {
+    String key = key(database);
+
+    @SuppressWarnings("unchecked")
+    ArrayList<Catalog> catalogs = (ArrayList<Catalog>) caches[LEVEL_CATALOG].get(key);
+
+    if (catalogs == null){
+      catalogs = toolkit.listCatalogs(database);
+      caches[LEVEL_CATALOG].put(key, catalogs);
+    }
+
+    return copy(catalogs);
+  }
+
+  @Override
+  public Catalog createCatalog(String catalogName, Database database) throws JDBCConnectionException {
+    try {
+      return toolkit.createCatalog(catalogName, database);
+    } finally {
+      invalidateStructure();
+      caches[LEVEL_CATALOG].remove(key(database));
+    }
+  }
+
+  @Override
+  public boolean deleteCatalog(Catalog catalog) throws JDBCConnectionException {
+    try {
+      return toolkit.deleteCatalog(catalog);
+    } finally {
+      if ((catalog != null) && (catalog.getDatabase() != null)){
+        invalidate(catalog.getDatabase());
+      } else {
+        invalidate();
+      }
+    }
+  }
+
+  @Override
+  public ArrayList<Schema> listSchemas(Database database) throws JDBCConnectionException {
+    String key = key(database);
+
+    @SuppressWarnings("unchecked")
+    ArrayList<Schema> schemas = (ArrayList<Schema>) caches[LEVEL_SCHEMA].get(key);
+
+    if (schemas == null){
+      schemas = toolkit.listSchemas(database);
+      caches[LEVEL_SCHEMA].put(key, schemas);
+    }
+
+    return copy(schemas);
+  }
+
+  @Override
+  public Schema createSchema(String schemaName, Database database) throws JDBCConnectionException {
+    try {
+      return toolkit.createSchema(schemaName, database);
+    } finally {
+      invalidateStructure();
+      caches[LEVEL_SCHEMA].remove(key(database));
+    }
+  }
+
+  @Override
+  public boolean deleteSchema(Schema schema) throws JDBCConnectionException {
+    try {
+      return toolkit.deleteSchema(schema);
+    } finally {
+      invalidate(schema);
+    }
+  }
+
+  @Override
+  public ArrayList<Table> listTables(Schema schema) throws JDBCConnectionException {
+    String key = key(schema);
+
+    @SuppressWarnings("unchecked")
+    ArrayList<Table> tables = (ArrayList<Table>) caches[LEVEL_TABLE].get(key);
+
+    if (tables == null){
+      tables = toolkit.listTables(schema);
+      caches[LEVEL_TABLE].put(key, tables);
+    }
+
+    return copy(tables);
+  }
+
+  @Override
+  public boolean deleteTable(Table table) throws JDBCConnectionException {
+    try {
+      return toolkit.deleteTable(table);
+    } finally {
+      invalidate(table);
+      if ((queryCache != null) && (table != null)){
+        queryCache.invalidate(table.getName());
+      }
+    }
+  }
+
+  @Override
+  public ColumnHeader[] getTableHeader(Table table) throws JDBCConnectionException {
+    String key = key(table);
+
+    ColumnHeader[] headers = (ColumnHeader[]) caches[LEVEL_HEADER].get(key);
+
+    if (headers == null){
+      headers = toolkit.getTableHeader(table);
+      caches[LEVEL_HEADER].put(key, headers);
+    }
+
+    return (headers != null) ? headers.clone() : null;
+  }
+
+  @Override
+  public Object[][] getTableData(Table table) throws JDBCConnectionException {
+    return toolkit.getTableData(table);
+  }
+
+  @Override
+  public RowCursor getTableCursor(Table table) throws JDBCConnectionException {
+    return toolkit.getTableCursor(table);
+  }
+
+  @Override
+  public RowCursor getTableCursor(Table table, int fetchSize) throws JDBCConnectionException {
+    return toolkit.getTableCursor(table, fetchSize);
+  }
+
+  @Override
+  public RowCursor openCursor(String query, int fetchSize) throws JDBCConnectionException {
+    return toolkit.openCursor(query, fetchSize);
+  }
+
+  /**
+   * Read a page of the content of the given table. The {@link TablePager pager} of the table is cached with the
+   * table headers, so that the primary key of the table is read from the metadata of the driver by the first page only
+   * and that the next pages only send the page query to the server. The pager is dropped when the table is
+   * {@link #invalidate(Table) invalidated}.
+   * @param table the table containing the data
+   * @param pageSize the maximum number of rows of the page
+   * @param token the token given by the previous page or <code>null</code> for the first page
+   * @return the page
+   * @throws JDBCConnectionException if an error occurs
+   */
+  @Override
+  public TablePage getTablePage(Table table, int pageSize, String token) throws JDBCConnectionException {
+    TablePager pager = (TablePager) pagers.get(key(table));
+
+    if (pager == null){
+      pager = new TablePager(this, table);
+      pagers.put(key(table), pager);
+    }
+
+    return pager.getPage(pageSize, token);
+  }
+
+  /**
+   * Execute a query on the current database. If a {@link #setQueryCache(QueryResultCache) query cache} is set and
+   * the query is {@link QueryResultCache#isCacheable(String) cacheable}, the result is served from the cache if possible.
+   * Otherwise the result is read entirely and cached before being returned.
+   * @param query the query to process
+   * @return the result set containing the query result
+   * @throws JDBCConnectionException if an error occurs during the query processing.
+   */
+  @Override
+  public ResultSet executeQuery(String query) throws JDBCConnectionException {
+    QueryResultCache cache = queryCache;
+    ResultSet resultSet    = null;
+    Statement statement    = null;
+    long generation        = 0;
+
+    if ((cache == null) || !QueryResultCache.isCacheable(query)){
+      return toolkit.executeQuery(query);
+    }
+
+    resultSet = cache.get(query, null);
+    if (resultSet != null){
+      return resultSet;
+    }
+
+    generation = cache.getGeneration();
+    resultSet  = toolkit.executeQuery(query);
+    try {
+      // La requete est executee sur une instruction qui lui est propre
+      statement = resultSet.getStatement();
+      return cache.put(query, null, resultSet, generation);
+    } catch (SQLException ex) {
+      JDBCConnection connection = getConnection();
+      throw connection.processSQLException(ex, connection.getDbName(), connection.getDbUser(), connection.getDbPassword(),
+                                           connection.getDbServer(), connection.getDbPort(), connection.getDbType(), query);
+    } finally {
+      try {
+        if (statement != null){
+          statement.close();
+        }
+      } catch (SQLException ex1) {
+        statement = null;
+      }
+    }
+  }
+
+  /**
+   * Execute a query with parameters on the current database. The query is prepared and the parameters are bound in order
+   * using {@link PreparedStatement#setObject(int, Object)}. The result is read entirely and returned detached from the
+   * connection. If a {@link #setQueryCache(QueryResultCache) query cache} is set and the query is
+   * {@link QueryResultCache#isCacheable(String) cacheable}, the result is cached with the values of the parameters.
+   * @param query the query to process
+   * @param parameters the values of the parameters of the query
+   * @return the result set containing the query result
+   * @throws JDBCConnectionException if an error occurs during the query processing.
+   */
+  public ResultSet executeQuery(String query, Object[] parameters) throws JDBCConnectionException {
+    QueryResultCache cache      = queryCache;
+    boolean cacheable           = (cache != null) && QueryResultCache.isCacheable(query);
+    JDBCConnection connection   = getConnection();
+    PreparedStatement statement = null;
+    ResultSet resultSet         = null;
+    long generation             = 0;
+    long start                  = 0;
+    QueryEvent event            = new QueryEvent(QueryEvent.QUERY);
+
+    if (cacheable){
+      resultSet = cache.get(query, parameters);
+      if (resultSet != null){
+        return resultSet;
+      }
+      generation = cache.getGeneration();
+    }
+
+    statement = connection.prepareStatement(query);
+    try {
+      if (parameters != null){
+        for(int i = 0; i < parameters.length; i++){
+          statement.setObject(i + 1, parameters[i]);
+        }
+      }
+
+      event.begin();
+      start     = System.nanoTime();
+      resultSet = statement.executeQuery();
+      connection.recordQuery(query, start, 0);
+      event.complete(query, 0);
+
+      if (cacheable){
+        return cache.put(query, parameters, resultSet, generation);
+      }
+
+      return QueryResultCache.detach(resultSet).open();
+    } catch (SQLException ex) {
+      throw connection.processSQLException(ex, connection.getDbName(), connection.getDbUser(), connection.getDbPassword(),
+                                           connection.getDbServer(), connection.getDbPort(), connection.getDbType(), query);
+    } finally {
+      try {
+        statement.close();
+      } catch (SQLException ex1) {
+        statement = null;
+      }
+    }
+  }
+
+  @Override
+  public boolean executeUpdate(String query) throws JDBCConnectionException {
+    try {
+      return toolkit.executeUpdate(query);
+    } finally {
+      if (isDDL(query)){
+        invalidate();
+      }
+
+      if (queryCache != null){
+        queryCache.invalidateUpdate(query);
+      }
+    }
+  }
+
+  @Override
+  public boolean reloadPrivileges() throws JDBCConnectionException {
+    try {
+      return toolkit.reloadPrivileges();
+    } finally {
+      invalidate();
+    }
+  }
+
+  //  OUTILS
+  //  ----------------------------------------------------------------------
+
+  /**
+   * Return <code>true</code> if the given query is a statement that can modify the structure of the database.
+   * @param query the query to check.
+   * @return <code>true</code> if the query starts with <code>CREATE</code>, <code>DROP</code>, <code>ALTER</code> or <code>RENAME</code>.
+   */
+  private static boolean isDDL(String query){
+    if (query == null){
+      return false;
+    }
+
+    String trimmed = query.trim();
+
+    return trimmed.regionMatches(true, 0, "CREATE", 0, 6)
+        || trimmed.regionMatches(true, 0, "DROP", 0, 4)
+        || trimmed.regionMatches(true, 0, "ALTER", 0, 5)
+        || trimmed.regionMatches(true, 0, "RENAME", 0, 6);
+  }
+
+  /**
+   * Get the cache key of a database.
+   * @param database the database.
+   * @return the cache key of the database.
+   */
+  private static String key(Database database){
+    return ((database != null) && (database.getName() != null)) ? database.getName() : "";
+  }
+
+  /**
+   * Get the cache key of a schema. The key starts with the key of the database containing the schema.
+   * @param schema the schema.
+   * @return the cache key of the schema.
+   */
+  private static String key(Schema schema){
+    if (schema == null){
+      return "";
+    }
+    return key(schema.getDatabase())+KEY_SEPARATOR+schema.getName();
+  }
+
+  /**
+   * Get the cache key of a table. The key starts with the key of the schema containing the table.
+   * @param table the table.
+   * @return the cache key of the table.
+   */
+  private static String key(Table table){
+    if (table == null){
+      return "";
+    }
+
+    if (table.getSchema() != null){
+      return key(table.getSchema())+KEY_SEPARATOR+table.getName();
+    }
+
+    return key(table.getDatabase())+KEY_SEPARATOR+KEY_SEPARATOR+table.getName();
+  }
+
+  /**
+   * Copy a cached list so that the cache cannot be modified by the caller.
+   * @param list the list to copy.
+   * @return a copy of the list or <code>null</code> if the list is <code>null</code>.
+   */
+  private static <T> ArrayList<T> copy(ArrayList<T> list){
+    return (list != null) ? new ArrayList<T>(list) : null;
+  }
+
+  /**
+   * A bounded LRU cache whose entries expire after a time to live. <code>null</code> values are not cached.
+   */
+  private static class MetadataCache {
+
+    private long timeToLive;
+
+    private int maximumSize;
+
+    private final LinkedHashMap<String, CacheEntry> entries;
+
+    private final AtomicLong hits   = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    MetadataCache(long timeToLive, int maximumSize){
+      this.timeToLive  = timeToLive;
+      this.maximumSize = Math.max(1, maximumSize);
+      this.entries     = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+    }
+
+    synchronized Object get(String key){
+      CacheEntry entry = entries.get(key);
+
+      if ((entry != null) && (entry.expiration < System.currentTimeMillis())){
+        entries.remove(key);
+        entry = null;
+      }
+
+      if (entry == null){
+        misses.incrementAndGet();
+        return null;
+      }
+
+      hits.incrementAndGet();
+      return entry.value;
+    }
+
+    synchronized Object peek(String key){
+      CacheEntry entry = entries.get(key);
+      return ((entry != null) && (entry.expiration >= System.currentTimeMillis())) ? entry.value : null;
+    }
+
+    synchronized void put(String key, Object value){
+      if ((value == null) || (timeToLive <= 0)){
+        return;
+      }
+
+      entries.put(key, new CacheEntry(value, System.currentTimeMillis() + timeToLive));
+
+      Iterator<Map.Entry<String, CacheEntry>> iter = entries.entrySet().iterator();
+      while((entries.size() > maximumSize) && iter.hasNext()){
+        iter.next();
+        iter.remove();
+      }
+    }
+
+    synchronized void remove(String key){
+      entries.remove(key);
+    }
+
+    synchronized void removePrefix(String prefix){
+      entries.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    synchronized void clear(){
+      entries.clear();
+    }
+
+    synchronized int size(){
+      return entries.size();
+    }
+
+    synchronized long getTimeToLive(){
+      return timeToLive;
+    }
+
+    synchronized void setTimeToLive(long timeToLive){
+      this.timeToLive = timeToLive;
+      if (timeToLive <= 0){
+        entries.clear();
+      }
+    }
+
+    synchronized int getMaximumSize(){
+      return maximumSize;
+    }
+
+    synchronized void setMaximumSize(int maximumSize){
+      this.maximumSize = Math.max(1, maximumSize);
+
+      Iterator<Map.Entry<String, CacheEntry>> iter = entries.entrySet().iterator();
+      while((entries.size() > this.maximumSize) && iter.hasNext()){
+        iter.next();
+        iter.remove();
+      }
+    }
+  }
+
+  /**
+   * A value held by a {@link MetadataCache} with its expiration date.
+   */
+  private static class CacheEntry {
+
+    private final Object value;
+
+    private final long expiration;
+
+    CacheEntry(Object value, long expiration){
+      this.value      = value;
+      this.expiration = expiration;
+    }
+  }
+}
@@ -0,0 +1,220 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.sql;
+
+import java.util.EventObject;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.ColumnHeader;
+
+/**
+ * A change of the metadata of a server detected between two {@link MetadataSnapshot snapshots}. A change concerns a
+ * database, a schema, a table or a column, given by their names. When a database, a schema or a table is added or
+ * removed, a single event is sent for the whole node: no event is sent for its children.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see MetadataChangeListener
+ * @see MetadataSnapshot#diff(MetadataSnapshot, Object)
+ */
+public class MetadataChangeEvent extends EventObject {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * A database has been added.
+   */
+  public static final int DATABASE_ADDED   = 1;
+
+  /**
+   * A database has been removed.
+   */
+  public static final int DATABASE_REMOVED = 2;
+
+  /**
+   * A schema has been added to an existing database.
+   */
+  public static final int SCHEMA_ADDED     = 3;
+
+  /**
+   * A schema has been removed from an existing database.
+   */
+  public static final int SCHEMA_REMOVED   = 4;
+
+  /**
+   * A table has been added to an existing schema.
+   */
+  public static final int TABLE_ADDED      = 5;
+
+  /**
+   * A table has been removed from an existing schema.
+   */
+  public static final int TABLE_REMOVED    = 6;
+
+  /**
+   * The definition of a table has changed. If the columns of the table are known, the event is followed by the
+   * column events that describe the change.
+   */
+  public static final int TABLE_ALTERED    = 7;
+
+  /**
+   * A column has been added to a table.
+   */
+  public static final int COLUMN_ADDED     = 8;
+
+  /**
+   * A column has been removed from a table.
+   */
+  public static final int COLUMN_REMOVED   = 9;
+
+  /**
+   * The definition of a column has changed (type, size, nullability, default value, key, ...).
+   */
+  public static final int COLUMN_ALTERED   = 10;
+
+  /**
+   * The type of the change.
+   */
+  private int type                 = 0;
+
+  /**
+   * The name of the database.
+   */
+  private String databaseName      = null;
+
+  /**
+   * The name of the schema.
+   */
+  private String schemaName        = null;
+
+  /**
+   * The name of the table.
+   */
+  private String tableName         = null;
+
+  /**
+   * The column before the change.
+   */
+  private ColumnHeader oldColumn   = null;
+
+  /**
+   * The column after the change.
+   */
+  private ColumnHeader newColumn   = null;
+
+  /**
+   * Create a new change event.
+   * @param source the object that detected the change.
+   * @param type the type of the change ({@link #DATABASE_ADDED}, {@link #TABLE_ALTERED}, {@link #COLUMN_ADDED}, ...).
+   * @param databaseName the name of the database.
+   * @param schemaName the name of the schema (<code>null</code> for a database change).
+   * @param tableName the name of the table (<code>null</code> for a database or a schema change).
+   * @param oldColumn the column before the change (<code>null</code> if the change does not concern a column or if the column is added).
+   * @param newColumn the column after the change (<code>null</code> if the change does not concern a column or if the column is removed).
+   */
+  public MetadataChangeEvent(Object source, int type, String databaseName, String schemaName, String tableName,
+                             ColumnHeader oldColumn, ColumnHeader newColumn){
+    super(source);
+    this.type         = type;
+    this.databaseName = databaseName;
+    this.schemaName   = schemaName;
+    this.tableName    = tableName;
+    this.oldColumn    = oldColumn;
+    this.newColumn    = newColumn;
+  }
+
+  /**
+   * Get the type of the change.
+   * @return the type of the change ({@link #DATABASE_ADDED}, {@link #TABLE_ALTERED}, {@link #COLUMN_ADDED}, ...).
+   */
+  public int getType(){
+    return type;
+  }
+
+  /**
+   * Get the name of the database concerned by the change.
+   * @return the name of the database.
+   */
+  public String getDatabaseName(){
+    return databaseName;
+  }
+
+  /**
+   * Get the name of the schema concerned by the change.
+   * @return the name of the schema or <code>null</code> for a database change.
+   */
+  public String getSchemaName(){
+    return schemaName;
+  }
+
+  /**
+   * Get the name of the table concerned by the change.
+   * @return the name of the table or <code>null</code> for a database or a schema change.
+   */
+  public String getTableName(){
+    return tableName;
+  }
+
+  /**
+   * Get the name of the column concerned by the change.
+   * @return the name of the column or <code>null</code> if the change does not concern a column.
+   */
+  public String getColumnName(){
+    if (newColumn != null){
+      return newColumn.getName();
+    } else if (oldColumn != null){
+      return oldColumn.getName();
+    }
+    return null;
+  }
+
+  /**
+   * Get the column before the change.
+   * @return the column before the change or <code>null</code> if the change does not concern a column or if the column is added.
+   */
+  public ColumnHeader getOldColumn(){
+    return oldColumn;
+  }
+
+  /**
+   * Get the column after the change.
+   * @return the column after the change or <code>null</code> if the change does not concern a column or if the column is removed.
+   */
+  public ColumnHeader getNewColumn(){
+    return newColumn;
+  }
+
+  @Override
+  public String toString(){
+    String[] names = {null, "DATABASE_ADDED", "DATABASE_REMOVED", "SCHEMA_ADDED", "SCHEMA_REMOVED", "TABLE_ADDED",
+                      "TABLE_REMOVED", "TABLE_ALTERED", "COLUMN_ADDED", "COLUMN_REMOVED", "COLUMN_ALTERED"};
+
+    StringBuilder path = new StringBuilder(databaseName);
+    if (schemaName != null){
+      path.append('.').append(schemaName);
+    }
+    if (tableName != null){
+      path.append('.').append(tableName);
+    }
+    if (getColumnName() != null){
+      path.append('.').append(getColumnName());
+    }
+
+    return ((type > 0) && (type < names.length) ? names[type] : String.valueOf(type))+" "+path;
+  }
+}
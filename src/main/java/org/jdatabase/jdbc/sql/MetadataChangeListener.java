@@ -0,0 +1,38 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.sql;
+
+import java.util.EventListener;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * A listener notified of the changes of the metadata of a server.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see CachingSQLToolkit#addMetadataChangeListener(MetadataChangeListener)
+ */
+public interface MetadataChangeListener extends EventListener {
+
+  /**
+   * Called for each change of the metadata.
+   * @param event the change.
+   */
+  public void metadataChanged(MetadataChangeEvent event);
+}
@@ -0,0 +1,188 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.sql;
+
+import static org.jdatabase.JDatabase.logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.JDBCConnectionException;
+
+/**
+ * A crawler that loads the whole metadata tree of a {@link Server server} using several threads. The tree is crawled
+ * level by level (databases, schemas, tables). The nodes of a level are shared between at most
+ * {@link #getParallelism() parallelism} workers run by the executor, each worker loading the children of one node at a time.<br>
+ * The crawler is intended for trees whose children are {@link MetadataLoader loaded on demand}: the loading of the children
+ * of a node is then thread safe and each listing {@link org.jdatabase.jdbc.JDBCConnection#borrowConnection() borrows} a
+ * connection. With a {@link org.jdatabase.jdbc.JDBCConnectionPool connection pool}, each listing runs on its own connection
+ * and the number of connections used at once is bounded by the parallelism and by the size of the pool. Without pool, all
+ * the listings run on the main connection and the parallelism has to be 1.
+ * Nodes whose children are already loaded are visited without any query.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class MetadataCrawler {
+
+  /**
+   * The default number of nodes loaded in parallel.
+   */
+  public static final int DEFAULT_PARALLELISM = 4;
+
+  /**
+   * The executor that runs the workers.
+   */
+  private Executor executor                   = null;
+
+  /**
+   * The number of nodes loaded in parallel.
+   */
+  private int parallelism                     = DEFAULT_PARALLELISM;
+
+  /**
+   * Create a new crawler.
+   * @param executor the executor that runs the workers.
+   * @param parallelism the number of nodes loaded in parallel.
+   * @throws IllegalArgumentException if the parallelism is lower than 1.
+   */
+  public MetadataCrawler(Executor executor, int parallelism){
+    if (parallelism < 1){
+      throw new IllegalArgumentException("Invalid parallelism "+parallelism);
+    }
+
+    this.executor    = executor;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Create a new crawler that loads {@link #DEFAULT_PARALLELISM} nodes in parallel.
+   * @param executor the executor that runs the workers.
+   */
+  public MetadataCrawler(Executor executor){
+    this(executor, DEFAULT_PARALLELISM);
+  }
+
+  /**
+   * Load the whole tree of the given server. The databases are listed first, then the schemas of all the databases
+   * and finally the tables of all the schemas.
+   * @param server the server to crawl.
+   * @return the given server, whose tree is loaded.
+   * @throws JDBCConnectionException if a level of the tree cannot be loaded. The crawl is stopped on the first error.
+   */
+  public Server crawl(Server server) throws JDBCConnectionException{
+    ArrayList<Database> databases = null;
+    ArrayList<Schema> schemas     = null;
+    ArrayList<Table> tables       = null;
+
+    long start                    = System.nanoTime();
+
+    databases = expand(List.of(server), Server::getDatabases);
+    schemas   = expand(databases, Database::getSchemas);
+    tables    = expand(schemas, Schema::getTables);
+
+    logger.log(Level.FINE, "Server "+server.getName()+" crawled in "+((System.nanoTime() - start) / 1000000L)+" ms: "
+                          +databases.size()+" databases, "+schemas.size()+" schemas, "+tables.size()+" tables");
+
+    return server;
+  }
+
+  /**
+   * Load the children of the given nodes in parallel.
+   * @param <P> the type of the nodes.
+   * @param <C> the type of the children.
+   * @param nodes the nodes.
+   * @param children the function that gives (and loads if needed) the children of a node.
+   * @return the children of all the nodes, in the order of the nodes.
+   * @throws JDBCConnectionException if the children of a node cannot be loaded.
+   */
+  private <P, C> ArrayList<C> expand(List<P> nodes, Function<P, ArrayList<C>> children) throws JDBCConnectionException{
+    ArrayList<C> result                         = new ArrayList<C>();
+
+    AtomicReferenceArray<ArrayList<C>> loaded   = new AtomicReferenceArray<ArrayList<C>>(nodes.size());
+    AtomicInteger next                          = new AtomicInteger();
+    AtomicReference<RuntimeException> error     = new AtomicReference<RuntimeException>();
+
+    CompletableFuture<?>[] workers              = new CompletableFuture<?>[Math.min(parallelism, nodes.size())];
+
+    // Chaque worker prend le prochain noeud non traite, l'ensemble s'arrete a la premiere erreur
+    for(int i = 0; i < workers.length; i++){
+      workers[i] = CompletableFuture.runAsync(() -> {
+        int index = 0;
+        while ((error.get() == null) && ((index = next.getAndIncrement()) < nodes.size())){
+          try {
+            loaded.set(index, children.apply(nodes.get(index)));
+          } catch (RuntimeException e) {
+            error.compareAndSet(null, e);
+          }
+        }
+      }, executor);
+    }
+
+    try {
+      CompletableFuture.allOf(workers).join();
+    } catch (CompletionException e) {
+      error.compareAndSet(null, e);
+    }
+
+    if (error.get() != null){
+      Throwable cause = error.get();
+      while ((cause != null) && !(cause instanceof JDBCConnectionException)){
+        cause = cause.getCause();
+      }
+
+      if (cause != null){
+        throw (JDBCConnectionException) cause;
+      }
+      throw error.get();
+    }
+
+    for(int i = 0; i < loaded.length(); i++){
+      if (loaded.get(i) != null){
+        result.addAll(loaded.get(i));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the number of nodes loaded in parallel.
+   * @return the number of nodes loaded in parallel.
+   */
+  public int getParallelism(){
+    return parallelism;
+  }
+
+  /**
+   * Get the executor that runs the workers.
+   * @return the executor that runs the workers.
+   */
+  public Executor getExecutor(){
+    return executor;
+  }
+}
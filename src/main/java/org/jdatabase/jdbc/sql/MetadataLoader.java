@@ -0,0 +1,196 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.sql;
+
+import static org.jdatabase.JDatabase.logger;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.JDBCConnectionException;
+
+/**
+ * The children of a node of the metadata tree ({@link Server#getDatabases() databases of a server},
+ * {@link Database#getSchemas() schemas of a database}, {@link Schema#getTables() tables of a schema}) loaded on their first
+ * access and then kept. The children are loaded once even if they are accessed by several threads at once.<br>
+ * If a {@link #setPrefetch(Executor, Function) prefetch} is set, the first access to the children triggers the loading of
+ * the next level (the children of each child) in background. A prefetched level does not trigger any other prefetch until
+ * it is accessed, so that the tree is only loaded one level ahead of the accessed nodes.<br>
+ * As the accessors of the tree cannot throw checked exceptions, the errors raised while loading the children are wrapped
+ * within an {@link IllegalStateException} whose cause is a {@link JDBCConnectionException}. The children are then loaded
+ * again on the next access.
+ * @param <T> the type of the children.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class MetadataLoader<T> {
+
+  /**
+   * The source of the children of a node.
+   * @param <T> the type of the children.
+   */
+  public interface Source<T> {
+
+    /**
+     * Load the children of the node.
+     * @return the children of the node.
+     * @throws JDBCConnectionException if the children cannot be loaded.
+     */
+    public ArrayList<T> load() throws JDBCConnectionException;
+  }
+
+  /**
+   * The source of the children.
+   */
+  private Source<T> source                           = null;
+
+  /**
+   * The children, <code>null</code> until they are loaded.
+   */
+  private volatile ArrayList<T> children             = null;
+
+  /**
+   * The executor that prefetches the next level.
+   */
+  private Executor prefetchExecutor                  = null;
+
+  /**
+   * The function that gives the loader of the children of a child.
+   */
+  private Function<T, MetadataLoader<?>> nextLevel   = null;
+
+  /**
+   * Specify if the prefetch of the next level has been triggered.
+   */
+  private volatile boolean expanded                  = false;
+
+  /**
+   * Create a new loader of children.
+   * @param source the source of the children.
+   */
+  public MetadataLoader(Source<T> source){
+    this.source = source;
+  }
+
+  /**
+   * Get the children. They are loaded on the first call.
+   * @return the children.
+   * @throws IllegalStateException if the children cannot be loaded. The cause of the exception is a {@link JDBCConnectionException}.
+   */
+  public ArrayList<T> get(){
+    ArrayList<T> loaded = children;
+
+    if (loaded == null){
+      loaded = load();
+    }
+
+    // Prefetch du niveau suivant au premier acces, y compris si les enfants ont ete
+    // eux memes prefetches. Le prefetch ne declenche pas d'autre prefetch.
+    if (!expanded && (prefetchExecutor != null) && (nextLevel != null)){
+      expanded = true;
+      for(T child : loaded){
+        MetadataLoader<?> next = nextLevel.apply(child);
+        if (next != null){
+          next.prefetch(prefetchExecutor);
+        }
+      }
+    }
+
+    return loaded;
+  }
+
+  /**
+   * Load the children if they are not loaded yet.
+   * @return the children.
+   */
+  private synchronized ArrayList<T> load(){
+    if (children == null){
+      try {
+        ArrayList<T> loaded = source.load();
+        children = (loaded != null) ? loaded : new ArrayList<T>();
+      } catch (JDBCConnectionException e) {
+        throw new IllegalStateException(e.getMessage(), e);
+      }
+    }
+
+    return children;
+  }
+
+  /**
+   * Load the children in background using the given executor. This method does nothing if the children are already
+   * loaded. An error raised while loading the children is only logged, the children are then loaded on their first access.
+   * @param executor the executor that loads the children.
+   */
+  public void prefetch(Executor executor){
+    if (children != null){
+      return;
+    }
+
+    try {
+      executor.execute(() -> {
+        try {
+          load();
+        } catch (IllegalStateException e) {
+          logger.log(Level.FINE, "Cannot prefetch metadata: "+e.getMessage(), e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      logger.log(Level.FINE, "Cannot prefetch metadata: "+e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Set the prefetch of the next level. When the children are loaded on their first access, the children of each child,
+   * given by the <code>nextLevel</code> function, are loaded in background by the executor.
+   * @param executor the executor that prefetches the next level or <code>null</code> to disable the prefetch.
+   * @param nextLevel the function that gives the loader of the children of a child (the function can return <code>null</code>).
+   */
+  public void setPrefetch(Executor executor, Function<T, MetadataLoader<?>> nextLevel){
+    this.prefetchExecutor = executor;
+    this.nextLevel        = nextLevel;
+  }
+
+  /**
+   * Set the children. The source is not used anymore until the loader is {@link #reset() reset}.
+   * @param children the children.
+   */
+  public synchronized void set(ArrayList<T> children){
+    this.children = (children != null) ? children : new ArrayList<T>();
+  }
+
+  /**
+   * Forget the children. They are loaded again on their next access.
+   */
+  public synchronized void reset(){
+    children = null;
+    expanded = false;
+  }
+
+  /**
+   * Return <code>true</code> if the children are loaded.
+   * @return <code>true</code> if the children are loaded, <code>false</code> otherwise.
+   */
+  public boolean isLoaded(){
+    return children != null;
+  }
+}
@@ -0,0 +1,919 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.sql;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.ColumnHeader;
+import org.jdatabase.jdbc.JDBCConnection;
+import org.jdatabase.jdbc.JDBCConnectionException;
+import org.jdatabase.jdbc.mysql.MySQLColumnHeader;
+import org.jdatabase.jdbc.mysql.MySQLDatabase;
+import org.jdatabase.jdbc.mysql.MySQLServer;
+import org.jdatabase.jdbc.mysql.MySQLTable;
+import org.jdatabase.jdbc.pgsql.PGSQLColumnHeader;
+import org.jdatabase.jdbc.pgsql.PGSQLDatabase;
+import org.jdatabase.jdbc.pgsql.PGSQLSchema;
+import org.jdatabase.jdbc.pgsql.PGSQLServer;
+import org.jdatabase.jdbc.pgsql.PGSQLTable;
+
+/**
+ * A snapshot of the metadata of a server: its databases, schemas and tables, the {@link ColumnHeader headers} of the
+ * tables that are known and a change token for each table. The snapshot can be {@link #save(File) saved} to a compact
+ * binary file and {@link #load(File) loaded} back, so that a process can start with the metadata of the previous run
+ * instead of crawling the server.<br>
+ * A snapshot is {@link #scan(JDBCConnection) scanned} from the server with a single query that reads the structure and
+ * the change tokens without any header. The change token of a table is a digest of the definitions of its columns (name,
+ * type, nullability, default value, key and comment), computed by the server from <code>information_schema.COLUMNS</code>
+ * for MySQL and from <code>pg_attribute</code> for PostgreSQL, where it is prefixed by the <code>xmin</code> of the
+ * <code>pg_class</code> row of the table so that the other changes of its definition are also detected. The token only
+ * changes when the structure of the table is modified, not when its content is. The headers of an older snapshot
+ * are then {@link #copyHeaders(MetadataSnapshot) copied} for the tables whose token did not change and the changes
+ * between both snapshots can be {@link #diff(MetadataSnapshot, Object) computed}.<br>
+ * Within a snapshot, a MySQL database is also its only schema (the schema has the name of the database). As for
+ * {@link org.jdatabase.jdbc.pgsql.PGSQLToolKit#listDatabases(Server)}, the schemas of a PostgreSQL server are only known
+ * for the current database.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see CachingSQLToolkit#loadSnapshot(File)
+ */
+public class MetadataSnapshot {
+
+  /**
+   * The magic number that starts a snapshot file.
+   */
+  private static final int MAGIC          = 0x4A444D53;
+
+  /**
+   * The version of the snapshot file format.
+   */
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * The kind of a {@link ColumnHeader generic header}.
+   */
+  private static final byte HEADER_BASE   = 0;
+
+  /**
+   * The kind of a {@link MySQLColumnHeader MySQL header}.
+   */
+  private static final byte HEADER_MYSQL  = 1;
+
+  /**
+   * The kind of a {@link PGSQLColumnHeader PostgreSQL header}.
+   */
+  private static final byte HEADER_PGSQL  = 2;
+
+  /**
+   * The name of the server.
+   */
+  private String serverName = null;
+
+  /**
+   * The type of the server ({@link JDBCConnection#MYSQL} or {@link JDBCConnection#POSTGRESQL}).
+   */
+  private int type          = -1;
+
+  /**
+   * The date of the snapshot (in milliseconds).
+   */
+  private long timestamp    = 0;
+
+  /**
+   * The tables, by database and by schema.
+   */
+  private LinkedHashMap<String, LinkedHashMap<String, LinkedHashMap<String, Entry>>> databases = null;
+
+  /**
+   * Create a new empty snapshot.
+   * @param serverName the name of the server.
+   * @param type the type of the server ({@link JDBCConnection#MYSQL} or {@link JDBCConnection#POSTGRESQL}).
+   * @param timestamp the date of the snapshot (in milliseconds).
+   */
+  public MetadataSnapshot(String serverName, int type, long timestamp){
+    this.serverName = serverName;
+    this.type       = type;
+    this.timestamp  = timestamp;
+    this.databases  = new LinkedHashMap<String, LinkedHashMap<String, LinkedHashMap<String, Entry>>>();
+  }
+
+  /**
+   * Scan the structure of the server the given connection is connected to. The databases, the schemas, the tables and
+   * their change tokens are read without any table header.
+   * @param connection the connection to the server.
+   * @return the snapshot of the server.
+   * @throws JDBCConnectionException if the structure cannot be read or if the type of the server does not support snapshots.
+   */
+  public static MetadataSnapshot scan(JDBCConnection connection) throws JDBCConnectionException{
+    MetadataSnapshot snapshot = new MetadataSnapshot(connection.getName(), connection.getDbType(), System.currentTimeMillis());
+
+    Connection dbConnection   = null;
+    Statement statement       = null;
+    ResultSet resultSet       = null;
+
+    String current            = null;
+    String req                = null;
+
+    if ((connection.getDbType() != JDBCConnection.MYSQL) && (connection.getDbType() != JDBCConnection.POSTGRESQL)){
+      throw new JDBCConnectionException("Metadata snapshots are not supported by "+connection.getName(), JDBCConnectionException.UNKNOWN_DATABASE_TYPE);
+    }
+
+    // La connexion est empruntee car le scan peut etre fait en arriere plan
+    dbConnection = connection.borrowConnection();
+
+    try {
+      statement = dbConnection.createStatement();
+
+      if (connection.getDbType() == JDBCConnection.MYSQL){
+
+        // Une base MySQL est son propre schema. Le jeton est la somme des empreintes des colonnes
+        // (GROUP_CONCAT serait tronque a group_concat_max_len), la position rend la somme sensible a l'ordre.
+        req = "SELECT s.SCHEMA_NAME, t.TABLE_NAME, c.TOKEN"
+            + " FROM information_schema.SCHEMATA s"
+            + " LEFT JOIN information_schema.TABLES t ON t.TABLE_SCHEMA = s.SCHEMA_NAME"
+            + " LEFT JOIN (SELECT TABLE_SCHEMA, TABLE_NAME, CONCAT(COUNT(*), '/', SUM(CAST(CONV(LEFT(MD5(CONCAT_WS(':',"
+            + " ORDINAL_POSITION, COLUMN_NAME, COLUMN_TYPE, IS_NULLABLE, QUOTE(COLUMN_DEFAULT), COLUMN_KEY, EXTRA, COLUMN_COMMENT)),"
+            + " 15), 16, 10) AS UNSIGNED))) AS TOKEN"
+            + " FROM information_schema.COLUMNS GROUP BY TABLE_SCHEMA, TABLE_NAME) c"
+            + " ON c.TABLE_SCHEMA = t.TABLE_SCHEMA AND c.TABLE_NAME = t.TABLE_NAME"
+            + " ORDER BY s.SCHEMA_NAME, t.TABLE_NAME";
+
+        resultSet = statement.executeQuery(req);
+        while (resultSet.next()) {
+          String database = resultSet.getString(1);
+
+          // On ignore le repertoire lost+found present dans les systeme linux
+          if ((database == null) || database.equals("lost+found")){
+            continue;
+          }
+
+          snapshot.addSchema(database, database);
+          if ((resultSet.getString(2) != null) && !resultSet.getString(2).equals("lost+found")){
+            snapshot.addTable(database, database, resultSet.getString(2), resultSet.getString(3), null);
+          }
+        }
+        resultSet.close();
+
+      } else {
+
+        req = "SELECT datname, datname = current_database() FROM pg_database ORDER BY datname;";
+
+        resultSet = statement.executeQuery(req);
+        while (resultSet.next()) {
+          snapshot.addDatabase(resultSet.getString(1));
+          if (resultSet.getBoolean(2)){
+            current = resultSet.getString(1);
+          }
+        }
+        resultSet.close();
+
+        // Seul le catalogue de la base courante est accessible. Le xmin de la ligne pg_class ne change
+        // pas avec les colonnes (renommage, nullite, defaut, commentaire), qui ont donc leur empreinte.
+        if (current != null){
+          req = "SELECT n.nspname, c.relname, c.xmin::text || '/' || coalesce(("
+              + "SELECT md5(string_agg(a.attname || ':' || format_type(a.atttypid, a.atttypmod) || ':' || a.attnotnull"
+              + " || ':' || coalesce(pg_get_expr(d.adbin, d.adrelid), '') || ':' || coalesce(col_description(a.attrelid, a.attnum), '')"
+              + " || ':' || EXISTS(SELECT 1 FROM pg_index i WHERE i.indrelid = a.attrelid AND i.indisprimary AND a.attnum = ANY(i.indkey)),"
+              + " ',' ORDER BY a.attnum))"
+              + " FROM pg_attribute a LEFT JOIN pg_attrdef d ON d.adrelid = a.attrelid AND d.adnum = a.attnum"
+              + " WHERE a.attrelid = c.oid AND a.attnum > 0 AND NOT a.attisdropped), '')"
+              + " FROM pg_namespace n"
+              + " LEFT JOIN pg_class c ON c.relnamespace = n.oid AND c.relkind IN ('r', 'v', 'm', 'p', 'f')"
+              + " ORDER BY n.nspname, c.relname;";
+
+          resultSet = statement.executeQuery(req);
+          while (resultSet.next()) {
+            snapshot.addSchema(current, resultSet.getString(1));
+            if (resultSet.getString(2) != null){
+              snapshot.addTable(current, resultSet.getString(1), resultSet.getString(2), resultSet.getString(3), null);
+            }
+          }
+          resultSet.close();
+        }
+      }
+
+      statement.close();
+
+    } catch (SQLException ex)  {
+      throw connection.processSQLException(
+             ex, connection.getDbName(), connection.getDbUser(),
+             connection.getDbPassword(), connection.getDbServer(),
+             connection.getDbPort(), connection.getDbType(), req);
+    } finally {
+      connection.releaseConnection(dbConnection);
+    }
+
+    resultSet = null;
+    statement = null;
+
+    return snapshot;
+  }
+
+  /**
+   * Add a database to the snapshot. This method does nothing if the database is already within the snapshot.
+   * @param database the name of the database.
+   */
+  public void addDatabase(String database){
+    databases.computeIfAbsent(database, name -> new LinkedHashMap<String, LinkedHashMap<String, Entry>>());
+  }
+
+  /**
+   * Add a schema to the snapshot. The database is added if needed.
+   * @param database the name of the database.
+   * @param schema the name of the schema.
+   */
+  public void addSchema(String database, String schema){
+    addDatabase(database);
+    databases.get(database).computeIfAbsent(schema, name -> new LinkedHashMap<String, Entry>());
+  }
+
+  /**
+   * Add a table to the snapshot. The database and the schema are added if needed. If the table is already within the
+   * snapshot, its token and its header are replaced.
+   * @param database the name of the database.
+   * @param schema the name of the schema.
+   * @param table the name of the table.
+   * @param token the change token of the table (can be <code>null</code>).
+   * @param header the header of the table or <code>null</code> if the header is not known.
+   */
+  public void addTable(String database, String schema, String table, String token, ColumnHeader[] header){
+    addSchema(database, schema);
+    databases.get(database).get(schema).put(table, new Entry(token, header));
+  }
+
+  /**
+   * Get the name of the server.
+   * @return the name of the server.
+   */
+  public String getServerName(){
+    return serverName;
+  }
+
+  /**
+   * Get the type of the server.
+   * @return the type of the server ({@link JDBCConnection#MYSQL} or {@link JDBCConnection#POSTGRESQL}).
+   */
+  public int getType(){
+    return type;
+  }
+
+  /**
+   * Get the date of the snapshot.
+   * @return the date of the snapshot (in milliseconds).
+   */
+  public long getTimestamp(){
+    return timestamp;
+  }
+
+  /**
+   * Get the names of the databases.
+   * @return the names of the databases.
+   */
+  public ArrayList<String> getDatabaseNames(){
+    return new ArrayList<String>(databases.keySet());
+  }
+
+  /**
+   * Get the names of the schemas of a database.
+   * @param database the name of the database.
+   * @return the names of the schemas or <code>null</code> if the database is not within the snapshot.
+   */
+  public ArrayList<String> getSchemaNames(String database){
+    Map<String, LinkedHashMap<String, Entry>> schemas = databases.get(database);
+    return (schemas != null) ? new ArrayList<String>(schemas.keySet()) : null;
+  }
+
+  /**
+   * Get the names of the tables of a schema.
+   * @param database the name of the database.
+   * @param schema the name of the schema.
+   * @return the names of the tables or <code>null</code> if the schema is not within the snapshot.
+   */
+  public ArrayList<String> getTableNames(String database, String schema){
+    Map<String, Entry> tables = tables(database, schema);
+    return (tables != null) ? new ArrayList<String>(tables.keySet()) : null;
+  }
+
+  /**
+   * Get the change token of a table.
+   * @param database the name of the database.
+   * @param schema the name of the schema.
+   * @param table the name of the table.
+   * @return the change token of the table or <code>null</code> if the token or the table is not known.
+   */
+  public String getChangeToken(String database, String schema, String table){
+    Entry entry = entry(database, schema, table);
+    return (entry != null) ? entry.token : null;
+  }
+
+  /**
+   * Get the header of a table.
+   * @param database the name of the database.
+   * @param schema the name of the schema.
+   * @param table the name of the table.
+   * @return the header of the table or <code>null</code> if the header or the table is not known.
+   */
+  public ColumnHeader[] getTableHeader(String database, String schema, String table){
+    Entry entry = entry(database, schema, table);
+    return (entry != null) ? entry.header : null;
+  }
+
+  /**
+   * Set the header of a table. This method does nothing if the table is not within the snapshot.
+   * @param database the name of the database.
+   * @param schema the name of the schema.
+   * @param table the name of the table.
+   * @param header the header of the table or <code>null</code> if the header is not known.
+   */
+  public void setTableHeader(String database, String schema, String table, ColumnHeader[] header){
+    Entry entry = entry(database, schema, table);
+    if (entry != null){
+      entry.header = header;
+    }
+  }
+
+  /**
+   * Get the number of tables within the snapshot.
+   * @return the number of tables.
+   */
+  public int getTableCount(){
+    int count = 0;
+    for(LinkedHashMap<String, LinkedHashMap<String, Entry>> schemas : databases.values()){
+      for(LinkedHashMap<String, Entry> tables : schemas.values()){
+        count += tables.size();
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Copy the headers of an older snapshot of the same server. The header of a table is copied if the table has the same
+   * change token within both snapshots. The tables without token are considered as changed.
+   * @param previous the older snapshot.
+   * @return the number of tables that are new or whose token changed.
+   */
+  public int copyHeaders(MetadataSnapshot previous){
+    int changed = 0;
+
+    for(Map.Entry<String, LinkedHashMap<String, LinkedHashMap<String, Entry>>> database : databases.entrySet()){
+      for(Map.Entry<String, LinkedHashMap<String, Entry>> schema : database.getValue().entrySet()){
+        for(Map.Entry<String, Entry> table : schema.getValue().entrySet()){
+          Entry old = previous.entry(database.getKey(), schema.getKey(), table.getKey());
+
+          if ((old != null) && (old.token != null) && old.token.equals(table.getValue().token)){
+            if (table.getValue().header == null){
+              table.getValue().header = old.header;
+            }
+          } else {
+            changed++;
+          }
+        }
+      }
+    }
+
+    return changed;
+  }
+
+  /**
+   * Compute the changes between an older snapshot of the same server and this one. The databases, schemas and tables are
+   * compared by name. A table whose change token differs is reported as {@link MetadataChangeEvent#TABLE_ALTERED altered}.
+   * If the headers of the table are known within both snapshots, the event is followed by the changes of its columns.
+   * The columns can be identical if the change does not concern them (a PostgreSQL index for example) or if the header
+   * does not describe them (an empty PostgreSQL header).
+   * @param previous the older snapshot.
+   * @param source the source of the events.
+   * @return the changes, an empty list if nothing changed.
+   */
+  public ArrayList<MetadataChangeEvent> diff(MetadataSnapshot previous, Object source){
+    ArrayList<MetadataChangeEvent> events                       = new ArrayList<MetadataChangeEvent>();
+    ArrayList<MetadataChangeEvent> columns                      = null;
+
+    LinkedHashMap<String, LinkedHashMap<String, Entry>> schemas = null;
+    LinkedHashMap<String, Entry> tables                         = null;
+    Entry old                                                   = null;
+
+    for(String database : previous.databases.keySet()){
+      if (!databases.containsKey(database)){
+        events.add(new MetadataChangeEvent(source, MetadataChangeEvent.DATABASE_REMOVED, database, null, null, null, null));
+      }
+    }
+
+    for(Map.Entry<String, LinkedHashMap<String, LinkedHashMap<String, Entry>>> database : databases.entrySet()){
+      schemas = previous.databases.get(database.getKey());
+
+      if (schemas == null){
+        events.add(new MetadataChangeEvent(source, MetadataChangeEvent.DATABASE_ADDED, database.getKey(), null, null, null, null));
+        continue;
+      }
+
+      for(String schema : schemas.keySet()){
+        if (!database.getValue().containsKey(schema)){
+          events.add(new MetadataChangeEvent(source, MetadataChangeEvent.SCHEMA_REMOVED, database.getKey(), schema, null, null, null));
+        }
+      }
+
+      for(Map.Entry<String, LinkedHashMap<String, Entry>> schema : database.getValue().entrySet()){
+        tables = schemas.get(schema.getKey());
+
+        if (tables == null){
+          events.add(new MetadataChangeEvent(source, MetadataChangeEvent.SCHEMA_ADDED, database.getKey(), schema.getKey(), null, null, null));
+          continue;
+        }
+
+        for(String table : tables.keySet()){
+          if (!schema.getValue().containsKey(table)){
+            events.add(new MetadataChangeEvent(source, MetadataChangeEvent.TABLE_REMOVED, database.getKey(), schema.getKey(), table, null, null));
+          }
+        }
+
+        for(Map.Entry<String, Entry> table : schema.getValue().entrySet()){
+          old = tables.get(table.getKey());
+
+          if (old == null){
+            events.add(new MetadataChangeEvent(source, MetadataChangeEvent.TABLE_ADDED, database.getKey(), schema.getKey(), table.getKey(), null, null));
+          } else if ((old.token == null) || !old.token.equals(table.getValue().token)){
+
+            if ((old.header != null) && (table.getValue().header != null)){
+              columns = diff(old.header, table.getValue().header, source, database.getKey(), schema.getKey(), table.getKey());
+            } else {
+              columns = null;
+            }
+
+            events.add(new MetadataChangeEvent(source, MetadataChangeEvent.TABLE_ALTERED, database.getKey(), schema.getKey(), table.getKey(), null, null));
+            if (columns != null){
+              events.addAll(columns);
+            }
+          }
+        }
+      }
+    }
+
+    return events;
+  }
+
+  /**
+   * Compute the changes between the columns of a table.
+   * @param before the header of the table before the change.
+   * @param after the header of the table after the change.
+   * @param source the source of the events.
+   * @param database the name of the database.
+   * @param schema the name of the schema.
+   * @param table the name of the table.
+   * @return the changes of the columns.
+   */
+  private static ArrayList<MetadataChangeEvent> diff(ColumnHeader[] before, ColumnHeader[] after, Object source,
+                                                     String database, String schema, String table){
+    ArrayList<MetadataChangeEvent> events         = new ArrayList<MetadataChangeEvent>();
+    LinkedHashMap<String, ColumnHeader> previous  = new LinkedHashMap<String, ColumnHeader>();
+    LinkedHashMap<String, ColumnHeader> current   = new LinkedHashMap<String, ColumnHeader>();
+
+    for(ColumnHeader column : before){
+      previous.put(column.getName(), column);
+    }
+
+    for(ColumnHeader column : after){
+      current.put(column.getName(), column);
+    }
+
+    for(ColumnHeader column : before){
+      if (!current.containsKey(column.getName())){
+        events.add(new MetadataChangeEvent(source, MetadataChangeEvent.COLUMN_REMOVED, database, schema, table, column, null));
+      }
+    }
+
+    for(ColumnHeader column : after){
+      ColumnHeader old = previous.get(column.getName());
+
+      if (old == null){
+        events.add(new MetadataChangeEvent(source, MetadataChangeEvent.COLUMN_ADDED, database, schema, table, null, column));
+      } else if (!sameDefinition(old, column)){
+        events.add(new MetadataChangeEvent(source, MetadataChangeEvent.COLUMN_ALTERED, database, schema, table, old, column));
+      }
+    }
+
+    return events;
+  }
+
+  /**
+   * Return <code>true</code> if two columns have the same definition. The ordinal position is not compared, so that
+   * the columns that follow an added or a removed column are not reported as altered.
+   * @param a the first column.
+   * @param b the second column.
+   * @return <code>true</code> if the columns have the same definition, <code>false</code> otherwise.
+   */
+  private static boolean sameDefinition(ColumnHeader a, ColumnHeader b){
+    return (a.getType() == b.getType())
+        && Objects.equals(a.getTypeName(), b.getTypeName())
+        && (a.getColumnSize() == b.getColumnSize())
+        && (a.getDecimalDigits() == b.getDecimalDigits())
+        && (a.getNullable() == b.getNullable())
+        && Objects.equals(a.getDefaultValue(), b.getDefaultValue())
+        && Objects.equals(a.getRemarks(), b.getRemarks())
+        && Objects.equals(a.getAutoIncrement(), b.getAutoIncrement())
+        && Objects.equals(a.getColumnKey(), b.getColumnKey());
+  }
+
+  /**
+   * Return <code>true</code> if the given snapshot has the same databases, schemas and tables than this one.
+   * The change tokens and the headers are not compared.
+   * @param snapshot the snapshot to compare.
+   * @return <code>true</code> if both snapshots have the same structure, <code>false</code> otherwise.
+   */
+  public boolean hasSameStructure(MetadataSnapshot snapshot){
+    if (!databases.keySet().equals(snapshot.databases.keySet())){
+      return false;
+    }
+
+    for(Map.Entry<String, LinkedHashMap<String, LinkedHashMap<String, Entry>>> database : databases.entrySet()){
+      LinkedHashMap<String, LinkedHashMap<String, Entry>> schemas = snapshot.databases.get(database.getKey());
+
+      if (!database.getValue().keySet().equals(schemas.keySet())){
+        return false;
+      }
+
+      for(Map.Entry<String, LinkedHashMap<String, Entry>> schema : database.getValue().entrySet()){
+        if (!schema.getValue().keySet().equals(schemas.get(schema.getKey()).keySet())){
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Create the {@link Server server} tree described by the snapshot. The nodes are the ones created by the toolkit of the
+   * type of the server ({@link MySQLServer}, {@link PGSQLServer}, ...). They are fully loaded and do not access the server.
+   * @return the server tree.
+   */
+  public Server toServer(){
+    Server server = null;
+
+    if (type == JDBCConnection.MYSQL){
+      server = new MySQLServer(serverName);
+
+      for(Map.Entry<String, LinkedHashMap<String, LinkedHashMap<String, Entry>>> database : databases.entrySet()){
+        MySQLDatabase node = new MySQLDatabase(database.getKey(), server);
+        server.getDatabases().add(node);
+
+        for(LinkedHashMap<String, Entry> tables : database.getValue().values()){
+          for(String table : tables.keySet()){
+            node.getTables().add(new MySQLTable(table, node));
+          }
+        }
+      }
+
+    } else {
+      server = new PGSQLServer(serverName);
+
+      for(Map.Entry<String, LinkedHashMap<String, LinkedHashMap<String, Entry>>> database : databases.entrySet()){
+        PGSQLDatabase node = new PGSQLDatabase(database.getKey(), server);
+        server.getDatabases().add(node);
+
+        for(Map.Entry<String, LinkedHashMap<String, Entry>> schema : database.getValue().entrySet()){
+          PGSQLSchema schemaNode = new PGSQLSchema(schema.getKey(), node);
+          node.getSchemas().add(schemaNode);
+
+          for(String table : schema.getValue().keySet()){
+            schemaNode.getTables().add(new PGSQLTable(table, schemaNode));
+          }
+        }
+      }
+    }
+
+    return server;
+  }
+
+  /**
+   * Save the snapshot to the given file. The snapshot is first written to a temporary file that then replaces the
+   * given file, so that a snapshot being saved never overwrites a valid snapshot with a partial one.
+   * @param file the file.
+   * @throws JDBCConnectionException if the snapshot cannot be written.
+   */
+  public void save(File file) throws JDBCConnectionException{
+    File directory = file.getAbsoluteFile().getParentFile();
+    File temporary = null;
+
+    try {
+      temporary = File.createTempFile(file.getName(), ".tmp", directory);
+
+      try (OutputStream output = new FileOutputStream(temporary)){
+        write(output);
+      }
+
+      try {
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      if (temporary != null){
+        temporary.delete();
+      }
+      throw new JDBCConnectionException("Cannot save metadata snapshot to "+file+": "+e.getMessage(), JDBCConnectionException.SNAPSHOT_ERROR, e);
+    }
+  }
+
+  /**
+   * Load a snapshot from the given file.
+   * @param file the file.
+   * @return the snapshot.
+   * @throws JDBCConnectionException if the snapshot cannot be read.
+   */
+  public static MetadataSnapshot load(File file) throws JDBCConnectionException{
+    try (InputStream input = new FileInputStream(file)){
+      return read(input);
+    } catch (IOException e) {
+      throw new JDBCConnectionException("Cannot load metadata snapshot from "+file+": "+e.getMessage(), JDBCConnectionException.SNAPSHOT_ERROR, e);
+    }
+  }
+
+  /**
+   * Write the snapshot to the given stream. The snapshot is compressed. The stream is not closed.
+   * @param output the stream.
+   * @throws IOException if the snapshot cannot be written.
+   */
+  public void write(OutputStream output) throws IOException{
+    GZIPOutputStream compressed = new GZIPOutputStream(output, 65536);
+    DataOutputStream data       = new DataOutputStream(new BufferedOutputStream(compressed, 65536));
+
+    data.writeInt(MAGIC);
+    data.writeInt(FORMAT_VERSION);
+    writeString(data, serverName);
+    data.writeInt(type);
+    data.writeLong(timestamp);
+
+    data.writeInt(databases.size());
+    for(Map.Entry<String, LinkedHashMap<String, LinkedHashMap<String, Entry>>> database : databases.entrySet()){
+      writeString(data, database.getKey());
+
+      data.writeInt(database.getValue().size());
+      for(Map.Entry<String, LinkedHashMap<String, Entry>> schema : database.getValue().entrySet()){
+        writeString(data, schema.getKey());
+
+        data.writeInt(schema.getValue().size());
+        for(Map.Entry<String, Entry> table : schema.getValue().entrySet()){
+          writeString(data, table.getKey());
+          writeString(data, table.getValue().token);
+          writeHeader(data, table.getValue().header);
+        }
+      }
+    }
+
+    data.flush();
+    compressed.finish();
+  }
+
+  /**
+   * Read a snapshot from the given stream. The stream is not closed.
+   * @param input the stream.
+   * @return the snapshot.
+   * @throws IOException if the snapshot cannot be read or if the stream does not contain a snapshot.
+   */
+  public static MetadataSnapshot read(InputStream input) throws IOException{
+    DataInputStream data      = new DataInputStream(new BufferedInputStream(new GZIPInputStream(input, 65536), 65536));
+    MetadataSnapshot snapshot = null;
+
+    int version               = 0;
+
+    if (data.readInt() != MAGIC){
+      throw new IOException("Not a metadata snapshot");
+    }
+
+    version = data.readInt();
+    if (version != FORMAT_VERSION){
+      throw new IOException("Unsupported metadata snapshot version "+version);
+    }
+
+    snapshot = new MetadataSnapshot(readString(data), data.readInt(), data.readLong());
+
+    for(int databaseCount = data.readInt(); databaseCount > 0; databaseCount--){
+      String database = readString(data);
+      snapshot.addDatabase(database);
+
+      for(int schemaCount = data.readInt(); schemaCount > 0; schemaCount--){
+        String schema = readString(data);
+        snapshot.addSchema(database, schema);
+
+        for(int tableCount = data.readInt(); tableCount > 0; tableCount--){
+          snapshot.addTable(database, schema, readString(data), readString(data), readHeader(data));
+        }
+      }
+    }
+
+    return snapshot;
+  }
+
+  /**
+   * Get the tables of a schema.
+   * @param database the name of the database.
+   * @param schema the name of the schema.
+   * @return the tables of the schema or <code>null</code> if the schema is not within the snapshot.
+   */
+  private LinkedHashMap<String, Entry> tables(String database, String schema){
+    LinkedHashMap<String, LinkedHashMap<String, Entry>> schemas = databases.get(database);
+    return (schemas != null) ? schemas.get(schema) : null;
+  }
+
+  /**
+   * Get the entry of a table.
+   * @param database the name of the database.
+   * @param schema the name of the schema.
+   * @param table the name of the table.
+   * @return the entry of the table or <code>null</code> if the table is not within the snapshot.
+   */
+  private Entry entry(String database, String schema, String table){
+    LinkedHashMap<String, Entry> tables = tables(database, schema);
+    return (tables != null) ? tables.get(table) : null;
+  }
+
+  /**
+   * Write a table header.
+   * @param data the stream.
+   * @param header the header (can be <code>null</code>).
+   * @throws IOException if the header cannot be written.
+   */
+  private static void writeHeader(DataOutputStream data, ColumnHeader[] header) throws IOException{
+    if (header == null){
+      data.writeInt(-1);
+      return;
+    }
+
+    data.writeInt(header.length);
+    for(ColumnHeader column : header){
+      if (column instanceof MySQLColumnHeader){
+        data.writeByte(HEADER_MYSQL);
+      } else if (column instanceof PGSQLColumnHeader){
+        data.writeByte(HEADER_PGSQL);
+      } else {
+        data.writeByte(HEADER_BASE);
+      }
+
+      writeString(data, column.getName());
+      data.writeInt(column.getType());
+      writeString(data, column.getTypeName());
+      data.writeInt(column.getColumnSize());
+      data.writeInt(column.getDecimalDigits());
+      data.writeInt(column.getNullable());
+      writeString(data, column.getRemarks());
+      writeString(data, column.getDefaultValue());
+      data.writeInt(column.getCharOctetLength());
+      data.writeInt(column.getOrdinalPosition());
+      writeString(data, column.isNullable());
+      writeString(data, column.getAutoIncrement());
+      writeString(data, column.getColumnKey());
+
+      if (column instanceof MySQLColumnHeader){
+        data.writeInt(((MySQLColumnHeader) column).getNumericPrecision());
+        data.writeInt(((MySQLColumnHeader) column).getNumericScale());
+        writeString(data, ((MySQLColumnHeader) column).getExtra());
+        writeString(data, ((MySQLColumnHeader) column).getPrivileges());
+      }
+    }
+  }
+
+  /**
+   * Read a table header.
+   * @param data the stream.
+   * @return the header (can be <code>null</code>).
+   * @throws IOException if the header cannot be read.
+   */
+  private static ColumnHeader[] readHeader(DataInputStream data) throws IOException{
+    ColumnHeader[] header = null;
+    int length            = data.readInt();
+
+    if (length < 0){
+      return null;
+    }
+
+    header = new ColumnHeader[length];
+    for(int i = 0; i < length; i++){
+      byte kind              = data.readByte();
+
+      String name            = readString(data);
+      int columnType         = data.readInt();
+      String typeName        = readString(data);
+      int columnSize         = data.readInt();
+      int decimalDigits      = data.readInt();
+      int nullable           = data.readInt();
+      String remarks         = readString(data);
+      String defaultValue    = readString(data);
+      int charOctetLength    = data.readInt();
+      int ordinalPosition    = data.readInt();
+      String isNullable      = readString(data);
+      String autoIncrement   = readString(data);
+      String columnKey       = readString(data);
+
+      switch(kind){
+        case HEADER_MYSQL:
+          header[i] = new MySQLColumnHeader(name, columnType, typeName, columnSize, decimalDigits, nullable, remarks, defaultValue,
+                                            charOctetLength, ordinalPosition, isNullable, autoIncrement, data.readInt(), data.readInt(),
+                                            columnKey, readString(data), readString(data));
+          break;
+        case HEADER_PGSQL:
+          header[i] = new PGSQLColumnHeader(name, columnType, typeName, columnSize, decimalDigits, nullable, remarks, defaultValue,
+                                            charOctetLength, ordinalPosition, isNullable, autoIncrement, columnKey);
+          break;
+        case HEADER_BASE:
+          header[i] = new ColumnHeader(name, columnType, typeName, columnSize, decimalDigits, nullable, remarks, defaultValue,
+                                       charOctetLength, ordinalPosition, isNullable, autoIncrement, columnKey);
+          break;
+        default:
+          throw new IOException("Unknown column header kind "+kind);
+      }
+    }
+
+    return header;
+  }
+
+  /**
+   * Write a string as its UTF-8 bytes preceded by their number (-1 for a <code>null</code> string).
+   * @param data the stream.
+   * @param value the string (can be <code>null</code>).
+   * @throws IOException if the string cannot be written.
+   */
+  private static void writeString(DataOutputStream data, String value) throws IOException{
+    if (value == null){
+      data.writeInt(-1);
+    } else {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      data.writeInt(bytes.length);
+      data.write(bytes);
+    }
+  }
+
+  /**
+   * Read a string written by {@link #writeString(DataOutputStream, String)}.
+   * @param data the stream.
+   * @return the string (can be <code>null</code>).
+   * @throws IOException if the string cannot be read.
+   */
+  private static String readString(DataInputStream data) throws IOException{
+    int length   = data.readInt();
+    byte[] bytes = null;
+
+    if (length < 0){
+      return null;
+    }
+
+    bytes = new byte[length];
+    data.readFully(bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The change token and the header of a table.
+   */
+  private static class Entry {
+
+    private String token;
+
+    private ColumnHeader[] header;
+
+    Entry(String token, ColumnHeader[] header){
+      this.token  = token;
+      this.header = header;
+    }
+  }
+}
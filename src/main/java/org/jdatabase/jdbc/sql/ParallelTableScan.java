@@ -0,0 +1,559 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.sql;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.JDBCConnection;
+import org.jdatabase.jdbc.JDBCConnectionException;
+import org.jdatabase.jdbc.RowCursor;
+import org.jdatabase.jdbc.RowSink;
+
+/**
+ * A scan of a whole {@link Table table} that reads several partitions of the table in parallel. Each partition is read
+ * by its own {@link RowCursor cursor}, on its own connection, within the {@link JDBCConnection#getAsyncExecutor() asynchronous
+ * executor} of the connection. The table is partitioned:
+ * <ul>
+ * <li>by ranges of values of a numeric key column, if a {@link #setKeyColumn(String) key column} is given or if the table has an
+ * integer primary key,
+ * <li>by ranges of physical pages (<code>ctid</code>) for a PostgreSQL table without usable key, if the server supports
+ * the TID range scans (PostgreSQL 14 and later, otherwise each partition would read the whole table),
+ * <li>otherwise the table is read by a single cursor.
+ * </ul>
+ * The table is only partitioned if the {@link JDBCConnection connection} of the toolkit is
+ * {@link JDBCConnection#isPooled() pooled}, the number of partitions read at once being bounded by the pool size (minus the
+ * connection of the pool held by the main connection).
+ * Without pool, the table is always read by a single cursor.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ */
+public class ParallelTableScan {
+
+  /**
+   * The toolkit used to read the table.
+   */
+  private SQLToolkit toolkit   = null;
+
+  /**
+   * The table to read.
+   */
+  private Table table          = null;
+
+  /**
+   * The number of partitions.
+   */
+  private int partitionCount   = 1;
+
+  /**
+   * The column used for splitting the table by ranges of values.
+   */
+  private String keyColumn     = null;
+
+  /**
+   * The number of rows fetched from the server at once by each partition.
+   */
+  private int fetchSize        = RowCursor.DEFAULT_FETCH_SIZE;
+
+  /**
+   * The executor that reads the partitions (<code>null</code> for the executor of the connection).
+   */
+  private Executor executor    = null;
+
+  /**
+   * Create a new parallel scan of the given table. The default number of partitions is the minimum of the
+   * number of connections of the pool that are not held by the main connection (the maximum size of the pool minus one)
+   * and the number of available processors (1 if the connection is not pooled).
+   * @param toolkit the toolkit used to read the table.
+   * @param table the table to read.
+   */
+  public ParallelTableScan(SQLToolkit toolkit, Table table){
+    this.toolkit = toolkit;
+    this.table   = table;
+
+    JDBCConnection connection = toolkit.getConnection();
+    if ((connection != null) && connection.isPooled()){
+      // La connexion principale occupe deja une connexion du pool
+      partitionCount = Math.max(1, Math.min(connection.getPool().getMaxSize() - 1, Runtime.getRuntime().availableProcessors()));
+    }
+  }
+
+  /**
+   * Read the whole table and give the rows to the given sink. The sink is called concurrently by the threads
+   * reading the partitions and has to be thread safe. The rows of a partition are given in order but the rows of
+   * different partitions are interleaved. If a partition cannot be read, the other partitions are stopped and the error
+   * is thrown.
+   * @param sink the sink that processes the rows.
+   * @return the number of rows read.
+   * @throws JDBCConnectionException if an error occurs.
+   */
+  public long scan(RowSink sink) throws JDBCConnectionException{
+    ArrayList<String> queries = getPartitionQueries();
+    RowSink[] sinks           = new RowSink[queries.size()];
+
+    for(int i = 0; i < sinks.length; i++){
+      sinks[i] = sink;
+    }
+
+    return scan(queries, sinks);
+  }
+
+  /**
+   * Read the whole table as an array of rows. The partitions are read in parallel and concatenated in order.
+   * @return the rows of the table or <code>null</code> if the table is empty.
+   * @throws JDBCConnectionException if an error occurs.
+   * @see SQLToolkit#getTableData(Table)
+   */
+  public Object[][] getTableData() throws JDBCConnectionException{
+    ArrayList<String> queries = getPartitionQueries();
+    RowSink[] sinks                  = new RowSink[queries.size()];
+    ArrayList<Object[]> rows         = null;
+    List<List<Object[]>> partitions  = new ArrayList<List<Object[]>>(queries.size());
+
+    // Chaque partition est stockee dans sa propre liste afin de conserver l'ordre des partitions
+    for(int i = 0; i < sinks.length; i++){
+      List<Object[]> partition = new ArrayList<Object[]>();
+      partitions.add(partition);
+      sinks[i] = row -> partition.add(row);
+    }
+
+    scan(queries, sinks);
+
+    rows = new ArrayList<Object[]>();
+    for(List<Object[]> partition : partitions){
+      rows.addAll(partition);
+      partition.clear();
+    }
+
+    if (rows.size() > 0){
+      return rows.toArray(new Object[rows.size()][]);
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Read the given partitions in parallel.
+   * @param queries the queries that read the partitions.
+   * @param sinks the sinks that process the rows, one for each partition.
+   * @return the number of rows read.
+   * @throws JDBCConnectionException if an error occurs.
+   */
+  private long scan(ArrayList<String> queries, RowSink[] sinks) throws JDBCConnectionException{
+
+    // Une seule partition: lecture directe
+    if (queries.size() == 1){
+      return toolkit.openCursor(queries.get(0), fetchSize).drainTo(sinks[0]);
+    }
+
+    AtomicBoolean failed           = new AtomicBoolean(false);
+    AtomicLong count               = new AtomicLong();
+    CompletableFuture<?>[] readers = new CompletableFuture<?>[queries.size()];
+
+    for(int i = 0; i < queries.size(); i++){
+      String query  = queries.get(i);
+      RowSink sink  = sinks[i];
+
+      readers[i] = CompletableFuture.runAsync(() -> {
+        RowCursor cursor = null;
+        Object[] row     = null;
+
+        try {
+          cursor = toolkit.openCursor(query, fetchSize);
+          while(!failed.get() && ((row = cursor.nextRow()) != null)){
+            sink.accept(row);
+            count.incrementAndGet();
+          }
+        } catch (JDBCConnectionException e) {
+          failed.set(true);
+          throw new CompletionException(e);
+        } catch (RuntimeException e) {
+          failed.set(true);
+          throw e;
+        } finally {
+          if (cursor != null){
+            cursor.close();
+          }
+        }
+      }, getExecutor());
+    }
+
+    try {
+      CompletableFuture.allOf(readers).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof JDBCConnectionException){
+        throw (JDBCConnectionException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException){
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+
+    return count.get();
+  }
+
+  /**
+   * Get the queries that read the partitions of the table.
+   * @return the queries that read the partitions of the table.
+   * @throws JDBCConnectionException if the partitions cannot be computed.
+   */
+  public ArrayList<String> getPartitionQueries() throws JDBCConnectionException{
+    ArrayList<String> queries = new ArrayList<String>();
+    String query              = "SELECT * FROM "+getTableName();
+    String key                = null;
+    JDBCConnection connection = toolkit.getConnection();
+
+    if (partitionCount > 1){
+      key = getKeyColumn();
+
+      if (key != null){
+        queries = getKeyPartitions(query, key);
+      } else if ((connection != null) && (connection.getDbType() == JDBCConnection.POSTGRESQL)){
+        queries = getCtidPartitions(query);
+      }
+    }
+
+    if (queries.size() == 0){
+      queries.add(query);
+    }
+
+    return queries;
+  }
+
+  /**
+   * Split the table into ranges of values of the given key column.
+   * @param query the query that reads the whole table.
+   * @param key the key column.
+   * @return the queries that read the partitions or an empty list if the table cannot be split.
+   * @throws JDBCConnectionException if an error occurs.
+   */
+  private ArrayList<String> getKeyPartitions(String query, String key) throws JDBCConnectionException{
+    ArrayList<String> queries = new ArrayList<String>();
+    Object[] bounds           = queryRow("SELECT MIN("+key+"), MAX("+key+") FROM "+getTableName());
+
+    if ((bounds == null) || !(bounds[0] instanceof Number) || !(bounds[1] instanceof Number)){
+      return queries;
+    }
+
+    long min   = ((Number)bounds[0]).longValue();
+    long max   = ((Number)bounds[1]).longValue();
+    long span  = 0;
+    long lower = min;
+    long upper = 0;
+    boolean last = false;
+
+    // Taille d'une plage (arrondie au superieur), une plage unique en cas de depassement de capacite
+    try {
+      span = Math.addExact(Math.subtractExact(max / partitionCount, min / partitionCount), 1);
+    } catch (ArithmeticException e) {
+      span = Long.MAX_VALUE;
+    }
+
+    for(int i = 0; i < partitionCount; i++){
+      last = (i == partitionCount - 1);
+
+      if (!last){
+        try {
+          upper = Math.addExact(lower, span);
+          last  = upper > max;
+        } catch (ArithmeticException e) {
+          last  = true;
+        }
+      }
+
+      if (last){
+        queries.add((i == 0) ? query : query+" WHERE "+key+" >= "+lower);
+        break;
+      } else if (i == 0){
+        queries.add(query+" WHERE "+key+" < "+upper+" OR "+key+" IS NULL");
+      } else {
+        queries.add(query+" WHERE "+key+" >= "+lower+" AND "+key+" < "+upper);
+      }
+
+      lower = upper;
+    }
+
+    return queries;
+  }
+
+  /**
+   * Split a PostgreSQL table into ranges of physical pages. The last range is not bounded so that
+   * the pages added since the size of the table was read are also read. The table is not split before PostgreSQL 14,
+   * which cannot read a range of pages without scanning the whole table.
+   * @param query the query that reads the whole table.
+   * @return the queries that read the partitions or an empty list if the table cannot be split.
+   * @throws JDBCConnectionException if an error occurs.
+   */
+  private ArrayList<String> getCtidPartitions(String query) throws JDBCConnectionException{
+    ArrayList<String> queries = new ArrayList<String>();
+    String relation           = "quote_ident('"+table.getName().replace("'", "''")+"')";
+    Object[] size             = null;
+
+    if (table.getSchema() != null){
+      relation = "quote_ident('"+table.getSchema().getName().replace("'", "''")+"') || '.' || "+relation;
+    }
+
+    size = queryRow("SELECT current_setting('server_version_num')::int >= 140000,"
+                   +" pg_relation_size(("+relation+")::regclass) / current_setting('block_size')::bigint");
+
+    if ((size == null) || !Boolean.TRUE.equals(size[0]) || !(size[1] instanceof Number)){
+      return queries;
+    }
+
+    long pages = ((Number)size[1]).longValue();
+    if (pages < partitionCount){
+      return queries;
+    }
+
+    long span  = (pages + partitionCount - 1) / partitionCount;
+    for(int i = 0; i < partitionCount; i++){
+      if (i == 0){
+        queries.add(query+" WHERE ctid < '("+span+",0)'::tid");
+      } else if (i == partitionCount - 1){
+        queries.add(query+" WHERE ctid >= '("+(i * span)+",0)'::tid");
+      } else {
+        queries.add(query+" WHERE ctid >= '("+(i * span)+",0)'::tid AND ctid < '("+((i + 1) * span)+",0)'::tid");
+      }
+    }
+
+    return queries;
+  }
+
+  /**
+   * Read the first row of a query.
+   * @param query the query to process.
+   * @return the first row of the result or <code>null</code> if the result is empty.
+   * @throws JDBCConnectionException if an error occurs.
+   */
+  private Object[] queryRow(String query) throws JDBCConnectionException{
+    RowCursor cursor = toolkit.openCursor(query, 0);
+
+    try {
+      return cursor.nextRow();
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Get the name of the table as used within the queries.
+   * @return the name of the table.
+   */
+  private String getTableName(){
+    JDBCConnection connection = toolkit.getConnection();
+
+    if ((table.getSchema() != null) && ((connection == null) || (connection.getDbType() == JDBCConnection.MYSQL)
+                                         || (connection.getDbType() == JDBCConnection.POSTGRESQL))){
+      return table.getSchema().getName()+"."+table.getName();
+    }
+
+    return table.getName();
+  }
+
+  /**
+   * Set the number of partitions of the table. The number of partitions read at once is bounded by the number of
+   * connections of the pool that are not held by the main connection. If the connection is not pooled, the table is not partitioned and this method sets 1.
+   * @param partitionCount the number of partitions.
+   */
+  public void setPartitionCount(int partitionCount){
+    JDBCConnection connection = toolkit.getConnection();
+
+    if ((connection != null) && connection.isPooled()){
+      this.partitionCount = Math.max(1, partitionCount);
+    } else {
+      this.partitionCount = 1;
+    }
+  }
+
+  /**
+   * Get the number of partitions of the table.
+   * @return the number of partitions.
+   */
+  public int getPartitionCount(){
+    return partitionCount;
+  }
+
+  /**
+   * Set the numeric column used for splitting the table by ranges of values. If no column is given,
+   * the integer primary key of the table is used if any.
+   * @param keyColumn the key column.
+   */
+  public void setKeyColumn(String keyColumn){
+    this.keyColumn = keyColumn;
+  }
+
+  /**
+   * Get the numeric column used for splitting the table by ranges of values. If no column has been set,
+   * the first integer column of the primary key of the table is returned, <code>null</code> if there is none.
+   * @return the key column.
+   * @throws JDBCConnectionException if the primary key of the table cannot be read.
+   */
+  public String getKeyColumn() throws JDBCConnectionException{
+    if (keyColumn != null){
+      return keyColumn;
+    }
+
+    for(Map.Entry<String, Integer> column : getColumns(toolkit, table, true).entrySet()){
+      switch(column.getValue()){
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+          return column.getKey();
+        default:
+          break;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Get the columns of the given table from the metadata of the JDBC driver.
+   * @param toolkit the toolkit that provides the connection.
+   * @param table the table.
+   * @param primaryKey <code>true</code> for the columns of the primary key only, <code>false</code> for all the columns.
+   * @return the columns, in the key order (or in the table order for all the columns), associated to their JDBC
+   * {@link Types type}. The map is empty if the table has no primary key or is not found.
+   * @throws JDBCConnectionException if the metadata cannot be read.
+   */
+  static LinkedHashMap<String, Integer> getColumns(SQLToolkit toolkit, Table table, boolean primaryKey) throws JDBCConnectionException{
+    LinkedHashMap<String, Integer> result = new LinkedHashMap<String, Integer>();
+    TreeMap<Integer, String> columns      = new TreeMap<Integer, String>();
+    JDBCConnection connection             = toolkit.getConnection();
+    Connection jdbcConnection             = null;
+    DatabaseMetaData metadata             = null;
+    String catalog                        = null;
+    String schema                         = null;
+
+    if (connection == null){
+      return result;
+    }
+
+    // Avec MySQL, les bases de donnees sont des catalogues JDBC
+    if (table.getSchema() != null){
+      if (connection.getDbType() == JDBCConnection.MYSQL){
+        catalog = table.getSchema().getName();
+      } else {
+        schema  = table.getSchema().getName();
+      }
+    }
+
+    jdbcConnection = connection.borrowConnection();
+    try {
+      metadata = jdbcConnection.getMetaData();
+
+      if (primaryKey){
+        try (ResultSet resultSet = metadata.getPrimaryKeys(catalog, schema, table.getName())){
+          while(resultSet.next()){
+            columns.put(resultSet.getInt("KEY_SEQ"), resultSet.getString("COLUMN_NAME"));
+          }
+        }
+
+        for(String column : columns.values()){
+          result.put(column, Types.OTHER);
+        }
+      }
+
+      if (!primaryKey || (result.size() > 0)){
+        try (ResultSet resultSet = metadata.getColumns(catalog, schema, table.getName(), null)){
+          while(resultSet.next()){
+            if (!primaryKey){
+              columns.put(resultSet.getInt("ORDINAL_POSITION"), resultSet.getString("COLUMN_NAME"));
+              result.put(resultSet.getString("COLUMN_NAME"), resultSet.getInt("DATA_TYPE"));
+            } else if (result.containsKey(resultSet.getString("COLUMN_NAME"))){
+              result.put(resultSet.getString("COLUMN_NAME"), resultSet.getInt("DATA_TYPE"));
+            }
+          }
+        }
+      }
+
+      // Toutes les colonnes: ordre de la table
+      if (!primaryKey){
+        LinkedHashMap<String, Integer> ordered = new LinkedHashMap<String, Integer>();
+        for(String column : columns.values()){
+          ordered.put(column, result.get(column));
+        }
+        result = ordered;
+      }
+    } catch (SQLException ex) {
+      throw connection.processSQLException(ex, connection.getDbName(), connection.getDbUser(), connection.getDbPassword(),
+                                           connection.getDbServer(), connection.getDbPort(), connection.getDbType(), null);
+    } finally {
+      connection.releaseConnection(jdbcConnection);
+    }
+
+    return result;
+  }
+
+  /**
+   * Set the number of rows fetched from the server at once by each partition.
+   * @param fetchSize the fetch size.
+   */
+  public void setFetchSize(int fetchSize){
+    this.fetchSize = fetchSize;
+  }
+
+  /**
+   * Get the number of rows fetched from the server at once by each partition.
+   * @return the fetch size.
+   */
+  public int getFetchSize(){
+    return fetchSize;
+  }
+
+  /**
+   * Set the executor that reads the partitions. If <code>null</code>, the
+   * {@link JDBCConnection#getAsyncExecutor() asynchronous executor} of the connection is used.
+   * @param executor the executor that reads the partitions.
+   */
+  public void setExecutor(Executor executor){
+    this.executor = executor;
+  }
+
+  /**
+   * Get the executor that reads the partitions.
+   * @return the executor that reads the partitions.
+   */
+  public Executor getExecutor(){
+    if (executor != null){
+      return executor;
+    }
+
+    if (toolkit.getConnection() != null){
+      return toolkit.getConnection().getAsyncExecutor();
+    }
+
+    return JDBCConnection.getDefaultAsyncExecutor();
+  }
+}
@@ -0,0 +1,1099 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.ColumnarResult;
+
+/**
+ * A cache of the results of read only queries, keyed by the SQL text and the values of the bound parameters. The
+ * results are read entirely when they are cached and stored detached from the connection within a
+ * {@link ColumnarResult columnar result}. Each caller obtains its own read only, scrollable {@link ResultSet result set}
+ * on the cached rows.<br>
+ * The cache is bounded by the estimated {@link ColumnarResult#getByteCount() memory weight} of the results. When it is
+ * full, the least recently used results are evicted, but a new result is only admitted if it has been requested more often
+ * than the results it would evict (TinyLFU admission, the request frequencies being counted by a small sketch). This keeps
+ * the frequently repeated queries cached when large one shot queries go through the cache.<br>
+ * The entries expire after a {@link #setTimeToLive(long) time to live} and are tagged with the tables they read, so that
+ * an update can {@link #invalidate(String) invalidate} the results of the tables it modifies. A result is not cached if an invalidation occurred since the
+ * {@link #getGeneration() generation} read before its query was executed, so that a result read while an update is
+ * processed by another thread is not served after the update.<br>
+ * Only the <code>SELECT</code> queries that read tables and do not call a known volatile function (<code>NOW()</code>,
+ * <code>RAND()</code>, <code>nextval()</code>, ...) are {@link #isCacheable(String) cached}. The cache cannot know whether a
+ * query calls a user defined volatile function, whose result is then served until it expires.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see CachingSQLToolkit#setQueryCache(QueryResultCache)
+ */
+public class QueryResultCache {
+
+  /**
+   * The default maximum weight of the cache in bytes (64 MB).
+   */
+  public static final long DEFAULT_MAXIMUM_WEIGHT = 64L * 1024L * 1024L;
+
+  /**
+   * The default time to live of a result in milliseconds (1 minute).
+   */
+  public static final long DEFAULT_TIME_TO_LIVE   = 60000L;
+
+  /**
+   * The fixed weight of an entry (key, metadata and structure) in bytes.
+   */
+  private static final long ENTRY_WEIGHT = 256;
+
+  /**
+   * The separator of the SQL text and of the parameters within a key.
+   */
+  private static final char KEY_SEPARATOR = '\u0000';
+
+  /**
+   * The tokens of a query: quoted identifiers, string literals, identifiers and punctuation.
+   */
+  private static final Pattern TOKEN = Pattern.compile("\"[^\"]*\"|`[^`]*`|\\[[^\\]]*\\]|'(?:[^'\\\\]|''|\\\\.)*'|[A-Za-z_][\\w$]*|[.,()]|--[^\\n]*|/\\*.*?\\*/|\\S", Pattern.DOTALL);
+
+  /**
+   * The keywords that end a list of tables.
+   */
+  private static final Set<String> KEYWORDS = new HashSet<String>(Arrays.asList(
+      "WHERE", "GROUP", "ORDER", "HAVING", "LIMIT", "OFFSET", "UNION", "EXCEPT", "INTERSECT", "JOIN", "INNER",
+      "LEFT", "RIGHT", "FULL", "OUTER", "CROSS", "NATURAL", "ON", "USING", "WINDOW", "FOR", "LATERAL",
+      "STRAIGHT_JOIN", "FETCH", "INTO", "SET", "VALUES", "RETURNING", "SELECT", "PARTITION", "USE", "FORCE", "IGNORE"));
+
+  /**
+   * The functions whose result changes on each call or that have side effects.
+   */
+  private static final Set<String> VOLATILE_FUNCTIONS = new HashSet<String>(Arrays.asList(
+      "NEXTVAL", "SETVAL", "CURRVAL", "LASTVAL", "LAST_INSERT_ID", "RAND", "RANDOM", "UUID", "UUID_SHORT", "GEN_RANDOM_UUID",
+      "NOW", "SYSDATE", "CURDATE", "CURTIME", "UTC_TIMESTAMP", "UNIX_TIMESTAMP", "CLOCK_TIMESTAMP", "STATEMENT_TIMESTAMP",
+      "TIMEOFDAY", "FOUND_ROWS", "ROW_COUNT", "SLEEP", "PG_SLEEP", "GET_LOCK", "RELEASE_LOCK", "PG_ADVISORY_LOCK"));
+
+  /**
+   * The keywords that give the current date without parentheses.
+   */
+  private static final Set<String> VOLATILE_KEYWORDS = new HashSet<String>(Arrays.asList(
+      "CURRENT_TIMESTAMP", "CURRENT_DATE", "CURRENT_TIME", "LOCALTIME", "LOCALTIMESTAMP"));
+
+  /**
+   * The modifiers that can precede the table of an update.
+   */
+  private static final Set<String> MODIFIERS = new HashSet<String>(Arrays.asList(
+      "LOW_PRIORITY", "DELAYED", "HIGH_PRIORITY", "IGNORE", "QUICK", "ONLY", "TABLE", "IF", "EXISTS"));
+
+  /**
+   * The maximum weight of the cache in bytes.
+   */
+  private long maximumWeight                         = DEFAULT_MAXIMUM_WEIGHT;
+
+  /**
+   * The time to live of a result in milliseconds.
+   */
+  private long timeToLive                            = DEFAULT_TIME_TO_LIVE;
+
+  /**
+   * The current weight of the cache in bytes.
+   */
+  private long weight                                = 0;
+
+  /**
+   * The cached results, the least recently used first.
+   */
+  private LinkedHashMap<String, CachedResult> entries = null;
+
+  /**
+   * The request frequencies of the keys.
+   */
+  private FrequencySketch sketch                     = null;
+
+  /**
+   * The number of requests served from the cache.
+   */
+  private final AtomicLong hits                      = new AtomicLong();
+
+  /**
+   * The number of requests not served from the cache.
+   */
+  private final AtomicLong misses                    = new AtomicLong();
+
+  /**
+   * The number of results evicted or rejected because the cache is full.
+   */
+  private final AtomicLong evictions                 = new AtomicLong();
+
+  /**
+   * The number of invalidations.
+   */
+  private final AtomicLong generation                = new AtomicLong();
+
+  /**
+   * Create a new cache with the {@link #DEFAULT_MAXIMUM_WEIGHT default maximum weight} and the
+   * {@link #DEFAULT_TIME_TO_LIVE default time to live}.
+   */
+  public QueryResultCache(){
+    this(DEFAULT_MAXIMUM_WEIGHT, DEFAULT_TIME_TO_LIVE);
+  }
+
+  /**
+   * Create a new cache.
+   * @param maximumWeight the maximum weight of the cache in bytes.
+   * @param timeToLive the time to live of a result in milliseconds. A value lower or equal to 0 disables the cache.
+   */
+  public QueryResultCache(long maximumWeight, long timeToLive){
+    this.maximumWeight = Math.max(0, maximumWeight);
+    this.timeToLive    = timeToLive;
+    this.entries       = new LinkedHashMap<String, CachedResult>(16, 0.75f, true);
+    this.sketch        = new FrequencySketch();
+  }
+
+  /**
+   * Get a cached result.
+   * @param query the query.
+   * @param parameters the values of the parameters of the query or <code>null</code> if the query has no parameter.
+   * @return a new result set on the cached rows or <code>null</code> if the result is not cached.
+   */
+  public ResultSet get(String query, Object[] parameters){
+    String key          = key(query, parameters);
+    CachedResult cached = null;
+
+    synchronized(this){
+      sketch.increment(key.hashCode());
+
+      cached = entries.get(key);
+      if ((cached != null) && (cached.expiration < System.currentTimeMillis())){
+        remove(key);
+        cached = null;
+      }
+    }
+
+    if (cached == null){
+      misses.incrementAndGet();
+      return null;
+    }
+
+    hits.incrementAndGet();
+    return cached.open();
+  }
+
+  /**
+   * Read the whole given result and cache it. The result set is closed, its statement is left open.
+   * @param query the query that produced the result.
+   * @param parameters the values of the parameters of the query or <code>null</code> if the query has no parameter.
+   * @param resultSet the result of the query.
+   * @param generation the {@link #getGeneration() generation} of the cache read before the query was executed. The
+   *                   result is not cached if the cache has been invalidated since.
+   * @return a new result set on the cached rows, that can be used even if the result has not been admitted by the cache.
+   * @throws SQLException if the result cannot be read.
+   */
+  public ResultSet put(String query, Object[] parameters, ResultSet resultSet, long generation) throws SQLException{
+    CachedResult cached = detach(resultSet);
+    String key          = key(query, parameters);
+
+    cached.tables     = getReadTables(query);
+    cached.weight     = ENTRY_WEIGHT + 2L * key.length() + cached.result.getByteCount();
+    cached.expiration = System.currentTimeMillis() + timeToLive;
+
+    // Les invalidations sont faites sous le verrou, la generation ne peut pas changer avant l'ajout
+    synchronized(this){
+      if ((timeToLive > 0) && (generation == this.generation.get()) && admit(key, cached.weight)){
+        remove(key);
+        entries.put(key, cached);
+        weight += cached.weight;
+      }
+    }
+
+    return cached.open();
+  }
+
+  /**
+   * Read a whole result within a detached result.
+   * @param resultSet the result to read. The result set is closed, its statement is left open so that a cached
+   *                  prepared statement can be reused.
+   * @return the detached result.
+   * @throws SQLException if the result cannot be read.
+   */
+  static CachedResult detach(ResultSet resultSet) throws SQLException{
+    ResultSetMetaData metaData  = null;
+    CachedResult cached         = null;
+
+    try {
+      metaData  = resultSet.getMetaData();
+
+      cached = new CachedResult(metaData);
+      while(resultSet.next()){
+        cached.result.append(resultSet);
+      }
+      cached.result.trim();
+    } finally {
+      resultSet.close();
+    }
+
+    return cached;
+  }
+
+  /**
+   * Decide whether a result can be added to the cache and evict the results needed to make room for it. The result is
+   * rejected if it is too heavy or if one of the results to evict has been requested more often.
+   * @param key the key of the result.
+   * @param weight the weight of the result.
+   * @return <code>true</code> if the result can be added.
+   */
+  private boolean admit(String key, long weight){
+    ArrayList<String> victims                      = null;
+    CachedResult previous                          = entries.get(key);
+    long needed                                    = 0;
+    long now                                       = System.currentTimeMillis();
+    int frequency                                  = 0;
+    Iterator<Map.Entry<String, CachedResult>> iter = null;
+    Map.Entry<String, CachedResult> entry          = null;
+
+    if (weight > maximumWeight){
+      evictions.incrementAndGet();
+      return false;
+    }
+
+    needed = this.weight + weight - ((previous != null) ? previous.weight : 0) - maximumWeight;
+
+    if (needed <= 0){
+      return true;
+    }
+
+    // Choix des victimes parmi les moins recemment utilisees
+    frequency = sketch.frequency(key.hashCode());
+    victims   = new ArrayList<String>();
+    iter      = entries.entrySet().iterator();
+    while((needed > 0) && iter.hasNext()){
+      entry = iter.next();
+
+      if (entry.getKey().equals(key)){
+        continue;
+      }
+
+      // Une entree expiree est toujours evincee
+      if ((entry.getValue().expiration >= now) && (sketch.frequency(entry.getKey().hashCode()) > frequency)){
+        evictions.incrementAndGet();
+        return false;
+      }
+
+      victims.add(entry.getKey());
+      needed -= entry.getValue().weight;
+    }
+
+    for(String victim : victims){
+      remove(victim);
+      evictions.incrementAndGet();
+    }
+
+    return needed <= 0;
+  }
+
+  /**
+   * Remove an entry and update the weight of the cache.
+   * @param key the key of the entry.
+   */
+  private void remove(String key){
+    CachedResult cached = entries.remove(key);
+
+    if (cached != null){
+      weight -= cached.weight;
+    }
+  }
+
+  /**
+   * Invalidate all the cached results.
+   */
+  public synchronized void invalidate(){
+    generation.incrementAndGet();
+    entries.clear();
+    weight = 0;
+  }
+
+  /**
+   * Invalidate the results of the queries that read the given table and the results of the queries whose tables are unknown.
+   * @param table the name of the table, possibly qualified by its schema and quoted.
+   */
+  public synchronized void invalidate(String table){
+    String name = normalize(table);
+
+    generation.incrementAndGet();
+
+    Iterator<Map.Entry<String, CachedResult>> iter = entries.entrySet().iterator();
+    while(iter.hasNext()){
+      CachedResult cached = iter.next().getValue();
+      if ((cached.tables == null) || cached.tables.contains(name)){
+        weight -= cached.weight;
+        iter.remove();
+      }
+    }
+  }
+
+  /**
+   * Invalidate the results that can be modified by the given update. If the tables modified by the update
+   * cannot be found, all the results are invalidated.
+   * @param query the update.
+   */
+  public void invalidateUpdate(String query){
+    Set<String> tables = getWrittenTables(query);
+
+    if (tables == null){
+      invalidate();
+    } else {
+      for(String table : tables){
+        invalidate(table);
+      }
+    }
+  }
+
+  /**
+   * Return <code>true</code> if the result of the given query can be cached. Only the <code>SELECT</code> queries that
+   * read tables and that do not lock rows (<code>FOR UPDATE</code>, <code>FOR SHARE</code>, <code>LOCK IN SHARE MODE</code>),
+   * create a table (<code>SELECT INTO</code>) or call a volatile function (<code>NOW()</code>, <code>nextval()</code>,
+   * <code>LAST_INSERT_ID()</code>, ...) are cached.
+   * @param query the query.
+   * @return <code>true</code> if the result of the query can be cached.
+   */
+  public static boolean isCacheable(String query){
+    ArrayList<String> tokens = tokenize(query);
+    String previous          = null;
+
+    if ((tokens.size() == 0) || !"SELECT".equals(tokens.get(0))){
+      return false;
+    }
+
+    for(int i = 0; i < tokens.size(); i++){
+      String token = tokens.get(i);
+
+      if ("INTO".equals(token) || "UPDATE".equals(token) || VOLATILE_KEYWORDS.contains(token)
+          || ("SHARE".equals(token) && ("FOR".equals(previous) || "KEY".equals(previous) || "IN".equals(previous)))
+          || (VOLATILE_FUNCTIONS.contains(token) && (i + 1 < tokens.size()) && "(".equals(tokens.get(i + 1)))){
+        return false;
+      }
+      previous = token;
+    }
+
+    // Une requete sans table ne peut pas etre invalidee (SELECT 1, SELECT f(), ...)
+    return getReadTables(query) != null;
+  }
+
+  /**
+   * Get the tables read by a query, from its <code>FROM</code> and <code>JOIN</code> clauses.
+   * @param query the query.
+   * @return the normalized names of the tables or <code>null</code> if no table can be found.
+   */
+  static Set<String> getReadTables(String query){
+    ArrayList<String> tokens = tokenize(query);
+    Set<String> tables       = new HashSet<String>();
+
+    for(int i = 0; i < tokens.size(); i++){
+      if ("FROM".equals(tokens.get(i)) || "JOIN".equals(tokens.get(i))){
+        readTableList(tokens, i + 1, tables);
+      }
+    }
+
+    return (tables.size() > 0) ? Collections.unmodifiableSet(tables) : null;
+  }
+
+  /**
+   * Get the tables modified by an update: the target of <code>INSERT</code>, <code>UPDATE</code>, <code>DELETE</code>,
+   * <code>REPLACE</code>, <code>MERGE</code>, <code>TRUNCATE</code>, <code>COPY</code>, <code>LOAD DATA</code> and
+   * the tables of its <code>FROM</code> and <code>JOIN</code> clauses (that can be modified by a multiple table update).
+   * @param query the update.
+   * @return the normalized names of the tables or <code>null</code> if no table can be found.
+   */
+  static Set<String> getWrittenTables(String query){
+    ArrayList<String> tokens = tokenize(query);
+    Set<String> tables       = new HashSet<String>();
+    String token             = null;
+    int index                = 0;
+
+    if (tokens.size() == 0){
+      return null;
+    }
+
+    // Les instructions de structure et les scripts ne sont pas analyses
+    switch(tokens.get(0)){
+      case "UPDATE":
+      case "TRUNCATE":
+      case "REPLACE":
+      case "COPY":
+        index = 1;
+        while((index < tokens.size()) && MODIFIERS.contains(tokens.get(index))){
+          index++;
+        }
+        readTableList(tokens, index, tables);
+        break;
+      case "INSERT":
+      case "DELETE":
+      case "MERGE":
+      case "LOAD":
+        break;
+      default:
+        return null;
+    }
+
+    for(int i = 0; i < tokens.size(); i++){
+      token = tokens.get(i);
+      if ("FROM".equals(token) || "JOIN".equals(token) || "INTO".equals(token)){
+        index = i + 1;
+        while((index < tokens.size()) && MODIFIERS.contains(tokens.get(index))){
+          index++;
+        }
+        readTableList(tokens, index, tables);
+      }
+    }
+
+    return (tables.size() > 0) ? tables : null;
+  }
+
+  /**
+   * Read a list of tables separated by commas, each table being possibly followed by an alias.
+   * @param tokens the tokens of the query.
+   * @param index the index of the first table.
+   * @param tables the set that receives the normalized names of the tables.
+   */
+  private static void readTableList(ArrayList<String> tokens, int index, Set<String> tables){
+    String name = null;
+
+    while(index < tokens.size()){
+      // Sous requete ou fonction: les tables sont lues avec la sous requete
+      if (!isIdentifier(tokens.get(index)) || KEYWORDS.contains(tokens.get(index))){
+        return;
+      }
+
+      name = tokens.get(index++);
+      while((index + 1 < tokens.size()) && ".".equals(tokens.get(index)) && isIdentifier(tokens.get(index + 1))){
+        name = tokens.get(index + 1);
+        index += 2;
+      }
+      tables.add(normalize(name));
+
+      // Alias
+      if ((index < tokens.size()) && "AS".equals(tokens.get(index))){
+        index += 2;
+      } else if ((index < tokens.size()) && isIdentifier(tokens.get(index)) && !KEYWORDS.contains(tokens.get(index))){
+        index++;
+      }
+
+      if ((index < tokens.size()) && ",".equals(tokens.get(index))){
+        index++;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Split a query into tokens. The unquoted identifiers and keywords are converted to upper case, the comments and
+   * string literals are dropped.
+   * @param query the query.
+   * @return the tokens of the query.
+   */
+  private static ArrayList<String> tokenize(String query){
+    ArrayList<String> tokens = new ArrayList<String>();
+    Matcher matcher          = null;
+    String token             = null;
+    char first               = 0;
+
+    if (query == null){
+      return tokens;
+    }
+
+    matcher = TOKEN.matcher(query);
+    while(matcher.find()){
+      token = matcher.group();
+      first = token.charAt(0);
+
+      if ((first == '\'') || token.startsWith("--") || token.startsWith("/*")){
+        continue;
+      }
+
+      if ((first == '"') || (first == '`') || (first == '[')){
+        tokens.add(token);
+      } else {
+        tokens.add(token.toUpperCase(Locale.ROOT));
+      }
+    }
+
+    return tokens;
+  }
+
+  /**
+   * Return <code>true</code> if the given token is an identifier (possibly quoted).
+   * @param token the token.
+   * @return <code>true</code> if the token is an identifier.
+   */
+  private static boolean isIdentifier(String token){
+    char first = token.charAt(0);
+
+    return Character.isLetter(first) || (first == '_') || (first == '"') || (first == '`') || (first == '[');
+  }
+
+  /**
+   * Normalize the name of a table: the schema and the quotes are removed and the name is converted to lower case.
+   * @param table the name of the table.
+   * @return the normalized name.
+   */
+  private static String normalize(String table){
+    String name = table.trim();
+    int dot     = name.lastIndexOf('.');
+
+    if ((dot >= 0) && (dot < name.length() - 1)){
+      name = name.substring(dot + 1);
+    }
+
+    if ((name.length() > 1) && ((name.charAt(0) == '"') || (name.charAt(0) == '`') || (name.charAt(0) == '['))){
+      name = name.substring(1, name.length() - 1);
+    }
+
+    return name.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Get the key of a query.
+   * @param query the query.
+   * @param parameters the values of the parameters of the query.
+   * @return the key of the query.
+   */
+  private static String key(String query, Object[] parameters){
+    StringBuilder key = new StringBuilder(query);
+
+    if (parameters != null){
+      for(Object parameter : parameters){
+        key.append(KEY_SEPARATOR);
+        if (parameter == null){
+          key.append("null");
+        } else if (parameter instanceof byte[]){
+          key.append("byte[]:").append(Arrays.toString((byte[])parameter));
+        } else {
+          key.append(parameter.getClass().getName()).append(':').append(parameter);
+        }
+      }
+    }
+
+    return key.toString();
+  }
+
+  /**
+   * Set the maximum weight of the cache. The least recently used results are evicted if the cache is heavier.
+   * @param maximumWeight the maximum weight of the cache in bytes.
+   */
+  public synchronized void setMaximumWeight(long maximumWeight){
+    this.maximumWeight = Math.max(0, maximumWeight);
+
+    Iterator<Map.Entry<String, CachedResult>> iter = entries.entrySet().iterator();
+    while((weight > this.maximumWeight) && iter.hasNext()){
+      weight -= iter.next().getValue().weight;
+      iter.remove();
+      evictions.incrementAndGet();
+    }
+  }
+
+  /**
+   * Get the maximum weight of the cache.
+   * @return the maximum weight of the cache in bytes.
+   */
+  public synchronized long getMaximumWeight(){
+    return maximumWeight;
+  }
+
+  /**
+   * Get the generation of the cache, incremented by each invalidation. The generation is read before a query is executed
+   * and given to {@link #put(String, Object[], ResultSet, long)}.
+   * @return the generation of the cache.
+   */
+  public long getGeneration(){
+    return generation.get();
+  }
+
+  /**
+   * Get the current weight of the cache.
+   * @return the sum of the weights of the cached results in bytes.
+   */
+  public synchronized long getWeight(){
+    return weight;
+  }
+
+  /**
+   * Set the time to live of the results. The results already cached keep their expiration date.
+   * @param timeToLive the time to live in milliseconds. A value lower or equal to 0 disables the cache.
+   */
+  public synchronized void setTimeToLive(long timeToLive){
+    this.timeToLive = timeToLive;
+    if (timeToLive <= 0){
+      invalidate();
+    }
+  }
+
+  /**
+   * Get the time to live of the results.
+   * @return the time to live in milliseconds.
+   */
+  public synchronized long getTimeToLive(){
+    return timeToLive;
+  }
+
+  /**
+   * Get the number of cached results.
+   * @return the number of cached results.
+   */
+  public synchronized int size(){
+    return entries.size();
+  }
+
+  /**
+   * Get the number of requests served from the cache.
+   * @return the number of cache hits.
+   */
+  public long getHitCount(){
+    return hits.get();
+  }
+
+  /**
+   * Get the number of requests that have not been served from the cache.
+   * @return the number of cache misses.
+   */
+  public long getMissCount(){
+    return misses.get();
+  }
+
+  /**
+   * Get the number of results evicted from the cache or not admitted because the cache is full.
+   * @return the number of evictions.
+   */
+  public long getEvictionCount(){
+    return evictions.get();
+  }
+
+  /**
+   * A result held by the cache.
+   */
+  static class CachedResult {
+
+    private final ColumnarResult result;
+
+    private final int[] types;
+
+    private final String[] typeNames;
+
+    private final int[] precisions;
+
+    private final int[] scales;
+
+    private final HashMap<String, Integer> labels = new HashMap<String, Integer>();
+
+    private Set<String> tables;
+
+    private long weight;
+
+    private long expiration;
+
+    CachedResult(ResultSetMetaData metaData) throws SQLException{
+      int count = metaData.getColumnCount();
+
+      result     = new ColumnarResult(metaData);
+      types      = new int[count];
+      typeNames  = new String[count];
+      precisions = new int[count];
+      scales     = new int[count];
+
+      for(int i = 0; i < count; i++){
+        types[i]      = metaData.getColumnType(i + 1);
+        typeNames[i]  = metaData.getColumnTypeName(i + 1);
+        precisions[i] = metaData.getPrecision(i + 1);
+        scales[i]     = metaData.getScale(i + 1);
+        labels.putIfAbsent(result.getColumnName(i).toLowerCase(Locale.ROOT), i);
+      }
+    }
+
+    ResultSet open(){
+      return (ResultSet) Proxy.newProxyInstance(QueryResultCache.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                                                new CachedResultSetHandler(this));
+    }
+
+    ResultSetMetaData metaData(){
+      return (ResultSetMetaData) Proxy.newProxyInstance(QueryResultCache.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class},
+                                                        new CachedMetaDataHandler(this));
+    }
+  }
+
+  /**
+   * The handler of a read only, scrollable result set on a cached result.
+   */
+  private static class CachedResultSetHandler implements InvocationHandler {
+
+    private final CachedResult cached;
+
+    private int row         = -1;
+
+    private boolean wasNull = false;
+
+    private boolean closed  = false;
+
+    CachedResultSetHandler(CachedResult cached){
+      this.cached = cached;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name  = method.getName();
+      int rowCount = cached.result.getRowCount();
+
+      switch(name){
+        case "close":
+          closed = true;
+          return null;
+        case "isClosed":
+          return closed;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "CachedResultSet["+rowCount+" rows]";
+        default:
+          break;
+      }
+
+      if (closed){
+        throw new SQLException("Result set is closed", "HY010");
+      }
+
+      // Accesseurs des valeurs: getXxx(int ...) et getXxx(String ...)
+      if (name.startsWith("get") && (args != null) && ((args[0] instanceof Integer) || (args[0] instanceof String))){
+        return getValue(name, args, method.getReturnType());
+      }
+
+      switch(name){
+        case "next":
+          row = Math.min(row + 1, rowCount);
+          return row < rowCount;
+        case "previous":
+          row = Math.max(row - 1, -1);
+          return row >= 0;
+        case "first":
+          row = 0;
+          return rowCount > 0;
+        case "last":
+          row = rowCount - 1;
+          return rowCount > 0;
+        case "beforeFirst":
+          row = -1;
+          return null;
+        case "afterLast":
+          row = rowCount;
+          return null;
+        case "absolute":
+          int position = (Integer)args[0];
+          row = (position >= 0) ? position - 1 : rowCount + position;
+          row = Math.max(-1, Math.min(row, rowCount));
+          return (row >= 0) && (row < rowCount);
+        case "relative":
+          row = Math.max(-1, Math.min(row + (Integer)args[0], rowCount));
+          return (row >= 0) && (row < rowCount);
+        case "isBeforeFirst":
+          return (row < 0) && (rowCount > 0);
+        case "isAfterLast":
+          return (row >= rowCount) && (rowCount > 0);
+        case "isFirst":
+          return (row == 0) && (rowCount > 0);
+        case "isLast":
+          return (row == rowCount - 1) && (rowCount > 0);
+        case "getRow":
+          return ((row >= 0) && (row < rowCount)) ? row + 1 : 0;
+        case "wasNull":
+          return wasNull;
+        case "findColumn":
+          return column((String)args[0]) + 1;
+        case "getMetaData":
+          return cached.metaData();
+        case "getType":
+          return ResultSet.TYPE_SCROLL_INSENSITIVE;
+        case "getConcurrency":
+          return ResultSet.CONCUR_READ_ONLY;
+        case "getHoldability":
+          return ResultSet.HOLD_CURSORS_OVER_COMMIT;
+        case "getFetchDirection":
+          return ResultSet.FETCH_FORWARD;
+        case "getFetchSize":
+          return 0;
+        case "setFetchSize":
+        case "setFetchDirection":
+        case "clearWarnings":
+          return null;
+        case "getWarnings":
+        case "getStatement":
+          return null;
+        case "isWrapperFor":
+          return false;
+        case "unwrap":
+          throw new SQLException("Cached result set does not wrap "+args[0]);
+        default:
+          throw new SQLFeatureNotSupportedException("Cached result set is read only, "+name+" is not supported");
+      }
+    }
+
+    private int column(String label) throws SQLException{
+      Integer index = cached.labels.get(label.toLowerCase(Locale.ROOT));
+
+      if (index == null){
+        throw new SQLException("Unknown column "+label, "S0022");
+      }
+
+      return index;
+    }
+
+    private Object getValue(String name, Object[] args, Class<?> type) throws SQLException{
+      int column   = (args[0] instanceof String) ? column((String)args[0]) : (Integer)args[0] - 1;
+      Object value = null;
+
+      if ((row < 0) || (row >= cached.result.getRowCount())){
+        throw new SQLException("Result set is not positioned on a row", "24000");
+      }
+
+      if ((column < 0) || (column >= cached.result.getColumnCount())){
+        throw new SQLException("Invalid column index "+args[0], "S1002");
+      }
+
+      value   = cached.result.getObject(row, column);
+      wasNull = (value == null);
+
+      // getObject(int, Class)
+      if ("getObject".equals(name) && (args.length == 2) && (args[1] instanceof Class)){
+        type = (Class<?>)args[1];
+        if ((value == null) || type.isInstance(value)){
+          return (value instanceof byte[]) ? ((byte[])value).clone() : value;
+        }
+        return convert(value, type);
+      }
+
+      if ("getObject".equals(name)){
+        return (value instanceof byte[]) ? ((byte[])value).clone() : value;
+      }
+
+      return convert(value, type);
+    }
+
+    private static Object convert(Object value, Class<?> type) throws SQLException{
+      if (type == String.class){
+        return (value != null) ? value.toString() : null;
+      }
+
+      if (type.isPrimitive()){
+        if (type == boolean.class){
+          if (value instanceof Boolean){
+            return value;
+          } else if (value instanceof Number){
+            return ((Number)value).doubleValue() != 0;
+          } else if (value != null){
+            String text = value.toString().trim();
+            return "1".equals(text) || "t".equalsIgnoreCase(text) || "true".equalsIgnoreCase(text) || "y".equalsIgnoreCase(text);
+          }
+          return false;
+        }
+
+        Number number = null;
+        if (value instanceof Number){
+          number = (Number)value;
+        } else if (value instanceof Boolean){
+          number = ((Boolean)value) ? 1 : 0;
+        } else if (value != null){
+          try {
+            number = new BigDecimal(value.toString().trim());
+          } catch (NumberFormatException ex) {
+            throw new SQLException("Cannot convert "+value+" to "+type, "22018");
+          }
+        } else {
+          number = 0;
+        }
+
+        if (type == int.class){
+          return number.intValue();
+        } else if (type == long.class){
+          return number.longValue();
+        } else if (type == double.class){
+          return number.doubleValue();
+        } else if (type == float.class){
+          return number.floatValue();
+        } else if (type == short.class){
+          return number.shortValue();
+        } else if (type == byte.class){
+          return number.byteValue();
+        }
+      }
+
+      if (value == null){
+        return null;
+      }
+
+      if (type == BigDecimal.class){
+        return (value instanceof BigDecimal) ? value : new BigDecimal(value.toString().trim());
+      } else if (type == byte[].class){
+        if (value instanceof byte[]){
+          return ((byte[])value).clone();
+        }
+        return value.toString().getBytes(StandardCharsets.UTF_8);
+      } else if (type == Timestamp.class){
+        if (value instanceof java.util.Date){
+          return new Timestamp(((java.util.Date)value).getTime());
+        }
+        return Timestamp.valueOf(value.toString());
+      } else if (type == Date.class){
+        if (value instanceof java.util.Date){
+          return new Date(((java.util.Date)value).getTime());
+        }
+        return Date.valueOf(value.toString());
+      } else if (type == Time.class){
+        if (value instanceof java.util.Date){
+          return new Time(((java.util.Date)value).getTime());
+        }
+        return Time.valueOf(value.toString());
+      } else if (type.isInstance(value)){
+        return value;
+      }
+
+      throw new SQLFeatureNotSupportedException("Cannot convert "+value.getClass().getName()+" to "+type.getName());
+    }
+  }
+
+  /**
+   * The handler of the metadata of a cached result.
+   */
+  private static class CachedMetaDataHandler implements InvocationHandler {
+
+    private final CachedResult cached;
+
+    CachedMetaDataHandler(CachedResult cached){
+      this.cached = cached;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      int column = ((args != null) && (args.length == 1) && (args[0] instanceof Integer)) ? (Integer)args[0] - 1 : -1;
+
+      switch(method.getName()){
+        case "getColumnCount":
+          return cached.result.getColumnCount();
+        case "getColumnLabel":
+        case "getColumnName":
+          return cached.result.getColumnName(column);
+        case "getColumnType":
+          return cached.types[column];
+        case "getColumnTypeName":
+          return cached.typeNames[column];
+        case "getPrecision":
+          return cached.precisions[column];
+        case "getScale":
+          return cached.scales[column];
+        case "isNullable":
+          return ResultSetMetaData.columnNullableUnknown;
+        case "isReadOnly":
+          return true;
+        case "isWritable":
+        case "isDefinitelyWritable":
+        case "isAutoIncrement":
+        case "isWrapperFor":
+          return false;
+        case "getTableName":
+        case "getSchemaName":
+        case "getCatalogName":
+          return "";
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "CachedResultSetMetaData";
+        default:
+          throw new SQLFeatureNotSupportedException(method.getName()+" is not supported by a cached result");
+      }
+    }
+  }
+
+  /**
+   * A count-min sketch of the request frequencies of the keys. The counters are halved periodically so that the
+   * frequencies follow the recent requests.
+   */
+  private static class FrequencySketch {
+
+    private static final int DEPTH = 4;
+
+    private static final int WIDTH = 4096;
+
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final int[] counters = new int[DEPTH * WIDTH];
+
+    private int additions = 0;
+
+    void increment(int hash){
+      for(int i = 0; i < DEPTH; i++){
+        counters[i * WIDTH + index(hash, i)]++;
+      }
+
+      // Vieillissement: les compteurs sont divises par deux
+      if (++additions >= 10 * WIDTH){
+        for(int i = 0; i < counters.length; i++){
+          counters[i] >>>= 1;
+        }
+        additions = 0;
+      }
+    }
+
+    int frequency(int hash){
+      int frequency = Integer.MAX_VALUE;
+
+      for(int i = 0; i < DEPTH; i++){
+        frequency = Math.min(frequency, counters[i * WIDTH + index(hash, i)]);
+      }
+
+      return frequency;
+    }
+
+    private static int index(int hash, int i){
+      int h = hash * SEEDS[i];
+      h ^= h >>> 16;
+      return h & (WIDTH - 1);
+    }
+  }
+}
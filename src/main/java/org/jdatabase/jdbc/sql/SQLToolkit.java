@@ -25,6 +25,7 @@ import org.jdatabase.JDatabase;
 import org.jdatabase.jdbc.ColumnHeader;
 import org.jdatabase.jdbc.JDBCConnection;
 import org.jdatabase.jdbc.JDBCConnectionException;
+import org.jdatabase.jdbc.RowCursor;
 
 /**
  * This classes describe the method to be implemented by all toolkit that can be used as  SQL toolkit for a
@@ -44,9 +45,14 @@ public interface SQLToolkit {
   
   /**
    * Map the entire {@link org.jdatabase.jdbc.sql.Server server}. This method create a tree representing the server and
-   * the databases hosted. Each {@link org.jdatabase.jdbc.sql.Database database} is recursively mapped.
+   * the databases hosted. Each {@link org.jdatabase.jdbc.sql.Database database} is recursively mapped.<br>
+   * A toolkit can map the tree on demand (see {@link MetadataLoader}): the children of a node are then loaded on the first
+   * call to {@link Server#getDatabases()}, {@link Database#getSchemas()} or {@link Schema#getTables()}. As these accessors
+   * cannot throw checked exceptions, an error raised while loading the children is thrown by the accessor as an
+   * {@link IllegalStateException} whose cause is a {@link JDBCConnectionException}, and not by this method.
    * @return the mapped server
-   * @throws JDBCConnectionException if an error occurs.
+   * @throws JDBCConnectionException if an error occurs while the tree is mapped (only the errors of the levels that are
+   *         not loaded on demand).
    */
   public Server mapServer()
   throws JDBCConnectionException;
@@ -169,6 +175,58 @@ public interface SQLToolkit {
   public Object[][] getTableData(Table table)
   throws JDBCConnectionException;
   
+  /**
+   * Open a {@link org.jdatabase.jdbc.RowCursor cursor} on the content of the given {@link org.jdatabase.jdbc.sql.Table table}.
+   * Unlike {@link #getTableData(Table)}, the rows are fetched from the server by blocks of
+   * {@link org.jdatabase.jdbc.RowCursor#DEFAULT_FETCH_SIZE} rows and are not all kept in memory.
+   * The cursor has to be closed when it is not fully read.
+   * @param table the table containing the data
+   * @return a cursor on the table rows or <code>null</code> if the table is <code>null</code>
+   * @throws JDBCConnectionException if an error occurs
+   * @see #getTableCursor(Table, int)
+   */
+  public RowCursor getTableCursor(Table table)
+  throws JDBCConnectionException;
+  
+  /**
+   * Open a {@link org.jdatabase.jdbc.RowCursor cursor} on the content of the given {@link org.jdatabase.jdbc.sql.Table table}.
+   * The rows are fetched from the server by blocks of <code>fetchSize</code> rows.
+   * The cursor has to be closed when it is not fully read.
+   * @param table the table containing the data
+   * @param fetchSize the number of rows fetched from the server at once
+   * @return a cursor on the table rows or <code>null</code> if the table is <code>null</code>
+   * @throws JDBCConnectionException if an error occurs
+   * @see #openCursor(String, int)
+   */
+  public RowCursor getTableCursor(Table table, int fetchSize)
+  throws JDBCConnectionException;
+  
+  /**
+   * Execute a query and open a {@link org.jdatabase.jdbc.RowCursor cursor} on its result. The rows are fetched
+   * from the server by blocks of <code>fetchSize</code> rows. The cursor holds a connection of the 
+   * {@link #getConnection() toolkit connection} until it is closed.
+   * @param query the query to process
+   * @param fetchSize the number of rows fetched from the server at once
+   * @return a cursor on the query result
+   * @throws JDBCConnectionException if an error occurs during the query processing.
+   */
+  public RowCursor openCursor(String query, int fetchSize)
+  throws JDBCConnectionException;
+  
+  /**
+   * Read a page of the content of the given {@link org.jdatabase.jdbc.sql.Table table}. If the table has a primary key, 
+   * the rows are ordered by the key and the page is read by seeking after the key of the last row of the previous page, so that
+   * the cost of a page does not depend on its position within the table. Otherwise the page is read using <code>LIMIT / OFFSET</code>.
+   * @param table the table containing the data
+   * @param pageSize the maximum number of rows of the page
+   * @param token the {@link TablePage#getNextToken() token} given by the previous page or <code>null</code> for the first page
+   * @return the page
+   * @throws JDBCConnectionException if an error occurs
+   * @see TablePager
+   */
+  public TablePage getTablePage(Table table, int pageSize, String token)
+  throws JDBCConnectionException;
+  
   /**
    * Get the headers (column names) of a table. The data corresponding can be extracted with method
    * {@link #getTableData(Table)}
@@ -0,0 +1,115 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.sql;
+
+import org.jdatabase.JDatabase;
+
+/**
+ * A page of the rows of a {@link Table table} read by a {@link TablePager pager}. The page holds the token that gives
+ * access to the next page, <code>null</code> if the page is the last one.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see SQLToolkit#getTablePage(Table, int, String)
+ */
+public class TablePage {
+
+  /**
+   * The names of the columns.
+   */
+  private String[] columnNames = null;
+
+  /**
+   * The rows of the page.
+   */
+  private Object[][] rows      = null;
+
+  /**
+   * The token of the next page.
+   */
+  private String nextToken     = null;
+
+  /**
+   * Specify if the page has been read using the primary key of the table.
+   */
+  private boolean keyset       = false;
+
+  /**
+   * Create a new page.
+   * @param columnNames the names of the columns.
+   * @param rows the rows of the page.
+   * @param nextToken the token of the next page or <code>null</code> if the page is the last one.
+   * @param keyset <code>true</code> if the page has been read using the primary key of the table.
+   */
+  public TablePage(String[] columnNames, Object[][] rows, String nextToken, boolean keyset){
+    this.columnNames = columnNames;
+    this.rows        = rows;
+    this.nextToken   = nextToken;
+    this.keyset      = keyset;
+  }
+
+  /**
+   * Get the names of the columns of the rows.
+   * @return the names of the columns.
+   */
+  public String[] getColumnNames(){
+    return columnNames;
+  }
+
+  /**
+   * Get the rows of the page. The array is empty if the page has no row.
+   * @return the rows of the page.
+   */
+  public Object[][] getRows(){
+    return rows;
+  }
+
+  /**
+   * Get the number of rows of the page.
+   * @return the number of rows of the page.
+   */
+  public int getRowCount(){
+    return rows.length;
+  }
+
+  /**
+   * Get the token that gives access to the next page. The token can be given back to
+   * {@link SQLToolkit#getTablePage(Table, int, String)} to read the next page.
+   * @return the token of the next page or <code>null</code> if the page is the last one.
+   */
+  public String getNextToken(){
+    return nextToken;
+  }
+
+  /**
+   * Return <code>true</code> if there is a page after this one.
+   * @return <code>true</code> if there is a page after this one, <code>false</code> otherwise.
+   */
+  public boolean hasNext(){
+    return nextToken != null;
+  }
+
+  /**
+   * Return <code>true</code> if the page has been read by seeking after the primary key of the previous page
+   * (keyset pagination), <code>false</code> if it has been read using <code>LIMIT / OFFSET</code>.
+   * @return <code>true</code> if the page has been read using the primary key of the table.
+   */
+  public boolean isKeyset(){
+    return keyset;
+  }
+}
@@ -0,0 +1,607 @@
+/*
+  This file is part of JOrigin Common Library.
+
+    JOrigin Common is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    JOrigin Common is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with JOrigin Common.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package org.jdatabase.jdbc.sql;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+
+import org.jdatabase.JDatabase;
+import org.jdatabase.jdbc.JDBCConnection;
+import org.jdatabase.jdbc.JDBCConnectionException;
+import org.jdatabase.jdbc.jfr.QueryEvent;
+
+/**
+ * A reader of the rows of a {@link Table table} by pages, for user interfaces and remote APIs. Each page comes with a
+ * continuation token that gives access to the next page, so that no state is kept between two pages.
+ * <ul>
+ * <li>If the table has a primary key (or if {@link #setKeyColumns(String[]) key columns} are given), the rows are ordered
+ * by the key and a page is read by seeking after the key of the last row of the previous page
+ * (<code>WHERE (k1, k2) &gt; (?, ?) ORDER BY k1, k2 LIMIT n</code>). The token holds the key of the last row. The cost of
+ * a page only depends on the page size, whatever its position within the table.
+ * <li>Otherwise the rows are read using <code>LIMIT / OFFSET</code> and the token holds the offset of the next page. The
+ * server then has to skip all the rows that precede the page. So that the pages do not overlap, the rows are ordered by
+ * their physical location (<code>ctid</code>) with PostgreSQL and by all their comparable columns otherwise, which
+ * only gives a stable order if the table is not modified between two pages.
+ * </ul>
+ * Each page is read by a single query that fetches one row more than the page size in order to know if the page is the
+ * last one. The primary key (or the ordering columns) is read from the metadata of the driver by the first page and
+ * kept by the pager, so that the next pages only send the page query. A pager can therefore be kept and reused for all
+ * the pages of a table, giving the {@link #setKeyColumns(String[]) key columns} avoids the metadata query.
+ * @author Julien Seinturier - COMEX S.A. - <a href="mailto:contact@jorigin.org">contact@jorigin.org</a> - <a href="https://github.com/jorigin/jdatabase">https://github.com/jorigin/jdatabase</a>
+ * @version {@value JDatabase#version} build {@value JDatabase#BUILD}
+ * @since 1.0.0
+ * @see SQLToolkit#getTablePage(Table, int, String)
+ */
+public class TablePager {
+
+  /**
+   * The prefix of a token that holds the key of the last row of a page.
+   */
+  private static final char TOKEN_KEYSET = 'k';
+
+  /**
+   * The prefix of a token that holds the offset of the next page.
+   */
+  private static final char TOKEN_OFFSET = 'o';
+
+  /**
+   * The separator of the key values within a token.
+   */
+  private static final char TOKEN_SEPARATOR = '.';
+
+  /**
+   * The toolkit used to read the table.
+   */
+  private SQLToolkit toolkit    = null;
+
+  /**
+   * The table to read.
+   */
+  private Table table           = null;
+
+  /**
+   * The columns used for ordering and seeking the rows.
+   */
+  private String[] keyColumns   = null;
+
+  /**
+   * The primary key read from the metadata of the driver (empty if the table has no primary key, <code>null</code> if
+   * it has not been read yet).
+   */
+  private volatile String[] primaryKey   = null;
+
+  /**
+   * The columns that order the rows of a table without key (empty if they are not known, <code>null</code> if they
+   * have not been read yet).
+   */
+  private volatile String[] orderColumns = null;
+
+  /**
+   * Create a new pager of the given table.
+   * @param toolkit the toolkit used to read the table.
+   * @param table the table to read.
+   */
+  public TablePager(SQLToolkit toolkit, Table table){
+    this.toolkit = toolkit;
+    this.table   = table;
+  }
+
+  /**
+   * Read the first page of the table.
+   * @param pageSize the maximum number of rows of the page.
+   * @return the first page.
+   * @throws JDBCConnectionException if an error occurs.
+   * @see #getPage(int, String)
+   */
+  public TablePage getFirstPage(int pageSize) throws JDBCConnectionException{
+    return getPage(pageSize, null);
+  }
+
+  /**
+   * Read the page that follows the page that provided the given token.
+   * @param pageSize the maximum number of rows of the page.
+   * @param token the {@link TablePage#getNextToken() token} of the previous page or <code>null</code> for the first page.
+   * @return the page.
+   * @throws JDBCConnectionException if an error occurs.
+   * @throws IllegalArgumentException if the page size is not positive or if the token is not valid for the table.
+   */
+  public TablePage getPage(int pageSize, String token) throws JDBCConnectionException{
+    JDBCConnection connection   = toolkit.getConnection();
+    Connection jdbcConnection   = null;
+    PreparedStatement statement = null;
+    ResultSet resultSet         = null;
+    String[] keys               = null;
+    String[] order              = null;
+    Object[] after              = null;
+    long offset                 = 0;
+    String query                = null;
+    String[] columnNames        = null;
+    int[] keyIndexes            = null;
+    ArrayList<Object[]> rows    = null;
+    Object[] row                = null;
+    String nextToken            = null;
+    long start                  = 0;
+    QueryEvent event            = new QueryEvent(QueryEvent.QUERY);
+
+    if (pageSize < 1){
+      throw new IllegalArgumentException("Invalid page size "+pageSize);
+    }
+
+    keys = getKeyColumns();
+
+    // Decodage du jeton de la page precedente
+    if ((token != null) && (token.length() > 0)){
+      if ((keys != null) && (token.charAt(0) == TOKEN_KEYSET)){
+        after = decodeKey(token, keys.length);
+      } else if ((keys == null) && (token.charAt(0) == TOKEN_OFFSET)){
+        offset = decodeOffset(token);
+      } else {
+        throw new IllegalArgumentException("Invalid page token "+token+" for table "+table.getName());
+      }
+    }
+
+    if (keys == null){
+      order = getOrderColumns();
+    }
+
+    query = getPageQuery(keys, order, after != null, offset, pageSize);
+
+    jdbcConnection = connection.borrowConnection();
+
+    try {
+      statement = jdbcConnection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      statement.setFetchSize(pageSize + 1);
+      statement.setMaxRows(pageSize + 1);
+
+      if (after != null){
+        bindKey(statement, after);
+      }
+
+      event.begin();
+      start     = System.nanoTime();
+      resultSet = statement.executeQuery();
+
+      columnNames = getColumnNames(resultSet.getMetaData());
+
+      if (keys != null){
+        keyIndexes = new int[keys.length];
+        for(int i = 0; i < keys.length; i++){
+          keyIndexes[i] = resultSet.findColumn(keys[i]) - 1;
+        }
+      }
+
+      rows = new ArrayList<Object[]>(Math.min(pageSize, 1024));
+      while((rows.size() < pageSize) && resultSet.next()){
+        row = new Object[columnNames.length];
+        for(int i = 1; i <= row.length; i++){
+          row[i - 1] = resultSet.getObject(i);
+        }
+        rows.add(row);
+      }
+
+      // Une ligne supplementaire indique l'existence d'une page suivante
+      if ((rows.size() == pageSize) && resultSet.next()){
+        if (keys != null){
+          nextToken = encodeKey(keys, keyIndexes, row);
+        } else {
+          nextToken = TOKEN_OFFSET+Long.toString(offset + pageSize);
+        }
+      }
+
+      connection.recordQuery(query, start, rows.size());
+      event.complete(query, rows.size());
+
+    } catch (SQLException ex) {
+      throw connection.processSQLException(ex,
+          connection.getDbName(),
+          connection.getDbUser(),
+          connection.getDbPassword(),
+          connection.getDbServer(),
+          connection.getDbPort(),
+          connection.getDbType(),
+          query);
+    } finally {
+      if (statement != null){
+        try {
+          statement.close();
+        } catch (SQLException ex1) {
+          statement = null;
+        }
+      }
+
+      connection.releaseConnection(jdbcConnection);
+    }
+
+    return new TablePage(columnNames, rows.toArray(new Object[rows.size()][]), nextToken, keys != null);
+  }
+
+  /**
+   * Get the query that reads a page.
+   * @param keys the key columns or <code>null</code> if the table has no key.
+   * @param order the columns that order the rows if the table has no key.
+   * @param seek <code>true</code> if the rows have to follow a key.
+   * @param offset the offset of the page if the table has no key.
+   * @param pageSize the maximum number of rows of the page.
+   * @return the query that reads the page.
+   */
+  private String getPageQuery(String[] keys, String[] order, boolean seek, long offset, int pageSize){
+    StringBuilder query = new StringBuilder("SELECT * FROM ").append(getTableName());
+    boolean limit       = isLimitSupported();
+
+    if (keys != null){
+      if (seek){
+        query.append(" WHERE ");
+
+        // Comparaison de lignes si elle est supportee, sinon forme developpee:
+        // k1 > ? OR (k1 = ? AND k2 > ?) OR ...
+        if ((keys.length == 1) || limit){
+          query.append(keys.length > 1 ? "(" : "").append(String.join(", ", keys)).append(keys.length > 1 ? ")" : "");
+          query.append(" > ");
+          query.append(keys.length > 1 ? "(" : "");
+          for(int i = 0; i < keys.length; i++){
+            query.append(i > 0 ? ", ?" : "?");
+          }
+          query.append(keys.length > 1 ? ")" : "");
+        } else {
+          for(int i = 0; i < keys.length; i++){
+            query.append(i > 0 ? " OR (" : "(");
+            for(int j = 0; j < i; j++){
+              query.append(keys[j]).append(" = ? AND ");
+            }
+            query.append(keys[i]).append(" > ?)");
+          }
+        }
+      }
+
+      query.append(" ORDER BY ").append(String.join(", ", keys));
+    } else if ((order != null) && (order.length > 0)){
+      query.append(" ORDER BY ").append(String.join(", ", order));
+    }
+
+    if (limit){
+      query.append(" LIMIT ").append(pageSize + 1);
+      if (offset > 0){
+        query.append(" OFFSET ").append(offset);
+      }
+    } else if (offset > 0){
+      query.append(" OFFSET ").append(offset).append(" ROWS");
+    }
+
+    return query.toString();
+  }
+
+  /**
+   * Bind the key of the last row of the previous page to the page query.
+   * @param statement the statement that reads the page.
+   * @param key the key of the last row of the previous page.
+   * @throws SQLException if a value cannot be bound.
+   */
+  private void bindKey(PreparedStatement statement, Object[] key) throws SQLException{
+    int parameter = 1;
+
+    if ((key.length == 1) || isLimitSupported()){
+      for(Object value : key){
+        statement.setObject(parameter++, value);
+      }
+    } else {
+      for(int i = 0; i < key.length; i++){
+        for(int j = 0; j <= i; j++){
+          statement.setObject(parameter++, key[j]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Encode the key of a row within a token. Each value is written as a type tag followed by its text encoded in
+   * base 64, so that the token can be used within an URL.
+   * @param keys the key columns.
+   * @param keyIndexes the indexes of the key columns within the row.
+   * @param row the row.
+   * @return the token.
+   */
+  private String encodeKey(String[] keys, int[] keyIndexes, Object[] row){
+    StringBuilder token     = new StringBuilder().append(TOKEN_KEYSET);
+    Base64.Encoder encoder  = Base64.getUrlEncoder().withoutPadding();
+    Object value            = null;
+    char tag                = 0;
+    byte[] bytes            = null;
+
+    for(int i = 0; i < keyIndexes.length; i++){
+      value = row[keyIndexes[i]];
+
+      if (value == null){
+        throw new IllegalStateException("Key column "+keys[i]+" of table "+table.getName()+" is null, the table cannot be paged");
+      }
+
+      if (value instanceof Integer){
+        tag = 'i';
+      } else if (value instanceof Long){
+        tag = 'l';
+      } else if (value instanceof Short){
+        tag = 's';
+      } else if (value instanceof Byte){
+        tag = 'y';
+      } else if (value instanceof BigDecimal){
+        tag = 'n';
+      } else if (value instanceof BigInteger){
+        tag = 'g';
+      } else if (value instanceof Double){
+        tag = 'f';
+      } else if (value instanceof Float){
+        tag = 'r';
+      } else if (value instanceof Boolean){
+        tag = 'z';
+      } else if (value instanceof Timestamp){
+        tag = 'p';
+      } else if (value instanceof Date){
+        tag = 'd';
+      } else if (value instanceof Time){
+        tag = 't';
+      } else if (value instanceof UUID){
+        tag = 'u';
+      } else if (value instanceof byte[]){
+        tag = 'x';
+      } else {
+        tag = 'c';
+      }
+
+      if (value instanceof byte[]){
+        bytes = (byte[]) value;
+      } else {
+        bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+      }
+
+      if (i > 0){
+        token.append(TOKEN_SEPARATOR);
+      }
+      token.append(tag).append(encoder.encodeToString(bytes));
+    }
+
+    return token.toString();
+  }
+
+  /**
+   * Decode the key held by a token.
+   * @param token the token.
+   * @param length the number of key columns.
+   * @return the key values.
+   * @throws IllegalArgumentException if the token is not valid.
+   */
+  private Object[] decodeKey(String token, int length){
+    Object[] key           = new Object[length];
+    Base64.Decoder decoder = Base64.getUrlDecoder();
+    int begin              = 1;
+    int end                = 0;
+    String part            = null;
+    byte[] bytes           = null;
+    String text            = null;
+
+    try {
+      for(int i = 0; i < length; i++){
+        end = token.indexOf(TOKEN_SEPARATOR, begin);
+        if (end < 0){
+          end = token.length();
+        }
+
+        if ((end - begin < 1) || ((i == length - 1) && (end != token.length()))){
+          throw new IllegalArgumentException("Expected "+length+" key values");
+        }
+
+        part  = token.substring(begin, end);
+        bytes = decoder.decode(part.substring(1));
+        text  = new String(bytes, StandardCharsets.UTF_8);
+
+        switch(part.charAt(0)){
+          case 'i': key[i] = Integer.valueOf(text);    break;
+          case 'l': key[i] = Long.valueOf(text);       break;
+          case 's': key[i] = Short.valueOf(text);      break;
+          case 'y': key[i] = Byte.valueOf(text);       break;
+          case 'n': key[i] = new BigDecimal(text);     break;
+          case 'g': key[i] = new BigInteger(text);     break;
+          case 'f': key[i] = Double.valueOf(text);     break;
+          case 'r': key[i] = Float.valueOf(text);      break;
+          case 'z': key[i] = Boolean.valueOf(text);    break;
+          case 'p': key[i] = Timestamp.valueOf(text);  break;
+          case 'd': key[i] = Date.valueOf(text);       break;
+          case 't': key[i] = Time.valueOf(text);       break;
+          case 'u': key[i] = UUID.fromString(text);    break;
+          case 'x': key[i] = bytes;                    break;
+          case 'c': key[i] = text;                     break;
+          default:
+            throw new IllegalArgumentException("Unknown value type "+part.charAt(0));
+        }
+
+        begin = end + 1;
+      }
+    } catch (IllegalArgumentException ex) {
+      throw new IllegalArgumentException("Invalid page token "+token+" for table "+table.getName(), ex);
+    }
+
+    return key;
+  }
+
+  /**
+   * Decode the offset held by a token.
+   * @param token the token.
+   * @return the offset.
+   * @throws IllegalArgumentException if the token is not valid.
+   */
+  private long decodeOffset(String token){
+    long offset = -1;
+
+    try {
+      offset = Long.parseLong(token.substring(1));
+    } catch (NumberFormatException ex) {
+      offset = -1;
+    }
+
+    if (offset < 0){
+      throw new IllegalArgumentException("Invalid page token "+token+" for table "+table.getName());
+    }
+
+    return offset;
+  }
+
+  /**
+   * Get the names of the columns of a result.
+   * @param metaData the meta data of the result.
+   * @return the names of the columns.
+   * @throws SQLException if the meta data cannot be read.
+   */
+  private String[] getColumnNames(ResultSetMetaData metaData) throws SQLException{
+    String[] names = new String[metaData.getColumnCount()];
+
+    for(int i = 0; i < names.length; i++){
+      names[i] = metaData.getColumnLabel(i + 1);
+    }
+
+    return names;
+  }
+
+  /**
+   * Return <code>true</code> if the database supports the <code>LIMIT</code> clause and the row value comparisons.
+   * @return <code>true</code> if the database supports the <code>LIMIT</code> clause.
+   */
+  private boolean isLimitSupported(){
+    JDBCConnection connection = toolkit.getConnection();
+
+    return (connection != null) && ((connection.getDbType() == JDBCConnection.MYSQL)
+                                     || (connection.getDbType() == JDBCConnection.POSTGRESQL));
+  }
+
+  /**
+   * Get the name of the table as used within the queries.
+   * @return the name of the table.
+   */
+  private String getTableName(){
+    JDBCConnection connection = toolkit.getConnection();
+
+    if ((table.getSchema() != null) && ((connection == null) || (connection.getDbType() == JDBCConnection.MYSQL)
+                                         || (connection.getDbType() == JDBCConnection.POSTGRESQL))){
+      return table.getSchema().getName()+"."+table.getName();
+    }
+
+    return table.getName();
+  }
+
+  /**
+   * Set the columns used for ordering and seeking the rows. The columns have to identify the rows and cannot be
+   * <code>null</code>. If no column is given, the primary key of the table is used if any.
+   * @param keyColumns the key columns.
+   */
+  public void setKeyColumns(String[] keyColumns){
+    if ((keyColumns != null) && (keyColumns.length > 0)){
+      this.keyColumns = keyColumns.clone();
+    } else {
+      this.keyColumns = null;
+    }
+  }
+
+  /**
+   * Get the columns used for ordering and seeking the rows. If no column has been set, the columns of the primary key
+   * of the table are returned, <code>null</code> if the table has no primary key. The primary key is read from the
+   * metadata of the driver once for the life of the pager.
+   * @return the key columns.
+   * @throws JDBCConnectionException if the primary key cannot be read from the metadata of the driver.
+   */
+  public String[] getKeyColumns() throws JDBCConnectionException{
+    String[] columns = null;
+
+    if (keyColumns != null){
+      return keyColumns.clone();
+    }
+
+    columns = primaryKey;
+    if (columns == null){
+      columns    = ParallelTableScan.getColumns(toolkit, table, true).keySet().toArray(new String[0]);
+      primaryKey = columns;
+    }
+
+    return columns.length > 0 ? columns.clone() : null;
+  }
+
+  /**
+   * Get the columns that order the rows of a table without key. With PostgreSQL, the rows are ordered by their
+   * physical location. Otherwise all the columns that can be compared are used. The columns are read from the
+   * metadata of the driver once for the life of the pager.
+   * @return the columns that order the rows or <code>null</code> if they are not known.
+   * @throws JDBCConnectionException if the columns cannot be read from the metadata of the driver.
+   */
+  private String[] getOrderColumns() throws JDBCConnectionException{
+    JDBCConnection connection = toolkit.getConnection();
+    ArrayList<String> columns = new ArrayList<String>();
+    String[] order            = orderColumns;
+
+    if (order != null){
+      return order.length > 0 ? order : null;
+    }
+
+    if ((connection != null) && (connection.getDbType() == JDBCConnection.POSTGRESQL)){
+      orderColumns = new String[] {"ctid"};
+      return orderColumns;
+    }
+
+    // Les objets larges ne peuvent pas etre compares par tous les serveurs
+    for(Map.Entry<String, Integer> column : ParallelTableScan.getColumns(toolkit, table, false).entrySet()){
+      switch(column.getValue()){
+        case Types.BLOB:
+        case Types.CLOB:
+        case Types.NCLOB:
+        case Types.LONGVARBINARY:
+        case Types.LONGVARCHAR:
+        case Types.LONGNVARCHAR:
+        case Types.SQLXML:
+        case Types.ARRAY:
+        case Types.STRUCT:
+        case Types.JAVA_OBJECT:
+        case Types.OTHER:
+          break;
+        default:
+          columns.add(column.getKey());
+      }
+    }
+
+    order        = columns.toArray(new String[columns.size()]);
+    orderColumns = order;
+
+    return order.length > 0 ? order : null;
+  }
+
+  /**
+   * Get the table read by the pager.
+   * @return the table read by the pager.
+   */
+  public Table getTable(){
+    return table;
+  }
+}